@@ -23,6 +23,8 @@ import adrianromanski.restschool.repositories.group.StudentClassRepository;
 import adrianromanski.restschool.repositories.person.GuardianRepository;
 import adrianromanski.restschool.repositories.person.StudentRepository;
 import adrianromanski.restschool.repositories.person.TeacherRepository;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
@@ -31,6 +33,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import static adrianromanski.restschool.domain.enums.FemaleName.CHARLOTTE;
@@ -55,10 +58,13 @@ public class SchoolBootstrap implements ApplicationListener<ContextRefreshedEven
     private final SportTeamRepository sportTeamRepository;
     private final ContactRepository contactRepository;
     private final AddressRepository addressRepository;
+    private final GradeDistributionService gradeDistributionService;
+    private final ScoreStatisticsService scoreStatisticsService;
 
     public SchoolBootstrap(StudentRepository studentRepository, SubjectRepository subjectRepository, ExamRepository examRepository, ExamResultRepository examResultRepository,
                            TeacherRepository teacherRepository, StudentClassRepository studentClassRepository, GuardianRepository guardianRepository,
-                           SportTeamRepository sportTeamRepository, ContactRepository studentContactRepository, AddressRepository addressRepository) {
+                           SportTeamRepository sportTeamRepository, ContactRepository studentContactRepository, AddressRepository addressRepository,
+                           GradeDistributionService gradeDistributionService, ScoreStatisticsService scoreStatisticsService) {
         this.studentRepository = studentRepository;
         this.subjectRepository = subjectRepository;
         this.examRepository = examRepository;
@@ -69,6 +75,8 @@ public class SchoolBootstrap implements ApplicationListener<ContextRefreshedEven
         this.sportTeamRepository = sportTeamRepository;
         this.contactRepository = studentContactRepository;
         this.addressRepository = addressRepository;
+        this.gradeDistributionService = gradeDistributionService;
+        this.scoreStatisticsService = scoreStatisticsService;
     }
 
     @Override
@@ -204,8 +212,8 @@ public class SchoolBootstrap implements ApplicationListener<ContextRefreshedEven
         Exam biologyExam = Exam.builder().name(BIOLOGY.toString()).maxPoints(100L).date(LocalDate.now()).build();
 
         // Assign students to exams
-        biologyExam.setStudents(students);
-        mathExam.setStudents(students);
+        biologyExam.setStudents(new HashSet<>(students));
+        mathExam.setStudents(new HashSet<>(students));
 
         // Assign Exam to Teacher
         isaac_biology.getExams().add(biologyExam);
@@ -218,22 +226,22 @@ public class SchoolBootstrap implements ApplicationListener<ContextRefreshedEven
 
         // Init ExamResults
         ExamResult ethanResultMath = ExamResult.builder().name(ethan.getFirstName() + " " + ethan.getLastName())
-                                                    .score(60f).exam(mathExam).date(LocalDate.now()).build();
+                                                    .score(60f).exam(mathExam).student(ethan).date(LocalDate.now()).build();
 
         ExamResult ethanResultBiology = ExamResult.builder().name(ethan.getFirstName() + " " + ethan.getLastName())
-                                                    .score(30f).exam(biologyExam).date(LocalDate.now()).build();
+                                                    .score(30f).exam(biologyExam).student(ethan).date(LocalDate.now()).build();
 
         ExamResult jacobResultMath = ExamResult.builder().name(jacob.getFirstName() + " " + jacob.getLastName())
-                                                    .score(45f).exam(mathExam).date(LocalDate.now()).build();
+                                                    .score(45f).exam(mathExam).student(jacob).date(LocalDate.now()).build();
 
         ExamResult jacobResultBiology = ExamResult.builder().name(jacob.getFirstName() + " " + jacob.getLastName())
-                                                    .score(90f).exam(biologyExam).date(LocalDate.now()).build();
+                                                    .score(90f).exam(biologyExam).student(jacob).date(LocalDate.now()).build();
 
         ExamResult charlotteResultMath = ExamResult.builder().name(charlotte.getFirstName() + " " + charlotte.getLastName())
-                                                    .score(55f).exam(mathExam).date(LocalDate.now()).build();
+                                                    .score(55f).exam(mathExam).student(charlotte).date(LocalDate.now()).build();
 
         ExamResult charlotteResultBiology = ExamResult.builder().name(charlotte.getFirstName() + " " + charlotte.getLastName())
-                                                    .score(85f).exam(biologyExam).date(LocalDate.now()).build();
+                                                    .score(85f).exam(biologyExam).student(charlotte).date(LocalDate.now()).build();
 
         // Assign Exams to Subjects
         math.getExams().add(mathExam);
@@ -250,14 +258,14 @@ public class SchoolBootstrap implements ApplicationListener<ContextRefreshedEven
 
 
         // Assign result
-        jacob.getExams().get(0).getResults().add(jacobResultMath);
-        jacob.getExams().get(1).getResults().add(jacobResultBiology);
+        mathExam.getResults().add(jacobResultMath);
+        biologyExam.getResults().add(jacobResultBiology);
 
-        ethan.getExams().get(0).getResults().add(ethanResultMath);
-        ethan.getExams().get(1).getResults().add(ethanResultBiology);
+        mathExam.getResults().add(ethanResultMath);
+        biologyExam.getResults().add(ethanResultBiology);
 
-        charlotte.getExams().get(0).getResults().add(charlotteResultMath);
-        charlotte.getExams().get(1).getResults().add(charlotteResultBiology);
+        mathExam.getResults().add(charlotteResultMath);
+        biologyExam.getResults().add(charlotteResultBiology);
 
         // Assign Student and Teacher to Class
         physicsClass.setTeacher(isaac_biology);
@@ -319,6 +327,10 @@ public class SchoolBootstrap implements ApplicationListener<ContextRefreshedEven
         sportTeamRepository.save(footballTeam);
         sportTeamRepository.save(footballTeam2);
 
+        // Grade distribution and score statistics, counted once everything above is saved
+        gradeDistributionService.rebuildAll();
+        scoreStatisticsService.rebuildAll();
+
 
 
 
@@ -0,0 +1,11 @@
+package adrianromanski.restschool.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "school.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
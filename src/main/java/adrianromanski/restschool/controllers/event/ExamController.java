@@ -1,14 +1,20 @@
 package adrianromanski.restschool.controllers.event;
 
 import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
 import adrianromanski.restschool.model.event.ExamListDTO;
+import adrianromanski.restschool.model.event.ExamRescheduleDTO;
 import adrianromanski.restschool.services.event.exam.ExamService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -25,16 +31,24 @@ public class ExamController {
 
     @ApiOperation("Returns a ExamListDTO Object that contains all Exams")
     @GetMapping()
-    @ResponseStatus(HttpStatus.OK)
-    public ExamListDTO getAllExams() {
-        return  new ExamListDTO(examService.getAllExams());
+    public ResponseEntity<ExamListDTO> getAllExams(WebRequest request) {
+        VersionDTO version = examService.getExamsVersion();
+        if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+            // 304 with ETag and Last-Modified is already written, nothing is loaded or serialized
+            return null;
+        }
+        return ResponseEntity.ok(new ExamListDTO(examService.getAllExams()));
     }
 
     @ApiOperation("Returns an Exam Object with matching ID or else throw ResourceNotFoundException")
     @GetMapping("{ID}")
-    @ResponseStatus(HttpStatus.OK)
-    public ExamDTO getExamById(@PathVariable String ID) {
-        return examService.getExamById(Long.valueOf(ID));
+    public ResponseEntity<ExamDTO> getExamById(@PathVariable String ID, WebRequest request) {
+        VersionDTO version = examService.getExamVersion(Long.valueOf(ID));
+        if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+            // 304 with ETag and Last-Modified is already written, nothing is loaded or serialized
+            return null;
+        }
+        return ResponseEntity.ok(examService.getExamById(Long.valueOf(ID)));
     }
 
     @ApiOperation("Returns an Exam Object with matching name or else throw ResourceNotFoundException")
@@ -80,6 +94,20 @@ public class ExamController {
         return examService.createNewExam(examDTO);
     }
 
+    @ApiOperation("Move every Exam between from and to (ISO dates, inclusive) by days, for one Teacher, Class, Subject " +
+            "or the whole school when no target is given")
+    @PutMapping("reschedule")
+    @ResponseStatus(HttpStatus.OK)
+    public ExamRescheduleDTO rescheduleExams(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                             @RequestParam Integer days,
+                                             @RequestParam(required = false) Long teacherId,
+                                             @RequestParam(required = false) Long studentClassId,
+                                             @RequestParam(required = false) Long subjectId) {
+        return examService.rescheduleExams(from, to, days, teacherId, studentClassId, subjectId);
+    }
+
     @ApiOperation("Update an existing exam with matching ID or create a new one")
     @PutMapping("{ID}")
     @ResponseStatus(HttpStatus.OK)
@@ -1,7 +1,10 @@
 package adrianromanski.restschool.controllers.event;
 
+import adrianromanski.restschool.model.PageDTO;
 import adrianromanski.restschool.model.event.ExamResultDTO;
 import adrianromanski.restschool.model.event.ExamResultListDTO;
+import adrianromanski.restschool.model.event.ExamScoresDTO;
+import adrianromanski.restschool.model.event.ExamScoresResultDTO;
 import adrianromanski.restschool.services.event.exam_result.ExamResultService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -52,6 +55,22 @@ public class ExamResultController {
         return examResultService.getAllNotPassedExamResults();
     }
 
+    @ApiOperation("Returns page of Exam Results with Grade higher than F sorted by date -> id")
+    @GetMapping("passed/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<ExamResultDTO> getPassedExamResultsPage(@RequestParam(required = false) Integer page,
+                                                           @RequestParam(required = false) Integer size) {
+        return examResultService.getExamResultsPage(true, null, page, size);
+    }
+
+    @ApiOperation("Returns page of Exam Results with Grade F sorted by date -> id")
+    @GetMapping("failed/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<ExamResultDTO> getNotPassedExamResultsPage(@RequestParam(required = false) Integer page,
+                                                              @RequestParam(required = false) Integer size) {
+        return examResultService.getExamResultsPage(false, null, page, size);
+    }
+
     @ApiOperation("Returns all Passed Exams with matching Subject")
     @GetMapping("subject-{subject}/passed")
     @ResponseStatus(HttpStatus.OK)
@@ -66,6 +85,24 @@ public class ExamResultController {
         return examResultService.getAllNotPassedForSubject(subject);
     }
 
+    @ApiOperation("Returns page of Passed Exams with matching Subject sorted by date -> id")
+    @GetMapping("subject-{subject}/passed/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<ExamResultDTO> getPassedForSubjectPage(@PathVariable String subject,
+                                                          @RequestParam(required = false) Integer page,
+                                                          @RequestParam(required = false) Integer size) {
+        return examResultService.getExamResultsPage(true, subject, page, size);
+    }
+
+    @ApiOperation("Returns page of Failed Exams with matching Subject sorted by date -> id")
+    @GetMapping("subject-{subject}/failed/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<ExamResultDTO> getNotPassedForSubjectPage(@PathVariable String subject,
+                                                             @RequestParam(required = false) Integer page,
+                                                             @RequestParam(required = false) Integer size) {
+        return examResultService.getExamResultsPage(false, subject, page, size);
+    }
+
     @ApiOperation("Returns Exam Results grouped by -> Grade -> Exam Name")
     @GetMapping("groupedBy/grade-name")
     @ResponseStatus(HttpStatus.OK)
@@ -87,6 +124,13 @@ public class ExamResultController {
         return examResultService.createExamResult(examResultDTO);
     }
 
+    @ApiOperation("Create Exam Results of the Exam with matching ID for every Student score in one transaction")
+    @PostMapping("bulk/exam-{ID}")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ExamScoresResultDTO createExamResults(@PathVariable String ID, @RequestBody ExamScoresDTO scoresDTO) {
+        return examResultService.createExamResults(Long.valueOf(ID), scoresDTO);
+    }
+
     @ApiOperation("Update an existing ExamResult with matching ID or create a new one")
     @PutMapping("{ID}")
     @ResponseStatus(HttpStatus.OK)
@@ -0,0 +1,44 @@
+package adrianromanski.restschool.controllers.event;
+
+import adrianromanski.restschool.model.event.GradeBandDTO;
+import adrianromanski.restschool.model.event.RegradeDTO;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Api("Controller for Grade Bands")
+@RestController
+@RequestMapping("/grade-bands/")
+public class GradeBandController {
+
+    private final GradeBandService gradeBandService;
+
+    public GradeBandController(GradeBandService gradeBandService) {
+        this.gradeBandService = gradeBandService;
+    }
+
+    @ApiOperation("Returns the minimum percentage of maxPoints for every Grade")
+    @GetMapping()
+    @ResponseStatus(HttpStatus.OK)
+    public List<GradeBandDTO> getGradeBands() {
+        return gradeBandService.getGradeBands();
+    }
+
+    @ApiOperation("Replace the Grade Bands and re-grade every Exam Result")
+    @PutMapping()
+    @ResponseStatus(HttpStatus.OK)
+    public RegradeDTO updateGradeBands(@RequestBody List<GradeBandDTO> gradeBandsDTO) {
+        return gradeBandService.updateGradeBands(gradeBandsDTO);
+    }
+
+    @ApiOperation("Re-grade every Exam Result of the Exam with matching ID")
+    @PostMapping("regrade/exam-{ID}")
+    @ResponseStatus(HttpStatus.OK)
+    public RegradeDTO regradeExam(@PathVariable String ID) {
+        return gradeBandService.regradeExam(Long.valueOf(ID));
+    }
+}
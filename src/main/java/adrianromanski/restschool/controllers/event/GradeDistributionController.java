@@ -0,0 +1,52 @@
+package adrianromanski.restschool.controllers.event;
+
+import adrianromanski.restschool.model.event.GradeHistogramDTO;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Api("Controller for Grade Distribution")
+@RestController
+@RequestMapping("/grade-distribution/")
+public class GradeDistributionController {
+
+    private final GradeDistributionService gradeDistributionService;
+
+    public GradeDistributionController(GradeDistributionService gradeDistributionService) {
+        this.gradeDistributionService = gradeDistributionService;
+    }
+
+    @ApiOperation("Returns the number of Exam Results and average score for every Grade of the Exam with matching ID")
+    @GetMapping("exam-{ID}")
+    @ResponseStatus(HttpStatus.OK)
+    public GradeHistogramDTO getExamHistogram(@PathVariable String ID) {
+        return gradeDistributionService.getExamHistogram(Long.valueOf(ID));
+    }
+
+    @ApiOperation("Returns the number of Exam Results and average score for every Grade of the Subject, " +
+            "optionally dated from -> to")
+    @GetMapping("subject-{subject}")
+    @ResponseStatus(HttpStatus.OK)
+    public GradeHistogramDTO getSubjectHistogram(@PathVariable String subject,
+                                                 @RequestParam(required = false)
+                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                 @RequestParam(required = false)
+                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return gradeDistributionService.getSubjectHistogram(subject, from, to);
+    }
+
+    @ApiOperation("Returns the Grade histogram of every day from -> to (inclusive) with Exam Results")
+    @GetMapping("daily")
+    @ResponseStatus(HttpStatus.OK)
+    public List<GradeHistogramDTO> getDailyHistograms(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                      @RequestParam(required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return gradeDistributionService.getDailyHistograms(from, to);
+    }
+}
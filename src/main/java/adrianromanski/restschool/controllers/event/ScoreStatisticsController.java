@@ -0,0 +1,49 @@
+package adrianromanski.restschool.controllers.event;
+
+import adrianromanski.restschool.model.event.ScoreStatisticsDTO;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@Api("Controller for Score Statistics")
+@RestController
+@RequestMapping("/score-statistics/")
+public class ScoreStatisticsController {
+
+    private final ScoreStatisticsService scoreStatisticsService;
+
+    public ScoreStatisticsController(ScoreStatisticsService scoreStatisticsService) {
+        this.scoreStatisticsService = scoreStatisticsService;
+    }
+
+    @ApiOperation("Returns count, mean, standard deviation and percentiles of the scores of the Exam with matching ID")
+    @GetMapping("exam-{ID}")
+    @ResponseStatus(HttpStatus.OK)
+    public ScoreStatisticsDTO getExamStatistics(@PathVariable String ID) {
+        return scoreStatisticsService.getExamStatistics(Long.valueOf(ID));
+    }
+
+    @ApiOperation("Returns count, mean, standard deviation and percentiles of the scores of every Exam of the Subject")
+    @GetMapping("subject-{subject}")
+    @ResponseStatus(HttpStatus.OK)
+    public ScoreStatisticsDTO getSubjectStatistics(@PathVariable String subject) {
+        return scoreStatisticsService.getSubjectStatistics(subject);
+    }
+
+    @ApiOperation("Returns count, mean, standard deviation and percentiles of the scores of the Student Class " +
+            "with matching ID")
+    @GetMapping("class-{ID}")
+    @ResponseStatus(HttpStatus.OK)
+    public ScoreStatisticsDTO getStudentClassStatistics(@PathVariable String ID) {
+        return scoreStatisticsService.getStudentClassStatistics(Long.valueOf(ID));
+    }
+
+    @ApiOperation("Rebuilds every score sketch from the Exam Results and returns their number")
+    @PostMapping("rebuild")
+    @ResponseStatus(HttpStatus.OK)
+    public int rebuild() {
+        return scoreStatisticsService.rebuildAll();
+    }
+}
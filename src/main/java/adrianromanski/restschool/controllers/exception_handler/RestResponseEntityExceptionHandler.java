@@ -1,5 +1,6 @@
 package adrianromanski.restschool.controllers.exception_handler;
 
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -18,4 +19,11 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
         return new ResponseEntity<Object>("Resource Not Found", new HttpHeaders(), HttpStatus.NOT_FOUND);
 
     }
+
+    @ExceptionHandler({BadRequestException.class})
+    public ResponseEntity<Object> handleBadRequestException(Exception exception, WebRequest request){
+
+        return new ResponseEntity<Object>(exception.getMessage(), new HttpHeaders(), HttpStatus.BAD_REQUEST);
+
+    }
 }
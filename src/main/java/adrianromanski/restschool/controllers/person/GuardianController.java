@@ -2,8 +2,13 @@ package adrianromanski.restschool.controllers.person;
 
 import adrianromanski.restschool.model.base_entity.address.GuardianAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.GuardianContactDTO;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.person.AgeBracketHistogramDTO;
+import adrianromanski.restschool.model.person.ChildrenHistogramDTO;
 import adrianromanski.restschool.model.person.GuardianDTO;
 import adrianromanski.restschool.model.person.GuardianListDTO;
+import adrianromanski.restschool.model.person.HouseholdDTO;
+import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.model.person.StudentListDTO;
 import adrianromanski.restschool.services.person.guardian.GuardianService;
 import io.swagger.annotations.Api;
@@ -58,6 +63,43 @@ public class GuardianController {
     }
 
 
+    @ApiOperation("Returns number of Guardians for every age bracket, width of the bracket in years")
+    @GetMapping("groupedBy/age/histogram")
+    @ResponseStatus(HttpStatus.OK)
+    AgeBracketHistogramDTO getGuardiansAgeHistogram(@RequestParam(required = false) Integer width) {
+        return guardianService.getGuardiansAgeHistogram(width);
+    }
+
+
+    @ApiOperation("Returns page of Guardians in the age bracket starting with fromAge")
+    @GetMapping("groupedBy/age/{fromAge}")
+    @ResponseStatus(HttpStatus.OK)
+    PageDTO<GuardianDTO> getGuardiansPageByAge(@PathVariable String fromAge,
+                                               @RequestParam(required = false) Integer width,
+                                               @RequestParam(required = false) Integer page,
+                                               @RequestParam(required = false) Integer size) {
+        return guardianService.getGuardiansPageByAge(Long.valueOf(fromAge), width, page, size);
+    }
+
+
+    @ApiOperation("Returns number of Guardians for every number of children")
+    @GetMapping("groupedBy/children/histogram")
+    @ResponseStatus(HttpStatus.OK)
+    ChildrenHistogramDTO getGuardiansChildrenHistogram() {
+        return guardianService.getGuardiansChildrenHistogram();
+    }
+
+
+    @ApiOperation("Returns page of Guardians with matching number of children")
+    @GetMapping("groupedBy/children/{children}")
+    @ResponseStatus(HttpStatus.OK)
+    PageDTO<GuardianDTO> getGuardiansPageByChildren(@PathVariable String children,
+                                                    @RequestParam(required = false) Integer page,
+                                                    @RequestParam(required = false) Integer size) {
+        return guardianService.getGuardiansPageByChildren(Integer.valueOf(children), page, size);
+    }
+
+
     @ApiOperation("Returns all Students for Guardian")
     @GetMapping("getStudents/guardian-{ID}")
     @ResponseStatus(HttpStatus.OK)
@@ -66,6 +108,31 @@ public class GuardianController {
     }
 
 
+    @ApiOperation("Returns Students of every Guardian with matching ID by Guardian ID, ids separated by commas")
+    @GetMapping("getStudents")
+    @ResponseStatus(HttpStatus.OK)
+    Map<Long, List<StudentDTO>> getAllStudentsForGuardians(@RequestParam List<Long> ids) {
+        return guardianService.getAllStudentsForGuardians(ids);
+    }
+
+
+    @ApiOperation("Returns Guardian with matching ID together with Contact, Address and Students with their Class")
+    @GetMapping("{ID}/household")
+    @ResponseStatus(HttpStatus.OK)
+    HouseholdDTO getHousehold(@PathVariable String ID) {
+        return guardianService.getHousehold(Long.valueOf(ID));
+    }
+
+
+    @ApiOperation("Returns page of households sorted by name of the Guardian")
+    @GetMapping("households")
+    @ResponseStatus(HttpStatus.OK)
+    PageDTO<HouseholdDTO> getHouseholds(@RequestParam(required = false) Integer page,
+                                        @RequestParam(required = false) Integer size) {
+        return guardianService.getHouseholds(page, size);
+    }
+
+
     @ApiOperation("Create and save new Guardian")
     @PostMapping()
     @ResponseStatus(HttpStatus.CREATED)
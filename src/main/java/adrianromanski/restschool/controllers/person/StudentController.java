@@ -1,36 +1,67 @@
 package adrianromanski.restschool.controllers.person;
 
+import adrianromanski.restschool.domain.enums.ExportFormat;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.contact.ContactDTO;
 import adrianromanski.restschool.model.base_entity.address.StudentAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.StudentContactDTO;
+import adrianromanski.restschool.model.person.AgeHistogramDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentDetailDTO;
+import adrianromanski.restschool.model.person.StudentImportDTO;
 import adrianromanski.restschool.model.person.StudentListDTO;
+import adrianromanski.restschool.model.person.StudentPageDTO;
+import adrianromanski.restschool.services.person.student.StudentImportService;
 import adrianromanski.restschool.services.person.student.StudentService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
+import static adrianromanski.restschool.domain.enums.Gender.FEMALE;
+import static adrianromanski.restschool.domain.enums.Gender.MALE;
+
 @Api("Controller for Students")
 @RestController
 @RequestMapping("/students/")
 public class StudentController {
 
     private final StudentService studentService;
+    private final StudentImportService studentImportService;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, StudentImportService studentImportService) {
         this.studentService = studentService;
+        this.studentImportService = studentImportService;
     }
 
     @ApiOperation("Returns Student with matching ID")
     @GetMapping("/getByID/student-{ID}")
+    public ResponseEntity<StudentDTO> getStudentByID(@PathVariable String ID, WebRequest request) {
+        VersionDTO version = studentService.getStudentVersion(Long.valueOf(ID));
+        if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+            // 304 with ETag and Last-Modified is already written, nothing is loaded or serialized
+            return null;
+        }
+        return ResponseEntity.ok(studentService.getStudentByID(Long.valueOf(ID)));
+    }
+
+    @ApiOperation("Returns Student with matching ID together with class, sport team, subjects and exams")
+    @GetMapping("{ID}/detail")
     @ResponseStatus(HttpStatus.OK)
-    public StudentDTO getStudentByID(@PathVariable String ID) {
-        return studentService.getStudentByID(Long.valueOf(ID));
+    public StudentDetailDTO getStudentDetail(@PathVariable String ID) {
+        return studentService.getStudentDetail(Long.valueOf(ID));
     }
 
     @ApiOperation("Returns Student with matching firstName and lastName")
@@ -41,9 +72,21 @@ public class StudentController {
     }
     @ApiOperation("Returns Students sorted by age -> lastName -> firstName")
     @GetMapping({"/list", "/", "", "getAll", "findAll"})
+    public ResponseEntity<StudentListDTO> getAllStudents(WebRequest request) {
+        VersionDTO version = studentService.getStudentsVersion();
+        if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+            // 304 with ETag and Last-Modified is already written, nothing is loaded or serialized
+            return null;
+        }
+        return ResponseEntity.ok(new StudentListDTO(studentService.getAllStudents()));
+    }
+
+    @ApiOperation("Returns page of Students sorted by dateOfBirth -> lastName -> firstName, next page is requested with nextPageToken")
+    @GetMapping("list/page")
     @ResponseStatus(HttpStatus.OK)
-    public StudentListDTO getAllStudents() {
-        return new StudentListDTO(studentService.getAllStudents());
+    public StudentPageDTO getStudentsPage(@RequestParam(required = false) String pageToken,
+                                          @RequestParam(required = false) Integer size) {
+        return studentService.getStudentsPage(pageToken, size);
     }
 
     @ApiOperation("Returns Female Students sorted by age -> lastName -> firstName")
@@ -61,16 +104,71 @@ public class StudentController {
         return new StudentListDTO(studentService.getAllMaleStudents());
     }
 
+    @ApiOperation("Returns page of Female Students sorted by dateOfBirth (youngest first) -> lastName -> firstName -> id")
+    @GetMapping("female/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<StudentDTO> getFemaleStudentsPage(@RequestParam(required = false) Integer page,
+                                                     @RequestParam(required = false) Integer size) {
+        return studentService.getStudentsPageByGender(FEMALE, page, size);
+    }
+
+    @ApiOperation("Returns page of Male Students sorted by dateOfBirth (youngest first) -> lastName -> firstName -> id")
+    @GetMapping("male/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<StudentDTO> getMaleStudentsPage(@RequestParam(required = false) Integer page,
+                                                   @RequestParam(required = false) Integer size) {
+        return studentService.getStudentsPageByGender(MALE, page, size);
+    }
+
     @ApiOperation("Returns Students grouped by age")
     @GetMapping("groupedBy/age")
     @ResponseStatus(HttpStatus.OK)
     public Map<Long, List<StudentDTO>> getStudentsByAge() { return studentService.getStudentsByAge(); }
 
+    @ApiOperation("Returns number of Students for every age")
+    @GetMapping("groupedBy/age/histogram")
+    @ResponseStatus(HttpStatus.OK)
+    public AgeHistogramDTO getStudentsAgeHistogram() { return studentService.getStudentsAgeHistogram(); }
+
+    @ApiOperation("Returns page of Students with matching age")
+    @GetMapping("groupedBy/age/{age}")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<StudentDTO> getStudentsPageByAge(@PathVariable String age,
+                                                    @RequestParam(required = false) Integer page,
+                                                    @RequestParam(required = false) Integer size) {
+        return studentService.getStudentsPageByAge(Long.valueOf(age), page, size);
+    }
+
     @ApiOperation("Returns Students grouped by location")
     @GetMapping("groupedBy/location")
     @ResponseStatus(HttpStatus.OK)
     public Map<String, Map<String, List<StudentDTO>>> getStudentsByLocation() { return studentService.getStudentsByLocation(); }
 
+    @ApiOperation("Returns number of Students grouped by country and city, unknown for Students without an address")
+    @GetMapping("groupedBy/location/count")
+    @ResponseStatus(HttpStatus.OK)
+    public Map<String, Map<String, Long>> getStudentsCountByLocation() { return studentService.getStudentsCountByLocation(); }
+
+    @ApiOperation("Returns page of Students living in matching country and city")
+    @GetMapping("groupedBy/location/{country}/{city}")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<StudentDTO> getStudentsPageByLocation(@PathVariable String country, @PathVariable String city,
+                                                         @RequestParam(required = false) Integer page,
+                                                         @RequestParam(required = false) Integer size) {
+        return studentService.getStudentsPageByLocation(country, city, page, size);
+    }
+
+    @ApiOperation("Streams all Students as NDJSON or CSV")
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportStudents(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        StreamingResponseBody body = outputStream -> studentService.exportStudents(exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=students." + exportFormat.getExtension())
+                .body(body);
+    }
+
     @ApiOperation("Create and save new Student")
     @PostMapping("addStudent")
     @ResponseStatus(HttpStatus.CREATED)
@@ -78,6 +176,20 @@ public class StudentController {
         return studentService.createNewStudent(studentDTO);
     }
 
+    @ApiOperation("Create and save many Students at once, returns result for every row")
+    @PostMapping(value = "addStudents", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public StudentImportDTO createNewStudents(@RequestBody List<StudentDTO> studentsDTO) {
+        return studentImportService.importStudents(studentsDTO);
+    }
+
+    @ApiOperation("Create and save many Students from CSV with the columns of the export, returns result for every row")
+    @PostMapping(value = "addStudents", consumes = "text/csv")
+    @ResponseStatus(HttpStatus.OK)
+    public StudentImportDTO createNewStudentsFromCsv(InputStream csv) throws IOException {
+        return studentImportService.importStudentsFromCsv(csv);
+    }
+
     @ApiOperation("Adding Contact to Student with matching ID")
     @PostMapping("addContact/student-{ID}")
     @ResponseStatus(HttpStatus.CREATED)
@@ -1,19 +1,27 @@
 package adrianromanski.restschool.controllers.person;
 
+import adrianromanski.restschool.domain.enums.Gender;
 import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.address.AddressDTO;
 import adrianromanski.restschool.model.base_entity.address.TeacherAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.ContactDTO;
 import adrianromanski.restschool.model.base_entity.contact.TeacherContactDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamEnrollmentDTO;
+import adrianromanski.restschool.model.person.RosterEntryDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.model.person.TeacherDTO;
 import adrianromanski.restschool.model.person.TeacherListDTO;
+import adrianromanski.restschool.model.person.TeacherWorkloadDTO;
 import adrianromanski.restschool.services.person.teacher.TeacherService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -32,9 +40,13 @@ public class TeacherController {
 
     @ApiOperation("Returns Teacher with matching ID")
     @GetMapping("getByID/teacher-{ID}")
-    @ResponseStatus(HttpStatus.OK)
-    public TeacherDTO getTeacherByID(@PathVariable String ID) {
-        return teacherService.getTeacherByID(Long.valueOf(ID));
+    public ResponseEntity<TeacherDTO> getTeacherByID(@PathVariable String ID, WebRequest request) {
+        VersionDTO version = teacherService.getTeacherVersion(Long.valueOf(ID));
+        if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+            // 304 with ETag and Last-Modified is already written, nothing is loaded or serialized
+            return null;
+        }
+        return ResponseEntity.ok(teacherService.getTeacherByID(Long.valueOf(ID)));
     }
 
 
@@ -47,9 +59,13 @@ public class TeacherController {
 
     @ApiOperation("Returns Teachers sorted by Specialization -> yearsOfExperience")
     @GetMapping({"/list", "/", "", "getAll", "findAll"})
-    @ResponseStatus(HttpStatus.OK)
-    public TeacherListDTO getAllTeachers() {
-        return new TeacherListDTO(teacherService.getAllTeachers());
+    public ResponseEntity<TeacherListDTO> getAllTeachers(WebRequest request) {
+        VersionDTO version = teacherService.getTeachersVersion();
+        if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+            // 304 with ETag and Last-Modified is already written, nothing is loaded or serialized
+            return null;
+        }
+        return ResponseEntity.ok(new TeacherListDTO(teacherService.getAllTeachers()));
     }
 
     @ApiOperation("Returns Teachers grouped by Specialization")
@@ -66,10 +82,32 @@ public class TeacherController {
         return teacherService.getTeachersByYearsOfExperience();
     }
 
+    @ApiOperation("Returns page of Teachers with their workload, sortable by id, firstName, lastName, exams, payments, " +
+            "totalPaid, classSize or studentsExamined")
+    @GetMapping("workload")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<TeacherWorkloadDTO> getTeachersWorkload(@RequestParam(required = false) String sort,
+                                                           @RequestParam(required = false) String direction,
+                                                           @RequestParam(required = false) Integer page,
+                                                           @RequestParam(required = false) Integer size) {
+        return teacherService.getTeachersWorkload(sort, direction, page, size);
+    }
+
+    @ApiOperation("Returns page of Students in the Class of the Teacher sorted by lastName -> firstName, " +
+            "optionally only male or female")
+    @GetMapping("{ID}/roster")
+    @ResponseStatus(HttpStatus.OK)
+    public PageDTO<RosterEntryDTO> getRoster(@PathVariable String ID,
+                                             @RequestParam(required = false) String gender,
+                                             @RequestParam(required = false) Integer page,
+                                             @RequestParam(required = false) Integer size) {
+        return teacherService.getRoster(Long.valueOf(ID), gender == null ? null : Gender.of(gender), page, size);
+    }
+
     @ApiOperation("Adding Exam to every Student in the Class")
     @PostMapping("addExamToClass/teacher-{id}")
     @ResponseStatus(HttpStatus.OK)
-    ExamDTO addExamToClass(@PathVariable String id, @RequestBody ExamDTO examDTO) {
+    ExamEnrollmentDTO addExamToClass(@PathVariable String id, @RequestBody ExamDTO examDTO) {
         return teacherService.addExamForClass(Long.valueOf(id), examDTO);
     }
 
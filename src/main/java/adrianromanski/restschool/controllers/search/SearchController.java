@@ -0,0 +1,28 @@
+package adrianromanski.restschool.controllers.search;
+
+import adrianromanski.restschool.model.search.PersonSearchListDTO;
+import adrianromanski.restschool.services.search.SearchService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@Api("Controller for Search")
+@RestController
+@RequestMapping("/search/")
+public class SearchController {
+
+    private final SearchService searchService;
+
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @ApiOperation("Returns Students, Teachers and Guardians matching the name typed so far")
+    @GetMapping("people")
+    @ResponseStatus(HttpStatus.OK)
+    public PersonSearchListDTO searchPeople(@RequestParam("q") String query,
+                                            @RequestParam(required = false) Integer limit) {
+        return searchService.searchPeople(query, limit);
+    }
+}
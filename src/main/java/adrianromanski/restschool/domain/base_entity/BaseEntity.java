@@ -3,12 +3,17 @@ package adrianromanski.restschool.domain.base_entity;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Version;
 import java.io.Serializable;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @Getter
 @Setter
@@ -17,7 +22,31 @@ import java.io.Serializable;
 public class BaseEntity implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled_sequence")
+    @GenericGenerator(name = "pooled_sequence", strategy = "adrianromanski.restschool.domain.base_entity.PooledSequenceGenerator")
     private Long id;
 
+    // Entities rebuilt from a DTO have to copy the version of the stored one, otherwise save() treats them as new
+    @Version
+    private Long version;
+
+    private Instant lastModified;
+
+    /**
+     * Also called when a row embedded in the representation of this entity (contact, address) changes,
+     * so the version and the ETag built from it move as well
+     */
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.lastModified = now();
+    }
+
+    /**
+     * @return current instant cut to millis, the database keeps fewer fractional digits than Instant.now()
+     * carries on JDK 9+, and Last-Modified is sent in millis anyway
+     */
+    public static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
 }
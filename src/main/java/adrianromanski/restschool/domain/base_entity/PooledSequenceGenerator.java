@@ -0,0 +1,48 @@
+package adrianromanski.restschool.domain.base_entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Sequence per entity, ids are reserved in blocks so inserts can be sent in JDBC batches.
+ * Allocation size is read from school.id.allocation_size.[EntityName], then from school.id.allocation_size,
+ * the optimizer (pooled or pooled-lo) from school.id.optimizer
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "school.id.allocation_size";
+    public static final String OPTIMIZER_SETTING = "school.id.optimizer";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+    public static final String DEFAULT_OPTIMIZER = "pooled-lo";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        String entityName = params.getProperty(JPA_ENTITY_NAME);
+        params.setProperty(CONFIG_PREFER_SEQUENCE_PER_ENTITY, "true");
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize(settings, entityName)));
+        params.setProperty(OPT_PARAM, setting(settings, OPTIMIZER_SETTING, DEFAULT_OPTIMIZER));
+        super.configure(type, params, serviceRegistry);
+    }
+
+    private static int allocationSize(Map<?, ?> settings, String entityName) {
+        String defaultSize = setting(settings, ALLOCATION_SIZE_SETTING, String.valueOf(DEFAULT_ALLOCATION_SIZE));
+        String size = setting(settings, ALLOCATION_SIZE_SETTING + "." + entityName, defaultSize);
+        try {
+            return Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            throw new MappingException("Invalid " + ALLOCATION_SIZE_SETTING + " for " + entityName + ": " + size);
+        }
+    }
+
+    private static String setting(Map<?, ?> settings, String key, String defaultValue) {
+        Object value = settings.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+}
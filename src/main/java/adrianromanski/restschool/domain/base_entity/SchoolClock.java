@@ -0,0 +1,70 @@
+package adrianromanski.restschool.domain.base_entity;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Day granularity clock behind every age and years of experience. Today is computed once
+ * and reused until the next midnight of the clock's zone. Tests pin it with useClock and must restore it
+ * with useSystemClock in @AfterEach, the clock is shared by every test of the JVM
+ */
+public final class SchoolClock {
+
+    private static volatile Clock clock = Clock.systemDefaultZone();
+    private static volatile Day day = Day.of(clock);
+
+    private SchoolClock() {
+    }
+
+    public static LocalDate today() {
+        return currentDay().date;
+    }
+
+    /**
+     * @return midnight today began at in the clock's zone, ages derived today are no older than that
+     */
+    public static Instant startOfToday() {
+        return Instant.ofEpochMilli(currentDay().start);
+    }
+
+    private static Day currentDay() {
+        Clock current = clock;
+        Day cached = day;
+        long millis = current.millis();
+        if (millis < cached.start || millis >= cached.end) {
+            cached = Day.of(current);
+            day = cached;
+        }
+        return cached;
+    }
+
+    public static void useClock(Clock newClock) {
+        clock = newClock;
+        day = Day.of(newClock);
+    }
+
+    public static void useSystemClock() {
+        useClock(Clock.systemDefaultZone());
+    }
+
+    private static final class Day {
+        private final LocalDate date;
+        private final long start;
+        private final long end;
+
+        private Day(LocalDate date, long start, long end) {
+            this.date = date;
+            this.start = start;
+            this.end = end;
+        }
+
+        private static Day of(Clock clock) {
+            ZoneId zone = clock.getZone();
+            LocalDate date = LocalDate.now(clock);
+            return new Day(date, date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                           date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -7,10 +7,15 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.OneToOne;
+import javax.persistence.Table;
 
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_student_address_location", columnList = "country, city")
+})
 @Getter
 @Setter
 @NoArgsConstructor
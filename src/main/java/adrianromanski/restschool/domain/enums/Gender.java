@@ -1,5 +1,19 @@
 package adrianromanski.restschool.domain.enums;
 
+import adrianromanski.restschool.exceptions.BadRequestException;
+
 public enum Gender {
     MALE, FEMALE;
+
+    /**
+     * @throws BadRequestException if there is no matching gender
+     */
+    public static Gender of(String gender) {
+        for (Gender value : values()) {
+            if (value.name().equalsIgnoreCase(gender)) {
+                return value;
+            }
+        }
+        throw new BadRequestException("Unsupported gender: " + gender);
+    }
 }
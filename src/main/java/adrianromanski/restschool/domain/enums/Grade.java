@@ -0,0 +1,12 @@
+package adrianromanski.restschool.domain.enums;
+
+/**
+ * Stored as its ordinal, the order of the constants must not change
+ */
+public enum Grade {
+    A, B, C, D, E, F;
+
+    public boolean isPassing() {
+        return this != F;
+    }
+}
@@ -0,0 +1,5 @@
+package adrianromanski.restschool.domain.enums;
+
+public enum PersonType {
+    STUDENT, TEACHER, GUARDIAN
+}
@@ -0,0 +1,9 @@
+package adrianromanski.restschool.domain.enums;
+
+/**
+ * What a row of score statistics is kept for, its scopeId is the id of the Exam or Student Class
+ * and the ordinal of the Subject. Stored as its ordinal, the order of the constants must not change
+ */
+public enum ScoreScope {
+    EXAM, SUBJECT, STUDENT_CLASS
+}
@@ -1,5 +1,8 @@
 package adrianromanski.restschool.domain.enums;
 
+import java.util.Arrays;
+import java.util.Optional;
+
 public enum Subjects {
 
     MATHEMATICS("Mathematics"), BIOLOGY("Biology"), PHYSICS("Physics"),
@@ -15,4 +18,13 @@ public enum Subjects {
     public String get() {
         return name;
     }
+
+    /**
+     * @return Subject with matching display name
+     */
+    public static Optional<Subjects> byName(String name) {
+        return Arrays.stream(values())
+                .filter(subject -> subject.get().equals(name))
+                .findFirst();
+    }
 }
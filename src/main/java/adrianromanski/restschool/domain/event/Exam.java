@@ -12,10 +12,13 @@ import lombok.Setter;
 import javax.persistence.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 
 @Entity
+@Table(indexes = @Index(name = "idx_exam_subject", columnList = "subject_id"))
 @Setter
 @Getter
 @NoArgsConstructor
@@ -42,7 +45,7 @@ public class Exam extends Event {
 
     @JsonBackReference
     @ManyToMany(mappedBy = "exams")
-    private List<Student> students = new ArrayList<>();
+    private Set<Student> students = new HashSet<>();
 
 
 }
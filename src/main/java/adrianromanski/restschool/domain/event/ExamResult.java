@@ -1,54 +1,76 @@
 package adrianromanski.restschool.domain.event;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.person.Student;
 import lombok.*;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
 import java.time.LocalDate;
 
 
 @Entity
+@Table(indexes = {@Index(name = "idx_exam_result_grade_date", columnList = "grade, date, id"),
+                  @Index(name = "idx_exam_result_exam_grade", columnList = "exam_id, grade")})
 @Getter
 @Setter
 @NoArgsConstructor
 public class ExamResult extends Event {
 
     private float score;
-    private String grade;
+
+    // One byte per row, see Grade
+    @Enumerated(EnumType.ORDINAL)
+    @Column(columnDefinition = "tinyint")
+    private Grade grade;
 
     @Builder
-    public ExamResult(String name, LocalDate date, float score, Exam exam) {
+    public ExamResult(String name, LocalDate date, float score, Exam exam, Student student) {
         super(name, date);
-        this.score = score;
         this.exam = exam;
+        this.student = student;
+        setScore(score);
     }
 
     @ManyToOne
     private Exam exam;
 
+    // Lazy, results are listed far more often than their Student is needed
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Student student;
+
+    // Student Class the score statistics counted the result in, so it is removed from the same one
+    // after the Student changed class
+    private Long studentClassId;
+
+    // The grade distribution counts results by date and has no row for a missing one
+    @PrePersist
+    public void dateIfMissing() {
+        if (getDate() == null) {
+            setDate(SchoolClock.today());
+        }
+    }
+
+    // Graded against the default bands, the services grade it again against the ones in use
     public void setScore(float score) {
         this.score = score;
-        setGrade(score);
+        grade(GradeBands.DEFAULT);
     }
 
-    // I Could do it more OOP
-    private void setGrade(float score) {
-        if(this.exam != null && score >= 0 && score <= this.exam.getMaxPoints()) {
-            Long maxPoints = this.exam.getMaxPoints();
-            float result = (score / maxPoints) * 100;
-            if(result >= 85) {
-                this.grade = "A";
-            } else if(result >= 70 && result < 85) {
-                this.grade = "B";
-            } else if(result >= 55 && result < 70) {
-                this.grade = "C";
-            } else if(result >= 45 && result < 55) {
-                this.grade = "D";
-            } else if(result >= 35 && result < 45)  {
-                this.grade = "E";
-            } else if(result < 35) {
-                this.grade = "F";
-            }
+    /**
+     * Grades the score out of the maxPoints of the Exam, a result without them or out of range keeps its grade
+     */
+    public void grade(GradeBands bands) {
+        if(this.exam != null && this.exam.getMaxPoints() != null && score >= 0 && score <= this.exam.getMaxPoints()) {
+            this.grade = bands.grade(score, this.exam.getMaxPoints());
         }
     }
 }
@@ -0,0 +1,32 @@
+package adrianromanski.restschool.domain.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+
+/**
+ * One row of the grade band table, the lowest percentage of maxPoints that still earns the Grade.
+ * There is no row for F, it is everything below E
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradeBand {
+
+    @Id
+    @Enumerated(EnumType.ORDINAL)
+    @Column(columnDefinition = "tinyint")
+    private Grade grade;
+
+    private int minPercentage;
+}
@@ -0,0 +1,75 @@
+package adrianromanski.restschool.domain.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Grade band table held in memory, minimum percentage of every passing Grade indexed by its ordinal.
+ * Immutable, the bands in use are held by GradeBandService which loads the stored ones at startup
+ */
+public final class GradeBands {
+
+    public static final GradeBands DEFAULT = new GradeBands(new int[]{85, 70, 55, 45, 35});
+
+    private final int[] minPercentages;
+
+    private GradeBands(int[] minPercentages) {
+        this.minPercentages = minPercentages;
+    }
+
+    /**
+     * @param minPercentages of every Grade but F
+     * @throws IllegalArgumentException if a Grade is missing or the percentages do not fall from A to E within 1..100
+     */
+    public static GradeBands of(Map<Grade, Integer> minPercentages) {
+        int[] bands = new int[Grade.F.ordinal()];
+        for (Grade grade : Grade.values()) {
+            if (grade == Grade.F) {
+                continue;
+            }
+            Integer percentage = minPercentages.get(grade);
+            if (percentage == null || percentage < 1 || percentage > 100) {
+                throw new IllegalArgumentException("Grade " + grade + " needs a minimum percentage between 1 and 100");
+            }
+            if (grade.ordinal() > 0 && percentage >= bands[grade.ordinal() - 1]) {
+                throw new IllegalArgumentException("Grade " + grade + " has to start below "
+                                                   + bands[grade.ordinal() - 1] + "%");
+            }
+            bands[grade.ordinal()] = percentage;
+        }
+        return new GradeBands(bands);
+    }
+
+    public int minPercentage(Grade grade) {
+        return grade == Grade.F ? 0 : minPercentages[grade.ordinal()];
+    }
+
+    /**
+     * Same bound the re-grade UPDATE compares the stored score with, so both always agree
+     * @return lowest score out of maxPoints that earns the Grade
+     */
+    public double minScore(Grade grade, long maxPoints) {
+        return minPercentage(grade) * (double) maxPoints / 100;
+    }
+
+    public Grade grade(float score, long maxPoints) {
+        for (int i = 0; i < minPercentages.length; i++) {
+            if (score >= minPercentages[i] * (double) maxPoints / 100) {
+                return Grade.values()[i];
+            }
+        }
+        return Grade.F;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GradeBands && Arrays.equals(minPercentages, ((GradeBands) o).minPercentages);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(minPercentages);
+    }
+}
@@ -0,0 +1,60 @@
+package adrianromanski.restschool.domain.event;
+
+import adrianromanski.restschool.domain.base_entity.BaseEntity;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDate;
+
+/**
+ * Number of Exam Results and sum of their scores for one Exam, date and Grade, kept up to date by every write
+ * of an Exam Result so histograms never read the results themselves. Subject is copied from the Exam.
+ * There is at most one row per Exam, date and Grade, emptied rows are kept until the next rebuild.
+ * Date is never null, a null would be distinct from every other in the unique index
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(indexes = {@Index(name = "idx_grade_distribution_exam", columnList = "examId, date, grade",
+                         unique = true),
+                  @Index(name = "idx_grade_distribution_subject", columnList = "subject, date"),
+                  @Index(name = "idx_grade_distribution_date", columnList = "date")})
+public class GradeDistribution extends BaseEntity {
+
+    private Long examId;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(columnDefinition = "tinyint")
+    private Subjects subject;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(columnDefinition = "tinyint")
+    private Grade grade;
+
+    private long total;
+    private double scoreSum;
+
+    @Builder
+    public GradeDistribution(Long examId, Subjects subject, LocalDate date, Grade grade, long total, double scoreSum) {
+        this.examId = examId;
+        this.subject = subject;
+        this.date = date;
+        this.grade = grade;
+        this.total = total;
+        this.scoreSum = scoreSum;
+    }
+}
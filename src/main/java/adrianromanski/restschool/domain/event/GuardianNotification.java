@@ -0,0 +1,72 @@
+package adrianromanski.restschool.domain.event;
+
+import adrianromanski.restschool.domain.base_entity.BaseEntity;
+import adrianromanski.restschool.domain.enums.NotificationStatus;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Outbox row written in the transaction of the Exam Result, delivered later by the dispatcher.
+ * Only ids are kept so draining the outbox never loads the Student or Guardian graph
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(indexes = @Index(name = "idx_guardian_notification_due", columnList = "status, nextAttemptAt"))
+public class GuardianNotification extends BaseEntity {
+
+    // Four names of up to 255 characters and the Exam name fit in the message, errors of the sender are cut
+    public static final int MESSAGE_LENGTH = 2000;
+    public static final int ERROR_LENGTH = 1000;
+
+    private Long examResultId;
+    private Long guardianId;
+    private String recipient;
+
+    @Column(length = MESSAGE_LENGTH)
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    private NotificationStatus status;
+
+    private int attempts;
+    private Instant nextAttemptAt;
+
+    @Column(length = ERROR_LENGTH)
+    private String lastError;
+
+    @Builder
+    public GuardianNotification(Long examResultId, Long guardianId, String recipient, String message,
+                                Instant nextAttemptAt) {
+        this.examResultId = examResultId;
+        this.guardianId = guardianId;
+        this.recipient = recipient;
+        setMessage(message);
+        this.status = NotificationStatus.PENDING;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    // Cut to the column, an overlong text must not fail the insert and roll back the Exam Result with it
+    public void setMessage(String message) {
+        this.message = truncate(message, MESSAGE_LENGTH);
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = truncate(lastError, ERROR_LENGTH);
+    }
+
+    private static String truncate(String text, int length) {
+        return text == null || text.length() <= length ? text : text.substring(0, length);
+    }
+}
@@ -0,0 +1,164 @@
+package adrianromanski.restschool.domain.event;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running moments and a histogram of scores in buckets of RESOLUTION points. Quantiles are known to within half
+ * a bucket whatever the number of results, sketches of different Exams merge by adding their buckets and a result
+ * is removed exactly by adding it with a negative total
+ */
+public final class ScoreSketch {
+
+    public static final double RESOLUTION = 0.1;
+
+    private static final byte FORMAT = 1;
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long count;
+    private double sum;
+    private double sumOfSquares;
+
+    /**
+     * @param buckets as written by bucketsToBytes, empty when null
+     * @throws IllegalArgumentException if the buckets were written in an unknown format
+     */
+    public static ScoreSketch of(long count, double sum, double sumOfSquares, byte[] buckets) {
+        ScoreSketch sketch = new ScoreSketch();
+        sketch.count = count;
+        sketch.sum = sum;
+        sketch.sumOfSquares = sumOfSquares;
+        if (buckets != null && buckets.length > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(buckets);
+            if (buffer.get() != FORMAT) {
+                throw new IllegalArgumentException("Unknown score sketch format: " + buckets[0]);
+            }
+            int size = buffer.getInt();
+            for (int i = 0; i < size; i++) {
+                sketch.buckets.put(buffer.getInt(), (long) buffer.getInt());
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * @param total of results with the score, negative to remove them
+     */
+    public ScoreSketch add(double score, long total) {
+        count += total;
+        sum += score * total;
+        sumOfSquares += score * score * total;
+        addToBucket((int) Math.round(score / RESOLUTION), total);
+        return this;
+    }
+
+    public ScoreSketch merge(ScoreSketch other) {
+        count += other.count;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+        other.buckets.forEach(this::addToBucket);
+        return this;
+    }
+
+    public ScoreSketch negate() {
+        ScoreSketch negated = new ScoreSketch();
+        negated.count = -count;
+        negated.sum = -sum;
+        negated.sumOfSquares = -sumOfSquares;
+        buckets.forEach((bucket, total) -> negated.buckets.put(bucket, -total));
+        return negated;
+    }
+
+    // Negative buckets are kept so a sketch of removals can be merged, an emptied bucket is dropped
+    private void addToBucket(int bucket, long total) {
+        long merged = buckets.getOrDefault(bucket, 0L) + total;
+        if (merged != 0) {
+            buckets.put(bucket, merged);
+        } else {
+            buckets.remove(bucket);
+        }
+    }
+
+    public boolean isEmpty() {
+        return count <= 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    public Double mean() {
+        return isEmpty() ? null : sum / count;
+    }
+
+    /**
+     * @return population standard deviation
+     */
+    public Double standardDeviation() {
+        if (isEmpty()) {
+            return null;
+        }
+        double mean = sum / count;
+        return Math.sqrt(Math.max(sumOfSquares / count - mean * mean, 0));
+    }
+
+    /**
+     * Nearest rank on the histogram, the score of the bucket holding the ceil(quantile * n)-th smallest result
+     * @param quantile between 0 and 1
+     * @return score within RESOLUTION / 2 of the exact quantile, null when empty
+     */
+    public Double quantile(double quantile) {
+        long total = buckets.values().stream().mapToLong(Long::longValue).sum();
+        if (total <= 0) {
+            return null;
+        }
+        long rank = Math.max((long) Math.ceil(quantile * total), 1);
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return toScore(bucket.getKey());
+            }
+        }
+        return toScore(buckets.lastKey());
+    }
+
+    public Double min() {
+        return buckets.isEmpty() ? null : toScore(buckets.firstKey());
+    }
+
+    public Double max() {
+        return buckets.isEmpty() ? null : toScore(buckets.lastKey());
+    }
+
+    private double toScore(int bucket) {
+        return Math.round(bucket * RESOLUTION * 100) / 100d;
+    }
+
+    /**
+     * Results are removed from the same scopes they were added to, a bucket removed more often than it was added
+     * is not written
+     * @return format, number of buckets, then every bucket and its total, 8 bytes per bucket
+     */
+    public byte[] bucketsToBytes() {
+        Map<Integer, Long> stored = new TreeMap<>(buckets);
+        stored.values().removeIf(total -> total <= 0);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + stored.size() * 8);
+        buffer.put(FORMAT);
+        buffer.putInt(stored.size());
+        stored.forEach((bucket, total) -> {
+            buffer.putInt(bucket);
+            buffer.putInt(Math.toIntExact(total));
+        });
+        return buffer.array();
+    }
+}
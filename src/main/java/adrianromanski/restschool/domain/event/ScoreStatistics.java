@@ -0,0 +1,58 @@
+package adrianromanski.restschool.domain.event;
+
+import adrianromanski.restschool.domain.base_entity.BaseEntity;
+import adrianromanski.restschool.domain.enums.ScoreScope;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * Score sketch of one Exam, Subject or Student Class kept up to date by every write of an Exam Result,
+ * so statistics never sort the scores themselves. Moments are stored as columns, the histogram as bytes.
+ * Emptied sketches are kept until the next rebuild
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(indexes = @Index(name = "idx_score_statistics_scope", columnList = "scope, scopeId", unique = true))
+public class ScoreStatistics extends BaseEntity {
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(columnDefinition = "tinyint")
+    private ScoreScope scope;
+
+    private Long scopeId;
+
+    private long total;
+    private double scoreSum;
+    private double squareSum;
+
+    @Lob
+    private byte[] buckets;
+
+    public ScoreStatistics(ScoreScope scope, Long scopeId, ScoreSketch sketch) {
+        this.scope = scope;
+        this.scopeId = scopeId;
+        store(sketch);
+    }
+
+    public ScoreSketch toSketch() {
+        return ScoreSketch.of(total, scoreSum, squareSum, buckets);
+    }
+
+    public void store(ScoreSketch sketch) {
+        this.total = sketch.getCount();
+        this.scoreSum = sketch.getSum();
+        this.squareSum = sketch.getSumOfSquares();
+        this.buckets = sketch.bucketsToBytes();
+    }
+}
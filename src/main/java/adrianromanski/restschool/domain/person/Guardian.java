@@ -8,14 +8,17 @@ import lombok.*;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.Table;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Entity
+@Table(indexes = @Index(name = "idx_guardian_birth_name", columnList = "dateOfBirth, lastName, firstName, id"))
 @Getter
 @Setter
 @NoArgsConstructor
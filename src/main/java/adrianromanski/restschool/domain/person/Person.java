@@ -1,10 +1,12 @@
 package adrianromanski.restschool.domain.person;
 
 import adrianromanski.restschool.domain.base_entity.BaseEntity;
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
 import adrianromanski.restschool.domain.enums.Gender;
 import lombok.*;
 
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
 import java.time.LocalDate;
 import java.time.Period;
 
@@ -12,7 +14,6 @@ import java.time.Period;
 @Setter
 @NoArgsConstructor
 @MappedSuperclass
-@AllArgsConstructor
 public class Person extends BaseEntity {
 
     private String firstName;
@@ -21,14 +22,39 @@ public class Person extends BaseEntity {
     private LocalDate dateOfBirth;
     private Long age;
 
+    // Day the age was derived on, it is derived again only after dateOfBirth, age or the day changes
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LocalDate ageDerivedOn;
+
+    public Person(String firstName, String lastName, Gender gender, LocalDate dateOfBirth, Long age) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.gender = gender;
+        this.dateOfBirth = dateOfBirth;
+        this.age = age;
+    }
+
     public Long getAge() {
-        if (dateOfBirth != null) {
-            LocalDate now = LocalDate.now();
-            Period period = Period.between(this.getDateOfBirth(), now);
-            this.age = (long) period.getYears();
-            return this.age;
-        } else {
+        if (dateOfBirth == null) {
             return 0L;
         }
+        LocalDate today = SchoolClock.today();
+        if (!today.equals(ageDerivedOn)) {
+            this.age = (long) Period.between(dateOfBirth, today).getYears();
+            this.ageDerivedOn = today;
+        }
+        return this.age;
+    }
+
+    public void setDateOfBirth(LocalDate dateOfBirth) {
+        this.dateOfBirth = dateOfBirth;
+        this.ageDerivedOn = null;
+    }
+
+    public void setAge(Long age) {
+        this.age = age;
+        this.ageDerivedOn = null;
     }
 }
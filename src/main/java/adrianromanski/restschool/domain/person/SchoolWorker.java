@@ -1,11 +1,14 @@
 package adrianromanski.restschool.domain.person;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
 import adrianromanski.restschool.domain.enums.Gender;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
 import java.time.LocalDate;
 import java.time.Period;
 
@@ -16,7 +19,13 @@ import java.time.Period;
 public class SchoolWorker extends Person{
 
     private Long yearsOfExperience;
-    private LocalDate firstDay;;
+    private LocalDate firstDay;
+
+    // Same as the age, derived once per day
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LocalDate experienceDerivedOn;
 
     public SchoolWorker(String firstName, String lastName, Gender gender, LocalDate dateOfBirth,
                         Long age,Long yearsOfExperience, LocalDate firstDay) {
@@ -26,13 +35,24 @@ public class SchoolWorker extends Person{
     }
 
     public Long getYearsOfExperience() {
-        if (firstDay != null) {
-            LocalDate now = LocalDate.now();
-            Period period = Period.between(this.firstDay, now);
-            this.yearsOfExperience = (long) period.getYears();
-            return this.yearsOfExperience;
-        } else {
+        if (firstDay == null) {
             return 0L;
         }
+        LocalDate today = SchoolClock.today();
+        if (!today.equals(experienceDerivedOn)) {
+            this.yearsOfExperience = (long) Period.between(this.firstDay, today).getYears();
+            this.experienceDerivedOn = today;
+        }
+        return this.yearsOfExperience;
+    }
+
+    public void setFirstDay(LocalDate firstDay) {
+        this.firstDay = firstDay;
+        this.experienceDerivedOn = null;
+    }
+
+    public void setYearsOfExperience(Long yearsOfExperience) {
+        this.yearsOfExperience = yearsOfExperience;
+        this.experienceDerivedOn = null;
     }
 }
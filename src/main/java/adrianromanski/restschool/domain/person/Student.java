@@ -11,14 +11,21 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_student_birth_name", columnList = "dateOfBirth DESC, lastName, firstName, id"),
+        @Index(name = "idx_student_gender_birth_name", columnList = "gender, dateOfBirth DESC, lastName, firstName, id"),
+        @Index(name = "idx_student_class_name", columnList = "student_class_id, lastName, firstName, id"),
+        @Index(name = "idx_student_guardian", columnList = "guardian_id")
+})
 @Setter
 @Getter
 @NoArgsConstructor
@@ -52,15 +59,25 @@ public class Student extends Person {
     @ManyToOne
     private StudentClass studentClass;
 
+    // Sets instead of bags -> adding or removing one element writes one row instead of rewriting all of them,
+    // enrollments are not an edit of the Student itself, so they do not bump its version
     @ManyToMany
+    @OrderBy
+    @OptimisticLock(excluded = true)
     @JoinTable(name = "student_subjects", joinColumns = @JoinColumn(name = "student_id"),
-            inverseJoinColumns = @JoinColumn(name = "subject_id"))
-    private List<Subject> subjects = new ArrayList<>();
+            inverseJoinColumns = @JoinColumn(name = "subject_id"),
+            indexes = {@Index(name = "idx_student_subjects_student", columnList = "student_id"),
+                       @Index(name = "idx_student_subjects_subject", columnList = "subject_id")})
+    private Set<Subject> subjects = new HashSet<>();
 
 
     @ManyToMany
+    @OrderBy
+    @OptimisticLock(excluded = true)
     @JoinTable(name = "student_exams", joinColumns = @JoinColumn(name = "student_id"),
-            inverseJoinColumns = @JoinColumn(name = "exam_id"))
-    private List<Exam> exams = new ArrayList<>();
+            inverseJoinColumns = @JoinColumn(name = "exam_id"),
+            indexes = {@Index(name = "idx_student_exams_student", columnList = "student_id"),
+                       @Index(name = "idx_student_exams_exam", columnList = "exam_id")})
+    private Set<Exam> exams = new HashSet<>();
 
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package adrianromanski.restschool.exceptions;
+
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
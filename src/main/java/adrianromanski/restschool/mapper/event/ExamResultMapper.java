@@ -4,6 +4,7 @@ import adrianromanski.restschool.domain.event.ExamResult;
 import adrianromanski.restschool.model.event.ExamResultDTO;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
 import org.mapstruct.factory.Mappers;
 
 @Mapper
@@ -11,9 +12,16 @@ public interface ExamResultMapper {
 
     ExamResultMapper INSTANCE  = Mappers.getMapper(ExamResultMapper.class);
 
-    @Mapping(source = "exam" ,target = "examDTO")
+    @Mappings({
+            @Mapping(source = "exam" ,target = "examDTO"),
+            @Mapping(source = "student.id", target = "studentId")
+    })
     ExamResultDTO examResultToExamResultDTO(ExamResult examResult);
 
-    @Mapping(source = "examDTO" ,target = "exam")
+    // The Student is attached by the service, it has to be a managed entity
+    @Mappings({
+            @Mapping(source = "examDTO" ,target = "exam"),
+            @Mapping(target = "student", ignore = true)
+    })
     ExamResult examResultDTOToExamResult(ExamResultDTO examResultDTO);
 }
@@ -19,6 +19,14 @@ public interface GuardianMapper {
     })
     GuardianDTO guardianToGuardianDTO(Guardian Guardian);
 
+    // Guardian without its Students, for households and statistics where they are not needed or mapped separately
+    @Mappings({
+            @Mapping(source = "address", target = "addressDTO"),
+            @Mapping(source = "contact", target = "contactDTO"),
+            @Mapping(target = "studentsDTO", ignore = true)
+    })
+    GuardianDTO guardianToHouseholdGuardianDTO(Guardian guardian);
+
     @Mappings({
             @Mapping(source = "addressDTO", target = "address"),
             @Mapping(source = "contactDTO", target = "contact"),
@@ -22,6 +22,18 @@ public interface StudentMapper {
     })
     StudentDTO studentToStudentDTO(Student student);
 
+    // Household member, exams and subjects are left out so their lazy collections are never initialized,
+    // the Sport Team is never serialized with a member
+    @Mappings({
+            @Mapping(source = "address", target = "addressDTO"),
+            @Mapping(source = "contact", target = "contactDTO"),
+            @Mapping(target = "subjectsDTO", ignore = true),
+            @Mapping(target = "examsDTO", ignore = true),
+            @Mapping(source = "studentClass", target = "studentClassDTO"),
+            @Mapping(target = "sportTeamDTO", ignore = true)
+    })
+    StudentDTO studentToHouseholdStudentDTO(Student student);
+
 
     @Mappings({
             @Mapping(source = "addressDTO", target = "address"),
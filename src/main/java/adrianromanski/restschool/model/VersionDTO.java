@@ -0,0 +1,53 @@
+package adrianromanski.restschool.model;
+
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Strong ETag and Last-Modified of a resource, compared with If-None-Match / If-Modified-Since
+ * before anything is loaded, mapped or serialized
+ */
+@Getter
+@AllArgsConstructor
+public class VersionDTO {
+    private final String eTag;
+    private final Instant lastModified;
+
+    /**
+     * @return ETag of a single resource -> name, id and version
+     */
+    public static VersionDTO of(String name, Long id, VersionSummary summary) {
+        return new VersionDTO(name + "-" + id + "-" + summary.getVersions(), summary.getLastModified());
+    }
+
+    /**
+     * @return ETag of a collection -> name, number of rows, sum of versions and latest modification
+     */
+    public static VersionDTO of(String name, VersionSummary summary) {
+        Instant lastModified = summary.getLastModified();
+        return new VersionDTO(name + "-" + summary.getTotal() + "-" + summary.getVersions() + "-"
+                              + (lastModified == null ? 0 : lastModified.toEpochMilli()), lastModified);
+    }
+
+    /**
+     * Ages and years of experience are derived from SchoolClock, they change at midnight without a version bump
+     * -> today is part of the ETag and Last-Modified is never older than the start of today
+     * @return version of a representation carrying derived ages
+     */
+    public VersionDTO withDerivedAges() {
+        Instant startOfToday = SchoolClock.startOfToday();
+        return new VersionDTO(eTag + "-" + SchoolClock.today(),
+                              lastModified == null || lastModified.isBefore(startOfToday) ? startOfToday : lastModified);
+    }
+
+    /**
+     * @return epoch millis, -1 when unknown like WebRequest.checkNotModified expects
+     */
+    public long getLastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+}
@@ -0,0 +1,13 @@
+package adrianromanski.restschool.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ExamEnrollmentDTO {
+    private final Long examId;
+    private final String examName;
+    private final String studentClass;
+    private final int enrolled;
+}
@@ -0,0 +1,16 @@
+package adrianromanski.restschool.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@AllArgsConstructor
+public class ExamRescheduleDTO {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int days;
+    private final String target;
+    private final int rescheduled;
+}
@@ -13,6 +13,7 @@ import java.time.LocalDate;
 public class ExamResultDTO extends EventDTO {
 
     private ExamDTO examDTO;
+    private Long studentId;
     private float score;
     private String grade;
 
@@ -0,0 +1,19 @@
+package adrianromanski.restschool.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamScoresDTO {
+    private LocalDate date;
+    private List<StudentScoreDTO> scores = new ArrayList<>();
+}
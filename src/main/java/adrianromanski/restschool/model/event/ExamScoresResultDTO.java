@@ -0,0 +1,15 @@
+package adrianromanski.restschool.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class ExamScoresResultDTO {
+    private final Long examId;
+    private final Integer created;
+    private final Map<String, Long> grades;
+    private final Integer notified;
+}
@@ -0,0 +1,16 @@
+package adrianromanski.restschool.model.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradeBandDTO {
+    private Grade grade;
+    private Integer minPercentage;
+}
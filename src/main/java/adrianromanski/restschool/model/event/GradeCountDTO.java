@@ -0,0 +1,13 @@
+package adrianromanski.restschool.model.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class GradeCountDTO {
+    private final Grade grade;
+    private final long count;
+    private final Double averageScore;
+}
@@ -0,0 +1,16 @@
+package adrianromanski.restschool.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class GradeHistogramDTO {
+    private final LocalDate date;
+    private final List<GradeCountDTO> grades;
+    private final long total;
+    private final Double averageScore;
+}
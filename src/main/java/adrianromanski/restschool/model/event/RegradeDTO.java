@@ -0,0 +1,14 @@
+package adrianromanski.restschool.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class RegradeDTO {
+    private final List<GradeBandDTO> gradeBands;
+    private final int exams;
+    private final int regraded;
+}
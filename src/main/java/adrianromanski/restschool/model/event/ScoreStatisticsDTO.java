@@ -0,0 +1,17 @@
+package adrianromanski.restschool.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ScoreStatisticsDTO {
+    private final long count;
+    private final Double mean;
+    private final Double standardDeviation;
+    private final Double min;
+    private final Double p10;
+    private final Double median;
+    private final Double p90;
+    private final Double max;
+}
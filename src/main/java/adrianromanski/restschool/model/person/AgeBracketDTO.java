@@ -0,0 +1,12 @@
+package adrianromanski.restschool.model.person;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class AgeBracketDTO {
+    private final Long fromAge;
+    private final Long toAge;
+    private final Long count;
+}
@@ -0,0 +1,13 @@
+package adrianromanski.restschool.model.person;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class AgeBracketHistogramDTO {
+    private final Integer width;
+    private final List<AgeBracketDTO> brackets;
+}
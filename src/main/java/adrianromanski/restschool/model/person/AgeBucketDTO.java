@@ -0,0 +1,11 @@
+package adrianromanski.restschool.model.person;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class AgeBucketDTO {
+    private final Long age;
+    private final Long count;
+}
@@ -0,0 +1,12 @@
+package adrianromanski.restschool.model.person;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class AgeHistogramDTO {
+    private final List<AgeBucketDTO> buckets;
+}
@@ -0,0 +1,11 @@
+package adrianromanski.restschool.model.person;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ChildrenBucketDTO {
+    private final Long children;
+    private final Long count;
+}
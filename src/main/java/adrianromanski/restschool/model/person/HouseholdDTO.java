@@ -0,0 +1,13 @@
+package adrianromanski.restschool.model.person;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class HouseholdDTO {
+    private final GuardianDTO guardian;
+    private final List<HouseholdMemberDTO> children;
+}
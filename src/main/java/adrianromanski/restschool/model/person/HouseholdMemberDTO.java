@@ -0,0 +1,19 @@
+package adrianromanski.restschool.model.person;
+
+import adrianromanski.restschool.model.group.StudentClassDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class HouseholdMemberDTO {
+    private final StudentDTO student;
+    private final StudentClassDTO studentClass;
+
+    // The class is moved out of the Student, so it is held and serialized once
+    public static HouseholdMemberDTO of(StudentDTO studentDTO) {
+        StudentClassDTO studentClassDTO = studentDTO.getStudentClassDTO();
+        studentDTO.setStudentClassDTO(null);
+        return new HouseholdMemberDTO(studentDTO, studentClassDTO);
+    }
+}
@@ -0,0 +1,18 @@
+package adrianromanski.restschool.model.person;
+
+import adrianromanski.restschool.domain.enums.Gender;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@AllArgsConstructor
+public class RosterEntryDTO {
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final Gender gender;
+    private final LocalDate dateOfBirth;
+    private final String email;
+}
@@ -0,0 +1,25 @@
+package adrianromanski.restschool.model.person;
+
+import adrianromanski.restschool.model.base_entity.SubjectDTO;
+import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.group.SportTeamDTO;
+import adrianromanski.restschool.model.group.StudentClassDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class StudentDetailDTO {
+    private final StudentDTO student;
+    private final StudentClassDTO studentClass;
+    private final SportTeamDTO sportTeam;
+    private final List<SubjectDTO> subjects;
+    private final List<ExamDTO> exams;
+
+    public static StudentDetailDTO of(StudentDTO studentDTO) {
+        return new StudentDetailDTO(studentDTO, studentDTO.getStudentClassDTO(), studentDTO.getSportTeamDTO(),
+                                    studentDTO.getSubjectsDTO(), studentDTO.getExamsDTO());
+    }
+}
@@ -0,0 +1,20 @@
+package adrianromanski.restschool.model.person;
+
+import adrianromanski.restschool.domain.enums.ImportStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class StudentImportDTO {
+    private final long created;
+    private final long failed;
+    private final List<StudentImportResultDTO> results;
+
+    public static StudentImportDTO of(List<StudentImportResultDTO> results) {
+        long created = results.stream().filter(result -> result.getStatus() == ImportStatus.CREATED).count();
+        return new StudentImportDTO(created, results.size() - created, results);
+    }
+}
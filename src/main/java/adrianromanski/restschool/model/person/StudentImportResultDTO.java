@@ -0,0 +1,14 @@
+package adrianromanski.restschool.model.person;
+
+import adrianromanski.restschool.domain.enums.ImportStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StudentImportResultDTO {
+    private final int row;
+    private final ImportStatus status;
+    private final Long id;
+    private final String message;
+}
@@ -0,0 +1,17 @@
+package adrianromanski.restschool.model.person;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TeacherWorkloadDTO {
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final Long exams;
+    private final Long payments;
+    private final Double totalPaid;
+    private final Long classSize;
+    private final Long studentsExamined;
+}
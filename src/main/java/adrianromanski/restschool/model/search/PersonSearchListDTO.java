@@ -0,0 +1,12 @@
+package adrianromanski.restschool.model.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class PersonSearchListDTO {
+    private final List<PersonSearchResultDTO> people;
+}
@@ -0,0 +1,14 @@
+package adrianromanski.restschool.model.search;
+
+import adrianromanski.restschool.domain.enums.PersonType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PersonSearchResultDTO {
+    private final PersonType type;
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+}
@@ -0,0 +1,16 @@
+package adrianromanski.restschool.repositories.base_entity;
+
+import java.time.Instant;
+
+/**
+ * Projection of the version columns of one or more rows -> number of rows, sum of their versions
+ * and the latest modification, one of them moves whenever a row is added, updated or removed
+ */
+public interface VersionSummary {
+
+    Long getTotal();
+
+    Long getVersions();
+
+    Instant getLastModified();
+}
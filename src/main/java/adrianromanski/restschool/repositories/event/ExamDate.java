@@ -0,0 +1,13 @@
+package adrianromanski.restschool.repositories.event;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a single Exam row, only what moving it to another day needs
+ */
+public interface ExamDate {
+
+    Long getId();
+
+    LocalDate getDate();
+}
@@ -0,0 +1,11 @@
+package adrianromanski.restschool.repositories.event;
+
+/**
+ * Projection of a single Exam row, only what grading its results needs
+ */
+public interface ExamMaxPoints {
+
+    Long getId();
+
+    Long getMaxPoints();
+}
@@ -1,12 +1,84 @@
 package adrianromanski.restschool.repositories.event;
 
+import adrianromanski.restschool.domain.enums.Subjects;
 import adrianromanski.restschool.domain.event.Exam;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ExamRepository extends JpaRepository<Exam, Long> {
 
+    // Shared by the bulk reschedules, only ids and dates of the Exams in the range are read
+    String TO_RESCHEDULE = "select e.id as id, e.date as date from Exam e where e.date between :from and :to";
+
     Optional<Exam> getByName(String name);
 
+    // Exams without maxPoints have nothing to grade against
+    @Query("select e.id as id, e.maxPoints as maxPoints from Exam e where e.maxPoints is not null order by e.id")
+    List<ExamMaxPoints> findAllMaxPoints();
+
+    @Query("select e.id as id, e.maxPoints as maxPoints from Exam e where e.id = :id")
+    Optional<ExamMaxPoints> findMaxPointsById(@Param("id") Long id);
+
+    @Query("select s.name from Exam e join e.subject s where e.id = :id")
+    Optional<Subjects> findSubjectById(@Param("id") Long id);
+
+    // Every Student of the class is enrolled with a single INSERT ... SELECT, the exams bags are never loaded
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into student_exams (student_id, exam_id) " +
+            "select s.id, :examId from student s where s.student_class_id = :studentClassId", nativeQuery = true)
+    int enrollStudentClass(@Param("examId") Long examId, @Param("studentClassId") Long studentClassId);
+
+    // Bulk reschedules -> the Exams are selected, then moved with one UPDATE per day they are on. Dates are
+    // computed in Java and bound, so no date arithmetic of the database is needed
+    @Query(TO_RESCHEDULE)
+    List<ExamDate> findAllToReschedule(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(TO_RESCHEDULE + " and e.teacher.id = :teacherId")
+    List<ExamDate> findAllToRescheduleByTeacher(@Param("teacherId") Long teacherId, @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to);
+
+    @Query(TO_RESCHEDULE + " and e.subject.id = :subjectId")
+    List<ExamDate> findAllToRescheduleBySubject(@Param("subjectId") Long subjectId, @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to);
+
+    // Exams of a class are the ones taken by at least one of its Students
+    @Query(TO_RESCHEDULE + " and exists (select s.id from Student s join s.exams taken " +
+            "where taken.id = e.id and s.studentClass.id = :studentClassId)")
+    List<ExamDate> findAllToRescheduleByStudentClass(@Param("studentClassId") Long studentClassId,
+                                                     @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Version and lastModified are bumped in the same statement, an Exam moved meanwhile is left alone.
+    // Nothing is loaded and the persistence context is cleared afterwards
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Exam e set e.date = :newDate, e.version = e.version + 1, e.lastModified = :now " +
+            "where e.id in :ids and e.date = :date")
+    int reschedule(@Param("ids") Collection<Long> ids, @Param("date") LocalDate date,
+                   @Param("newDate") LocalDate newDate, @Param("now") Instant now);
+
+    // Scores are kept within 0..maxPoints, maxPoints can't be lowered below the highest one
+    @Query("select max(r.score) from ExamResult r where r.exam.id = :examId")
+    Float findHighestScore(@Param("examId") Long examId);
+
+    // Versions are compared before anything is loaded, see VersionDTO. Results, Teacher and Subject are part of
+    // every ExamDTO, so their versions are summed in -> an Exam with n results is counted n times, which still moves
+    // the sum with every change, and count(r) moves it when a result is added or deleted
+    String SUMMARIZE_VERSIONS = "select count(distinct e.id) as total, coalesce(sum(e.version), 0L) " +
+            "+ coalesce(sum(t.version), 0L) + coalesce(sum(s.version), 0L) + count(r) + coalesce(sum(r.version), 0L) " +
+            "as versions, max(e.lastModified) as examLastModified, max(r.lastModified) as resultsLastModified, " +
+            "max(t.lastModified) as teacherLastModified, max(s.lastModified) as subjectLastModified " +
+            "from Exam e left join e.results r left join e.teacher t left join e.subject s";
+
+    @Query(SUMMARIZE_VERSIONS)
+    ExamVersionSummary summarizeVersions();
+
+    @Query(SUMMARIZE_VERSIONS + " where e.id = :id")
+    ExamVersionSummary summarizeVersionById(@Param("id") Long id);
 }
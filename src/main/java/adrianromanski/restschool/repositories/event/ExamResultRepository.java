@@ -1,7 +1,99 @@
 package adrianromanski.restschool.repositories.event;
 
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
 import adrianromanski.restschool.domain.event.ExamResult;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 
 public interface ExamResultRepository extends JpaRepository<ExamResult, Long> {
+
+    // Listed results come with their Exam, its Subject and every to-one reachable through eager associations
+    // of its Teacher in the same statement
+    String LISTED = "select r from ExamResult r join fetch r.exam e left join fetch e.subject s " +
+            "left join fetch e.teacher t left join fetch t.contact left join fetch t.address " +
+            "left join fetch t.teachingStaff left join fetch t.studentClass sc left join fetch sc.schoolYear sy " +
+            "left join fetch sy.teachingStaff left join fetch sy.director ";
+
+    // Rows of the grades are found through idx_exam_result_grade_date, then sorted by date DESC -> id
+    String BY_GRADE = "where r.grade in :grades order by r.date desc, r.id";
+
+    // Subject -> its Exams -> their results, found through idx_exam_subject and idx_exam_result_exam_grade,
+    // then sorted the same way
+    String BY_SUBJECT_AND_GRADE = "where s.name = :subject and r.grade in :grades order by r.date desc, r.id";
+
+    // Grade distribution counted from the results themselves, see GradeDistribution
+    String DISTRIBUTION = "select e.id as examId, s.name as subject, r.date as date, r.grade as grade, " +
+            "count(r) as total, sum(r.score) as scoreSum from ExamResult r join r.exam e left join e.subject s " +
+            "where r.grade is not null ";
+
+    String BY_BUCKET = "group by e.id, s.name, r.date, r.grade";
+
+    @Query(LISTED + BY_GRADE)
+    List<ExamResult> findAllByGradeIn(@Param("grades") Collection<Grade> grades);
+
+    @Query(value = LISTED + BY_GRADE,
+            countQuery = "select count(r) from ExamResult r where r.grade in :grades")
+    Page<ExamResult> findPageByGradeIn(@Param("grades") Collection<Grade> grades, Pageable pageable);
+
+    @Query(LISTED + BY_SUBJECT_AND_GRADE)
+    List<ExamResult> findAllBySubjectAndGradeIn(@Param("subject") Subjects subject,
+                                                @Param("grades") Collection<Grade> grades);
+
+    @Query(value = LISTED + BY_SUBJECT_AND_GRADE,
+            countQuery = "select count(r) from ExamResult r join r.exam e join e.subject s " +
+                    "where s.name = :subject and r.grade in :grades")
+    Page<ExamResult> findPageBySubjectAndGradeIn(@Param("subject") Subjects subject,
+                                                 @Param("grades") Collection<Grade> grades, Pageable pageable);
+
+    // Every result of the Exam is graded again with one UPDATE, grade is the ordinal of Grade (A = 0 .. F = 5).
+    // The bounds are the minimum scores of GradeBands. Scores out of 0..maxPoints are rejected when written,
+    // one left from before keeps its grade as in ExamResult.grade
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update exam_result r set grade = case " +
+            "when r.score < 0 or r.score > :maxPoints then r.grade " +
+            "when r.score >= :a then 0 when r.score >= :b then 1 when r.score >= :c then 2 " +
+            "when r.score >= :d then 3 when r.score >= :e then 4 else 5 end, " +
+            "version = r.version + 1, last_modified = :now where r.exam_id = :examId", nativeQuery = true)
+    int regrade(@Param("examId") Long examId, @Param("maxPoints") long maxPoints,
+                @Param("a") double a, @Param("b") double b, @Param("c") double c, @Param("d") double d,
+                @Param("e") double e, @Param("now") Instant now);
+
+    // Which of the Students already have a result of the Exam, found through idx_exam_result_exam_grade
+    @Query("select r.student.id from ExamResult r where r.exam.id = :examId and r.student.id in :studentIds")
+    List<Long> findGradedStudentIds(@Param("examId") Long examId, @Param("studentIds") Collection<Long> studentIds);
+
+    @Query(DISTRIBUTION + BY_BUCKET)
+    List<GradeDistributionRow> countDistribution();
+
+    @Query(DISTRIBUTION + "and e.id = :examId " + BY_BUCKET)
+    List<GradeDistributionRow> countDistributionByExam(@Param("examId") Long examId);
+
+    // Results saved before they were dated on insert get today, as the services date a result saved without one.
+    // Missing examId dates the results of every Exam
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ExamResult r set r.date = :today, r.version = r.version + 1, r.lastModified = :now " +
+            "where r.date is null and (:examId is null or r.exam.id = :examId)")
+    int dateUndated(@Param("examId") Long examId, @Param("today") LocalDate today, @Param("now") Instant now);
+
+    // Results not counted in a Student Class yet get the current class of their Student
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ExamResult r set r.studentClassId = (select st.studentClass.id from Student st " +
+            "where st.id = r.student.id) where r.studentClassId is null and r.student is not null")
+    int recordStudentClasses();
+
+    // Every distinct score once per Exam and the Student Class it was counted in
+    @Query("select e.id as examId, s.name as subject, r.studentClassId as studentClassId, r.score as score, " +
+            "count(r) as total from ExamResult r join r.exam e left join e.subject s " +
+            "group by e.id, s.name, r.studentClassId, r.score")
+    List<ScoreRow> countScores();
 }
@@ -0,0 +1,30 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Projection of the version columns of Exams together with their Results, Teacher and Subject,
+ * which are serialized with every Exam
+ */
+public interface ExamVersionSummary extends VersionSummary {
+
+    Instant getExamLastModified();
+
+    Instant getResultsLastModified();
+
+    Instant getTeacherLastModified();
+
+    Instant getSubjectLastModified();
+
+    @Override
+    default Instant getLastModified() {
+        return Stream.of(getExamLastModified(), getResultsLastModified(), getTeacherLastModified(),
+                         getSubjectLastModified())
+                .filter(lastModified -> lastModified != null)
+                .max(Instant::compareTo)
+                .orElse(null);
+    }
+}
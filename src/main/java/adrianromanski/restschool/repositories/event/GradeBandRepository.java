@@ -0,0 +1,8 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.event.GradeBand;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface GradeBandRepository extends JpaRepository<GradeBand, Grade> {
+}
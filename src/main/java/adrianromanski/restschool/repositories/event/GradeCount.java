@@ -0,0 +1,19 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a single grade histogram row, date is only selected for daily histograms
+ */
+public interface GradeCount {
+
+    LocalDate getDate();
+
+    Grade getGrade();
+
+    Long getTotal();
+
+    Double getScoreSum();
+}
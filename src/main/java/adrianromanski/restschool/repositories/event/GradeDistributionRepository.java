@@ -0,0 +1,62 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.GradeDistribution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface GradeDistributionRepository extends JpaRepository<GradeDistribution, Long> {
+
+    // Shared by the histograms, only the distribution is read, never the Exam Results
+    String HISTOGRAM = "select d.grade as grade, sum(d.total) as total, sum(d.scoreSum) as scoreSum " +
+            "from GradeDistribution d ";
+
+    // Rows stay locked until commit, so concurrent writes to the same Exam are counted one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from GradeDistribution d where d.examId = :examId")
+    List<GradeDistribution> findAllByExamId(@Param("examId") Long examId);
+
+    // Single results are counted with one UPDATE so concurrent writers never lose a change. Results are dated
+    // when saved. Served by idx_grade_distribution_exam
+    @Modifying
+    @Query("update GradeDistribution d set d.total = d.total + :total, d.scoreSum = d.scoreSum + :scoreSum, " +
+            "d.version = d.version + 1, d.lastModified = :now where d.examId = :examId and d.grade = :grade " +
+            "and d.date = :date")
+    int increment(@Param("examId") Long examId, @Param("date") LocalDate date, @Param("grade") Grade grade,
+                  @Param("total") long total, @Param("scoreSum") double scoreSum, @Param("now") Instant now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from GradeDistribution d where d.examId = :examId")
+    int deleteByExamId(@Param("examId") Long examId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update GradeDistribution d set d.subject = :subject, d.version = d.version + 1, d.lastModified = :now " +
+            "where d.examId = :examId")
+    int updateSubject(@Param("examId") Long examId, @Param("subject") Subjects subject, @Param("now") Instant now);
+
+    @Query(HISTOGRAM + "where d.examId = :examId group by d.grade order by d.grade")
+    List<GradeCount> countByExam(@Param("examId") Long examId);
+
+    // Missing from or to leaves that end of the range open, served by idx_grade_distribution_subject
+    @Query(HISTOGRAM + "where d.subject = :subject " +
+            "and (:from is null or d.date >= :from) and (:to is null or d.date <= :to) " +
+            "group by d.grade order by d.grade")
+    List<GradeCount> countBySubject(@Param("subject") Subjects subject, @Param("from") LocalDate from,
+                                    @Param("to") LocalDate to);
+
+    // Served by idx_grade_distribution_date, emptied rows are skipped so days without results stay out
+    @Query("select d.date as date, d.grade as grade, sum(d.total) as total, sum(d.scoreSum) as scoreSum " +
+            "from GradeDistribution d where d.date between :from and :to " +
+            "group by d.date, d.grade having sum(d.total) > 0 order by d.date, d.grade")
+    List<GradeCount> countByDate(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
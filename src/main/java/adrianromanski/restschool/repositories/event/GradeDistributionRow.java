@@ -0,0 +1,24 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a single grade distribution row counted from the Exam Results themselves
+ */
+public interface GradeDistributionRow {
+
+    Long getExamId();
+
+    Subjects getSubject();
+
+    LocalDate getDate();
+
+    Grade getGrade();
+
+    Long getTotal();
+
+    Double getScoreSum();
+}
@@ -0,0 +1,22 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.domain.enums.NotificationStatus;
+import adrianromanski.restschool.domain.event.GuardianNotification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface GuardianNotificationRepository extends JpaRepository<GuardianNotification, Long> {
+
+    // Oldest due notifications first, served by idx_guardian_notification_due
+    @Query("select n from GuardianNotification n where n.status = :status and n.nextAttemptAt <= :now " +
+            "order by n.nextAttemptAt, n.id")
+    List<GuardianNotification> findDue(@Param("status") NotificationStatus status, @Param("now") Instant now,
+                                       Pageable pageable);
+
+    long countByStatus(NotificationStatus status);
+}
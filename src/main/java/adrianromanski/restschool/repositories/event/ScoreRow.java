@@ -0,0 +1,19 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.domain.enums.Subjects;
+
+/**
+ * Projection of a single score with the number of Exam Results of one Exam and Student Class holding it
+ */
+public interface ScoreRow {
+
+    Long getExamId();
+
+    Subjects getSubject();
+
+    Long getStudentClassId();
+
+    Float getScore();
+
+    Long getTotal();
+}
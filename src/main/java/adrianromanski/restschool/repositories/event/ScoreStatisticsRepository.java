@@ -0,0 +1,36 @@
+package adrianromanski.restschool.repositories.event;
+
+import adrianromanski.restschool.domain.enums.ScoreScope;
+import adrianromanski.restschool.domain.event.ScoreStatistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ScoreStatisticsRepository extends JpaRepository<ScoreStatistics, Long> {
+
+    Optional<ScoreStatistics> findByScopeAndScopeId(ScoreScope scope, Long scopeId);
+
+    // Every scope of a write is read with one statement, only the rows of the given scope and id pairs.
+    // Rows stay locked until commit, so concurrent writes to the same sketch merge one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ScoreStatistics s where " +
+            "(s.scope = adrianromanski.restschool.domain.enums.ScoreScope.EXAM and s.scopeId in :examIds) " +
+            "or (s.scope = adrianromanski.restschool.domain.enums.ScoreScope.SUBJECT and s.scopeId in :subjectIds) " +
+            "or (s.scope = adrianromanski.restschool.domain.enums.ScoreScope.STUDENT_CLASS " +
+            "and s.scopeId in :studentClassIds)")
+    List<ScoreStatistics> findAllByScopeIds(@Param("examIds") Collection<Long> examIds,
+                                            @Param("subjectIds") Collection<Long> subjectIds,
+                                            @Param("studentClassIds") Collection<Long> studentClassIds);
+
+    // Every sketch locked for a rebuild, writers merging into one wait until it is replaced
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ScoreStatistics s")
+    List<ScoreStatistics> findAllForUpdate();
+}
@@ -0,0 +1,11 @@
+package adrianromanski.restschool.repositories.person;
+
+/**
+ * Projection of a single age histogram row, age in whole years and number of people
+ */
+public interface AgeCount {
+
+    Long getAge();
+
+    Long getTotal();
+}
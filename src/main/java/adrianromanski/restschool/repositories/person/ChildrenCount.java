@@ -0,0 +1,11 @@
+package adrianromanski.restschool.repositories.person;
+
+/**
+ * Projection of a single children histogram row, number of children and number of Guardians having them
+ */
+public interface ChildrenCount {
+
+    Long getChildren();
+
+    Long getTotal();
+}
@@ -0,0 +1,21 @@
+package adrianromanski.restschool.repositories.person;
+
+/**
+ * Projection of a single Student with the Guardian to be notified about it
+ */
+public interface GuardianRecipient {
+
+    Long getStudentId();
+
+    String getStudentFirstName();
+
+    String getStudentLastName();
+
+    Long getGuardianId();
+
+    String getGuardianFirstName();
+
+    String getGuardianLastName();
+
+    String getEmail();
+}
@@ -1,11 +1,59 @@
 package adrianromanski.restschool.repositories.person;
 
 import adrianromanski.restschool.domain.person.Guardian;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 public interface GuardianRepository extends JpaRepository<Guardian, Long> {
 
     Optional<Guardian> getGuardianByFirstNameAndLastName(String firstName, String lastName);
+
+    @Query("select g.id as id, g.firstName as firstName, g.lastName as lastName from Guardian g")
+    List<PersonName> findAllNames();
+
+    // Age brackets of :width years on :today, age is the lower bound of the bracket, no Guardian is loaded
+    @Query(value = "select b.age as age, count(*) as total from (select t.age / :width * :width as age from (" +
+            "select extract(year from :today) - extract(year from g.date_of_birth) - " +
+            "case when extract(month from g.date_of_birth) * 100 + extract(day from g.date_of_birth) > " +
+            "extract(month from :today) * 100 + extract(day from :today) then 1 else 0 end as age " +
+            "from guardian g where g.date_of_birth is not null) t) b " +
+            "group by b.age order by b.age", nativeQuery = true)
+    List<AgeCount> countByAgeBracket(@Param("today") LocalDate today, @Param("width") int width);
+
+    // Guardians of a bracket are a dateOfBirth range -> (bornAfter, bornOnOrBefore], served by idx_guardian_birth_name
+    @Query(value = "select g from Guardian g left join fetch g.contact left join fetch g.address " +
+            "where g.dateOfBirth > :bornAfter and g.dateOfBirth <= :bornOnOrBefore " +
+            "order by g.dateOfBirth desc, g.lastName, g.firstName, g.id",
+            countQuery = "select count(g) from Guardian g " +
+                    "where g.dateOfBirth > :bornAfter and g.dateOfBirth <= :bornOnOrBefore")
+    Page<Guardian> findPageByDateOfBirthRange(@Param("bornAfter") LocalDate bornAfter,
+                                              @Param("bornOnOrBefore") LocalDate bornOnOrBefore, Pageable pageable);
+
+    // Number of Guardians for every number of children, Guardians without Students are the 0 row, served by idx_student_guardian
+    @Query(value = "select c.children as children, count(*) as total from (" +
+            "select count(s.id) as children from guardian g left join student s on s.guardian_id = g.id " +
+            "group by g.id) c group by c.children order by c.children", nativeQuery = true)
+    List<ChildrenCount> countByChildren();
+
+    @Query(value = "select g from Guardian g left join fetch g.contact left join fetch g.address " +
+            "where size(g.students) = :children order by g.lastName, g.firstName, g.id",
+            countQuery = "select count(g) from Guardian g where size(g.students) = :children")
+    Page<Guardian> findPageByChildren(@Param("children") int children, Pageable pageable);
+
+    // Household, statement 1 of 2 -> the Guardian with Contact and Address, children are read by the Guardian id
+    @Query("select g from Guardian g left join fetch g.contact left join fetch g.address where g.id = :id")
+    Optional<Guardian> findHouseholdById(@Param("id") Long id);
+
+    // Households, to-ones only so the database can page, children of the whole page are read with one more query
+    @Query(value = "select g from Guardian g left join fetch g.contact left join fetch g.address " +
+            "order by g.lastName, g.firstName, g.id",
+            countQuery = "select count(g) from Guardian g")
+    Page<Guardian> findHouseholdPage(Pageable pageable);
 }
@@ -0,0 +1,13 @@
+package adrianromanski.restschool.repositories.person;
+
+/**
+ * Projection of a single location rollup row, country and city are null for people without an address
+ */
+public interface LocationCount {
+
+    String getCountry();
+
+    String getCity();
+
+    Long getTotal();
+}
@@ -0,0 +1,13 @@
+package adrianromanski.restschool.repositories.person;
+
+/**
+ * Projection with just enough of a Person to build the name search index
+ */
+public interface PersonName {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+}
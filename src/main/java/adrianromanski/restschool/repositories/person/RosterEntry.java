@@ -0,0 +1,23 @@
+package adrianromanski.restschool.repositories.person;
+
+import adrianromanski.restschool.domain.enums.Gender;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a single class roster row, email is null for Students without a contact
+ */
+public interface RosterEntry {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    Gender getGender();
+
+    LocalDate getDateOfBirth();
+
+    String getEmail();
+}
@@ -0,0 +1,11 @@
+package adrianromanski.restschool.repositories.person;
+
+/**
+ * Projection of a single Student with the id of its Student Class
+ */
+public interface StudentClassId {
+
+    Long getStudentId();
+
+    Long getStudentClassId();
+}
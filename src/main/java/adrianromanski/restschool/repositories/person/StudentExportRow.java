@@ -0,0 +1,39 @@
+package adrianromanski.restschool.repositories.person;
+
+import adrianromanski.restschool.domain.enums.Gender;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a single exported Student row, contactId and addressId are null for Students without them
+ */
+public interface StudentExportRow {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    Gender getGender();
+
+    LocalDate getDateOfBirth();
+
+    Long getContactId();
+
+    String getEmail();
+
+    String getTelephoneNumber();
+
+    String getEmergencyNumber();
+
+    Long getAddressId();
+
+    String getCountry();
+
+    String getCity();
+
+    String getStreetName();
+
+    String getPostalCode();
+}
@@ -1,12 +1,191 @@
 package adrianromanski.restschool.repositories.person;
 
+import adrianromanski.restschool.domain.enums.Gender;
 import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
 
-    Optional<Student> findByFirstNameAndLastName(String lastName, String firstName);
+    // Student after (:lastName, :firstName, :id) with a missing name sorting before any other
+    String AFTER_NAME = "(s.lastName > :lastName or (:lastName is null and s.lastName is not null) " +
+            "or ((s.lastName = :lastName or (:lastName is null and s.lastName is null)) " +
+            "and (s.firstName > :firstName or (:firstName is null and s.firstName is not null) " +
+            "or ((s.firstName = :firstName or (:firstName is null and s.firstName is null)) and s.id > :id))))";
+
+    Optional<Student> findByFirstNameAndLastName(String firstName, String lastName);
+
+    @Query("select s.id as id, s.firstName as firstName, s.lastName as lastName from Student s")
+    List<PersonName> findAllNames();
+
+    // Filtered by idx_student_gender_birth_name, the unpaged listings sort by age in whole years themselves
+    @Query("select s from Student s where s.gender = :gender")
+    List<Student> findAllByGender(@Param("gender") Gender gender);
+
+    // Gender -> dateOfBirth DESC (youngest first) -> lastName -> firstName -> id, served by idx_student_gender_birth_name
+    @Query(value = "select s from Student s where s.gender = :gender " +
+            "order by s.dateOfBirth desc nulls last, s.lastName, s.firstName, s.id",
+            countQuery = "select count(s) from Student s where s.gender = :gender")
+    Page<Student> findPageByGender(@Param("gender") Gender gender, Pageable pageable);
+
+    // Age in whole years on :today, computed and counted by the database without loading any Student
+    @Query(value = "select t.age as age, count(*) as total from (" +
+            "select extract(year from :today) - extract(year from s.date_of_birth) - " +
+            "case when extract(month from s.date_of_birth) * 100 + extract(day from s.date_of_birth) > " +
+            "extract(month from :today) * 100 + extract(day from :today) then 1 else 0 end as age " +
+            "from student s where s.date_of_birth is not null) t " +
+            "group by t.age order by t.age", nativeQuery = true)
+    List<AgeCount> countByAge(@Param("today") LocalDate today);
+
+    // Students of one age are a dateOfBirth range -> (bornAfter, bornOnOrBefore], served by idx_student_birth_name
+    @Query(value = "select s from Student s where s.dateOfBirth > :bornAfter and s.dateOfBirth <= :bornOnOrBefore " +
+            "order by s.dateOfBirth desc, s.lastName, s.firstName, s.id",
+            countQuery = "select count(s) from Student s " +
+                    "where s.dateOfBirth > :bornAfter and s.dateOfBirth <= :bornOnOrBefore")
+    Page<Student> findPageByDateOfBirthRange(@Param("bornAfter") LocalDate bornAfter,
+                                             @Param("bornOnOrBefore") LocalDate bornOnOrBefore, Pageable pageable);
+
+    // Country -> City rollup, Students without an address end up in the null/null row
+    @Query("select a.country as country, a.city as city, count(s) as total from Student s left join s.address a " +
+            "group by a.country, a.city order by a.country nulls last, a.city nulls last")
+    List<LocationCount> countByLocation();
+
+    // Null country or city matches Students whose address (or the value in it) is missing
+    @Query(value = "select s from Student s left join s.address a " +
+            "where ((:country is null and a.country is null) or a.country = :country) " +
+            "and ((:city is null and a.city is null) or a.city = :city) " +
+            "order by s.lastName, s.firstName, s.id",
+            countQuery = "select count(s) from Student s left join s.address a " +
+                    "where ((:country is null and a.country is null) or a.country = :country) " +
+                    "and ((:city is null and a.city is null) or a.city = :city)")
+    Page<Student> findPageByLocation(@Param("country") String country, @Param("city") String city, Pageable pageable);
+
+    // Children of a Guardian, served by idx_student_guardian, to-ones mapped by StudentDTO are fetched in the same query
+    @Query("select s from Student s left join fetch s.contact left join fetch s.address " +
+            "left join fetch s.guardian left join fetch s.sportTeam left join fetch s.studentClass " +
+            "where s.guardian.id = :guardianId order by s.lastName, s.firstName, s.id")
+    List<Student> findAllByGuardianId(@Param("guardianId") Long guardianId);
+
+    // Children of many Guardians in one query, ordered by Guardian so they can be grouped without sorting
+    @Query("select s from Student s left join fetch s.contact left join fetch s.address " +
+            "left join fetch s.guardian g left join fetch s.sportTeam left join fetch s.studentClass " +
+            "where g.id in :guardianIds order by g.id, s.lastName, s.firstName, s.id")
+    List<Student> findAllByGuardianIdIn(@Param("guardianIds") Collection<Long> guardianIds);
+
+    // Household, statement 2 of 2 -> children with every to-one reachable through eager associations,
+    // exams and subjects are not part of a household so they stay lazy
+    @Query("select s from Student s " +
+            "left join fetch s.contact left join fetch s.address left join fetch s.guardian g " +
+            "left join fetch s.sportTeam st left join fetch st.schoolYear sy " +
+            "left join fetch sy.teachingStaff left join fetch sy.director " +
+            "left join fetch s.studentClass sc left join fetch sc.schoolYear " +
+            "left join fetch sc.teacher t left join fetch t.contact left join fetch t.address " +
+            "left join fetch t.teachingStaff " +
+            "where g.id in :guardianIds order by g.id, s.lastName, s.firstName, s.id")
+    List<Student> findHouseholdChildren(@Param("guardianIds") Collection<Long> guardianIds);
+
+    // Which of the ids exist, read from the primary key index only
+    @Query("select s.id from Student s where s.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select s.id as studentId, sc.id as studentClassId from Student s left join s.studentClass sc " +
+            "where s.id in :ids")
+    List<StudentClassId> findStudentClassIds(@Param("ids") Collection<Long> ids);
+
+    // Guardians of many Students with what a notification needs, Students without a Guardian are skipped
+    @Query("select s.id as studentId, s.firstName as studentFirstName, s.lastName as studentLastName, " +
+            "g.id as guardianId, g.firstName as guardianFirstName, g.lastName as guardianLastName, c.email as email " +
+            "from Student s join s.guardian g left join g.contact c where s.id in :ids")
+    List<GuardianRecipient> findGuardianRecipients(@Param("ids") Collection<Long> ids);
+
+    // Class roster of a Teacher, null gender matches every Student, served by idx_student_class_name
+    @Query(value = "select s.id as id, s.firstName as firstName, s.lastName as lastName, s.gender as gender, " +
+            "s.dateOfBirth as dateOfBirth, c.email as email " +
+            "from Student s join s.studentClass sc left join s.contact c " +
+            "where sc = (select t.studentClass from Teacher t where t.id = :teacherId) " +
+            "and (:gender is null or s.gender = :gender) " +
+            "order by s.lastName, s.firstName, s.id",
+            countQuery = "select count(s) from Student s join s.studentClass sc " +
+                    "where sc = (select t.studentClass from Teacher t where t.id = :teacherId) " +
+                    "and (:gender is null or s.gender = :gender)")
+    Page<RosterEntry> findRosterPage(@Param("teacherId") Long teacherId, @Param("gender") Gender gender,
+                                     Pageable pageable);
+
+    // Detail aggregate, statement 1 of 2 -> every to-one reachable through eager associations plus the subjects
+    @Query("select distinct s from Student s " +
+            "left join fetch s.contact left join fetch s.address " +
+            "left join fetch s.guardian g left join fetch g.contact left join fetch g.address " +
+            "left join fetch s.sportTeam st left join fetch st.schoolYear sy " +
+            "left join fetch sy.teachingStaff left join fetch sy.director " +
+            "left join fetch s.studentClass sc left join fetch sc.schoolYear " +
+            "left join fetch sc.teacher t left join fetch t.contact left join fetch t.address " +
+            "left join fetch t.teachingStaff " +
+            "left join fetch s.subjects " +
+            "where s.id = :id")
+    Optional<Student> findDetailById(@Param("id") Long id);
+
+    // Detail aggregate, statement 2 of 2 -> initializes the exams of the Student already in the persistence context,
+    // fetched together with the subjects every exam row would be repeated once per subject
+    @Query("select distinct s from Student s " +
+            "left join fetch s.exams e left join fetch e.subject " +
+            "left join fetch e.teacher t left join fetch t.contact left join fetch t.address " +
+            "left join fetch t.teachingStaff left join fetch t.studentClass " +
+            "where s.id = :id")
+    Optional<Student> fetchDetailExams(@Param("id") Long id);
+
+    // Has to be consumed inside of a transaction, rows are fetched from the cursor in chunks of fetch size.
+    // Only the exported columns are read, no Student is loaded into the persistence context
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select s.id as id, s.firstName as firstName, s.lastName as lastName, s.gender as gender, " +
+            "s.dateOfBirth as dateOfBirth, c.id as contactId, c.email as email, " +
+            "c.telephoneNumber as telephoneNumber, c.emergencyNumber as emergencyNumber, a.id as addressId, " +
+            "a.country as country, a.city as city, a.streetName as streetName, a.postalCode as postalCode " +
+            "from Student s left join s.contact c left join s.address a order by s.id")
+    Stream<StudentExportRow> streamAllForExport();
+
+    // Keyset pagination -> dateOfBirth DESC (youngest first) -> lastName -> firstName -> id, missing names sort first
+    // and Students of unknown birth come last, in the order of idx_student_birth_name
+    @Query("select s from Student s " +
+            "order by s.dateOfBirth desc nulls last, s.lastName nulls first, s.firstName nulls first, s.id")
+    List<Student> findFirstKeysetPage(Pageable pageable);
+
+    // Dated Students after the token only, dateOfBirth <= :dateOfBirth starts the index range and the rest breaks ties
+    @Query("select s from Student s " +
+            "where s.dateOfBirth <= :dateOfBirth and (s.dateOfBirth < :dateOfBirth or " + AFTER_NAME + ") " +
+            "order by s.dateOfBirth desc, s.lastName nulls first, s.firstName nulls first, s.id")
+    List<Student> findKeysetPageAfter(@Param("dateOfBirth") LocalDate dateOfBirth, @Param("lastName") String lastName,
+                                      @Param("firstName") String firstName, @Param("id") Long id, Pageable pageable);
+
+    @Query("select s from Student s where s.dateOfBirth is null " +
+            "order by s.lastName nulls first, s.firstName nulls first, s.id")
+    List<Student> findFirstUnknownBirthPage(Pageable pageable);
+
+    @Query("select s from Student s where s.dateOfBirth is null and " + AFTER_NAME + " " +
+            "order by s.lastName nulls first, s.firstName nulls first, s.id")
+    List<Student> findKeysetPageAfterUnknownBirth(@Param("lastName") String lastName, @Param("firstName") String firstName,
+                                                  @Param("id") Long id, Pageable pageable);
+
+    // Versions are compared before anything is loaded, see VersionDTO
+    @Query("select count(s) as total, coalesce(sum(s.version), 0L) as versions, " +
+            "max(s.lastModified) as lastModified from Student s")
+    VersionSummary summarizeVersions();
 
+    @Query("select count(s) as total, coalesce(sum(s.version), 0L) as versions, " +
+            "max(s.lastModified) as lastModified from Student s where s.id = :id")
+    VersionSummary summarizeVersionById(@Param("id") Long id);
 }
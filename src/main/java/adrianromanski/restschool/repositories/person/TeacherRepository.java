@@ -1,11 +1,50 @@
 package adrianromanski.restschool.repositories.person;
 
 import adrianromanski.restschool.domain.person.Teacher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface TeacherRepository extends JpaRepository<Teacher, Long> {
 
     Optional<Teacher> getTeacherByFirstNameAndLastName(String firstName, String lastName);
+
+    @Query("select t.id as id, t.firstName as firstName, t.lastName as lastName from Teacher t")
+    List<PersonName> findAllNames();
+
+    // One row per Teacher, every metric is aggregated in its own derived table so the collections never multiply
+    // each other, metrics are select aliases -> Pageable can sort by any of them
+    @Query(value = "select t.id as id, t.first_name as firstName, t.last_name as lastName, " +
+            "coalesce(e.exams, 0) as exams, coalesce(p.payments, 0) as payments, " +
+            "coalesce(p.total_paid, 0) as totalPaid, coalesce(c.class_size, 0) as classSize, " +
+            "coalesce(x.examined, 0) as studentsExamined " +
+            "from teacher t " +
+            "left join (select teacher_id, count(*) as exams from exam group by teacher_id) e " +
+            "on e.teacher_id = t.id " +
+            "left join (select teacher_id, count(*) as payments, sum(amount) as total_paid from payment " +
+            "group by teacher_id) p on p.teacher_id = t.id " +
+            "left join (select student_class_id, count(*) as class_size from student group by student_class_id) c " +
+            "on c.student_class_id = t.student_class_id " +
+            "left join (select ex.teacher_id, count(distinct se.student_id) as examined from exam ex " +
+            "join student_exams se on se.exam_id = ex.id group by ex.teacher_id) x on x.teacher_id = t.id",
+            countQuery = "select count(*) from teacher",
+            nativeQuery = true)
+    Page<TeacherWorkload> findWorkload(Pageable pageable);
+
+    // Versions are compared before anything is loaded, see VersionDTO. The Teaching Staff is part of every
+    // TeacherDTO, so its version is summed in
+    String SUMMARIZE_VERSIONS = "select count(t) as total, coalesce(sum(t.version), 0L) " +
+            "+ coalesce(sum(ts.version), 0L) as versions, max(t.lastModified) as teacherLastModified, " +
+            "max(ts.lastModified) as teachingStaffLastModified from Teacher t left join t.teachingStaff ts";
+
+    @Query(SUMMARIZE_VERSIONS)
+    TeacherVersionSummary summarizeVersions();
+
+    @Query(SUMMARIZE_VERSIONS + " where t.id = :id")
+    TeacherVersionSummary summarizeVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,25 @@
+package adrianromanski.restschool.repositories.person;
+
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Projection of the version columns of Teachers together with their Teaching Staff,
+ * which is serialized with every Teacher
+ */
+public interface TeacherVersionSummary extends VersionSummary {
+
+    Instant getTeacherLastModified();
+
+    Instant getTeachingStaffLastModified();
+
+    @Override
+    default Instant getLastModified() {
+        return Stream.of(getTeacherLastModified(), getTeachingStaffLastModified())
+                .filter(lastModified -> lastModified != null)
+                .max(Instant::compareTo)
+                .orElse(null);
+    }
+}
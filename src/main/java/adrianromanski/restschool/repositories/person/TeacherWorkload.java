@@ -0,0 +1,23 @@
+package adrianromanski.restschool.repositories.person;
+
+/**
+ * Projection of a single workload row, every metric is counted by the database
+ */
+public interface TeacherWorkload {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    Long getExams();
+
+    Long getPayments();
+
+    Double getTotalPaid();
+
+    Long getClassSize();
+
+    Long getStudentsExamined();
+}
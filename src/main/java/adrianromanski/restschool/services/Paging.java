@@ -0,0 +1,30 @@
+package adrianromanski.restschool.services;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Page requests of every paged endpoint -> missing or negative page is the first one,
+ * missing size is DEFAULT_PAGE_SIZE and any size is limited to MAX_PAGE_SIZE
+ */
+public final class Paging {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private Paging() {
+    }
+
+    public static int limit(Integer size) {
+        return size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    public static Pageable pageRequest(Integer page, Integer size) {
+        return pageRequest(page, size, Sort.unsorted());
+    }
+
+    public static Pageable pageRequest(Integer page, Integer size, Sort sort) {
+        return PageRequest.of(page == null ? 0 : Math.max(page, 0), limit(size), sort);
+    }
+}
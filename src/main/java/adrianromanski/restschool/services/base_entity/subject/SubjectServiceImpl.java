@@ -114,10 +114,11 @@ public class SubjectServiceImpl implements SubjectService {
      */
     @Override
     public SubjectDTO updateSubject(Long id, SubjectDTO subjectDTO) {
-        subjectRepository.findById(id)
+        Subject subject = subjectRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, Subject.class));
         Subject updatedSubject = subjectMapper.subjectDTOToSubject(subjectDTO);
         updatedSubject.setId(id);
+        updatedSubject.setVersion(subject.getVersion());
         subjectRepository.save(updatedSubject);
         log.info("Subject with id: " + id + "successfully saved to database");
         return subjectMapper.subjectToSubjectDTO(updatedSubject);
@@ -1,8 +1,11 @@
 package adrianromanski.restschool.services.event.exam;
 
 import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamRescheduleDTO;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +16,10 @@ public interface ExamService  {
 
     ExamDTO getExamById(Long id);
 
+    VersionDTO getExamVersion(Long id);
+
+    VersionDTO getExamsVersion();
+
     ExamDTO getExamByName(String name);
 
     List<ExamDTO> getAllExamsForTeacher(String firstName, String lastName);
@@ -29,6 +36,9 @@ public interface ExamService  {
     // PUT
     ExamDTO updateExam(Long id, ExamDTO examDTO);
 
+    ExamRescheduleDTO rescheduleExams(LocalDate from, LocalDate to, Integer days,
+                                      Long teacherId, Long studentClassId, Long subjectId);
+
     // DELETE
     void deleteExamById(Long id);
 
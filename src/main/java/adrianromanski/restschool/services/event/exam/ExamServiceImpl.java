@@ -1,18 +1,33 @@
 package adrianromanski.restschool.services.event.exam;
 
+import adrianromanski.restschool.domain.base_entity.BaseEntity;
 import adrianromanski.restschool.domain.enums.Subjects;
 import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.mapper.event.ExamMapper;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamRescheduleDTO;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import adrianromanski.restschool.repositories.event.ExamDate;
 import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.*;
 
@@ -25,10 +40,18 @@ public class ExamServiceImpl implements ExamService {
     public static final Function<ExamDTO, Integer> GROUPING_BY_STUDENTS = e -> e.getStudentsDTO().size();
     private final ExamMapper examMapper;
     private final ExamRepository examRepository;
+    private final GradeBandService gradeBandService;
+    private final GradeDistributionService gradeDistributionService;
+    private final ScoreStatisticsService scoreStatisticsService;
 
-    public ExamServiceImpl(ExamMapper examMapper, ExamRepository examRepository) {
+    public ExamServiceImpl(ExamMapper examMapper, ExamRepository examRepository, GradeBandService gradeBandService,
+                           GradeDistributionService gradeDistributionService,
+                           ScoreStatisticsService scoreStatisticsService) {
         this.examMapper = examMapper;
         this.examRepository = examRepository;
+        this.gradeBandService = gradeBandService;
+        this.gradeDistributionService = gradeDistributionService;
+        this.scoreStatisticsService = scoreStatisticsService;
     }
 
     /**
@@ -55,6 +78,30 @@ public class ExamServiceImpl implements ExamService {
                 .orElseThrow(() -> new ResourceNotFoundException(id, Exam.class));
     }
 
+    /**
+     * @return ETag and Last-Modified of the Exam with its Results, Teacher and Subject, read from their version
+     * columns without loading them. The ETag carries the latest modification, so a deleted result replaced by
+     * a new one is not mistaken for the same Exam
+     * @throws ResourceNotFoundException if not found
+     */
+    @Override
+    public VersionDTO getExamVersion(Long id) {
+        VersionSummary summary = examRepository.summarizeVersionById(id);
+        if (summary.getTotal() == 0) {
+            throw new ResourceNotFoundException(id, Exam.class);
+        }
+        return VersionDTO.of("exam-" + id, summary).withDerivedAges();
+    }
+
+    /**
+     * @return ETag and Last-Modified of all Exams, changes with every insert, update and delete of an Exam
+     * or of its Results, Teacher and Subject
+     */
+    @Override
+    public VersionDTO getExamsVersion() {
+        return VersionDTO.of("exams", examRepository.summarizeVersions()).withDerivedAges();
+    }
+
     /**
      * @return Exam with matching name
      * @throws ResourceNotFoundException if not found
@@ -144,21 +191,102 @@ public class ExamServiceImpl implements ExamService {
 
 
     /**
-     * Update Exam with Matching ID and save it to Database
+     * Update Exam with Matching ID and save it to Database, its results are re-graded when maxPoints changes
+     * and its grade distribution and score statistics follow a new Subject
      * @return ExamDTO object if successfully saved
      * @throws ResourceNotFoundException if not found
+     * @throws BadRequestException if maxPoints is lowered below a score of its results
      */
     @Override
+    @Transactional
     public ExamDTO updateExam(Long id, ExamDTO examDTO) {
-        examRepository.findById(id)
+        Exam exam = examRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, Exam.class));
+        Long previousMaxPoints = exam.getMaxPoints();
+        Subjects previousSubject = subjectOf(exam);
         Exam updatedExam = examMapper.examDTOToExam(examDTO);
+        if (updatedExam.getMaxPoints() != null && !updatedExam.getMaxPoints().equals(previousMaxPoints)) {
+            Float highestScore = examRepository.findHighestScore(id);
+            if (highestScore != null && highestScore > updatedExam.getMaxPoints()) {
+                throw new BadRequestException("Exam with id: " + id + " has a result of " + highestScore
+                                              + " points, maxPoints can't be lower");
+            }
+        }
         updatedExam.setId(id);
+        updatedExam.setVersion(exam.getVersion());
         examRepository.save(updatedExam);
+        if (updatedExam.getMaxPoints() != null && !updatedExam.getMaxPoints().equals(previousMaxPoints)) {
+            gradeBandService.regradeExam(id);
+        } else if (previousSubject != subjectOf(updatedExam)) {
+            gradeDistributionService.updateSubject(id);
+        }
+        if (previousSubject != subjectOf(updatedExam)) {
+            scoreStatisticsService.moveExam(id, previousSubject, subjectOf(updatedExam));
+        }
         log.info("Exam with id: " + id + " successfully updated");
         return examMapper.examToExamDTO(updatedExam);
         }
 
+    private Subjects subjectOf(Exam exam) {
+        return exam.getSubject() == null ? null : exam.getSubject().getName();
+    }
+
+
+    /**
+     * Shifting every Exam dated from -> to (inclusive) by days with one UPDATE per day, no Exam, Teacher or Student is
+     * loaded. At most one of teacherId, studentClassId and subjectId narrows the Exams, the whole school when none is given
+     * @param to last day of the range, same as from when missing
+     * @param days to shift by, negative moves Exams earlier
+     * @return range, target and number of rescheduled Exams
+     * @throws BadRequestException if the range, days or target are invalid
+     */
+    @Override
+    @Transactional
+    public ExamRescheduleDTO rescheduleExams(LocalDate from, LocalDate to, Integer days,
+                                             Long teacherId, Long studentClassId, Long subjectId) {
+        LocalDate last = to == null ? from : to;
+        if (from == null || last.isBefore(from)) {
+            throw new BadRequestException("From has to be given and can not be after to");
+        }
+        if (days == null || days == 0) {
+            throw new BadRequestException("Days has to be a non zero number");
+        }
+        long targets = Stream.of(teacherId, studentClassId, subjectId).filter(Objects::nonNull).count();
+        if (targets > 1) {
+            throw new BadRequestException("Only one of teacherId, studentClassId and subjectId can be given");
+        }
+        String target;
+        List<ExamDate> exams;
+        if (teacherId != null) {
+            target = "teacher-" + teacherId;
+            exams = examRepository.findAllToRescheduleByTeacher(teacherId, from, last);
+        } else if (studentClassId != null) {
+            target = "studentClass-" + studentClassId;
+            exams = examRepository.findAllToRescheduleByStudentClass(studentClassId, from, last);
+        } else if (subjectId != null) {
+            target = "subject-" + subjectId;
+            exams = examRepository.findAllToRescheduleBySubject(subjectId, from, last);
+        } else {
+            target = "school";
+            exams = examRepository.findAllToReschedule(from, last);
+        }
+        int rescheduled = reschedule(exams, days);
+        log.info(rescheduled + " Exams of " + target + " from " + from + " to " + last + " moved by " + days + " days");
+        return new ExamRescheduleDTO(from, last, days, target, rescheduled);
+    }
+
+    // Exams are moved by their ids, so one moved onto a day that is rescheduled later is never moved twice
+    private int reschedule(List<ExamDate> exams, int days) {
+        Instant now = BaseEntity.now();
+        Map<LocalDate, List<Long>> idsByDate = exams.stream()
+                .collect(groupingBy(ExamDate::getDate, TreeMap::new, mapping(ExamDate::getId, toList())));
+        return idsByDate.entrySet()
+                .stream()
+                .mapToInt(day -> examRepository.reschedule(day.getValue(), day.getKey(),
+                                                           day.getKey().plusDays(days), now))
+                .sum();
+    }
+
 
     /**
      * Delete Exam with matching id
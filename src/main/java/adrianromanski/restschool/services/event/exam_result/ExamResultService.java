@@ -1,6 +1,9 @@
 package adrianromanski.restschool.services.event.exam_result;
 
+import adrianromanski.restschool.model.PageDTO;
 import adrianromanski.restschool.model.event.ExamResultDTO;
+import adrianromanski.restschool.model.event.ExamScoresDTO;
+import adrianromanski.restschool.model.event.ExamScoresResultDTO;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -21,6 +24,8 @@ public interface ExamResultService {
 
     List<ExamResultDTO> getAllNotPassedForSubject(String subjectName);
 
+    PageDTO<ExamResultDTO> getExamResultsPage(boolean passed, String subjectName, Integer page, Integer size);
+
     Map<String, Map<String, List<ExamResultDTO>>> getResultsGroupedByGradeAndName();
 
     Map<LocalDate, Map<String, List<ExamResultDTO>>> getResultGroupedByDateAndGrade();
@@ -28,6 +33,8 @@ public interface ExamResultService {
     // POST
     ExamResultDTO createExamResult(ExamResultDTO examResultDTO);
 
+    ExamScoresResultDTO createExamResults(Long examId, ExamScoresDTO scoresDTO);
+
     // PUT
     ExamResultDTO updateExamResult(Long id, ExamResultDTO examResultDTO);
 
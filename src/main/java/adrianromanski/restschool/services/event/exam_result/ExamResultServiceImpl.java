@@ -1,18 +1,46 @@
 package adrianromanski.restschool.services.event.exam_result;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
 import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.mapper.event.ExamResultMapper;
+import adrianromanski.restschool.model.PageDTO;
 import adrianromanski.restschool.model.event.EventDTO;
+import adrianromanski.restschool.model.event.ExamDTO;
 import adrianromanski.restschool.model.event.ExamResultDTO;
+import adrianromanski.restschool.model.event.ExamScoresDTO;
+import adrianromanski.restschool.model.event.ExamScoresResultDTO;
+import adrianromanski.restschool.model.event.StudentScoreDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
 import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 
+import static adrianromanski.restschool.services.Paging.pageRequest;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
@@ -20,12 +48,33 @@ import static java.util.stream.Collectors.toList;
 @Service
 public class ExamResultServiceImpl implements ExamResultService {
 
+    public static final int MAX_SCORES = 1000;
+    private static final List<Grade> PASSED = Arrays.asList(Grade.A, Grade.B, Grade.C, Grade.D, Grade.E);
+    private static final List<Grade> FAILED = Collections.singletonList(Grade.F);
+
     private final ExamResultRepository examResultRepository;
     private final ExamResultMapper examResultMapper;
+    private final ExamRepository examRepository;
+    private final StudentRepository studentRepository;
+    private final GuardianNotificationService notificationService;
+    private final GradeDistributionService gradeDistributionService;
+    private final ScoreStatisticsService scoreStatisticsService;
+    private final GradeBandService gradeBandService;
 
-    public ExamResultServiceImpl(ExamResultRepository examResultRepository, ExamResultMapper examResultMapper) {
+    public ExamResultServiceImpl(ExamResultRepository examResultRepository, ExamResultMapper examResultMapper,
+                                 ExamRepository examRepository, StudentRepository studentRepository,
+                                 GuardianNotificationService notificationService,
+                                 GradeDistributionService gradeDistributionService,
+                                 ScoreStatisticsService scoreStatisticsService,
+                                 GradeBandService gradeBandService) {
         this.examResultRepository = examResultRepository;
         this.examResultMapper = examResultMapper;
+        this.examRepository = examRepository;
+        this.studentRepository = studentRepository;
+        this.notificationService = notificationService;
+        this.gradeDistributionService = gradeDistributionService;
+        this.scoreStatisticsService = scoreStatisticsService;
+        this.gradeBandService = gradeBandService;
     }
 
 
@@ -59,11 +108,7 @@ public class ExamResultServiceImpl implements ExamResultService {
      */
     @Override
     public List<ExamResultDTO> getAllPassedExamResults() {
-        return examResultRepository.findAll()
-                .stream()
-                .filter(e -> !e.getGrade().equals("F"))
-                .map(examResultMapper::examResultToExamResultDTO)
-                .collect(toList());
+        return toDTO(examResultRepository.findAllByGradeIn(PASSED));
     }
 
 
@@ -72,11 +117,7 @@ public class ExamResultServiceImpl implements ExamResultService {
      */
     @Override
     public List<ExamResultDTO> getAllNotPassedExamResults() {
-        return examResultRepository.findAll()
-                .stream()
-                .filter(e -> e.getGrade().equals("F"))
-                .map(examResultMapper::examResultToExamResultDTO)
-                .collect(toList());
+        return toDTO(examResultRepository.findAllByGradeIn(FAILED));
     }
 
 
@@ -86,12 +127,9 @@ public class ExamResultServiceImpl implements ExamResultService {
      */
     @Override
     public List<ExamResultDTO> getAllPassedForSubject(String subjectName) {
-        return examResultRepository.findAll()
-                .stream()
-                .filter(e -> e.getGrade().equals("F"))
-                .filter(e -> e.getExam().getSubject().getName().get().equals(subjectName))
-                .map(examResultMapper::examResultToExamResultDTO)
-                .collect(toList());
+        return Subjects.byName(subjectName)
+                .map(subject -> toDTO(examResultRepository.findAllBySubjectAndGradeIn(subject, PASSED)))
+                .orElse(Collections.emptyList());
     }
 
 
@@ -101,10 +139,36 @@ public class ExamResultServiceImpl implements ExamResultService {
      */
     @Override
     public List<ExamResultDTO> getAllNotPassedForSubject(String subjectName) {
-        return examResultRepository.findAll()
-                .stream()
-                .filter(e -> !e.getGrade().equals("F"))
-                .filter(e -> e.getExam().getSubject().getName().get().equals(subjectName))
+        return Subjects.byName(subjectName)
+                .map(subject -> toDTO(examResultRepository.findAllBySubjectAndGradeIn(subject, FAILED)))
+                .orElse(Collections.emptyList());
+    }
+
+
+    /**
+     * @param passed Exam Results when true, failed ones otherwise
+     * @param subjectName of the Exam, every Subject when missing
+     * @param page number, first when missing
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of Exam Results sorted by date (latest first) -> id, empty for an unknown Subject
+     */
+    @Override
+    public PageDTO<ExamResultDTO> getExamResultsPage(boolean passed, String subjectName, Integer page, Integer size) {
+        Pageable pageable = pageRequest(page, size);
+        List<Grade> grades = passed ? PASSED : FAILED;
+        if (subjectName == null) {
+            return PageDTO.of(examResultRepository.findPageByGradeIn(grades, pageable)
+                                                  .map(examResultMapper::examResultToExamResultDTO));
+        }
+        return Subjects.byName(subjectName)
+                .map(subject -> PageDTO.of(examResultRepository.findPageBySubjectAndGradeIn(subject, grades, pageable)
+                                                               .map(examResultMapper::examResultToExamResultDTO)))
+                .orElseGet(() -> new PageDTO<>(Collections.emptyList(), pageable.getPageNumber(),
+                                               pageable.getPageSize(), 0, 0));
+    }
+
+    private List<ExamResultDTO> toDTO(List<ExamResult> examResults) {
+        return examResults.stream()
                 .map(examResultMapper::examResultToExamResultDTO)
                 .collect(toList());
     }
@@ -150,44 +214,169 @@ public class ExamResultServiceImpl implements ExamResultService {
 
 
     /**
+     * A failing grade adds a notification for the Guardian to the outbox in the same transaction,
+     * it is sent later by the dispatcher. The result is graded against the stored Exam
+     * and counted in the grade distribution
      * @param examResultDTO to save
      * @return examResultDTO if successfully saved
+     * @throws ResourceNotFoundException if Exam or Student not found
+     * @throws BadRequestException if the score is out of 0..maxPoints of the Exam
      */
     @Override
+    @Transactional
     public ExamResultDTO createExamResult(ExamResultDTO examResultDTO) {
-        examResultRepository.save(examResultMapper.examResultDTOToExamResult(examResultDTO));
+        ExamResult examResult = examResultMapper.examResultDTOToExamResult(examResultDTO);
+        attachExam(examResult, examResultDTO.getExamDTO());
+        examResult.setStudent(findStudent(examResultDTO.getStudentId()));
+        ExamResult savedResult = examResultRepository.save(examResult);
+        gradeDistributionService.add(savedResult);
+        scoreStatisticsService.add(savedResult);
+        notificationService.enqueueIfFailed(savedResult);
         log.info("Exam Result with id: " + examResultDTO.getId() + " successfully saved to database");
         return examResultDTO;
     }
 
 
+    /**
+     * Exam is read once and every score is validated against its maxPoints before anything is written.
+     * Students are attached by reference and the results are inserted in JDBC batches in one transaction
+     * @param examId of the Exam
+     * @param scoresDTO score of every Student, date of the results is today when missing
+     * @return number of created results by grade
+     * @throws ResourceNotFoundException if Exam or one of the Students not found
+     * @throws BadRequestException if a score is out of range, a Student is repeated or already has a result
+     * of the Exam, or there are more than MAX_SCORES
+     */
+    @Override
+    @Transactional
+    public ExamScoresResultDTO createExamResults(Long examId, ExamScoresDTO scoresDTO) {
+        List<StudentScoreDTO> scores = scoresDTO.getScores();
+        if (scores == null || scores.isEmpty() || scores.size() > MAX_SCORES) {
+            throw new BadRequestException("Between 1 and " + MAX_SCORES + " scores have to be given");
+        }
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException(examId, Exam.class));
+        if (exam.getMaxPoints() == null) {
+            throw new BadRequestException("Exam with id: " + examId + " has no maxPoints to grade against");
+        }
+        validateScores(examId, scores, exam.getMaxPoints());
+
+        LocalDate date = scoresDTO.getDate() != null ? scoresDTO.getDate() : SchoolClock.today();
+        GradeBands bands = gradeBandService.getBands();
+        Map<Long, ExamResult> results = new LinkedHashMap<>();
+        Map<String, Long> grades = new TreeMap<>();
+        for (StudentScoreDTO score : scores) {
+            ExamResult examResult = new ExamResult(exam.getName(), date, score.getScore(), exam,
+                                                   studentRepository.getOne(score.getStudentId()));
+            examResult.grade(bands);
+            results.put(score.getStudentId(), examResult);
+            grades.merge(examResult.getGrade().name(), 1L, Long::sum);
+        }
+        examResultRepository.saveAll(results.values());
+        gradeDistributionService.addAll(exam, results.values());
+        scoreStatisticsService.addAll(exam, results);
+        int notified = notificationService.enqueueFailed(results);
+        log.info(results.size() + " Exam Results of Exam with id: " + examId + " successfully saved");
+        return new ExamScoresResultDTO(examId, results.size(), grades, notified);
+    }
+
+    private void validateScores(Long examId, List<StudentScoreDTO> scores, long maxPoints) {
+        Set<Long> studentIds = new HashSet<>();
+        for (StudentScoreDTO score : scores) {
+            if (score.getStudentId() == null || !studentIds.add(score.getStudentId())) {
+                throw new BadRequestException("Every score needs its own Student, missing or repeated id: "
+                                              + score.getStudentId());
+            }
+            if (score.getScore() == null || score.getScore() < 0 || score.getScore() > maxPoints) {
+                throw new BadRequestException("Score of Student with id: " + score.getStudentId()
+                                              + " has to be between 0 and " + maxPoints);
+            }
+        }
+        List<Long> existing = studentRepository.findExistingIds(studentIds);
+        if (existing.size() != studentIds.size()) {
+            studentIds.removeAll(existing);
+            Long missing = studentIds.iterator().next();
+            throw new ResourceNotFoundException(missing, Student.class);
+        }
+        // posting the same scores again would count every Student twice
+        List<Long> graded = examResultRepository.findGradedStudentIds(examId, studentIds);
+        if (!graded.isEmpty()) {
+            throw new BadRequestException("Student with id: " + graded.get(0) + " already has a result of Exam with id: "
+                                          + examId);
+        }
+    }
+
+
     /**
      * @param id of the examResult and checks if it exist in database
      * @param examResultDTO body to update
-     * @return updated examResult body
-     * @throws ResourceNotFoundException if not found
+     * @return updated examResult body, the Guardian is notified only when the grade becomes failing.
+     * The stored result is uncounted from the grade distribution and score statistics before the update
+     * and the new one counted after
+     * @throws ResourceNotFoundException if Exam Result, Exam or Student not found
+     * @throws BadRequestException if the score is out of 0..maxPoints of the Exam
      */
     @Override
+    @Transactional
     public ExamResultDTO updateExamResult(Long id, ExamResultDTO examResultDTO) {
-        examResultRepository.findById(id)
+        ExamResult examResult = examResultRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, ExamResult.class));
+        Grade previousGrade = examResult.getGrade();
+        gradeDistributionService.remove(examResult);
+        scoreStatisticsService.remove(examResult);
         ExamResult updatedResult = examResultMapper.examResultDTOToExamResult(examResultDTO);
         updatedResult.setId(id);
-        examResultRepository.save(updatedResult);
+        updatedResult.setVersion(examResult.getVersion());
+        attachExam(updatedResult, examResultDTO.getExamDTO());
+        updatedResult.setStudent(findStudent(examResultDTO.getStudentId()));
+        ExamResult savedResult = examResultRepository.save(updatedResult);
+        gradeDistributionService.add(savedResult);
+        scoreStatisticsService.add(savedResult);
+        if (!Objects.equals(previousGrade, updatedResult.getGrade())) {
+            notificationService.enqueueIfFailed(updatedResult);
+        }
         log.info("Exam Result with id: " + id + " successfully updated");
         return examResultMapper.examResultToExamResultDTO(updatedResult);
         }
 
 
     /**
-     * @param id id of the examResult and checks if it exist in database
+     * @param id id of the examResult and checks if it exist in database, it is uncounted from the grade distribution
+     * and score statistics
      * @throws ResourceNotFoundException if not found
      */
     @Override
+    @Transactional
     public void deleteExamResultByID(Long id) {
-        examResultRepository.findById(id)
+        ExamResult examResult = examResultRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, ExamResult.class));
-        examResultRepository.deleteById(id);
+        gradeDistributionService.remove(examResult);
+        scoreStatisticsService.remove(examResult);
+        examResultRepository.delete(examResult);
         log.info("Exam Result with id: " + id + " successfully deleted");
     }
+
+    // The mapped Exam is only a copy of the DTO, the stored one is attached and the score graded against it.
+    // A missing date is today as for createExamResults, the grade distribution keeps one row per dated Grade.
+    // Scores out of 0..maxPoints are rejected as in createExamResults, so no stored result is out of range
+    private void attachExam(ExamResult examResult, ExamDTO examDTO) {
+        if (examResult.getDate() == null) {
+            examResult.setDate(SchoolClock.today());
+        }
+        if (examDTO != null && examDTO.getId() != null) {
+            examResult.setExam(examRepository.findById(examDTO.getId())
+                    .orElseThrow(() -> new ResourceNotFoundException(examDTO.getId(), Exam.class)));
+        }
+        Long maxPoints = examResult.getExam() == null ? null : examResult.getExam().getMaxPoints();
+        if (maxPoints != null && (examResult.getScore() < 0 || examResult.getScore() > maxPoints)) {
+            throw new BadRequestException("Score of Exam with id: " + examResult.getExam().getId()
+                                          + " has to be between 0 and " + maxPoints);
+        }
+        examResult.grade(gradeBandService.getBands());
+    }
+
+    private Student findStudent(Long studentId) {
+        return studentId == null ? null : studentRepository.findById(studentId)
+                .orElseThrow(() -> new ResourceNotFoundException(studentId, Student.class));
+    }
 }
@@ -0,0 +1,21 @@
+package adrianromanski.restschool.services.event.grade_band;
+
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.model.event.GradeBandDTO;
+import adrianromanski.restschool.model.event.RegradeDTO;
+
+import java.util.List;
+
+public interface GradeBandService {
+
+    // GET
+    List<GradeBandDTO> getGradeBands();
+
+    GradeBands getBands();
+
+    // PUT
+    RegradeDTO updateGradeBands(List<GradeBandDTO> gradeBandsDTO);
+
+    // POST
+    RegradeDTO regradeExam(Long examId);
+}
@@ -0,0 +1,165 @@
+package adrianromanski.restschool.services.event.grade_band;
+
+import adrianromanski.restschool.domain.base_entity.BaseEntity;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.GradeBand;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import adrianromanski.restschool.exceptions.ResourceNotFoundException;
+import adrianromanski.restschool.model.event.GradeBandDTO;
+import adrianromanski.restschool.model.event.RegradeDTO;
+import adrianromanski.restschool.repositories.event.ExamMaxPoints;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.GradeBandRepository;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+@Slf4j
+@Service
+public class GradeBandServiceImpl implements GradeBandService {
+
+    private final GradeBandRepository gradeBandRepository;
+    private final ExamRepository examRepository;
+    private final ExamResultRepository examResultRepository;
+    private final GradeDistributionService gradeDistributionService;
+
+    // Replaced as a whole, readers always see one complete table
+    private volatile GradeBands bands = GradeBands.DEFAULT;
+
+    public GradeBandServiceImpl(GradeBandRepository gradeBandRepository, ExamRepository examRepository,
+                                ExamResultRepository examResultRepository,
+                                GradeDistributionService gradeDistributionService) {
+        this.gradeBandRepository = gradeBandRepository;
+        this.examRepository = examRepository;
+        this.examResultRepository = examResultRepository;
+        this.gradeDistributionService = gradeDistributionService;
+    }
+
+
+    /**
+     * Installs the stored bands before anything is graded, an empty table is filled with the default ones
+     */
+    @PostConstruct
+    public void loadGradeBands() {
+        List<GradeBand> stored = gradeBandRepository.findAll();
+        if (stored.isEmpty()) {
+            gradeBandRepository.saveAll(toRows(GradeBands.DEFAULT));
+            bands = GradeBands.DEFAULT;
+            return;
+        }
+        Map<Grade, Integer> minPercentages = new EnumMap<>(Grade.class);
+        stored.forEach(band -> minPercentages.put(band.getGrade(), band.getMinPercentage()));
+        bands = GradeBands.of(minPercentages);
+        log.info("Grade bands loaded: " + minPercentages);
+    }
+
+
+    /**
+     * @return minimum percentage of maxPoints for every Grade, A to F
+     */
+    @Override
+    public List<GradeBandDTO> getGradeBands() {
+        return toDTO(bands);
+    }
+
+
+    /**
+     * @return bands every Exam Result is graded against
+     */
+    @Override
+    public GradeBands getBands() {
+        return bands;
+    }
+
+
+    /**
+     * Stores and installs the new bands, then every graded Exam is re-graded with one UPDATE
+     * and the grade distribution is rebuilt once
+     * @param gradeBandsDTO minimum percentage of every Grade but F, falling from A to E
+     * @return installed bands and number of re-graded Exams and results
+     * @throws BadRequestException if a Grade is missing or repeated, or the percentages do not fall from A to E
+     */
+    @Override
+    @Transactional
+    public RegradeDTO updateGradeBands(List<GradeBandDTO> gradeBandsDTO) {
+        GradeBands bands = toGradeBands(gradeBandsDTO);
+        gradeBandRepository.saveAll(toRows(bands));
+        this.bands = bands;
+        List<ExamMaxPoints> exams = examRepository.findAllMaxPoints();
+        int regraded = exams.stream().mapToInt(exam -> regrade(exam.getId(), exam.getMaxPoints(), bands)).sum();
+        gradeDistributionService.rebuildAll();
+        log.info("Grade bands updated, " + regraded + " Exam Results of " + exams.size() + " Exams re-graded");
+        return new RegradeDTO(toDTO(bands), exams.size(), regraded);
+    }
+
+
+    /**
+     * Every result of the Exam is graded again with one UPDATE, nothing is loaded. Its grade distribution is rebuilt
+     * @return current bands and number of re-graded results
+     * @throws ResourceNotFoundException if Exam not found
+     * @throws BadRequestException if the Exam has no maxPoints
+     */
+    @Override
+    @Transactional
+    public RegradeDTO regradeExam(Long examId) {
+        ExamMaxPoints exam = examRepository.findMaxPointsById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException(examId, Exam.class));
+        if (exam.getMaxPoints() == null) {
+            throw new BadRequestException("Exam with id: " + examId + " has no maxPoints to grade against");
+        }
+        GradeBands bands = this.bands;
+        int regraded = regrade(examId, exam.getMaxPoints(), bands);
+        gradeDistributionService.rebuildExam(examId);
+        log.info(regraded + " Exam Results of Exam with id: " + examId + " re-graded");
+        return new RegradeDTO(toDTO(bands), 1, regraded);
+    }
+
+    private int regrade(Long examId, long maxPoints, GradeBands bands) {
+        return examResultRepository.regrade(examId, maxPoints,
+                bands.minScore(Grade.A, maxPoints), bands.minScore(Grade.B, maxPoints),
+                bands.minScore(Grade.C, maxPoints), bands.minScore(Grade.D, maxPoints),
+                bands.minScore(Grade.E, maxPoints), BaseEntity.now());
+    }
+
+    private GradeBands toGradeBands(List<GradeBandDTO> gradeBandsDTO) {
+        if (gradeBandsDTO == null) {
+            throw new BadRequestException("Grade bands are missing");
+        }
+        Map<Grade, Integer> minPercentages = new EnumMap<>(Grade.class);
+        for (GradeBandDTO band : gradeBandsDTO) {
+            if (band.getGrade() == null || minPercentages.put(band.getGrade(), band.getMinPercentage()) != null) {
+                throw new BadRequestException("Every Grade can be given once, missing or repeated: " + band.getGrade());
+            }
+        }
+        try {
+            return GradeBands.of(minPercentages);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    private List<GradeBand> toRows(GradeBands bands) {
+        return Arrays.stream(Grade.values())
+                .filter(Grade::isPassing)
+                .map(grade -> new GradeBand(grade, bands.minPercentage(grade)))
+                .collect(toList());
+    }
+
+    private List<GradeBandDTO> toDTO(GradeBands bands) {
+        return Arrays.stream(Grade.values())
+                .map(grade -> new GradeBandDTO(grade, bands.minPercentage(grade)))
+                .collect(toList());
+    }
+}
@@ -0,0 +1,34 @@
+package adrianromanski.restschool.services.event.grade_distribution;
+
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.model.event.GradeHistogramDTO;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface GradeDistributionService {
+
+    // GET
+    GradeHistogramDTO getExamHistogram(Long examId);
+
+    GradeHistogramDTO getSubjectHistogram(String subjectName, LocalDate from, LocalDate to);
+
+    List<GradeHistogramDTO> getDailyHistograms(LocalDate from, LocalDate to);
+
+    // POST
+    void add(ExamResult examResult);
+
+    void addAll(Exam exam, Collection<ExamResult> examResults);
+
+    int rebuildExam(Long examId);
+
+    int rebuildAll();
+
+    // PUT
+    void updateSubject(Long examId);
+
+    // DELETE
+    void remove(ExamResult examResult);
+}
@@ -0,0 +1,305 @@
+package adrianromanski.restschool.services.event.grade_distribution;
+
+import adrianromanski.restschool.domain.base_entity.BaseEntity;
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeDistribution;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import adrianromanski.restschool.model.event.GradeCountDTO;
+import adrianromanski.restschool.model.event.GradeHistogramDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.GradeCount;
+import adrianromanski.restschool.repositories.event.GradeDistributionRepository;
+import adrianromanski.restschool.repositories.event.GradeDistributionRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+@Slf4j
+@Service
+public class GradeDistributionServiceImpl implements GradeDistributionService {
+
+    public static final int MAX_DAYS = 366;
+    // an inserted row is only lost again to a concurrent rebuild
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final GradeDistributionRepository gradeDistributionRepository;
+    private final ExamRepository examRepository;
+    private final ExamResultRepository examResultRepository;
+    private final TransactionTemplate newTransaction;
+
+    public GradeDistributionServiceImpl(GradeDistributionRepository gradeDistributionRepository,
+                                        ExamRepository examRepository, ExamResultRepository examResultRepository,
+                                        PlatformTransactionManager transactionManager) {
+        this.gradeDistributionRepository = gradeDistributionRepository;
+        this.examRepository = examRepository;
+        this.examResultRepository = examResultRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
+    /**
+     * @param examId of the Exam
+     * @return number of results and average score for every Grade, zeros for an unknown Exam
+     */
+    @Override
+    public GradeHistogramDTO getExamHistogram(Long examId) {
+        return toHistogram(null, gradeDistributionRepository.countByExam(examId));
+    }
+
+
+    /**
+     * @param subjectName of the Exams
+     * @param from first day of the range, open when missing
+     * @param to last day of the range, open when missing
+     * @return number of results and average score for every Grade, zeros for an unknown Subject
+     * @throws BadRequestException if from is after to
+     */
+    @Override
+    public GradeHistogramDTO getSubjectHistogram(String subjectName, LocalDate from, LocalDate to) {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new BadRequestException("From can not be after to");
+        }
+        return Subjects.byName(subjectName)
+                .map(subject -> toHistogram(null, gradeDistributionRepository.countBySubject(subject, from, to)))
+                .orElseGet(() -> toHistogram(null, Collections.emptyList()));
+    }
+
+
+    /**
+     * @param from first day of the range
+     * @param to last day of the range, same as from when missing
+     * @return histogram of every day with results, latest last
+     * @throws BadRequestException if from is missing, after to or the range is longer than MAX_DAYS
+     */
+    @Override
+    public List<GradeHistogramDTO> getDailyHistograms(LocalDate from, LocalDate to) {
+        LocalDate last = to == null ? from : to;
+        if (from == null || last.isBefore(from) || ChronoUnit.DAYS.between(from, last) >= MAX_DAYS) {
+            throw new BadRequestException("From has to be given, not after to and at most " + MAX_DAYS
+                                          + " days before it");
+        }
+        Map<LocalDate, List<GradeCount>> byDate = gradeDistributionRepository.countByDate(from, last)
+                .stream()
+                .collect(groupingBy(GradeCount::getDate, LinkedHashMap::new, toList()));
+        return byDate.entrySet()
+                .stream()
+                .map(entry -> toHistogram(entry.getKey(), entry.getValue()))
+                .collect(toList());
+    }
+
+    private GradeHistogramDTO toHistogram(LocalDate date, List<GradeCount> counts) {
+        Map<Grade, GradeCount> byGrade = new EnumMap<>(Grade.class);
+        counts.forEach(count -> byGrade.put(count.getGrade(), count));
+        long total = 0;
+        double scoreSum = 0;
+        List<GradeCountDTO> grades = new ArrayList<>();
+        for (Grade grade : Grade.values()) {
+            GradeCount count = byGrade.get(grade);
+            long gradeTotal = count == null ? 0 : count.getTotal();
+            double gradeScoreSum = count == null ? 0 : count.getScoreSum();
+            grades.add(new GradeCountDTO(grade, gradeTotal, average(gradeScoreSum, gradeTotal)));
+            total += gradeTotal;
+            scoreSum += gradeScoreSum;
+        }
+        return new GradeHistogramDTO(date, grades, total, average(scoreSum, total));
+    }
+
+    private Double average(double scoreSum, long total) {
+        return total == 0 ? null : scoreSum / total;
+    }
+
+
+    /**
+     * Counts a saved Exam Result with one UPDATE, the row of its Exam, date and Grade is inserted on first use.
+     * Results without Exam or Grade are not counted
+     * @param examResult saved Exam Result
+     * @throws IllegalStateException if the row was deleted by a rebuild every time it was inserted
+     */
+    @Override
+    @Transactional
+    public void add(ExamResult examResult) {
+        if (isCounted(examResult)) {
+            Long examId = examResult.getExam().getId();
+            int attempts = 0;
+            while (increment(examResult, 1) == 0) {
+                checkAttempts(examId, ++attempts);
+                insertEmpty(Collections.singletonList(new GradeDistribution(examId,
+                        examRepository.findSubjectById(examId).orElse(null), examResult.getDate(),
+                        examResult.getGrade(), 0, 0)));
+            }
+        }
+    }
+
+
+    /**
+     * Same as add for many results of one Exam, they are counted in memory first so every row of the Exam
+     * is read once and written in JDBC batches
+     * @param exam of the results, with its Subject
+     * @param examResults saved Exam Results of the Exam
+     * @throws IllegalStateException if the rows were deleted by a rebuild every time they were inserted
+     */
+    @Override
+    @Transactional
+    public void addAll(Exam exam, Collection<ExamResult> examResults) {
+        Subjects subject = exam.getSubject() == null ? null : exam.getSubject().getName();
+        Map<Grade, Map<LocalDate, GradeDistribution>> counts = new EnumMap<>(Grade.class);
+        for (ExamResult examResult : examResults) {
+            if (examResult.getGrade() == null) {
+                continue;
+            }
+            GradeDistribution count = counts.computeIfAbsent(examResult.getGrade(), grade -> new HashMap<>())
+                    .computeIfAbsent(examResult.getDate(), date -> new GradeDistribution(exam.getId(), subject, date,
+                                                                                         examResult.getGrade(), 0, 0));
+            count.setTotal(count.getTotal() + 1);
+            count.setScoreSum(count.getScoreSum() + examResult.getScore());
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+        Map<Grade, Map<LocalDate, GradeDistribution>> rows = lockRows(exam.getId(), counts);
+        counts.forEach((grade, byDate) -> byDate.forEach((date, count) -> {
+            GradeDistribution row = rows.get(grade).get(date);
+            row.setTotal(row.getTotal() + count.getTotal());
+            row.setScoreSum(row.getScoreSum() + count.getScoreSum());
+        }));
+    }
+
+    // Rows of the Exam are read locked, the missing ones are inserted empty and the rows read again
+    private Map<Grade, Map<LocalDate, GradeDistribution>> lockRows(Long examId,
+                                                                   Map<Grade, Map<LocalDate, GradeDistribution>> counts) {
+        int attempts = 0;
+        while (true) {
+            Map<Grade, Map<LocalDate, GradeDistribution>> rows = new EnumMap<>(Grade.class);
+            gradeDistributionRepository.findAllByExamId(examId).forEach(row -> rows
+                    .computeIfAbsent(row.getGrade(), grade -> new HashMap<>())
+                    .put(row.getDate(), row));
+            List<GradeDistribution> missing = new ArrayList<>();
+            counts.forEach((grade, byDate) -> byDate.forEach((date, count) -> {
+                if (!rows.getOrDefault(grade, Collections.emptyMap()).containsKey(date)) {
+                    missing.add(new GradeDistribution(examId, count.getSubject(), date, grade, 0, 0));
+                }
+            }));
+            if (missing.isEmpty()) {
+                return rows;
+            }
+            checkAttempts(examId, ++attempts);
+            insertEmpty(missing);
+        }
+    }
+
+    // Missing rows are inserted empty in their own transaction, a concurrent writer inserting the same row first
+    // only fails this insert and not the write of the results. Counts are always added to a stored row
+    private void insertEmpty(List<GradeDistribution> rows) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                gradeDistributionRepository.saveAll(rows);
+                gradeDistributionRepository.flush();
+            });
+        } catch (DataIntegrityViolationException ex) {
+            log.info("Grade distribution of Exam with id: " + rows.get(0).getExamId() + " inserted concurrently");
+        }
+    }
+
+    private void checkAttempts(Long examId, int attempts) {
+        if (attempts > MAX_ATTEMPTS) {
+            throw new IllegalStateException("Grade distribution of Exam with id: " + examId + " could not be inserted");
+        }
+    }
+
+
+    /**
+     * Uncounts an Exam Result before it is changed or deleted, an emptied row is kept until the next rebuild
+     * @param examResult Exam Result as it is stored
+     */
+    @Override
+    @Transactional
+    public void remove(ExamResult examResult) {
+        if (isCounted(examResult)) {
+            increment(examResult, -1);
+        }
+    }
+
+    private int increment(ExamResult examResult, int total) {
+        return gradeDistributionRepository.increment(examResult.getExam().getId(), examResult.getDate(),
+                                                     examResult.getGrade(), total, total * examResult.getScore(),
+                                                     BaseEntity.now());
+    }
+
+    private boolean isCounted(ExamResult examResult) {
+        return examResult.getGrade() != null && examResult.getExam() != null && examResult.getExam().getId() != null;
+    }
+
+
+    /**
+     * Copies the current Subject of the Exam to its rows with one UPDATE
+     * @param examId of the Exam
+     */
+    @Override
+    @Transactional
+    public void updateSubject(Long examId) {
+        gradeDistributionRepository.updateSubject(examId, examRepository.findSubjectById(examId).orElse(null),
+                                                  BaseEntity.now());
+    }
+
+
+    /**
+     * Replaces the rows of the Exam with the ones counted from its results, after they were re-graded.
+     * Results without a date are dated today first
+     * @param examId of the Exam
+     * @return number of rows
+     */
+    @Override
+    @Transactional
+    public int rebuildExam(Long examId) {
+        examResultRepository.dateUndated(examId, SchoolClock.today(), BaseEntity.now());
+        gradeDistributionRepository.deleteByExamId(examId);
+        return save(examResultRepository.countDistributionByExam(examId));
+    }
+
+
+    /**
+     * Replaces every row with the ones counted from the Exam Results, the ones without a date are dated today first
+     * @return number of rows
+     */
+    @Override
+    @Transactional
+    public int rebuildAll() {
+        examResultRepository.dateUndated(null, SchoolClock.today(), BaseEntity.now());
+        gradeDistributionRepository.deleteAllInBatch();
+        int rows = save(examResultRepository.countDistribution());
+        log.info("Grade distribution rebuilt with " + rows + " rows");
+        return rows;
+    }
+
+    private int save(List<GradeDistributionRow> rows) {
+        gradeDistributionRepository.saveAll(rows.stream()
+                .map(row -> new GradeDistribution(row.getExamId(), row.getSubject(), row.getDate(), row.getGrade(),
+                                                  row.getTotal(), row.getScoreSum()))
+                .collect(toList()));
+        return rows.size();
+    }
+}
@@ -0,0 +1,35 @@
+package adrianromanski.restschool.services.event.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the outbox on a single scheduler thread, so a notification is never picked up twice.
+ * Full batches are followed by the next one straight away, a partial batch waits for the next poll
+ */
+@Slf4j
+@Component
+public class GuardianNotificationDispatcher {
+
+    private final GuardianNotificationService notificationService;
+    private final int batchSize;
+
+    public GuardianNotificationDispatcher(GuardianNotificationService notificationService,
+                                          @Value("${school.notifications.batch-size:100}") int batchSize) {
+        this.notificationService = notificationService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${school.notifications.poll-interval-ms:5000}")
+    public void drain() {
+        try {
+            while (notificationService.dispatchPending() >= batchSize) {
+                log.debug("Outbox batch full, dispatching the next one");
+            }
+        } catch (RuntimeException e) {
+            log.error("Dispatching Guardian notifications failed: " + e.getMessage());
+        }
+    }
+}
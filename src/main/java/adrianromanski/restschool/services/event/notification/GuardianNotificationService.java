@@ -0,0 +1,14 @@
+package adrianromanski.restschool.services.event.notification;
+
+import adrianromanski.restschool.domain.event.ExamResult;
+
+import java.util.Map;
+
+public interface GuardianNotificationService {
+
+    boolean enqueueIfFailed(ExamResult examResult);
+
+    int enqueueFailed(Map<Long, ExamResult> resultsByStudentId);
+
+    int dispatchPending();
+}
@@ -0,0 +1,279 @@
+package adrianromanski.restschool.services.event.notification;
+
+import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.NotificationStatus;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GuardianNotification;
+import adrianromanski.restschool.domain.person.Guardian;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.repositories.event.GuardianNotificationRepository;
+import adrianromanski.restschool.repositories.person.GuardianRecipient;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+
+@Slf4j
+@Service
+public class GuardianNotificationServiceImpl implements GuardianNotificationService {
+
+    public static final String NO_RECIPIENT = "Guardian has no email";
+
+    private final GuardianNotificationRepository notificationRepository;
+    private final NotificationSender notificationSender;
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Duration sendTimeout;
+
+    public GuardianNotificationServiceImpl(GuardianNotificationRepository notificationRepository,
+                                           NotificationSender notificationSender,
+                                           StudentRepository studentRepository,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${school.notifications.batch-size:100}") int batchSize,
+                                           @Value("${school.notifications.threads:4}") int threads,
+                                           @Value("${school.notifications.max-attempts:5}") int maxAttempts,
+                                           @Value("${school.notifications.backoff-ms:1000}") long backoffMillis,
+                                           @Value("${school.notifications.max-backoff-ms:300000}") long maxBackoffMillis,
+                                           @Value("${school.notifications.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.notificationRepository = notificationRepository;
+        this.notificationSender = notificationSender;
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoff = Duration.ofMillis(backoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.sendTimeout = Duration.ofMillis(sendTimeoutMillis);
+        // never more than a batch is submitted at once, the queue only fills up if the pool was shrunk
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(batchSize), new SenderThreadFactory(),
+                                               new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+
+    /**
+     * Joins the transaction of the Exam Result, so the notification exists if and only if the result does.
+     * A Guardian without an email gets a FAILED notification, which is never sent
+     * @param examResult saved Exam Result with its Student
+     * @return true if a notification was added to the outbox
+     */
+    @Override
+    @Transactional
+    public boolean enqueueIfFailed(ExamResult examResult) {
+        Student student = examResult.getStudent();
+        if (examResult.getGrade() != Grade.F || student == null || student.getGuardian() == null) {
+            return false;
+        }
+        Guardian guardian = student.getGuardian();
+        String recipient = guardian.getContactOptional().map(GuardianContact::getEmail).orElse(null);
+        notificationRepository.save(checkRecipient(GuardianNotification.builder()
+                .examResultId(examResult.getId())
+                .guardianId(guardian.getId())
+                .recipient(recipient)
+                .message(message(guardian.getFirstName(), guardian.getLastName(),
+                                 student.getFirstName(), student.getLastName(), examResult))
+                .nextAttemptAt(Instant.now())
+                .build()));
+        log.info("Notification for Guardian with id: " + guardian.getId() + " added to the outbox");
+        return true;
+    }
+
+
+    /**
+     * Same as enqueueIfFailed for many results, the Guardians of every failing Student are read with one query
+     * and the notifications are inserted in JDBC batches, FAILED for Guardians without an email
+     * @param resultsByStudentId saved Exam Results by the id of their Student
+     * @return number of notifications added to the outbox
+     */
+    @Override
+    @Transactional
+    public int enqueueFailed(Map<Long, ExamResult> resultsByStudentId) {
+        List<Long> failing = resultsByStudentId.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue().getGrade() == Grade.F)
+                .map(Map.Entry::getKey)
+                .collect(toList());
+        if (failing.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<GuardianNotification> notifications = studentRepository.findGuardianRecipients(failing)
+                .stream()
+                .map(recipient -> notification(recipient, resultsByStudentId.get(recipient.getStudentId()), now))
+                .collect(toList());
+        notificationRepository.saveAll(notifications);
+        log.info(notifications.size() + " Guardian notifications added to the outbox");
+        return notifications.size();
+    }
+
+    private GuardianNotification notification(GuardianRecipient recipient, ExamResult examResult, Instant now) {
+        return checkRecipient(GuardianNotification.builder()
+                .examResultId(examResult.getId())
+                .guardianId(recipient.getGuardianId())
+                .recipient(recipient.getEmail())
+                .message(message(recipient.getGuardianFirstName(), recipient.getGuardianLastName(),
+                                 recipient.getStudentFirstName(), recipient.getStudentLastName(), examResult))
+                .nextAttemptAt(now)
+                .build());
+    }
+
+    // Without an email there is nobody to send to, the notification is kept as FAILED with the reason
+    private GuardianNotification checkRecipient(GuardianNotification notification) {
+        if (notification.getRecipient() == null || notification.getRecipient().trim().isEmpty()) {
+            notification.setStatus(NotificationStatus.FAILED);
+            notification.setLastError(NO_RECIPIENT);
+            log.warn("Notification for Guardian with id: " + notification.getGuardianId() + " not sent: "
+                     + NO_RECIPIENT);
+        }
+        return notification;
+    }
+
+
+    /**
+     * Sends one batch of due notifications in parallel, outside of any transaction.
+     * A failed delivery is retried with exponential backoff until maxAttempts, then marked as FAILED
+     * @return number of notifications sent
+     */
+    @Override
+    public int dispatchPending() {
+        List<Delivery> due = transactionTemplate.execute(status -> notificationRepository
+                .findDue(NotificationStatus.PENDING, Instant.now(), PageRequest.of(0, batchSize))
+                .stream()
+                .map(Delivery::new)
+                .collect(toList()));
+        if (due == null || due.isEmpty()) {
+            return 0;
+        }
+        List<Future<?>> futures = due.stream()
+                .map(delivery -> executor.submit(() -> send(delivery)))
+                .collect(toList());
+        Map<Long, String> errors = awaitDeliveries(due, futures);
+        transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            notificationRepository.findAllById(due.stream().map(delivery -> delivery.id).collect(toList()))
+                    .forEach(notification -> record(notification, errors, now));
+            return null;
+        });
+        int sent = due.size() - errors.size();
+        log.info("Sent " + sent + " Guardian notifications, " + errors.size() + " failed");
+        return sent;
+    }
+
+    // Rows queued before recipients were checked may still have none
+    private void send(Delivery delivery) {
+        if (delivery.recipient == null || delivery.recipient.trim().isEmpty()) {
+            throw new IllegalStateException(NO_RECIPIENT);
+        }
+        notificationSender.send(delivery.recipient, delivery.message);
+    }
+
+    private Map<Long, String> awaitDeliveries(List<Delivery> due, List<Future<?>> futures) {
+        Map<Long, String> errors = new HashMap<>();
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (int i = 0; i < futures.size(); i++) {
+            Long id = due.get(i).id;
+            try {
+                futures.get(i).get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                errors.put(id, String.valueOf(e.getCause().getMessage()));
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                errors.put(id, "Timed out after " + sendTimeout.toMillis() + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.put(id, "Interrupted");
+            }
+        }
+        return errors;
+    }
+
+    private void record(GuardianNotification notification, Map<Long, String> errors, Instant now) {
+        notification.setAttempts(notification.getAttempts() + 1);
+        if (!errors.containsKey(notification.getId())) {
+            notification.setStatus(NotificationStatus.SENT);
+            notification.setLastError(null);
+            return;
+        }
+        notification.setLastError(errors.get(notification.getId()));
+        if (notification.getAttempts() >= maxAttempts) {
+            notification.setStatus(NotificationStatus.FAILED);
+            log.error("Notification with id: " + notification.getId() + " failed after "
+                      + notification.getAttempts() + " attempts: " + notification.getLastError());
+        } else {
+            notification.setNextAttemptAt(now.plus(backoff(notification.getAttempts())));
+        }
+    }
+
+    /**
+     * @return backoff doubled with every failed attempt, limited to maxBackoff
+     */
+    public Duration backoff(int attempts) {
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private String message(String guardianFirstName, String guardianLastName,
+                           String studentFirstName, String studentLastName, ExamResult examResult) {
+        String exam = examResult.getExam() != null && examResult.getExam().getName() != null
+                ? examResult.getExam().getName() : examResult.getName();
+        return "Dear " + guardianFirstName + " " + guardianLastName + ", "
+               + studentFirstName + " " + studentLastName + " received grade "
+               + examResult.getGrade() + " in " + exam + " on " + examResult.getDate();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class Delivery {
+        private final Long id;
+        private final String recipient;
+        private final String message;
+
+        private Delivery(GuardianNotification notification) {
+            this.id = notification.getId();
+            this.recipient = notification.getRecipient();
+            this.message = notification.getMessage();
+        }
+    }
+
+    private static final class SenderThreadFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "guardian-notification-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
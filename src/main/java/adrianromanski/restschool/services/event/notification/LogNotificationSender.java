@@ -0,0 +1,20 @@
+package adrianromanski.restschool.services.event.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default sender, writes every notification to the log until a real channel is configured
+ * with school.notifications.sender
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "school.notifications.sender", havingValue = "log", matchIfMissing = true)
+public class LogNotificationSender implements NotificationSender {
+
+    @Override
+    public void send(String recipient, String message) {
+        log.info("Notification to " + recipient + ": " + message);
+    }
+}
@@ -0,0 +1,10 @@
+package adrianromanski.restschool.services.event.notification;
+
+/**
+ * Delivery channel of the Guardian notifications, a failure is reported by throwing
+ * and the notification is retried later. Called from the threads of the dispatcher
+ */
+public interface NotificationSender {
+
+    void send(String recipient, String message);
+}
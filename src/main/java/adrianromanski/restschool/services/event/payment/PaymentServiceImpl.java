@@ -86,10 +86,11 @@ public class PaymentServiceImpl implements PaymentService {
      */
     @Override
     public PaymentDTO updatePayment(Long id, PaymentDTO paymentDTO) {
-        paymentRepository.findById(id)
+        Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, Payment.class));
         Payment updatedPayment = paymentMapper.paymentDTOToPayment(paymentDTO);
         updatedPayment.setId(id);
+        updatedPayment.setVersion(payment.getVersion());
         paymentRepository.save(updatedPayment);
         log.info("Payment with id: " + id + "successfully updated");
         return paymentMapper.paymentToPaymentDTO(updatedPayment);
@@ -56,10 +56,11 @@ public class SchoolYearServiceImpl implements SchoolYearService {
      */
     @Override
     public SchoolYearDTO updateSchoolYear(Long id, SchoolYearDTO schoolYearDTO) {
-        schoolYearRepository.findById(id)
+        SchoolYear schoolYear = schoolYearRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, SchoolYear.class));
         SchoolYear updated = schoolYearMapper.schoolYearDTOToSchoolYear(schoolYearDTO);
         updated.setId(id);
+        updated.setVersion(schoolYear.getVersion());
         schoolYearRepository.save(updated);
         log.info("School Year : " + schoolYearDTO.getDate() + " successfully updated and saved to database");
         return schoolYearMapper.schoolYearToSchoolYearDTO(updated);
@@ -0,0 +1,29 @@
+package adrianromanski.restschool.services.event.score_statistics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds every score sketch from the Exam Results, so rows lost or left behind by Students who changed
+ * their Student Class are corrected without a restart
+ */
+@Slf4j
+@Component
+public class ScoreStatisticsRebuildJob {
+
+    private final ScoreStatisticsService scoreStatisticsService;
+
+    public ScoreStatisticsRebuildJob(ScoreStatisticsService scoreStatisticsService) {
+        this.scoreStatisticsService = scoreStatisticsService;
+    }
+
+    @Scheduled(cron = "${school.score-statistics.rebuild-cron:0 0 3 * * *}")
+    public void rebuild() {
+        try {
+            scoreStatisticsService.rebuildAll();
+        } catch (RuntimeException e) {
+            log.error("Rebuilding score statistics failed: " + e.getMessage());
+        }
+    }
+}
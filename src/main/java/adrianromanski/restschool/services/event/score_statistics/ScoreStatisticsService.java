@@ -0,0 +1,31 @@
+package adrianromanski.restschool.services.event.score_statistics;
+
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.model.event.ScoreStatisticsDTO;
+
+import java.util.Map;
+
+public interface ScoreStatisticsService {
+
+    // GET
+    ScoreStatisticsDTO getExamStatistics(Long examId);
+
+    ScoreStatisticsDTO getSubjectStatistics(String subjectName);
+
+    ScoreStatisticsDTO getStudentClassStatistics(Long studentClassId);
+
+    // POST
+    void add(ExamResult examResult);
+
+    void addAll(Exam exam, Map<Long, ExamResult> resultsByStudentId);
+
+    int rebuildAll();
+
+    // PUT
+    void moveExam(Long examId, Subjects from, Subjects to);
+
+    // DELETE
+    void remove(ExamResult examResult);
+}
@@ -0,0 +1,330 @@
+package adrianromanski.restschool.services.event.score_statistics;
+
+import adrianromanski.restschool.domain.enums.ScoreScope;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.ScoreSketch;
+import adrianromanski.restschool.domain.event.ScoreStatistics;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.model.event.ScoreStatisticsDTO;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.ScoreRow;
+import adrianromanski.restschool.repositories.event.ScoreStatisticsRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class ScoreStatisticsServiceImpl implements ScoreStatisticsService {
+
+    // an inserted sketch is only lost again to a concurrent rebuild
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final ScoreStatisticsRepository scoreStatisticsRepository;
+    private final ExamResultRepository examResultRepository;
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate newTransaction;
+
+    public ScoreStatisticsServiceImpl(ScoreStatisticsRepository scoreStatisticsRepository,
+                                      ExamResultRepository examResultRepository, StudentRepository studentRepository,
+                                      PlatformTransactionManager transactionManager) {
+        this.scoreStatisticsRepository = scoreStatisticsRepository;
+        this.examResultRepository = examResultRepository;
+        this.studentRepository = studentRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
+    /**
+     * @return count, mean, standard deviation, min, p10, median, p90 and max of the scores of the Exam,
+     * empty for an Exam without results
+     */
+    @Override
+    public ScoreStatisticsDTO getExamStatistics(Long examId) {
+        return getStatistics(ScoreScope.EXAM, examId);
+    }
+
+
+    /**
+     * @return same as getExamStatistics for every Exam of the Subject, empty for an unknown Subject
+     */
+    @Override
+    public ScoreStatisticsDTO getSubjectStatistics(String subjectName) {
+        return Subjects.byName(subjectName)
+                .map(subject -> getStatistics(ScoreScope.SUBJECT, (long) subject.ordinal()))
+                .orElseGet(() -> toDTO(ScoreSketch.of(0, 0, 0, null)));
+    }
+
+
+    /**
+     * @return same as getExamStatistics for every Student of the Student Class
+     */
+    @Override
+    public ScoreStatisticsDTO getStudentClassStatistics(Long studentClassId) {
+        return getStatistics(ScoreScope.STUDENT_CLASS, studentClassId);
+    }
+
+    private ScoreStatisticsDTO getStatistics(ScoreScope scope, Long scopeId) {
+        return toDTO(scoreStatisticsRepository.findByScopeAndScopeId(scope, scopeId)
+                .map(ScoreStatistics::toSketch)
+                .orElseGet(() -> ScoreSketch.of(0, 0, 0, null)));
+    }
+
+    private ScoreStatisticsDTO toDTO(ScoreSketch sketch) {
+        return new ScoreStatisticsDTO(Math.max(sketch.getCount(), 0), sketch.mean(), sketch.standardDeviation(),
+                                      sketch.min(), sketch.quantile(0.1), sketch.quantile(0.5),
+                                      sketch.quantile(0.9), sketch.max());
+    }
+
+
+    /**
+     * Adds a saved Exam Result to the sketches of its Exam, Subject and the current Student Class of its Student,
+     * the class is recorded on the result. Results without an Exam are not counted
+     * @param examResult saved Exam Result
+     */
+    @Override
+    @Transactional
+    public void add(ExamResult examResult) {
+        Student student = examResult.getStudent();
+        examResult.setStudentClassId(student == null || student.getStudentClass() == null
+                                     ? null : student.getStudentClass().getId());
+        apply(examResult, 1);
+    }
+
+
+    /**
+     * Same as add for many results of one Exam, the Student Classes are read with one query and the results
+     * merged in memory, so every sketch is read and written once
+     * @param exam of the results, with its Subject
+     * @param resultsByStudentId saved Exam Results by the id of their Student
+     */
+    @Override
+    @Transactional
+    public void addAll(Exam exam, Map<Long, ExamResult> resultsByStudentId) {
+        Map<ScoreScope, Map<Long, ScoreSketch>> deltas = new EnumMap<>(ScoreScope.class);
+        Map<Long, Long> studentClassIds = new HashMap<>();
+        studentRepository.findStudentClassIds(resultsByStudentId.keySet())
+                .forEach(student -> studentClassIds.put(student.getStudentId(), student.getStudentClassId()));
+        resultsByStudentId.forEach((studentId, examResult) -> {
+            examResult.setStudentClassId(studentClassIds.get(studentId));
+            add(deltas, exam.getId(), subjectOf(exam), examResult.getStudentClassId(), examResult.getScore(), 1);
+        });
+        merge(deltas);
+    }
+
+
+    /**
+     * Removes an Exam Result from its sketches before it is changed or deleted, from the Student Class it was
+     * counted in even if its Student changed class since
+     * @param examResult Exam Result as it is stored
+     */
+    @Override
+    @Transactional
+    public void remove(ExamResult examResult) {
+        apply(examResult, -1);
+    }
+
+    private void apply(ExamResult examResult, int total) {
+        Exam exam = examResult.getExam();
+        if (exam == null || exam.getId() == null) {
+            return;
+        }
+        Map<ScoreScope, Map<Long, ScoreSketch>> deltas = new EnumMap<>(ScoreScope.class);
+        add(deltas, exam.getId(), subjectOf(exam), examResult.getStudentClassId(), examResult.getScore(), total);
+        merge(deltas);
+    }
+
+
+    /**
+     * Moves the sketch of the Exam from the sketch of its previous Subject to the new one, no result is read
+     */
+    @Override
+    @Transactional
+    public void moveExam(Long examId, Subjects from, Subjects to) {
+        scoreStatisticsRepository.findByScopeAndScopeId(ScoreScope.EXAM, examId).ifPresent(statistics -> {
+            ScoreSketch sketch = statistics.toSketch();
+            Map<ScoreScope, Map<Long, ScoreSketch>> deltas = new EnumMap<>(ScoreScope.class);
+            if (from != null) {
+                deltas.computeIfAbsent(ScoreScope.SUBJECT, scope -> new HashMap<>())
+                      .put((long) from.ordinal(), sketch.negate());
+            }
+            if (to != null) {
+                deltas.computeIfAbsent(ScoreScope.SUBJECT, scope -> new HashMap<>()).put((long) to.ordinal(), sketch);
+            }
+            merge(deltas);
+        });
+    }
+
+
+    /**
+     * Replaces every sketch with the ones counted from the Exam Results, every distinct score is read once
+     * per Exam and Student Class. Results without a recorded class, like the ones saved without the service,
+     * are counted in the current class of their Student. Recovers from lost rows.
+     * Every sketch is locked before the results are counted again and replaced, so results written meanwhile
+     * are either counted or merged after the rebuild
+     * @return number of sketches
+     * @throws IllegalStateException if the missing sketches could not be inserted
+     */
+    @Override
+    @Transactional
+    public int rebuildAll() {
+        examResultRepository.recordStudentClasses();
+        insertMissing(countScores());
+        List<ScoreStatistics> stored = scoreStatisticsRepository.findAllForUpdate();
+        Map<ScoreScope, Map<Long, ScoreSketch>> sketches = countScores();
+        List<ScoreStatistics> emptied = new ArrayList<>();
+        for (ScoreStatistics statistics : stored) {
+            ScoreSketch sketch = sketches.getOrDefault(statistics.getScope(), Collections.emptyMap())
+                    .get(statistics.getScopeId());
+            if (sketch == null) {
+                emptied.add(statistics);
+            } else {
+                statistics.store(sketch);
+            }
+        }
+        if (!emptied.isEmpty()) {
+            scoreStatisticsRepository.deleteInBatch(emptied);
+        }
+        int rows = stored.size() - emptied.size();
+        log.info("Score statistics rebuilt with " + rows + " sketches");
+        return rows;
+    }
+
+    private Map<ScoreScope, Map<Long, ScoreSketch>> countScores() {
+        Map<ScoreScope, Map<Long, ScoreSketch>> sketches = new EnumMap<>(ScoreScope.class);
+        for (ScoreRow row : examResultRepository.countScores()) {
+            add(sketches, row.getExamId(), row.getSubject(), row.getStudentClassId(), row.getScore(), row.getTotal());
+        }
+        return sketches;
+    }
+
+    // Sketches of every counted scope are inserted empty in their own transaction before all are locked.
+    // A sketch first inserted after the lock by a writer only holds results the second count does not see
+    private void insertMissing(Map<ScoreScope, Map<Long, ScoreSketch>> sketches) {
+        for (int attempts = 1; ; attempts++) {
+            try {
+                newTransaction.executeWithoutResult(status -> {
+                    Map<ScoreScope, Map<Long, ScoreStatistics>> stored = index(scoreStatisticsRepository.findAll());
+                    List<ScoreStatistics> missing = new ArrayList<>();
+                    sketches.forEach((scope, byId) -> byId.keySet().forEach(scopeId -> {
+                        if (!stored.getOrDefault(scope, Collections.emptyMap()).containsKey(scopeId)) {
+                            missing.add(new ScoreStatistics(scope, scopeId, ScoreSketch.of(0, 0, 0, null)));
+                        }
+                    }));
+                    scoreStatisticsRepository.saveAll(missing);
+                    scoreStatisticsRepository.flush();
+                });
+                return;
+            } catch (DataIntegrityViolationException ex) {
+                if (attempts == MAX_ATTEMPTS) {
+                    throw new IllegalStateException("Score statistics could not be inserted", ex);
+                }
+                log.info("Score statistics inserted concurrently with the rebuild");
+            }
+        }
+    }
+
+    private void add(Map<ScoreScope, Map<Long, ScoreSketch>> sketches, Long examId, Subjects subject,
+                     Long studentClassId, double score, long total) {
+        addTo(sketches, ScoreScope.EXAM, examId, score, total);
+        if (subject != null) {
+            addTo(sketches, ScoreScope.SUBJECT, (long) subject.ordinal(), score, total);
+        }
+        if (studentClassId != null) {
+            addTo(sketches, ScoreScope.STUDENT_CLASS, studentClassId, score, total);
+        }
+    }
+
+    private void addTo(Map<ScoreScope, Map<Long, ScoreSketch>> sketches, ScoreScope scope, Long scopeId,
+                       double score, long total) {
+        sketches.computeIfAbsent(scope, key -> new HashMap<>())
+                .computeIfAbsent(scopeId, key -> ScoreSketch.of(0, 0, 0, null))
+                .add(score, total);
+    }
+
+    // Stored sketches are read with one locked statement, merged in memory and written in JDBC batches.
+    // Emptied sketches are kept, so adding the result back in the same transaction never inserts them again
+    private void merge(Map<ScoreScope, Map<Long, ScoreSketch>> deltas) {
+        if (deltas.values().stream().allMatch(Map::isEmpty)) {
+            return;
+        }
+        Map<ScoreScope, Map<Long, ScoreStatistics>> stored = lockRows(deltas);
+        deltas.forEach((scope, byId) -> byId.forEach((scopeId, delta) -> {
+            ScoreStatistics statistics = stored.getOrDefault(scope, Collections.emptyMap()).get(scopeId);
+            // a missing sketch is only created to add to it, never to remove from it
+            if (statistics != null) {
+                statistics.store(statistics.toSketch().merge(delta));
+            }
+        }));
+    }
+
+    // Sketches are read locked, the missing ones are inserted empty and the sketches read again
+    private Map<ScoreScope, Map<Long, ScoreStatistics>> lockRows(Map<ScoreScope, Map<Long, ScoreSketch>> deltas) {
+        int attempts = 0;
+        while (true) {
+            Map<ScoreScope, Map<Long, ScoreStatistics>> stored = index(scoreStatisticsRepository.findAllByScopeIds(
+                    idsOf(deltas, ScoreScope.EXAM), idsOf(deltas, ScoreScope.SUBJECT),
+                    idsOf(deltas, ScoreScope.STUDENT_CLASS)));
+            List<ScoreStatistics> missing = new ArrayList<>();
+            deltas.forEach((scope, byId) -> byId.forEach((scopeId, delta) -> {
+                if (!delta.isEmpty() && !stored.getOrDefault(scope, Collections.emptyMap()).containsKey(scopeId)) {
+                    missing.add(new ScoreStatistics(scope, scopeId, ScoreSketch.of(0, 0, 0, null)));
+                }
+            }));
+            if (missing.isEmpty()) {
+                return stored;
+            }
+            if (++attempts > MAX_ATTEMPTS) {
+                throw new IllegalStateException("Score statistics could not be inserted");
+            }
+            insertEmpty(missing);
+        }
+    }
+
+    // Missing sketches are inserted empty in their own transaction, a concurrent writer inserting the same sketch
+    // first only fails this insert and not the write of the results. Scores are always merged into a stored sketch
+    private void insertEmpty(List<ScoreStatistics> rows) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                scoreStatisticsRepository.saveAll(rows);
+                scoreStatisticsRepository.flush();
+            });
+        } catch (DataIntegrityViolationException ex) {
+            log.info("Score statistics of " + rows.get(0).getScope() + " " + rows.get(0).getScopeId()
+                     + " inserted concurrently");
+        }
+    }
+
+    private Map<ScoreScope, Map<Long, ScoreStatistics>> index(List<ScoreStatistics> rows) {
+        Map<ScoreScope, Map<Long, ScoreStatistics>> stored = new EnumMap<>(ScoreScope.class);
+        rows.forEach(statistics -> stored.computeIfAbsent(statistics.getScope(), scope -> new HashMap<>())
+                                         .put(statistics.getScopeId(), statistics));
+        return stored;
+    }
+
+    // an empty IN list is not valid SQL everywhere, a null id matches no row
+    private Collection<Long> idsOf(Map<ScoreScope, Map<Long, ScoreSketch>> deltas, ScoreScope scope) {
+        Map<Long, ScoreSketch> byId = deltas.getOrDefault(scope, Collections.emptyMap());
+        return byId.isEmpty() ? Collections.singleton(null) : byId.keySet();
+    }
+
+    private Subjects subjectOf(Exam exam) {
+        return exam.getSubject() == null ? null : exam.getSubject().getName();
+    }
+}
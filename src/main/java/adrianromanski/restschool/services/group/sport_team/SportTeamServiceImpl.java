@@ -154,10 +154,11 @@ public class SportTeamServiceImpl implements SportTeamService {
      */
     @Override
     public SportTeamDTO updateSportTeam(SportTeamDTO sportTeamDTO, Long id) {
-            sportTeamRepository.findById(id)
+            SportTeam sportTeam = sportTeamRepository.findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException(id, SportTeam.class));
             SportTeam updated = sportTeamMapper.sportTeamDTOToSportTeam(sportTeamDTO);
             updated.setId(id);
+            updated.setVersion(sportTeam.getVersion());
             sportTeamRepository.save(updated);
             log.info("Sport Team with id: " + id + " successfully updated");
             return sportTeamMapper.sportTeamToSportTeamDTO(updated);
@@ -178,10 +178,11 @@ public class StudentClassServiceImpl implements StudentClassService {
      */
     @Override
     public StudentClassDTO updateStudentClass(Long id, StudentClassDTO studentClassDTO) {
-        studentClassRepository.findById(id)
+        StudentClass studentClass = studentClassRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, StudentClass.class));
         StudentClass updatedClass = studentClassMapper.StudentClassDTOToStudentClass(studentClassDTO);
         updatedClass.setId(id);
+        updatedClass.setVersion(studentClass.getVersion());
         studentClassRepository.save(updatedClass);
         log.info("Student Class with id: " + id + " successfully updated");
         return studentClassMapper.StudentClassToStudentClassDTO(updatedClass);
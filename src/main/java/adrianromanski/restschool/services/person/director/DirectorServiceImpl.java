@@ -89,10 +89,11 @@ public class DirectorServiceImpl implements DirectorService {
      */
     @Override
     public DirectorDTO updateDirector(Long directorID, DirectorDTO directorDTO) {
-        directorRepository.findById(directorID)
+        Director director = directorRepository.findById(directorID)
                 .orElseThrow(() -> new ResourceNotFoundException(directorID, Director.class));
         Director updatedDirector = directorMapper.directorDTOToDirector(directorDTO);
         updatedDirector.setId(directorID);
+        updatedDirector.setVersion(director.getVersion());
         directorRepository.save(updatedDirector);
         log.info("Director with id: " + directorID + " successfully updated");
         return directorMapper.directorToDirectorDTO(updatedDirector);
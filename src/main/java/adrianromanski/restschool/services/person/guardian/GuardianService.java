@@ -2,7 +2,11 @@ package adrianromanski.restschool.services.person.guardian;
 
 import adrianromanski.restschool.model.base_entity.address.GuardianAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.GuardianContactDTO;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.person.AgeBracketHistogramDTO;
+import adrianromanski.restschool.model.person.ChildrenHistogramDTO;
 import adrianromanski.restschool.model.person.GuardianDTO;
+import adrianromanski.restschool.model.person.HouseholdDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 
 import java.util.List;
@@ -19,8 +23,22 @@ public interface GuardianService {
 
     List<StudentDTO> getAllStudentsForGuardian(Long id);
 
+    Map<Long, List<StudentDTO>> getAllStudentsForGuardians(List<Long> ids);
+
     Map<Long, List<GuardianDTO>> getGuardiansByAge();
 
+    AgeBracketHistogramDTO getGuardiansAgeHistogram(Integer width);
+
+    PageDTO<GuardianDTO> getGuardiansPageByAge(Long fromAge, Integer width, Integer page, Integer size);
+
+    ChildrenHistogramDTO getGuardiansChildrenHistogram();
+
+    PageDTO<GuardianDTO> getGuardiansPageByChildren(Integer children, Integer page, Integer size);
+
+    HouseholdDTO getHousehold(Long id);
+
+    PageDTO<HouseholdDTO> getHouseholds(Integer page, Integer size);
+
     // POST
     GuardianDTO createNewGuardian(GuardianDTO legalGuardianDTO);
 
@@ -1,10 +1,14 @@
 package adrianromanski.restschool.services.person.guardian;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
 import adrianromanski.restschool.domain.base_entity.address.Address;
 import adrianromanski.restschool.domain.base_entity.address.GuardianAddress;
 import adrianromanski.restschool.domain.base_entity.contact.Contact;
 import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
+import adrianromanski.restschool.domain.enums.PersonType;
 import adrianromanski.restschool.domain.person.Guardian;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.DeleteBeforeInitializationException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.exceptions.UpdateBeforeInitializationException;
@@ -14,24 +18,45 @@ import adrianromanski.restschool.mapper.person.GuardianMapper;
 import adrianromanski.restschool.mapper.person.StudentMapper;
 import adrianromanski.restschool.model.base_entity.address.GuardianAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.GuardianContactDTO;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.person.AgeBracketDTO;
+import adrianromanski.restschool.model.person.AgeBracketHistogramDTO;
+import adrianromanski.restschool.model.person.ChildrenBucketDTO;
+import adrianromanski.restschool.model.person.ChildrenHistogramDTO;
 import adrianromanski.restschool.model.person.GuardianDTO;
+import adrianromanski.restschool.model.person.HouseholdDTO;
+import adrianromanski.restschool.model.person.HouseholdMemberDTO;
 import adrianromanski.restschool.model.person.PersonDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.repositories.base_entity.AddressRepository;
 import adrianromanski.restschool.repositories.base_entity.ContactRepository;
 import adrianromanski.restschool.repositories.person.GuardianRepository;
 import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static adrianromanski.restschool.services.Paging.pageRequest;
+
 @Slf4j
 @Service
 public class GuardianServiceImpl implements GuardianService {
 
+    public static final int MAX_GUARDIANS = 100;
+    public static final int DEFAULT_AGE_BRACKET = 10;
+    public static final int MAX_AGE_BRACKET = 100;
+
     private final GuardianMapper guardianMapper;
     private final GuardianAddressMapper addressMapper;
     private final GuardianContactMapper contactMapper;
@@ -40,12 +65,14 @@ public class GuardianServiceImpl implements GuardianService {
     private final AddressRepository addressRepository;
     private final ContactRepository contactRepository;
     private final StudentRepository studentRepository;
+    private final PersonSearchIndex personSearchIndex;
 
 
     public GuardianServiceImpl(GuardianMapper guardianMapper, GuardianAddressMapper addressMapper,
                                GuardianContactMapper contactMapper, StudentMapper studentMapper,
                                GuardianRepository guardianRepository, AddressRepository addressRepository,
-                               ContactRepository contactRepository, StudentRepository studentRepository) {
+                               ContactRepository contactRepository, StudentRepository studentRepository,
+                               PersonSearchIndex personSearchIndex) {
         this.guardianMapper = guardianMapper;
         this.addressMapper = addressMapper;
         this.contactMapper = contactMapper;
@@ -54,6 +81,7 @@ public class GuardianServiceImpl implements GuardianService {
         this.addressRepository = addressRepository;
         this.contactRepository = contactRepository;
         this.studentRepository = studentRepository;
+        this.personSearchIndex = personSearchIndex;
     }
 
     /**
@@ -111,27 +139,174 @@ public class GuardianServiceImpl implements GuardianService {
     }
 
 
+    /**
+     * Ages are computed, bracketed and counted by the database, no Guardian is loaded
+     * @param width of the bracket in years, DEFAULT_AGE_BRACKET when null
+     * @return number of Guardians for every non empty bracket, Guardians without dateOfBirth are not counted
+     * @throws BadRequestException if width is not between 1 and MAX_AGE_BRACKET
+     */
+    @Override
+    public AgeBracketHistogramDTO getGuardiansAgeHistogram(Integer width) {
+        int bracket = bracketWidth(width);
+        return new AgeBracketHistogramDTO(bracket, guardianRepository.countByAgeBracket(SchoolClock.today(), bracket)
+                .stream()
+                .map(row -> new AgeBracketDTO(row.getAge(), row.getAge() + bracket - 1, row.getTotal()))
+                .collect(Collectors.toList()));
+    }
+
+
+    /**
+     * @param fromAge lower bound of the bracket
+     * @param width of the bracket in years, DEFAULT_AGE_BRACKET when null
+     * @param page zero based number of the page
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of Guardians aged fromAge to fromAge + width - 1 sorted by dateOfBirth -> lastName -> firstName
+     * @throws BadRequestException if fromAge is negative or width is not between 1 and MAX_AGE_BRACKET
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageDTO<GuardianDTO> getGuardiansPageByAge(Long fromAge, Integer width, Integer page, Integer size) {
+        int bracket = bracketWidth(width);
+        if (fromAge == null || fromAge < 0) {
+            throw new BadRequestException("Age has to be a positive number");
+        }
+        LocalDate today = SchoolClock.today();
+        return PageDTO.of(guardianRepository.findPageByDateOfBirthRange(today.minusYears(fromAge + bracket),
+                                                                        today.minusYears(fromAge),
+                                                                        pageRequest(page, size))
+                                            .map(guardianMapper::guardianToHouseholdGuardianDTO));
+    }
+
+
+    /**
+     * @return number of Guardians for every number of children, counted by the database
+     */
+    @Override
+    public ChildrenHistogramDTO getGuardiansChildrenHistogram() {
+        return new ChildrenHistogramDTO(guardianRepository.countByChildren()
+                .stream()
+                .map(row -> new ChildrenBucketDTO(row.getChildren(), row.getTotal()))
+                .collect(Collectors.toList()));
+    }
+
+
+    /**
+     * @param children number of Students of the Guardian
+     * @param page zero based number of the page
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of Guardians with matching number of children sorted by lastName -> firstName
+     * @throws BadRequestException if children is negative
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageDTO<GuardianDTO> getGuardiansPageByChildren(Integer children, Integer page, Integer size) {
+        if (children == null || children < 0) {
+            throw new BadRequestException("Number of children has to be a positive number");
+        }
+        return PageDTO.of(guardianRepository.findPageByChildren(children, pageRequest(page, size))
+                                            .map(guardianMapper::guardianToHouseholdGuardianDTO));
+    }
+
+    private int bracketWidth(Integer width) {
+        if (width == null) {
+            return DEFAULT_AGE_BRACKET;
+        }
+        if (width < 1 || width > MAX_AGE_BRACKET) {
+            throw new BadRequestException("Width of the age bracket has to be between 1 and " + MAX_AGE_BRACKET);
+        }
+        return width;
+    }
+
+
     /**
      * @param id of the Guardian we are looking for
-     * @return List of Students for Guardian with matching id
+     * @return List of Students for Guardian with matching id sorted by lastName -> firstName
      */
     @Override
+    @Transactional(readOnly = true)
     public List<StudentDTO> getAllStudentsForGuardian(Long id) {
-        return studentRepository.findAll()
+        return studentRepository.findAllByGuardianId(id)
                 .stream()
-                .filter(student -> student.getGuardian().getId().equals(id))
                 .map(studentMapper::studentToStudentDTO)
                 .collect(Collectors.toList());
     }
 
 
+    /**
+     * Children of every Guardian are read with a single query
+     * @param ids of the Guardians, at most MAX_GUARDIANS
+     * @return Students by Guardian id in the order of the ids, empty List for a Guardian without Students
+     * @throws BadRequestException if there are no ids or more than MAX_GUARDIANS
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, List<StudentDTO>> getAllStudentsForGuardians(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_GUARDIANS) {
+            throw new BadRequestException("Between 1 and " + MAX_GUARDIANS + " Guardian ids have to be given");
+        }
+        Map<Long, List<StudentDTO>> students = new LinkedHashMap<>();
+        ids.forEach(id -> students.put(id, new ArrayList<>()));
+        for (Student student : studentRepository.findAllByGuardianIdIn(students.keySet())) {
+            students.get(student.getGuardian().getId()).add(studentMapper.studentToStudentDTO(student));
+        }
+        return students;
+    }
+
+
+    /**
+     * Guardian, Contact, Address and children with their Class are read with two queries
+     * @param id of the Guardian we are looking for
+     * @return Guardian with Students sorted by lastName -> firstName
+     * @throws ResourceNotFoundException if not found
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public HouseholdDTO getHousehold(Long id) {
+        Guardian guardian = guardianRepository.findHouseholdById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(id, Guardian.class));
+        return toHouseholdDTO(guardian, householdChildren(Collections.singletonList(id)));
+    }
+
+
+    /**
+     * Every page is read with three queries whatever the number of Guardians and children
+     * @param page number, starting from 0
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of households sorted by lastName -> firstName of the Guardian
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PageDTO<HouseholdDTO> getHouseholds(Integer page, Integer size) {
+        Page<Guardian> guardians = guardianRepository.findHouseholdPage(pageRequest(page, size));
+        Map<Long, List<HouseholdMemberDTO>> children = guardians.isEmpty()
+                ? Collections.emptyMap()
+                : householdChildren(guardians.map(Guardian::getId).getContent());
+        return PageDTO.of(guardians.map(guardian -> toHouseholdDTO(guardian, children)));
+    }
+
+    private Map<Long, List<HouseholdMemberDTO>> householdChildren(List<Long> guardianIds) {
+        Map<Long, List<HouseholdMemberDTO>> children = new HashMap<>();
+        for (Student student : studentRepository.findHouseholdChildren(guardianIds)) {
+            children.computeIfAbsent(student.getGuardian().getId(), id -> new ArrayList<>())
+                    .add(HouseholdMemberDTO.of(studentMapper.studentToHouseholdStudentDTO(student)));
+        }
+        return children;
+    }
+
+    private HouseholdDTO toHouseholdDTO(Guardian guardian, Map<Long, List<HouseholdMemberDTO>> children) {
+        return new HouseholdDTO(guardianMapper.guardianToHouseholdGuardianDTO(guardian),
+                                children.getOrDefault(guardian.getId(), Collections.emptyList()));
+    }
+
+
     /**
      * @param guardianDTO and save it to Database
      * @return GuardianDTO object
      */
     @Override
     public GuardianDTO createNewGuardian(GuardianDTO guardianDTO) {
-        guardianRepository.save(guardianMapper.guardianDTOToGuardian(guardianDTO));
+        Guardian guardian = guardianRepository.save(guardianMapper.guardianDTOToGuardian(guardianDTO));
+        personSearchIndex.index(PersonType.GUARDIAN, guardian);
         log.info("Guardian with id: " + guardianDTO.getId() + " successfully saved");
         return guardianDTO;
     }
@@ -183,11 +358,13 @@ public class GuardianServiceImpl implements GuardianService {
      */
     @Override
     public GuardianDTO updateGuardian(GuardianDTO guardianDTO, Long id) {
-            guardianRepository.findById(id)
+            Guardian guardian = guardianRepository.findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException(id, Guardian.class));
             Guardian updatedGuardian = guardianMapper.guardianDTOToGuardian(guardianDTO);
                 updatedGuardian.setId(id);
+                updatedGuardian.setVersion(guardian.getVersion());
             guardianRepository.save(updatedGuardian);
+            personSearchIndex.index(PersonType.GUARDIAN, updatedGuardian);
             log.info("Guardian with id: " + id + " successfully saved");
             return guardianMapper.guardianToGuardianDTO(updatedGuardian);
     }
@@ -208,6 +385,7 @@ public class GuardianServiceImpl implements GuardianService {
                 .orElseThrow(UpdateBeforeInitializationException::new);
         GuardianAddress updatedAddress = addressMapper.addressDTOToAddress(addressDTO);
             updatedAddress.setId(address.getId());
+            updatedAddress.setVersion(address.getVersion());
             guardian.setAddress(updatedAddress);
             updatedAddress.setGuardian(guardian);
         guardianRepository.save(guardian);
@@ -232,6 +410,7 @@ public class GuardianServiceImpl implements GuardianService {
                 .orElseThrow(UpdateBeforeInitializationException::new);
         GuardianContact updatedContact = contactMapper.contactDTOToContact(contactDTO);
         updatedContact.setId(contact.getId());
+        updatedContact.setVersion(contact.getVersion());
         guardian.setContact(updatedContact);
         updatedContact.setGuardian(guardian);
         guardianRepository.save(guardian);
@@ -251,6 +430,7 @@ public class GuardianServiceImpl implements GuardianService {
         Guardian guardian = guardianRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, Guardian.class));
         guardianRepository.delete(guardian);
+        personSearchIndex.remove(PersonType.GUARDIAN, id);
         log.info("Guardian with id: " + id + " successfully deleted");
     }
 
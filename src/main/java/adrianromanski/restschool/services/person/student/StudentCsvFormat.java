@@ -0,0 +1,146 @@
+package adrianromanski.restschool.services.person.student;
+
+import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.model.base_entity.address.StudentAddressDTO;
+import adrianromanski.restschool.model.base_entity.contact.StudentContactDTO;
+import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.repositories.person.StudentExportRow;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flat CSV representation of a Student with its Contact and Address
+ */
+public final class StudentCsvFormat {
+
+    public static final List<String> COLUMNS = Arrays.asList("id", "firstName", "lastName", "gender", "dateOfBirth",
+            "email", "telephoneNumber", "emergencyNumber", "country", "city", "streetName", "postalCode");
+
+    public static final String HEADER = String.join(",", COLUMNS);
+
+    private StudentCsvFormat() {
+    }
+
+    public static String toRow(StudentExportRow student) {
+        return String.join(",",
+                escape(student.getId()),
+                escape(student.getFirstName()),
+                escape(student.getLastName()),
+                escape(student.getGender()),
+                escape(student.getDateOfBirth()),
+                escape(student.getEmail()),
+                escape(student.getTelephoneNumber()),
+                escape(student.getEmergencyNumber()),
+                escape(student.getCountry()),
+                escape(student.getCity()),
+                escape(student.getStreetName()),
+                escape(student.getPostalCode()));
+    }
+
+    private static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    /**
+     * Reads every record of the CSV, quoted values may contain commas, quotes and line breaks
+     * @return records in the order of the input, the header is the first one
+     */
+    public static List<List<String>> readRecords(Reader reader) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean empty = true;
+        int next = reader.read();
+        while (next != -1) {
+            char c = (char) next;
+            next = reader.read();
+            if (quoted) {
+                if (c == '"' && next == '"') {
+                    value.append('"');
+                    next = reader.read();
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                empty = false;
+            } else if (c == ',') {
+                record.add(value.toString());
+                value.setLength(0);
+                empty = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && next == '\n') {
+                    next = reader.read();
+                }
+                if (!empty || value.length() > 0) {
+                    record.add(value.toString());
+                    records.add(record);
+                }
+                record = new ArrayList<>();
+                value.setLength(0);
+                empty = true;
+            } else {
+                value.append(c);
+                empty = false;
+            }
+        }
+        if (!empty || value.length() > 0) {
+            record.add(value.toString());
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Columns are matched by the header, so their order does not matter and unknown ones (like id) are ignored
+     * @throws IllegalArgumentException if gender can not be parsed
+     * @throws java.time.format.DateTimeParseException if dateOfBirth can not be parsed
+     */
+    public static StudentDTO toStudentDTO(List<String> header, List<String> record) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < header.size() && i < record.size(); i++) {
+            String value = record.get(i).trim();
+            values.put(header.get(i).trim(), value.isEmpty() ? null : value);
+        }
+        StudentDTO studentDTO = StudentDTO.builder()
+                .firstName(values.get("firstName"))
+                .lastName(values.get("lastName"))
+                .gender(values.get("gender") == null ? null : Gender.valueOf(values.get("gender").toUpperCase()))
+                .dateOfBirth(values.get("dateOfBirth") == null ? null : LocalDate.parse(values.get("dateOfBirth")))
+                .build();
+        if (values.get("email") != null || values.get("telephoneNumber") != null || values.get("emergencyNumber") != null) {
+            studentDTO.setContactDTO(StudentContactDTO.builder()
+                    .email(values.get("email"))
+                    .telephoneNumber(values.get("telephoneNumber"))
+                    .emergencyNumber(values.get("emergencyNumber"))
+                    .build());
+        }
+        if (values.get("country") != null || values.get("city") != null
+                || values.get("streetName") != null || values.get("postalCode") != null) {
+            studentDTO.setAddressDTO(StudentAddressDTO.builder()
+                    .country(values.get("country"))
+                    .city(values.get("city"))
+                    .streetName(values.get("streetName"))
+                    .postalCode(values.get("postalCode"))
+                    .build());
+        }
+        return studentDTO;
+    }
+}
@@ -0,0 +1,16 @@
+package adrianromanski.restschool.services.person.student;
+
+import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentImportDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public interface StudentImportService {
+
+    // POST
+    StudentImportDTO importStudents(List<StudentDTO> studentsDTO);
+
+    StudentImportDTO importStudentsFromCsv(InputStream csv) throws IOException;
+}
@@ -0,0 +1,205 @@
+package adrianromanski.restschool.services.person.student;
+
+import adrianromanski.restschool.domain.base_entity.address.StudentAddress;
+import adrianromanski.restschool.domain.base_entity.contact.StudentContact;
+import adrianromanski.restschool.domain.enums.ImportStatus;
+import adrianromanski.restschool.domain.enums.PersonType;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.mapper.base_entity.StudentAddressMapper;
+import adrianromanski.restschool.mapper.base_entity.StudentContactMapper;
+import adrianromanski.restschool.mapper.person.StudentMapper;
+import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentImportDTO;
+import adrianromanski.restschool.model.person.StudentImportResultDTO;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class StudentImportServiceImpl implements StudentImportService {
+
+    // Rows per transaction when JDBC batching is turned off (batch_size 0)
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private final StudentMapper studentMapper;
+    private final StudentContactMapper contactMapper;
+    private final StudentAddressMapper studentAddressMapper;
+    private final EntityManager entityManager;
+    private final PersonSearchIndex personSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public StudentImportServiceImpl(StudentMapper studentMapper, StudentContactMapper contactMapper,
+                                    StudentAddressMapper studentAddressMapper, EntityManager entityManager,
+                                    PersonSearchIndex personSearchIndex,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int chunkSize) {
+        this.studentMapper = studentMapper;
+        this.contactMapper = contactMapper;
+        this.studentAddressMapper = studentAddressMapper;
+        this.entityManager = entityManager;
+        this.personSearchIndex = personSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+
+    /**
+     * Every chunk of rows is saved in its own transaction with a single flush, so Hibernate sends the inserts
+     * in JDBC batches. A failing chunk is rolled back on its own and its valid rows are saved again in halves,
+     * so only the rows rejected by the database fail
+     * @return result for every row, in the order of the input
+     */
+    @Override
+    public StudentImportDTO importStudents(List<StudentDTO> studentsDTO) {
+        List<ImportRow> rows = new ArrayList<>(studentsDTO.size());
+        for (int i = 0; i < studentsDTO.size(); i++) {
+            rows.add(new ImportRow(i + 1, studentsDTO.get(i), validate(studentsDTO.get(i))));
+        }
+        return importRows(rows);
+    }
+
+
+    /**
+     * Same as importStudents, rows are read with the columns of the Student export
+     * @return result for every row below the header, in the order of the input
+     */
+    @Override
+    public StudentImportDTO importStudentsFromCsv(InputStream csv) throws IOException {
+        List<List<String>> records = StudentCsvFormat.readRecords(
+                new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+        List<ImportRow> rows = new ArrayList<>(Math.max(records.size() - 1, 0));
+        for (int i = 1; i < records.size(); i++) {
+            try {
+                StudentDTO studentDTO = StudentCsvFormat.toStudentDTO(records.get(0), records.get(i));
+                rows.add(new ImportRow(i, studentDTO, validate(studentDTO)));
+            } catch (RuntimeException e) {
+                rows.add(new ImportRow(i, null, "Malformed row: " + e.getMessage()));
+            }
+        }
+        return importRows(rows);
+    }
+
+    private StudentImportDTO importRows(List<ImportRow> rows) {
+        List<StudentImportResultDTO> results = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            results.addAll(importChunk(rows.subList(from, Math.min(from + chunkSize, rows.size()))));
+        }
+        StudentImportDTO importDTO = StudentImportDTO.of(results);
+        log.info("Imported " + importDTO.getCreated() + " Students, " + importDTO.getFailed() + " rows failed");
+        return importDTO;
+    }
+
+    private List<StudentImportResultDTO> importChunk(List<ImportRow> chunk) {
+        List<ImportRow> valid = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (row.error == null) {
+                valid.add(row);
+            }
+        }
+        Map<Integer, StudentImportResultDTO> saved = new HashMap<>();
+        save(valid, saved);
+        List<StudentImportResultDTO> results = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            results.add(row.error != null
+                    ? new StudentImportResultDTO(row.number, ImportStatus.FAILED, null, row.error)
+                    : saved.get(row.number));
+        }
+        return results;
+    }
+
+    // A rolled back part is split in halves which are saved again, until the failing rows are on their own
+    private void save(List<ImportRow> rows, Map<Integer, StudentImportResultDTO> results) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Student> students = new ArrayList<>(rows.size());
+        try {
+            transactionTemplate.execute(status -> {
+                for (ImportRow row : rows) {
+                    Student student = toStudent(row.studentDTO);
+                    entityManager.persist(student);
+                    students.add(student);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                log.error("Row " + rows.get(0).number + " rolled back: " + e.getMessage());
+                results.put(rows.get(0).number, new StudentImportResultDTO(rows.get(0).number, ImportStatus.FAILED,
+                                                                           null, "Rolled back: " + e.getMessage()));
+                return;
+            }
+            int half = rows.size() / 2;
+            save(rows.subList(0, half), results);
+            save(rows.subList(half, rows.size()), results);
+            return;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Student student = students.get(i);
+            personSearchIndex.index(PersonType.STUDENT, student);
+            results.put(rows.get(i).number,
+                        new StudentImportResultDTO(rows.get(i).number, ImportStatus.CREATED, student.getId(), null));
+        }
+    }
+
+    private String validate(StudentDTO studentDTO) {
+        if (studentDTO == null) {
+            return "Empty row";
+        }
+        if (studentDTO.getFirstName() == null || studentDTO.getFirstName().trim().isEmpty()) {
+            return "firstName is required";
+        }
+        if (studentDTO.getLastName() == null || studentDTO.getLastName().trim().isEmpty()) {
+            return "lastName is required";
+        }
+        return null;
+    }
+
+    private Student toStudent(StudentDTO studentDTO) {
+        Student student = studentMapper.studentDTOToStudent(studentDTO);
+        student.setId(null);
+        if (studentDTO.getContactDTO() != null) {
+            StudentContact contact = contactMapper.contactDTOToContact(studentDTO.getContactDTO());
+            contact.setId(null);
+            contact.setStudent(student);
+            student.setContact(contact);
+        }
+        if (studentDTO.getAddressDTO() != null) {
+            StudentAddress address = studentAddressMapper.addressDTOToAddress(studentDTO.getAddressDTO());
+            address.setId(null);
+            address.setStudent(student);
+            student.setAddress(address);
+        }
+        return student;
+    }
+
+    private static final class ImportRow {
+        private final int number;
+        private final StudentDTO studentDTO;
+        private final String error;
+
+        private ImportRow(int number, StudentDTO studentDTO, String error) {
+            this.number = number;
+            this.studentDTO = studentDTO;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package adrianromanski.restschool.services.person.student;
+
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for the keyset paginated Student listing.
+ * Holds the sort key (dateOfBirth, lastName, firstName, id) of the last Student on a page
+ */
+@Getter
+public final class StudentPageToken {
+
+    private static final String SEPARATOR = ".";
+    // Not in the URL safe Base64 alphabet, so a missing value never reads back as an empty one
+    private static final String NULL = "~";
+
+    private final LocalDate dateOfBirth;
+    private final String lastName;
+    private final String firstName;
+    private final Long id;
+
+    private StudentPageToken(LocalDate dateOfBirth, String lastName, String firstName, Long id) {
+        this.dateOfBirth = dateOfBirth;
+        this.lastName = lastName;
+        this.firstName = firstName;
+        this.id = id;
+    }
+
+    public static StudentPageToken of(Student student) {
+        return new StudentPageToken(student.getDateOfBirth(), student.getLastName(), student.getFirstName(), student.getId());
+    }
+
+    public String encode() {
+        return String.join(SEPARATOR,
+                encodePart(dateOfBirth == null ? null : dateOfBirth.toString()),
+                encodePart(lastName),
+                encodePart(firstName),
+                encodePart(String.valueOf(id)));
+    }
+
+    /**
+     * @throws BadRequestException if token was not created by {@link #encode()}
+     */
+    public static StudentPageToken decode(String token) {
+        String[] parts = token.split("\\" + SEPARATOR, -1);
+        if (parts.length != 4) {
+            throw new BadRequestException("Invalid page token");
+        }
+        try {
+            String dateOfBirth = decodePart(parts[0]);
+            return new StudentPageToken(dateOfBirth == null ? null : LocalDate.parse(dateOfBirth),
+                    decodePart(parts[1]), decodePart(parts[2]), Long.valueOf(decodePart(parts[3])));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BadRequestException("Invalid page token");
+        }
+    }
+
+    private static String encodePart(String part) {
+        if (part == null) {
+            return NULL;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(part.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String part) {
+        if (NULL.equals(part)) {
+            return null;
+        }
+        return new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8);
+    }
+}
@@ -1,9 +1,18 @@
 package adrianromanski.restschool.services.person.student;
 
+import adrianromanski.restschool.domain.enums.ExportFormat;
+import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.address.StudentAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.StudentContactDTO;
+import adrianromanski.restschool.model.person.AgeHistogramDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentDetailDTO;
+import adrianromanski.restschool.model.person.StudentPageDTO;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -12,18 +21,38 @@ public interface StudentService {
     // GET
     StudentDTO getStudentByID(Long studentID);
 
+    VersionDTO getStudentVersion(Long studentID);
+
+    VersionDTO getStudentsVersion();
+
+    StudentDetailDTO getStudentDetail(Long studentID);
+
     StudentDTO getStudentByName(String firstName, String lastName);
 
     List<StudentDTO> getAllStudents();
 
+    StudentPageDTO getStudentsPage(String pageToken, Integer size);
+
     List<StudentDTO> getAllFemaleStudents();
 
     List<StudentDTO> getAllMaleStudents();
 
+    PageDTO<StudentDTO> getStudentsPageByGender(Gender gender, Integer page, Integer size);
+
     Map<Long, List<StudentDTO>> getStudentsByAge();
 
+    AgeHistogramDTO getStudentsAgeHistogram();
+
+    PageDTO<StudentDTO> getStudentsPageByAge(Long age, Integer page, Integer size);
+
     Map<String, Map<String, List<StudentDTO>>> getStudentsByLocation();
 
+    Map<String, Map<String, Long>> getStudentsCountByLocation();
+
+    PageDTO<StudentDTO> getStudentsPageByLocation(String country, String city, Integer page, Integer size);
+
+    void exportStudents(ExportFormat format, OutputStream outputStream) throws IOException;
+
     // POST
     StudentDTO createNewStudent(StudentDTO studentDTO);
 
@@ -1,29 +1,60 @@
 package adrianromanski.restschool.services.person.student;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
 import adrianromanski.restschool.domain.base_entity.address.Address;
 import adrianromanski.restschool.domain.base_entity.address.StudentAddress;
 import adrianromanski.restschool.domain.base_entity.contact.StudentContact;
+import adrianromanski.restschool.domain.enums.ExportFormat;
+import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.domain.enums.PersonType;
 import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.DeleteBeforeInitializationException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.exceptions.UpdateBeforeInitializationException;
 import adrianromanski.restschool.mapper.base_entity.StudentAddressMapper;
 import adrianromanski.restschool.mapper.base_entity.StudentContactMapper;
 import adrianromanski.restschool.mapper.person.StudentMapper;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.address.StudentAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.StudentContactDTO;
+import adrianromanski.restschool.model.person.AgeBucketDTO;
+import adrianromanski.restschool.model.person.AgeHistogramDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentDetailDTO;
+import adrianromanski.restschool.model.person.StudentPageDTO;
 import adrianromanski.restschool.repositories.base_entity.AddressRepository;
 import adrianromanski.restschool.repositories.base_entity.ContactRepository;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import adrianromanski.restschool.repositories.person.StudentExportRow;
 import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
+import static adrianromanski.restschool.services.Paging.limit;
+import static adrianromanski.restschool.services.Paging.pageRequest;
 import static adrianromanski.restschool.domain.enums.Gender.FEMALE;
 import static adrianromanski.restschool.domain.enums.Gender.MALE;
 import static java.util.stream.Collectors.groupingBy;
@@ -39,22 +70,33 @@ public class StudentServiceImpl implements StudentService{
     private final StudentRepository studentRepository;
     private final ContactRepository contactRepository;
     private final AddressRepository addressRepository;
+    private final PersonSearchIndex personSearchIndex;
+
+    private static final JsonFactory NDJSON_FACTORY = new JsonFactory().setRootValueSeparator("\n");
 
     public static final Comparator<Student> COMPARATOR = Comparator.comparing(Student::getAge)
                                                                         .thenComparing(Student::getLastName)
                                                                         .thenComparing((Student::getFirstName));
 
-    public static final Function<StudentDTO, String> GROUPED_BY_COUNTRY = s -> s.getAddressDTO().getCountry();
-    public static final Function<StudentDTO, String> GROUPED_BY_CITY = s -> s.getAddressDTO().getCity();
+    public static final String UNKNOWN_LOCATION = "unknown";
+
+    public static final Function<StudentDTO, String> GROUPED_BY_COUNTRY = s -> s.getAddressDTO() == null
+                                                                        ? UNKNOWN_LOCATION
+                                                                        : knownOrUnknown(s.getAddressDTO().getCountry());
+    public static final Function<StudentDTO, String> GROUPED_BY_CITY = s -> s.getAddressDTO() == null
+                                                                        ? UNKNOWN_LOCATION
+                                                                        : knownOrUnknown(s.getAddressDTO().getCity());
 
     public StudentServiceImpl(StudentMapper studentMapper, StudentContactMapper contactMapper,
-                              StudentAddressMapper studentAddressMapper, StudentRepository studentRepository, ContactRepository studentContactRepository, AddressRepository addressRepository) {
+                              StudentAddressMapper studentAddressMapper, StudentRepository studentRepository, ContactRepository studentContactRepository, AddressRepository addressRepository,
+                              PersonSearchIndex personSearchIndex) {
         this.studentMapper = studentMapper;
         this.contactMapper = contactMapper;
         this.studentAddressMapper = studentAddressMapper;
         this.studentRepository = studentRepository;
         this.contactRepository = studentContactRepository;
         this.addressRepository = addressRepository;
+        this.personSearchIndex = personSearchIndex;
     }
 
 
@@ -70,6 +112,42 @@ public class StudentServiceImpl implements StudentService{
     }
 
 
+    /**
+     * @return ETag and Last-Modified of the Student, read from its version columns without loading it
+     * @throws ResourceNotFoundException if not found
+     */
+    @Override
+    public VersionDTO getStudentVersion(Long studentID) {
+        VersionSummary summary = studentRepository.summarizeVersionById(studentID);
+        if (summary.getTotal() == 0) {
+            throw new ResourceNotFoundException(studentID, Student.class);
+        }
+        return VersionDTO.of("student", studentID, summary).withDerivedAges();
+    }
+
+    /**
+     * @return ETag and Last-Modified of all Students, changes with every insert, update and delete
+     */
+    @Override
+    public VersionDTO getStudentsVersion() {
+        return VersionDTO.of("students", studentRepository.summarizeVersions()).withDerivedAges();
+    }
+
+    /**
+     * @return Student with class, sport team, subjects and exams, loaded with two statements instead of
+     * the lazy and eager loads triggered one by one while mapping
+     * @throws ResourceNotFoundException if not found
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public StudentDetailDTO getStudentDetail(Long studentID) {
+        Student student = studentRepository.findDetailById(studentID)
+                .orElseThrow(() -> new ResourceNotFoundException(studentID, Student.class));
+        studentRepository.fetchDetailExams(studentID);
+        return StudentDetailDTO.of(studentMapper.studentToStudentDTO(student));
+    }
+
+
     /**
      * @return Student with matching firstName and lastName
      * @throws ResourceNotFoundException if not found
@@ -94,16 +172,52 @@ public class StudentServiceImpl implements StudentService{
                 .collect(toList());
     }
 
+    /**
+     * Keyset pagination - every page starts an index range scan, no matter how deep the client pages
+     * @param pageToken nextPageToken of the previous page, null or empty for the first page
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return Students sorted by dateOfBirth (youngest first) -> lastName -> firstName -> id
+     * @throws adrianromanski.restschool.exceptions.BadRequestException if pageToken is malformed
+     */
+    @Override
+    public StudentPageDTO getStudentsPage(String pageToken, Integer size) {
+        int limit = limit(size);
+        Pageable pageable = PageRequest.of(0, limit + 1); // one extra row tells if there is a next page
+        List<Student> students;
+        if (pageToken == null || pageToken.isEmpty()) {
+            students = studentRepository.findFirstKeysetPage(pageable);
+        } else {
+            StudentPageToken token = StudentPageToken.decode(pageToken);
+            if (token.getDateOfBirth() == null) {
+                students = studentRepository.findKeysetPageAfterUnknownBirth(token.getLastName(), token.getFirstName(),
+                                                                             token.getId(), pageable);
+            } else {
+                students = new ArrayList<>(studentRepository.findKeysetPageAfter(token.getDateOfBirth(),
+                        token.getLastName(), token.getFirstName(), token.getId(), pageable));
+                // dated Students ran out, the page goes on with the ones of unknown birth
+                if (students.size() <= limit) {
+                    students.addAll(studentRepository.findFirstUnknownBirthPage(
+                            PageRequest.of(0, limit + 1 - students.size())));
+                }
+            }
+        }
+        boolean hasNext = students.size() > limit;
+        List<Student> page = hasNext ? students.subList(0, limit) : students;
+        String nextPageToken = hasNext ? StudentPageToken.of(page.get(limit - 1)).encode() : null;
+        return new StudentPageDTO(page.stream()
+                                        .map(studentMapper::studentToStudentDTO)
+                                        .collect(toList()), nextPageToken);
+    }
+
     /**
      * @return Female Students sorted by age -> lastName -> firstName
      */
     @Override
     public List<StudentDTO> getAllFemaleStudents() {
-        return studentRepository.findAll()
+        return studentRepository.findAllByGender(FEMALE)
                 .stream()
                 .sorted(COMPARATOR)
                 .map(studentMapper::studentToStudentDTO)
-                .filter(studentDTO -> studentDTO.getGender().equals(FEMALE))
                 .collect(toList());
     }
 
@@ -112,14 +226,25 @@ public class StudentServiceImpl implements StudentService{
      */
     @Override
     public List<StudentDTO> getAllMaleStudents() {
-        return studentRepository.findAll()
+        return studentRepository.findAllByGender(MALE)
                 .stream()
                 .sorted(COMPARATOR)
                 .map(studentMapper::studentToStudentDTO)
-                .filter(studentDTO -> studentDTO.getGender().equals(MALE))
                 .collect(toList());
     }
 
+    /**
+     * Filtering, sorting and paging are done by the database, only the requested page is mapped
+     * @param page zero based number of the page
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of Students with matching gender sorted by dateOfBirth (youngest first) -> lastName -> firstName -> id
+     */
+    @Override
+    public PageDTO<StudentDTO> getStudentsPageByGender(Gender gender, Integer page, Integer size) {
+        return PageDTO.of(studentRepository.findPageByGender(gender, pageRequest(page, size))
+                                            .map(studentMapper::studentToStudentDTO));
+    }
+
     /**
      * @return Students grouped by Age
      */
@@ -136,6 +261,36 @@ public class StudentServiceImpl implements StudentService{
     }
 
 
+    /**
+     * @return number of Students for every age, counted by the database
+     */
+    @Override
+    public AgeHistogramDTO getStudentsAgeHistogram() {
+        return new AgeHistogramDTO(studentRepository.countByAge(SchoolClock.today())
+                                                    .stream()
+                                                    .map(row -> new AgeBucketDTO(row.getAge(), row.getTotal()))
+                                                    .collect(toList()));
+    }
+
+
+    /**
+     * @param page zero based number of the page
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of Students with matching age sorted by dateOfBirth -> lastName -> firstName
+     * @throws BadRequestException if age is negative
+     */
+    @Override
+    public PageDTO<StudentDTO> getStudentsPageByAge(Long age, Integer page, Integer size) {
+        if (age == null || age < 0) {
+            throw new BadRequestException("Age has to be a positive number");
+        }
+        LocalDate today = SchoolClock.today();
+        return PageDTO.of(studentRepository.findPageByDateOfBirthRange(today.minusYears(age + 1), today.minusYears(age),
+                                                                         pageRequest(page, size))
+                                            .map(studentMapper::studentToStudentDTO));
+    }
+
+
     /**
      * @return Students grouped by Country and City
      */
@@ -155,13 +310,111 @@ public class StudentServiceImpl implements StudentService{
     }
 
 
+    /**
+     * Counted by the database, Students without an address are in the "unknown" bucket
+     * @return number of Students grouped by Country and City
+     */
+    @Override
+    public Map<String, Map<String, Long>> getStudentsCountByLocation() {
+        Map<String, Map<String, Long>> rollup = new LinkedHashMap<>();
+        studentRepository.countByLocation()
+                .forEach(row -> rollup.computeIfAbsent(knownOrUnknown(row.getCountry()), country -> new LinkedHashMap<>())
+                                      .merge(knownOrUnknown(row.getCity()), row.getTotal(), Long::sum));
+        return rollup;
+    }
+
+
+    /**
+     * @param country or "unknown" for Students without one
+     * @param city or "unknown" for Students without one
+     * @return page of Students living in matching Country and City sorted by lastName -> firstName
+     */
+    @Override
+    public PageDTO<StudentDTO> getStudentsPageByLocation(String country, String city, Integer page, Integer size) {
+        return PageDTO.of(studentRepository.findPageByLocation(nullIfUnknown(country), nullIfUnknown(city),
+                                                               pageRequest(page, size))
+                                            .map(studentMapper::studentToStudentDTO));
+    }
+
+    private static String knownOrUnknown(String location) {
+        return location == null ? UNKNOWN_LOCATION : location;
+    }
+
+    private static String nullIfUnknown(String location) {
+        return UNKNOWN_LOCATION.equalsIgnoreCase(location) ? null : location;
+    }
+
+
+    /**
+     * Writes every Student straight from the database cursor to the stream, one row at a time.
+     * Rows are projections of the exported columns and never enter the persistence context,
+     * so heap use does not depend on the number of Students
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportStudents(ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        long count = 0;
+        try (Stream<StudentExportRow> students = studentRepository.streamAllForExport()) {
+            if (format == ExportFormat.CSV) {
+                writer.write(StudentCsvFormat.HEADER);
+                writer.write('\n');
+                for (StudentExportRow student : (Iterable<StudentExportRow>) students::iterator) {
+                    writer.write(StudentCsvFormat.toRow(student));
+                    writer.write('\n');
+                    count++;
+                }
+            } else {
+                JsonGenerator generator = NDJSON_FACTORY.createGenerator(writer);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                for (StudentExportRow student : (Iterable<StudentExportRow>) students::iterator) {
+                    writeJson(generator, student);
+                    count++;
+                }
+                generator.flush();
+                if (count > 0) {
+                    writer.write('\n');
+                }
+            }
+        }
+        writer.flush();
+        log.info(count + " Students exported as " + format);
+    }
+
+    private void writeJson(JsonGenerator generator, StudentExportRow student) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectField("id", student.getId());
+        generator.writeStringField("firstName", student.getFirstName());
+        generator.writeStringField("lastName", student.getLastName());
+        generator.writeStringField("gender", student.getGender() == null ? null : student.getGender().name());
+        generator.writeStringField("dateOfBirth", student.getDateOfBirth() == null ? null : student.getDateOfBirth().toString());
+        if (student.getContactId() != null) {
+            generator.writeObjectFieldStart("contact");
+            generator.writeStringField("email", student.getEmail());
+            generator.writeStringField("telephoneNumber", student.getTelephoneNumber());
+            generator.writeStringField("emergencyNumber", student.getEmergencyNumber());
+            generator.writeEndObject();
+        }
+        if (student.getAddressId() != null) {
+            generator.writeObjectFieldStart("address");
+            generator.writeStringField("country", student.getCountry());
+            generator.writeStringField("city", student.getCity());
+            generator.writeStringField("streetName", student.getStreetName());
+            generator.writeStringField("postalCode", student.getPostalCode());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+
     /**
      * Saving Student to Database
      * @return StudentDTO
      */
     @Override
     public StudentDTO createNewStudent(StudentDTO studentDTO) {
-        studentRepository.save(studentMapper.studentDTOToStudent(studentDTO));
+        Student student = studentRepository.save(studentMapper.studentDTOToStudent(studentDTO));
+        personSearchIndex.index(PersonType.STUDENT, student);
         log.info("Student with id: " + studentDTO.getId() + " successfully saved");
         return studentDTO;
     }
@@ -210,11 +463,13 @@ public class StudentServiceImpl implements StudentService{
      */
     @Override
     public StudentDTO updateStudent(Long studentID, StudentDTO studentDTO) {
-           studentRepository.findById(studentID)
+           Student student = studentRepository.findById(studentID)
                 .orElseThrow(() -> new ResourceNotFoundException(studentID, Student.class));
            Student updatedStudent = studentMapper.studentDTOToStudent(studentDTO);
                updatedStudent.setId(studentID);
+               updatedStudent.setVersion(student.getVersion());
            studentRepository.save(updatedStudent);
+           personSearchIndex.index(PersonType.STUDENT, updatedStudent);
            log.info("Student with id    :" + studentID +  " successfully updated");
            return studentMapper.studentToStudentDTO(updatedStudent);
     }
@@ -233,7 +488,9 @@ public class StudentServiceImpl implements StudentService{
                 .orElseThrow(UpdateBeforeInitializationException::new);
         StudentContact updatedContact = contactMapper.contactDTOToContact(contactDTO);
             updatedContact.setId(contact.getId());
+            updatedContact.setVersion(contact.getVersion());
             student.setContact(updatedContact);
+            student.touch();
             updatedContact.setStudent(student);
         studentRepository.save(student);
         contactRepository.save(updatedContact);
@@ -255,7 +512,9 @@ public class StudentServiceImpl implements StudentService{
                 .orElseThrow(UpdateBeforeInitializationException::new);
         StudentAddress updatedAddress = studentAddressMapper.addressDTOToAddress(addressDTO);
             updatedAddress.setId(address.getId());
+            updatedAddress.setVersion(address.getVersion());
             student.setAddress(updatedAddress);
+            student.touch();
             updatedAddress.setStudent(student);
         studentRepository.save(student);
         addressRepository.save(updatedAddress);
@@ -274,6 +533,7 @@ public class StudentServiceImpl implements StudentService{
                 .findById(studentID)
                 .orElseThrow(() -> new ResourceNotFoundException(studentID, Student.class));
         studentRepository.delete(student);
+        personSearchIndex.remove(PersonType.STUDENT, studentID);
         log.info("Student with id:" + studentID +  " successfully deleted");
     }
 
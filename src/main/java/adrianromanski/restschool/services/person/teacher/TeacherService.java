@@ -1,11 +1,17 @@
 package adrianromanski.restschool.services.person.teacher;
 
+import adrianromanski.restschool.domain.enums.Gender;
 import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.address.TeacherAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.TeacherContactDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamEnrollmentDTO;
+import adrianromanski.restschool.model.person.RosterEntryDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.model.person.TeacherDTO;
+import adrianromanski.restschool.model.person.TeacherWorkloadDTO;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -19,14 +25,22 @@ public interface TeacherService {
 
     TeacherDTO getTeacherByID(Long id);
 
+    VersionDTO getTeacherVersion(Long id);
+
+    VersionDTO getTeachersVersion();
+
     List<TeacherDTO> getAllTeachers();
 
     Map<Subjects, List<TeacherDTO>> getTeachersBySpecialization();
 
     Map<Long, List<TeacherDTO>> getTeachersByYearsOfExperience();
 
+    PageDTO<TeacherWorkloadDTO> getTeachersWorkload(String sort, String direction, Integer page, Integer size);
+
+    PageDTO<RosterEntryDTO> getRoster(Long teacherID, Gender gender, Integer page, Integer size);
+
     // POST
-    ExamDTO addExamForClass(Long teacherID, ExamDTO examDTO);
+    ExamEnrollmentDTO addExamForClass(Long teacherID, ExamDTO examDTO);
 
     ExamDTO addCorrectionExamToStudent(Long teacherID, Long studentID, ExamDTO examDTO);
 
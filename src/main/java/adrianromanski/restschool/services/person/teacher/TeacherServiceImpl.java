@@ -3,10 +3,14 @@ package adrianromanski.restschool.services.person.teacher;
 import adrianromanski.restschool.domain.base_entity.address.Address;
 import adrianromanski.restschool.domain.base_entity.address.TeacherAddress;
 import adrianromanski.restschool.domain.base_entity.contact.TeacherContact;
+import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.domain.enums.PersonType;
 import adrianromanski.restschool.domain.enums.Subjects;
 import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.group.StudentClass;
 import adrianromanski.restschool.domain.person.Student;
 import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.DeleteBeforeInitializationException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.exceptions.UpdateBeforeInitializationException;
@@ -15,23 +19,35 @@ import adrianromanski.restschool.mapper.base_entity.TeacherContactMapper;
 import adrianromanski.restschool.mapper.event.ExamMapper;
 import adrianromanski.restschool.mapper.person.StudentMapper;
 import adrianromanski.restschool.mapper.person.TeacherMapper;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.address.TeacherAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.TeacherContactDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamEnrollmentDTO;
+import adrianromanski.restschool.model.person.RosterEntryDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.model.person.TeacherDTO;
+import adrianromanski.restschool.model.person.TeacherWorkloadDTO;
 import adrianromanski.restschool.repositories.base_entity.AddressRepository;
 import adrianromanski.restschool.repositories.base_entity.ContactRepository;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
 import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.person.RosterEntry;
 import adrianromanski.restschool.repositories.person.StudentRepository;
 import adrianromanski.restschool.repositories.person.TeacherRepository;
+import adrianromanski.restschool.repositories.person.TeacherWorkload;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static adrianromanski.restschool.services.Paging.pageRequest;
 import static java.util.stream.Collectors.toList;
 
 @Slf4j
@@ -49,6 +65,11 @@ public class TeacherServiceImpl implements TeacherService {
     private final TeacherContactMapper contactMapper;
     private final ExamMapper examMapper;
     private final StudentMapper studentMapper;
+    private final PersonSearchIndex personSearchIndex;
+
+    // Every column of TeacherWorkload, anything else would be appended to the ORDER BY as t.<property>
+    public static final List<String> WORKLOAD_SORT = Arrays.asList("id", "firstName", "lastName", "exams", "payments",
+                                                                   "totalPaid", "classSize", "studentsExamined");
 
     public static final Comparator<TeacherDTO> COMPARING_SPEC_EXPERIENCE = Comparator
             .comparing(TeacherDTO::getSubject)
@@ -57,7 +78,7 @@ public class TeacherServiceImpl implements TeacherService {
     public TeacherServiceImpl(TeacherRepository teacherRepository, ContactRepository contactRepository, StudentRepository studentRepository,
                               ExamRepository examRepository, AddressRepository addressRepository,
                               TeacherMapper teacherMapper, TeacherAddressMapper addressMapper, TeacherContactMapper contactMapper,
-                              ExamMapper examMapper, StudentMapper studentMapper) {
+                              ExamMapper examMapper, StudentMapper studentMapper, PersonSearchIndex personSearchIndex) {
         this.teacherRepository = teacherRepository;
         this.contactRepository = contactRepository;
         this.studentRepository = studentRepository;
@@ -68,6 +89,7 @@ public class TeacherServiceImpl implements TeacherService {
         this.contactMapper = contactMapper;
         this.examMapper = examMapper;
         this.studentMapper = studentMapper;
+        this.personSearchIndex = personSearchIndex;
     }
 
 
@@ -105,6 +127,27 @@ public class TeacherServiceImpl implements TeacherService {
                 .orElseThrow(() -> new ResourceNotFoundException(id, Teacher.class)));
     }
 
+    /**
+     * @return ETag and Last-Modified of the Teacher and its Teaching Staff, read from their version columns without loading them
+     * @throws ResourceNotFoundException if not found
+     */
+    @Override
+    public VersionDTO getTeacherVersion(Long id) {
+        VersionSummary summary = teacherRepository.summarizeVersionById(id);
+        if (summary.getTotal() == 0) {
+            throw new ResourceNotFoundException(id, Teacher.class);
+        }
+        return VersionDTO.of("teacher", id, summary).withDerivedAges();
+    }
+
+    /**
+     * @return ETag and Last-Modified of all Teachers, changes with every insert, update and delete
+     */
+    @Override
+    public VersionDTO getTeachersVersion() {
+        return VersionDTO.of("teachers", teacherRepository.summarizeVersions()).withDerivedAges();
+    }
+
     /**
      * @return Teachers grouped by Specialization
      */
@@ -136,23 +179,76 @@ public class TeacherServiceImpl implements TeacherService {
     }
 
     /**
-     * Adding Exam to every Student in the Class
+     * Metrics are aggregated, sorted and paged by the database, no Teacher or collection is loaded
+     * @param sort one of WORKLOAD_SORT, exams when missing
+     * @param direction asc or desc, desc when missing
+     * @param page zero based number of the page
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of Teachers with number of exams, payments, total paid, class size and examined Students
+     * @throws BadRequestException if sort or direction is unknown
+     */
+    @Override
+    public PageDTO<TeacherWorkloadDTO> getTeachersWorkload(String sort, String direction, Integer page, Integer size) {
+        String property = sort == null ? "exams" : sort;
+        if (!WORKLOAD_SORT.contains(property)) {
+            throw new BadRequestException("Workload can be sorted by " + String.join(", ", WORKLOAD_SORT));
+        }
+        Sort.Direction order = Sort.Direction.fromOptionalString(direction == null ? "desc" : direction)
+                .orElseThrow(() -> new BadRequestException("Direction has to be asc or desc"));
+        // id keeps the order of equal metrics stable between pages
+        Sort workloadSort = property.equals("id") ? Sort.by(order, "id") : Sort.by(order, property).and(Sort.by("id"));
+        return PageDTO.of(teacherRepository.findWorkload(pageRequest(page, size, workloadSort))
+                                            .map(this::toWorkloadDTO));
+    }
+
+    /**
+     * Filtering, sorting and paging are done by the database, only id, names, gender, dateOfBirth and email are read
+     * @param gender of the Students, every Student when null
+     * @param page zero based number of the page
+     * @param size of the page, limited to MAX_PAGE_SIZE
+     * @return page of Students in the Class of the Teacher sorted by lastName -> firstName, empty without a Class
+     * @throws ResourceNotFoundException if not found
+     */
+    @Override
+    public PageDTO<RosterEntryDTO> getRoster(Long teacherID, Gender gender, Integer page, Integer size) {
+        if (!teacherRepository.existsById(teacherID)) {
+            throw new ResourceNotFoundException(teacherID, Teacher.class);
+        }
+        return PageDTO.of(studentRepository.findRosterPage(teacherID, gender, pageRequest(page, size, Sort.unsorted()))
+                                            .map(this::toRosterEntryDTO));
+    }
+
+    private RosterEntryDTO toRosterEntryDTO(RosterEntry row) {
+        return new RosterEntryDTO(row.getId(), row.getFirstName(), row.getLastName(), row.getGender(),
+                                  row.getDateOfBirth(), row.getEmail());
+    }
+
+    private TeacherWorkloadDTO toWorkloadDTO(TeacherWorkload row) {
+        return new TeacherWorkloadDTO(row.getId(), row.getFirstName(), row.getLastName(), row.getExams(),
+                                      row.getPayments(), row.getTotalPaid(), row.getClassSize(),
+                                      row.getStudentsExamined());
+    }
+
+    /**
+     * Adding Exam to every Student in the Class, enrollment is a single INSERT ... SELECT into student_exams
+     * @return number of enrolled Students
      * @throws ResourceNotFoundException if not found
+     * @throws BadRequestException if the Teacher has no Class
      */
     @Override
-    public ExamDTO addExamForClass(Long teacherID, ExamDTO examDTO) {
+    @Transactional
+    public ExamEnrollmentDTO addExamForClass(Long teacherID, ExamDTO examDTO) {
         Teacher teacher = teacherRepository
                 .findById(teacherID)
                 .orElseThrow(() -> new ResourceNotFoundException(teacherID, Teacher.class));
+        StudentClass studentClass = Optional.ofNullable(teacher.getStudentClass())
+                .orElseThrow(() -> new BadRequestException("Teacher with id: " + teacherID + " has no Class"));
         Exam exam = examMapper.examDTOToExam(examDTO);
-            teacher.getExams().add(exam);
-            teacher.getStudentClass().getStudentList().forEach(s -> s.getExams().add(exam)); // Adding Exams to Students
-            exam.setStudents(teacher.getStudentClass().getStudentList()); // Adding Students to Exam
             exam.setTeacher(teacher);
-        teacherRepository.save(teacher);
         examRepository.save(exam);
-        log.info("Exam successfully added to Class: " + teacher.getStudentClass().getName());
-        return examMapper.examToExamDTO(exam);
+        int enrolled = examRepository.enrollStudentClass(exam.getId(), studentClass.getId());
+        log.info("Exam successfully added to Class: " + studentClass.getName() + ", enrolled Students: " + enrolled);
+        return new ExamEnrollmentDTO(exam.getId(), exam.getName(), studentClass.getName(), enrolled);
     }
 
 
@@ -194,6 +290,7 @@ public class TeacherServiceImpl implements TeacherService {
             teacher.getStudentClass().getStudentList().add(student); // Adding Student to StudentClass
         studentRepository.save(student);
         teacherRepository.save(teacher);
+        personSearchIndex.index(PersonType.STUDENT, student);
         log.info("Student " + student.getFirstName() + " " + student.getLastName() + " added to Class");
         return studentMapper.studentToStudentDTO(student);
     }
@@ -204,7 +301,8 @@ public class TeacherServiceImpl implements TeacherService {
      */
     @Override
     public TeacherDTO createNewTeacher(TeacherDTO teacherDTO) {
-        teacherRepository.save(teacherMapper.teacherDTOToTeacher(teacherDTO));
+        Teacher teacher = teacherRepository.save(teacherMapper.teacherDTOToTeacher(teacherDTO));
+        personSearchIndex.index(PersonType.TEACHER, teacher);
         log.info("Teacher with id: " + teacherDTO.getId() + " saved to repository");
         return teacherDTO;
     }
@@ -290,12 +388,14 @@ public class TeacherServiceImpl implements TeacherService {
      */
     @Override
     public TeacherDTO updateTeacher(Long id, TeacherDTO teacherDTO) {
-            teacherRepository
+            Teacher teacher = teacherRepository
                     .findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException(id, Teacher.class));
             Teacher updatedTeacher = teacherMapper.teacherDTOToTeacher(teacherDTO);
             updatedTeacher.setId(id);
+            updatedTeacher.setVersion(teacher.getVersion());
             teacherRepository.save(updatedTeacher);
+            personSearchIndex.index(PersonType.TEACHER, updatedTeacher);
             log.info("Teacher with id:" + id + " successfully updated");
             return teacherMapper.teacherToTeacherDTO(updatedTeacher);
     }
@@ -314,7 +414,9 @@ public class TeacherServiceImpl implements TeacherService {
                 .orElseThrow(UpdateBeforeInitializationException::new);
         TeacherAddress updatedAddress = addressMapper.addressDTOToAddress(addressDTO);
             updatedAddress.setId(address.getId());
+            updatedAddress.setVersion(address.getVersion());
             teacher.setAddress(updatedAddress);
+            teacher.touch();
         teacherRepository.save(teacher);
         addressRepository.save(updatedAddress);
         log.info("Address of Teacher with id: " + teacherID + " successfully updated");
@@ -335,7 +437,9 @@ public class TeacherServiceImpl implements TeacherService {
                 .orElseThrow(UpdateBeforeInitializationException::new);
         TeacherContact updatedContact = contactMapper.contactDTOToContact(contactDTO);
             updatedContact.setId(contact.getId());
+            updatedContact.setVersion(contact.getVersion());
             teacher.setContact(updatedContact);
+            teacher.touch();
         teacherRepository.save(teacher);
         contactRepository.save(updatedContact);
         log.info("Contact of Teacher with id: " + teacherID + " successfully updated");
@@ -353,6 +457,7 @@ public class TeacherServiceImpl implements TeacherService {
                 .findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(id, Teacher.class));
         teacherRepository.delete(teacher);
+        personSearchIndex.remove(PersonType.TEACHER, id);
         log.info("Teacher with id: " + id + " successfully removed");
     }
 
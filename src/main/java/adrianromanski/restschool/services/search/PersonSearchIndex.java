@@ -0,0 +1,398 @@
+package adrianromanski.restschool.services.search;
+
+import adrianromanski.restschool.domain.enums.PersonType;
+import adrianromanski.restschool.domain.person.Person;
+import adrianromanski.restschool.model.search.PersonSearchResultDTO;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * In-memory trie over the normalized name tokens of Students, Teachers and Guardians.
+ * Every token of the query has to match a token of the name, either as a prefix or,
+ * when prefixes alone are not enough, as a prefix within one or two typos
+ */
+@Component
+public class PersonSearchIndex {
+
+    public static final int MAX_CANDIDATES = 1000;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int FUZZY = 1;
+
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::getScore).reversed()
+            .thenComparing(match -> match.person.lastName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(match -> match.person.firstName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(match -> match.person.key.type)
+            .thenComparing(match -> match.person.key.id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<Key, IndexedPerson> people = new HashMap<>();
+
+    public void index(PersonType type, Person person) {
+        if (person != null) {
+            index(type, person.getId(), person.getFirstName(), person.getLastName());
+        }
+    }
+
+    /**
+     * Adds the Person or replaces the names it was indexed with before
+     */
+    public void index(PersonType type, Long id, String firstName, String lastName) {
+        if (id == null) {
+            return;
+        }
+        Key key = new Key(type, id);
+        IndexedPerson person = new IndexedPerson(key, firstName, lastName);
+        lock.writeLock().lock();
+        try {
+            IndexedPerson previous = people.put(key, person);
+            if (previous != null) {
+                previous.tokens.forEach(token -> removeToken(token, key));
+            }
+            person.tokens.forEach(token -> root.descend(token, true).keys.add(key));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(PersonType type, Long id) {
+        Key key = new Key(type, id);
+        lock.writeLock().lock();
+        try {
+            IndexedPerson previous = people.remove(key);
+            if (previous != null) {
+                previous.tokens.forEach(token -> removeToken(token, key));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return people.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return at most limit People best matching the query, exact tokens first, then prefixes, then typos
+     */
+    public List<PersonSearchResultDTO> search(String query, int limit) {
+        List<String> queryTokens = tokens(query);
+        if (queryTokens.isEmpty() || limit < 1) {
+            return Collections.emptyList();
+        }
+        // the longest token is the most selective one
+        queryTokens.sort(Comparator.comparingInt(String::length).reversed());
+
+        lock.readLock().lock();
+        try {
+            List<Match> matches = match(candidates(queryTokens, false), queryTokens);
+            if (matches.size() < limit && maxEdits(queryTokens.get(0)) > 0) {
+                matches = match(candidates(queryTokens, true), queryTokens);
+            }
+            return matches.stream()
+                    .sorted(RANKING)
+                    .limit(limit)
+                    .map(match -> match.person.toDTO())
+                    .collect(toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every token of the query has to match, so only People collected by every token are candidates. A token
+    // matching MAX_CANDIDATES People or more may have been cut short and does not narrow them, when every token
+    // is that common the longest one is collected in full -> no match is ever dropped
+    private Set<Key> candidates(List<String> queryTokens, boolean fuzzy) {
+        Set<Key> candidates = null;
+        for (String queryToken : queryTokens) {
+            Set<Key> collected = collect(queryToken, fuzzy, MAX_CANDIDATES);
+            if (collected.size() < MAX_CANDIDATES) {
+                if (candidates == null) {
+                    candidates = collected;
+                } else {
+                    candidates.retainAll(collected);
+                }
+                if (candidates.isEmpty()) {
+                    return candidates;
+                }
+            }
+        }
+        return candidates != null ? candidates : collect(queryTokens.get(0), fuzzy, Integer.MAX_VALUE);
+    }
+
+    private Set<Key> collect(String queryToken, boolean fuzzy, int maxCandidates) {
+        Set<Key> collected = new LinkedHashSet<>();
+        if (fuzzy && maxEdits(queryToken) > 0) {
+            collectFuzzy(queryToken, collected, maxCandidates);
+        } else {
+            collectPrefix(queryToken, collected, maxCandidates);
+        }
+        return collected;
+    }
+
+    private List<Match> match(Set<Key> candidates, List<String> queryTokens) {
+        List<Match> matches = new ArrayList<>();
+        for (Key candidate : candidates) {
+            IndexedPerson person = people.get(candidate);
+            int score = 0;
+            for (String queryToken : queryTokens) {
+                int tokenScore = person.score(queryToken);
+                if (tokenScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += tokenScore;
+            }
+            if (score > 0) {
+                matches.add(new Match(person, score));
+            }
+        }
+        return matches;
+    }
+
+    private void collectPrefix(String prefix, Set<Key> candidates, int maxCandidates) {
+        Node node = root.descend(prefix, false);
+        if (node == null) {
+            return;
+        }
+        candidates.addAll(node.keys);
+        // breadth first, so shorter (closer) tokens are collected before the cap is reached
+        Deque<Node> queue = new ArrayDeque<>(node.children.values());
+        while (!queue.isEmpty() && candidates.size() < maxCandidates) {
+            Node next = queue.poll();
+            candidates.addAll(next.keys);
+            queue.addAll(next.children.values());
+        }
+    }
+
+    private void collectFuzzy(String query, Set<Key> candidates, int maxCandidates) {
+        int[] firstRow = new int[query.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+        int maxEdits = maxEdits(query);
+        for (Map.Entry<Character, Node> child : root.children.entrySet()) {
+            collectFuzzy(child.getValue(), child.getKey(), (char) 0, query, firstRow, null, maxEdits, candidates,
+                         maxCandidates);
+        }
+    }
+
+    // One row of the edit distance matrix per trie level, branches are cut as soon as every cell exceeds maxEdits
+    private void collectFuzzy(Node node, char letter, char previousLetter, String query, int[] previousRow,
+                              int[] secondPreviousRow, int maxEdits, Set<Key> candidates, int maxCandidates) {
+        if (candidates.size() >= maxCandidates) {
+            return;
+        }
+        int[] row = nextRow(query, letter, previousLetter, previousRow, secondPreviousRow);
+        if (row[row.length - 1] <= maxEdits) {
+            collectSubtree(node, candidates, maxCandidates);
+        } else if (min(row) <= maxEdits) {
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                collectFuzzy(child.getValue(), child.getKey(), letter, query, row, previousRow, maxEdits, candidates,
+                             maxCandidates);
+            }
+        }
+    }
+
+    // Optimal string alignment distance, swapped neighbours ("sebastain") cost a single edit
+    private static int[] nextRow(String query, char letter, char previousLetter, int[] previousRow,
+                                 int[] secondPreviousRow) {
+        int[] row = new int[previousRow.length];
+        row[0] = previousRow[0] + 1;
+        for (int i = 1; i < row.length; i++) {
+            int replace = previousRow[i - 1] + (query.charAt(i - 1) == letter ? 0 : 1);
+            row[i] = Math.min(Math.min(row[i - 1] + 1, previousRow[i] + 1), replace);
+            if (secondPreviousRow != null && i > 1
+                    && query.charAt(i - 1) == previousLetter && query.charAt(i - 2) == letter) {
+                row[i] = Math.min(row[i], secondPreviousRow[i - 2] + 1);
+            }
+        }
+        return row;
+    }
+
+    private static int min(int[] row) {
+        int min = row[0];
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private void collectSubtree(Node node, Set<Key> candidates, int maxCandidates) {
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(node);
+        while (!queue.isEmpty() && candidates.size() < maxCandidates) {
+            Node next = queue.poll();
+            candidates.addAll(next.keys);
+            queue.addAll(next.children.values());
+        }
+    }
+
+    private void removeToken(String token, Key key) {
+        Node node = root.descend(token, false);
+        if (node != null) {
+            node.keys.remove(key);
+            // empty branches are left in place, they are reused by the next name with the same prefix
+        }
+    }
+
+    static int maxEdits(String token) {
+        return token.length() < 4 ? 0 : token.length() < 8 ? 1 : 2;
+    }
+
+    static boolean withinEdits(String query, String token, int maxEdits) {
+        // query against the prefix of the token, same as the trie walk
+        int[] previousRow = new int[query.length() + 1];
+        for (int i = 0; i < previousRow.length; i++) {
+            previousRow[i] = i;
+        }
+        int[] secondPreviousRow = null;
+        if (previousRow[query.length()] <= maxEdits) {
+            return true;
+        }
+        for (int j = 0; j < token.length(); j++) {
+            int[] row = nextRow(query, token.charAt(j), j > 0 ? token.charAt(j - 1) : 0, previousRow,
+                                secondPreviousRow);
+            if (row[query.length()] <= maxEdits) {
+                return true;
+            }
+            if (min(row) > maxEdits) {
+                return false;
+            }
+            secondPreviousRow = previousRow;
+            previousRow = row;
+        }
+        return false;
+    }
+
+    /**
+     * @return lower case tokens without accents and punctuation, "Anne-Marie O'Neil" -> [anne, marie, o, neil]
+     */
+    static List<String> tokens(String text) {
+        if (text == null) {
+            return new ArrayList<>();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(SEPARATORS.split(normalized.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .collect(toList());
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final Set<Key> keys = new HashSet<>(2);
+
+        private Node descend(String token, boolean create) {
+            Node node = this;
+            for (int i = 0; i < token.length() && node != null; i++) {
+                node = create ? node.children.computeIfAbsent(token.charAt(i), c -> new Node())
+                              : node.children.get(token.charAt(i));
+            }
+            return node;
+        }
+    }
+
+    private static final class Key {
+        private final PersonType type;
+        private final Long id;
+
+        private Key(PersonType type, Long id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return type == key.type && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, id);
+        }
+    }
+
+    private static final class IndexedPerson {
+        private final Key key;
+        private final String firstName;
+        private final String lastName;
+        private final Set<String> tokens;
+
+        private IndexedPerson(Key key, String firstName, String lastName) {
+            this.key = key;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.tokens = new HashSet<>(tokens(firstName));
+            this.tokens.addAll(tokens(lastName));
+        }
+
+        private int score(String queryToken) {
+            int score = 0;
+            for (String token : tokens) {
+                if (token.equals(queryToken)) {
+                    return EXACT;
+                } else if (token.startsWith(queryToken)) {
+                    score = PREFIX;
+                } else if (score == 0 && withinEdits(queryToken, token, maxEdits(queryToken))) {
+                    score = FUZZY;
+                }
+            }
+            return score;
+        }
+
+        private PersonSearchResultDTO toDTO() {
+            return new PersonSearchResultDTO(key.type, key.id, firstName, lastName);
+        }
+    }
+
+    private static final class Match {
+        private final IndexedPerson person;
+        private final int score;
+
+        private Match(IndexedPerson person, int score) {
+            this.person = person;
+            this.score = score;
+        }
+
+        private int getScore() {
+            return score;
+        }
+    }
+}
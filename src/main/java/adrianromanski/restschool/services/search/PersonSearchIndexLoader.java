@@ -0,0 +1,43 @@
+package adrianromanski.restschool.services.search;
+
+import adrianromanski.restschool.domain.enums.PersonType;
+import adrianromanski.restschool.repositories.person.GuardianRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.repositories.person.TeacherRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the name search index once the application is ready (after SchoolBootstrap),
+ * from then on it is kept up to date by the person services
+ */
+@Slf4j
+@Component
+public class PersonSearchIndexLoader {
+
+    private final PersonSearchIndex personSearchIndex;
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final GuardianRepository guardianRepository;
+
+    public PersonSearchIndexLoader(PersonSearchIndex personSearchIndex, StudentRepository studentRepository,
+                                   TeacherRepository teacherRepository, GuardianRepository guardianRepository) {
+        this.personSearchIndex = personSearchIndex;
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.guardianRepository = guardianRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        studentRepository.findAllNames().forEach(name -> personSearchIndex.index(PersonType.STUDENT, name.getId(),
+                                                                                  name.getFirstName(), name.getLastName()));
+        teacherRepository.findAllNames().forEach(name -> personSearchIndex.index(PersonType.TEACHER, name.getId(),
+                                                                                  name.getFirstName(), name.getLastName()));
+        guardianRepository.findAllNames().forEach(name -> personSearchIndex.index(PersonType.GUARDIAN, name.getId(),
+                                                                                   name.getFirstName(), name.getLastName()));
+        log.info("Name search index loaded with " + personSearchIndex.size() + " people");
+    }
+}
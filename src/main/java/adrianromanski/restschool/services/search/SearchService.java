@@ -0,0 +1,9 @@
+package adrianromanski.restschool.services.search;
+
+import adrianromanski.restschool.model.search.PersonSearchListDTO;
+
+public interface SearchService {
+
+    // GET
+    PersonSearchListDTO searchPeople(String query, Integer limit);
+}
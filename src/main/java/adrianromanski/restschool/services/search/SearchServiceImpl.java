@@ -0,0 +1,28 @@
+package adrianromanski.restschool.services.search;
+
+import adrianromanski.restschool.model.search.PersonSearchListDTO;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SearchServiceImpl implements SearchService {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private final PersonSearchIndex personSearchIndex;
+
+    public SearchServiceImpl(PersonSearchIndex personSearchIndex) {
+        this.personSearchIndex = personSearchIndex;
+    }
+
+
+    /**
+     * Served from memory, the database is not touched
+     * @return Students, Teachers and Guardians whose names start with every word of the query, best matches first
+     */
+    @Override
+    public PersonSearchListDTO searchPeople(String query, Integer limit) {
+        int max = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+        return new PersonSearchListDTO(personSearchIndex.search(query, max));
+    }
+}
@@ -3,7 +3,9 @@ package adrianromanski.restschool.controllers;
 import adrianromanski.restschool.controllers.event.ExamController;
 import adrianromanski.restschool.controllers.exception_handler.RestResponseEntityExceptionHandler;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamRescheduleDTO;
 import adrianromanski.restschool.services.event.exam.ExamService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,10 +13,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -29,6 +34,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,6 +43,7 @@ class ExamControllerTest {
 
     public static final long ID = 1L;
     public static final String EXAMS = "/exams/";
+    public static final VersionDTO VERSION = new VersionDTO("exam-1-3", Instant.parse("2020-05-04T10:15:30Z"));
     private final String NAME = "Final Math Exam";
 
     @Mock
@@ -72,6 +80,7 @@ class ExamControllerTest {
     void getAllExams() throws Exception {
         List<ExamDTO> examDTOList = Arrays.asList(initMath(), initBiology());
 
+        when(examService.getExamsVersion()).thenReturn(new VersionDTO("exams-2-0-0", null));
         when(examService.getAllExams()).thenReturn(examDTOList);
 
         mockMvc.perform(get(EXAMS)
@@ -82,11 +91,26 @@ class ExamControllerTest {
                 .andExpect(jsonPath("$.examDTOList", hasSize(2)));
     }
 
+    @DisplayName("[GET], [Happy Path], [Method] = getExamById, [Expected] = 304 for a matching ETag, Exam is not loaded")
+    @Test
+    void getExamByIdNotModified() throws Exception {
+        when(examService.getExamVersion(anyLong())).thenReturn(VERSION);
+
+        mockMvc.perform(get(EXAMS + ID)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"exam-1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"exam-1-3\""))
+                .andExpect(content().string(""));
+
+        verify(examService, never()).getExamById(anyLong());
+    }
+
     @DisplayName("[GET], [Happy Path], [Method] = getExamById, [Expected] = ExamDTO with matching fields")
     @Test
     void getExamById() throws Exception {
         ExamDTO examDTO = initMath();
 
+        when(examService.getExamVersion(anyLong())).thenReturn(VERSION);
         when(examService.getExamById(anyLong())).thenReturn(examDTO);
 
         mockMvc.perform(get(EXAMS + ID)
@@ -94,6 +118,8 @@ class ExamControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(asJsonString(examDTO)))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"exam-1-3\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
                 .andExpect(jsonPath("$.name", equalTo(NAME)))
                 .andExpect(jsonPath("$.maxPoints", equalTo(100)))
                 .andExpect(jsonPath("$.id", equalTo(1)));
@@ -219,6 +245,22 @@ class ExamControllerTest {
                 .andExpect(jsonPath("$.id", equalTo(1)));
     }
 
+    @DisplayName("[PUT], [Happy Path], [Method] = rescheduleExams, [Expected] = Number of rescheduled Exams")
+    @Test
+    void rescheduleExams() throws Exception {
+        LocalDate from = LocalDate.of(2020, 5, 4);
+        LocalDate to = LocalDate.of(2020, 5, 8);
+
+        when(examService.rescheduleExams(from, to, 7, null, 3L, null))
+                .thenReturn(new ExamRescheduleDTO(from, to, 7, "studentClass-3", 5));
+
+        mockMvc.perform(put(EXAMS + "reschedule?from=2020-05-04&to=2020-05-08&days=7&studentClassId=3")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.target", equalTo("studentClass-3")))
+                .andExpect(jsonPath("$.rescheduled", equalTo(5)));
+    }
+
     @DisplayName("[DELETE], [Happy Path], [Method] = deleteExamById, [Expected] = Service deleting object")
     @Test
     void deleteExamById() throws Exception {
@@ -233,6 +275,7 @@ class ExamControllerTest {
     @Test
     public void testNotFoundException() throws Exception {
 
+        when(examService.getExamVersion(anyLong())).thenThrow(ResourceNotFoundException.class);
         when(examService.getExamById(anyLong())).thenThrow(ResourceNotFoundException.class);
 
         mockMvc.perform(get(EXAMS + 222)
@@ -2,8 +2,13 @@ package adrianromanski.restschool.controllers;
 
 import adrianromanski.restschool.controllers.event.ExamResultController;
 import adrianromanski.restschool.controllers.exception_handler.RestResponseEntityExceptionHandler;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
+import adrianromanski.restschool.model.PageDTO;
 import adrianromanski.restschool.model.event.ExamResultDTO;
+import adrianromanski.restschool.model.event.ExamScoresDTO;
+import adrianromanski.restschool.model.event.ExamScoresResultDTO;
+import adrianromanski.restschool.model.event.StudentScoreDTO;
 import adrianromanski.restschool.services.event.exam_result.ExamResultService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -17,6 +22,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -196,6 +202,35 @@ class ExamResultControllerTest {
                 .andExpect(jsonPath("$." + NOW + ".A", hasSize(2)));
     }
 
+    @DisplayName("[GET], [Happy Path], [Method] = getPassedForSubjectPage")
+    @Test
+    void getPassedForSubjectPage() throws Exception {
+        List<ExamResultDTO> content = Arrays.asList(initBiologyExam(), initBiologyExam());
+
+        when(examResultService.getExamResultsPage(true, "Biology", 1, 2))
+                .thenReturn(new PageDTO<>(content, 1, 2, 6, 3));
+
+        mockMvc.perform(get(EXAM_RESULTS + "subject-Biology/passed/page?page=1&size=2")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.totalElements", equalTo(6)));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getNotPassedExamResultsPage")
+    @Test
+    void getNotPassedExamResultsPage() throws Exception {
+        when(examResultService.getExamResultsPage(false, null, null, null))
+                .thenReturn(new PageDTO<>(Collections.singletonList(initBiologyExam()), 0, 20, 1, 1));
+
+        mockMvc.perform(get(EXAM_RESULTS + "failed/page")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)));
+    }
+
     @DisplayName("[POST], [Happy Path], [Method] = createExamResult")
     @Test
     void createExamResult() throws Exception {
@@ -211,6 +246,40 @@ class ExamResultControllerTest {
                 .andExpect(jsonPath("$.name", equalTo(NAME)));
     }
 
+    @DisplayName("[POST], [Happy Path], [Method] = createExamResults")
+    @Test
+    void createExamResults() throws Exception {
+        ExamScoresDTO scoresDTO = new ExamScoresDTO(null, Arrays.asList(new StudentScoreDTO(1L, 10f),
+                                                                        new StudentScoreDTO(2L, 90f)));
+        Map<String, Long> grades = new HashMap<>();
+        grades.put("A", 1L);
+        grades.put("F", 1L);
+
+        when(examResultService.createExamResults(anyLong(), any(ExamScoresDTO.class)))
+                .thenReturn(new ExamScoresResultDTO(ID, 2, grades, 1));
+
+        mockMvc.perform(post(EXAM_RESULTS + "bulk/exam-" + ID)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(scoresDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created", equalTo(2)))
+                .andExpect(jsonPath("$.grades.F", equalTo(1)))
+                .andExpect(jsonPath("$.notified", equalTo(1)));
+    }
+
+    @DisplayName("[POST], [Unhappy Path], [Method] = createExamResults, [Exception] = BadRequestException")
+    @Test
+    void createExamResultsBadRequest() throws Exception {
+        when(examResultService.createExamResults(anyLong(), any(ExamScoresDTO.class)))
+                .thenThrow(new BadRequestException("Between 1 and 1000 scores have to be given"));
+
+        mockMvc.perform(post(EXAM_RESULTS + "bulk/exam-" + ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(new ExamScoresDTO(null, Collections.emptyList()))))
+                .andExpect(status().isBadRequest());
+    }
+
     @DisplayName("[PUT], [Happy Path], [Method] = createExamResult")
     @Test
     void updateExamResult() throws Exception {
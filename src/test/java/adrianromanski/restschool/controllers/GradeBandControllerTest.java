@@ -0,0 +1,123 @@
+package adrianromanski.restschool.controllers;
+
+import adrianromanski.restschool.controllers.event.GradeBandController;
+import adrianromanski.restschool.controllers.exception_handler.RestResponseEntityExceptionHandler;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import adrianromanski.restschool.exceptions.ResourceNotFoundException;
+import adrianromanski.restschool.model.event.GradeBandDTO;
+import adrianromanski.restschool.model.event.RegradeDTO;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static adrianromanski.restschool.controllers.AbstractRestControllerTest.asJsonString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class GradeBandControllerTest {
+
+    public static final String GRADE_BANDS = "/grade-bands/";
+
+    @Mock
+    GradeBandService gradeBandService;
+
+    @InjectMocks
+    GradeBandController gradeBandController;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(gradeBandController)
+                .setControllerAdvice(RestResponseEntityExceptionHandler.class)
+                .build();
+    }
+
+    private List<GradeBandDTO> initBands() {
+        return Arrays.asList(new GradeBandDTO(Grade.A, 90), new GradeBandDTO(Grade.B, 80),
+                             new GradeBandDTO(Grade.C, 60), new GradeBandDTO(Grade.D, 50),
+                             new GradeBandDTO(Grade.E, 40), new GradeBandDTO(Grade.F, 0));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getGradeBands")
+    @Test
+    void getGradeBands() throws Exception {
+        when(gradeBandService.getGradeBands()).thenReturn(initBands());
+
+        mockMvc.perform(get(GRADE_BANDS)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(6)))
+                .andExpect(jsonPath("$[0].grade", equalTo("A")))
+                .andExpect(jsonPath("$[0].minPercentage", equalTo(90)));
+    }
+
+    @DisplayName("[PUT], [Happy Path], [Method] = updateGradeBands")
+    @Test
+    void updateGradeBands() throws Exception {
+        when(gradeBandService.updateGradeBands(anyList())).thenReturn(new RegradeDTO(initBands(), 2, 40));
+
+        mockMvc.perform(put(GRADE_BANDS)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(initBands().subList(0, 5))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exams", equalTo(2)))
+                .andExpect(jsonPath("$.regraded", equalTo(40)));
+    }
+
+    @DisplayName("[PUT], [Unhappy Path], [Method] = updateGradeBands, [Exception] = BadRequestException")
+    @Test
+    void updateGradeBandsBadRequest() throws Exception {
+        when(gradeBandService.updateGradeBands(anyList())).thenThrow(new BadRequestException("Grade E is missing"));
+
+        mockMvc.perform(put(GRADE_BANDS)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(initBands().subList(0, 4))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @DisplayName("[POST], [Happy Path], [Method] = regradeExam")
+    @Test
+    void regradeExam() throws Exception {
+        when(gradeBandService.regradeExam(1L)).thenReturn(new RegradeDTO(initBands(), 1, 12));
+
+        mockMvc.perform(post(GRADE_BANDS + "regrade/exam-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.regraded", equalTo(12)));
+    }
+
+    @DisplayName("[POST], [Unhappy Path], [Method] = regradeExam, [Exception] = ResourceNotFoundException")
+    @Test
+    void regradeExamNotFound() throws Exception {
+        when(gradeBandService.regradeExam(anyLong())).thenThrow(ResourceNotFoundException.class);
+
+        mockMvc.perform(post(GRADE_BANDS + "regrade/exam-222")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,117 @@
+package adrianromanski.restschool.controllers;
+
+import adrianromanski.restschool.controllers.event.GradeDistributionController;
+import adrianromanski.restschool.controllers.exception_handler.RestResponseEntityExceptionHandler;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import adrianromanski.restschool.model.event.GradeCountDTO;
+import adrianromanski.restschool.model.event.GradeHistogramDTO;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class GradeDistributionControllerTest {
+
+    public static final String GRADE_DISTRIBUTION = "/grade-distribution/";
+    public static final LocalDate DATE = LocalDate.of(2020, 6, 1);
+
+    @Mock
+    GradeDistributionService gradeDistributionService;
+
+    @InjectMocks
+    GradeDistributionController gradeDistributionController;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(gradeDistributionController)
+                .setControllerAdvice(RestResponseEntityExceptionHandler.class)
+                .build();
+    }
+
+    private GradeHistogramDTO initHistogram(LocalDate date) {
+        return new GradeHistogramDTO(date, Arrays.asList(new GradeCountDTO(Grade.A, 2, 95d),
+                                                         new GradeCountDTO(Grade.F, 1, 10d)), 3, 200d / 3);
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getExamHistogram")
+    @Test
+    void getExamHistogram() throws Exception {
+        when(gradeDistributionService.getExamHistogram(1L)).thenReturn(initHistogram(null));
+
+        mockMvc.perform(get(GRADE_DISTRIBUTION + "exam-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", equalTo(3)))
+                .andExpect(jsonPath("$.grades", hasSize(2)))
+                .andExpect(jsonPath("$.grades[0].grade", equalTo("A")))
+                .andExpect(jsonPath("$.grades[0].count", equalTo(2)));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getSubjectHistogram, range is optional")
+    @Test
+    void getSubjectHistogram() throws Exception {
+        when(gradeDistributionService.getSubjectHistogram("Biology", DATE, null)).thenReturn(initHistogram(null));
+
+        mockMvc.perform(get(GRADE_DISTRIBUTION + "subject-Biology")
+                .param("from", "2020-06-01")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.grades[1].grade", equalTo("F")));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getDailyHistograms")
+    @Test
+    void getDailyHistograms() throws Exception {
+        when(gradeDistributionService.getDailyHistograms(DATE, DATE.plusDays(6)))
+                .thenReturn(Collections.singletonList(initHistogram(DATE)));
+
+        mockMvc.perform(get(GRADE_DISTRIBUTION + "daily")
+                .param("from", "2020-06-01")
+                .param("to", "2020-06-07")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].total", equalTo(3)));
+    }
+
+    @DisplayName("[GET], [Unhappy Path], [Method] = getDailyHistograms, [Reason] = Range longer than MAX_DAYS")
+    @Test
+    void getDailyHistogramsBadRequest() throws Exception {
+        when(gradeDistributionService.getDailyHistograms(eq(DATE), any(LocalDate.class)))
+                .thenThrow(BadRequestException.class);
+
+        mockMvc.perform(get(GRADE_DISTRIBUTION + "daily")
+                .param("from", "2020-06-01")
+                .param("to", "2030-06-01")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+}
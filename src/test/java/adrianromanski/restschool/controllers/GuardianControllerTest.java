@@ -6,7 +6,15 @@ import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.model.base_entity.address.GuardianAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.GuardianContactDTO;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.group.StudentClassDTO;
+import adrianromanski.restschool.model.person.AgeBracketDTO;
+import adrianromanski.restschool.model.person.AgeBracketHistogramDTO;
+import adrianromanski.restschool.model.person.ChildrenBucketDTO;
+import adrianromanski.restschool.model.person.ChildrenHistogramDTO;
 import adrianromanski.restschool.model.person.GuardianDTO;
+import adrianromanski.restschool.model.person.HouseholdDTO;
+import adrianromanski.restschool.model.person.HouseholdMemberDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.services.person.guardian.GuardianService;
 import org.junit.jupiter.api.BeforeEach;
@@ -160,6 +168,125 @@ class GuardianControllerTest {
     }
 
 
+    @DisplayName("[GET], [Happy Path], [Method] = getAllStudentsForGuardians")
+    @Test
+    void getStudentsForGuardians() throws Exception {
+        Map<Long, List<StudentDTO>> students = new LinkedHashMap<>();
+        students.put(1L, Arrays.asList(new StudentDTO(), new StudentDTO()));
+        students.put(2L, Collections.emptyList());
+
+        when(guardianService.getAllStudentsForGuardians(Arrays.asList(1L, 2L))).thenReturn(students);
+
+        mockMvc.perform(get(GUARDIANS + "getStudents?ids=1,2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1", hasSize(2)))
+                .andExpect(jsonPath("$.2", hasSize(0)));
+    }
+
+
+    @DisplayName("[GET], [Happy Path], [Method] = getHousehold")
+    @Test
+    void getHousehold() throws Exception {
+        StudentClassDTO studentClassDTO = new StudentClassDTO();
+        studentClassDTO.setName("1A");
+        HouseholdDTO household = new HouseholdDTO(createEthan(),
+                Collections.singletonList(new HouseholdMemberDTO(new StudentDTO(), studentClassDTO)));
+
+        when(guardianService.getHousehold(1L)).thenReturn(household);
+
+        mockMvc.perform(get(GUARDIANS + "1/household")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guardian.firstName", equalTo(ETHAN.get())))
+                .andExpect(jsonPath("$.children", hasSize(1)))
+                .andExpect(jsonPath("$.children[0].studentClass.name", equalTo("1A")));
+    }
+
+
+    @DisplayName("[GET], [Unhappy Path], [Method] = getHousehold, [Reason] = Guardian with id 1 not found")
+    @Test
+    void getHouseholdNotFound() throws Exception {
+        when(guardianService.getHousehold(1L)).thenThrow(ResourceNotFoundException.class);
+
+        mockMvc.perform(get(GUARDIANS + "1/household")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+
+    @DisplayName("[GET], [Happy Path], [Method] = getHouseholds")
+    @Test
+    void getHouseholds() throws Exception {
+        List<HouseholdDTO> households = Arrays.asList(new HouseholdDTO(createEthan(), Collections.emptyList()),
+                                                      new HouseholdDTO(createEthan(), Collections.emptyList()));
+
+        when(guardianService.getHouseholds(1, 2)).thenReturn(new PageDTO<>(households, 1, 2, 4, 2));
+
+        mockMvc.perform(get(GUARDIANS + "households?page=1&size=2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.totalElements", equalTo(4)));
+    }
+
+
+    @DisplayName("[GET], [Happy Path], [Method] = getGuardiansAgeHistogram")
+    @Test
+    void getGuardiansAgeHistogram() throws Exception {
+        AgeBracketHistogramDTO histogram = new AgeBracketHistogramDTO(5,
+                Arrays.asList(new AgeBracketDTO(30L, 34L, 2L), new AgeBracketDTO(40L, 44L, 1L)));
+
+        when(guardianService.getGuardiansAgeHistogram(5)).thenReturn(histogram);
+
+        mockMvc.perform(get(GUARDIANS + "groupedBy/age/histogram?width=5")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.width", equalTo(5)))
+                .andExpect(jsonPath("$.brackets", hasSize(2)))
+                .andExpect(jsonPath("$.brackets[1].toAge", equalTo(44)));
+    }
+
+
+    @DisplayName("[GET], [Happy Path], [Method] = getGuardiansPageByAge")
+    @Test
+    void getGuardiansPageByAge() throws Exception {
+        when(guardianService.getGuardiansPageByAge(30L, 5, 0, 10))
+                .thenReturn(new PageDTO<>(Collections.singletonList(createEthan()), 0, 10, 1, 1));
+
+        mockMvc.perform(get(GUARDIANS + "groupedBy/age/30?width=5&page=0&size=10")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)));
+    }
+
+
+    @DisplayName("[GET], [Happy Path], [Method] = getGuardiansChildrenHistogram")
+    @Test
+    void getGuardiansChildrenHistogram() throws Exception {
+        when(guardianService.getGuardiansChildrenHistogram())
+                .thenReturn(new ChildrenHistogramDTO(Collections.singletonList(new ChildrenBucketDTO(0L, 3L))));
+
+        mockMvc.perform(get(GUARDIANS + "groupedBy/children/histogram")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets[0].count", equalTo(3)));
+    }
+
+
+    @DisplayName("[GET], [Happy Path], [Method] = getGuardiansPageByChildren")
+    @Test
+    void getGuardiansPageByChildren() throws Exception {
+        when(guardianService.getGuardiansPageByChildren(2, null, null))
+                .thenReturn(new PageDTO<>(Arrays.asList(createEthan(), createEthan()), 0, 20, 2, 1));
+
+        mockMvc.perform(get(GUARDIANS + "groupedBy/children/2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)));
+    }
+
+
     @DisplayName("[POST], [Happy Path], [Method] = createNewGuardian")
     @Test
     void createNewGuardian() throws Exception {
@@ -0,0 +1,102 @@
+package adrianromanski.restschool.controllers;
+
+import adrianromanski.restschool.controllers.event.ScoreStatisticsController;
+import adrianromanski.restschool.controllers.exception_handler.RestResponseEntityExceptionHandler;
+import adrianromanski.restschool.model.event.ScoreStatisticsDTO;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ScoreStatisticsControllerTest {
+
+    public static final String SCORE_STATISTICS = "/score-statistics/";
+
+    @Mock
+    ScoreStatisticsService scoreStatisticsService;
+
+    @InjectMocks
+    ScoreStatisticsController scoreStatisticsController;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(scoreStatisticsController)
+                .setControllerAdvice(RestResponseEntityExceptionHandler.class)
+                .build();
+    }
+
+    private ScoreStatisticsDTO initStatistics() {
+        return new ScoreStatisticsDTO(4, 50d, 22.36, 20d, 20d, 40d, 80d, 80d);
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getExamStatistics")
+    @Test
+    void getExamStatistics() throws Exception {
+        when(scoreStatisticsService.getExamStatistics(1L)).thenReturn(initStatistics());
+
+        mockMvc.perform(get(SCORE_STATISTICS + "exam-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", equalTo(4)))
+                .andExpect(jsonPath("$.median", equalTo(40.0)))
+                .andExpect(jsonPath("$.p90", equalTo(80.0)));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getSubjectStatistics, Subject without results is empty")
+    @Test
+    void getSubjectStatistics() throws Exception {
+        when(scoreStatisticsService.getSubjectStatistics("Biology"))
+                .thenReturn(new ScoreStatisticsDTO(0, null, null, null, null, null, null, null));
+
+        mockMvc.perform(get(SCORE_STATISTICS + "subject-Biology")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", equalTo(0)))
+                .andExpect(jsonPath("$.mean", nullValue()));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getStudentClassStatistics")
+    @Test
+    void getStudentClassStatistics() throws Exception {
+        when(scoreStatisticsService.getStudentClassStatistics(2L)).thenReturn(initStatistics());
+
+        mockMvc.perform(get(SCORE_STATISTICS + "class-2")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.p10", equalTo(20.0)));
+    }
+
+    @DisplayName("[POST], [Happy Path], [Method] = rebuild")
+    @Test
+    void rebuild() throws Exception {
+        when(scoreStatisticsService.rebuildAll()).thenReturn(12);
+
+        mockMvc.perform(post(SCORE_STATISTICS + "rebuild")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string("12"));
+    }
+}
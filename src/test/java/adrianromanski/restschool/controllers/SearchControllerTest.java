@@ -0,0 +1,71 @@
+package adrianromanski.restschool.controllers;
+
+import adrianromanski.restschool.controllers.exception_handler.RestResponseEntityExceptionHandler;
+import adrianromanski.restschool.controllers.search.SearchController;
+import adrianromanski.restschool.domain.enums.PersonType;
+import adrianromanski.restschool.model.search.PersonSearchListDTO;
+import adrianromanski.restschool.model.search.PersonSearchResultDTO;
+import adrianromanski.restschool.services.search.SearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SearchControllerTest extends AbstractRestControllerTest {
+
+    public static final String SEARCH = "/search/";
+
+    @Mock
+    SearchService searchService;
+
+    @InjectMocks
+    SearchController searchController;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(searchController)
+                .setControllerAdvice(RestResponseEntityExceptionHandler.class)
+                .build();
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = searchPeople")
+    @Test
+    void searchPeople() throws Exception {
+        PersonSearchListDTO results = new PersonSearchListDTO(Arrays.asList(
+                new PersonSearchResultDTO(PersonType.STUDENT, 1L, "Ethan", "Cooper"),
+                new PersonSearchResultDTO(PersonType.TEACHER, 1L, "Ethan", "Williams")));
+
+        when(searchService.searchPeople("eth", null)).thenReturn(results);
+
+        mockMvc.perform(get(SEARCH + "people?q=eth")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.people", hasSize(2)))
+                .andExpect(jsonPath("$.people[1].type", equalTo("TEACHER")));
+    }
+
+    @DisplayName("[GET], [Unhappy Path], [Method] = searchPeople, [Reason] = Missing query")
+    @Test
+    void searchPeopleWithoutQuery() throws Exception {
+        mockMvc.perform(get(SEARCH + "people"))
+                .andExpect(status().isBadRequest());
+    }
+}
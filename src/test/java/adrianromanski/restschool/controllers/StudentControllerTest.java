@@ -2,12 +2,25 @@ package adrianromanski.restschool.controllers;
 
 import adrianromanski.restschool.controllers.exception_handler.RestResponseEntityExceptionHandler;
 import adrianromanski.restschool.controllers.person.StudentController;
+import adrianromanski.restschool.domain.enums.ExportFormat;
 import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.domain.enums.ImportStatus;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.contact.ContactDTO;
 import adrianromanski.restschool.model.base_entity.address.StudentAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.StudentContactDTO;
+import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.person.AgeBucketDTO;
+import adrianromanski.restschool.model.person.AgeHistogramDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentDetailDTO;
+import adrianromanski.restschool.model.person.StudentImportDTO;
+import adrianromanski.restschool.model.person.StudentImportResultDTO;
+import adrianromanski.restschool.model.person.StudentPageDTO;
+import adrianromanski.restschool.services.person.student.StudentImportService;
 import adrianromanski.restschool.services.person.student.StudentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -15,10 +28,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.*;
 
 
@@ -31,18 +50,25 @@ import static adrianromanski.restschool.domain.enums.MaleName.SEBASTIAN;
 import static org.hamcrest.Matchers.*;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class StudentControllerTest  extends AbstractRestControllerTest {
 
     public static final Long ID = 1L;
     public static final String STUDENTS = "/students/";
+    public static final VersionDTO VERSION = new VersionDTO("students-3-0-1588587330000",
+                                                            Instant.parse("2020-05-04T10:15:30Z"));
     public static final String TELEPHONE_NUMBER = "222-44-22-11";
     public static final String EMAIL = "Jimmy@Gmail.com";
     public static final String COUNTRY = "Poland";
@@ -53,6 +79,9 @@ class StudentControllerTest  extends AbstractRestControllerTest {
     @Mock
     StudentService studentService;
 
+    @Mock
+    StudentImportService studentImportService;
+
     @InjectMocks
     StudentController studentController;
 
@@ -110,6 +139,7 @@ class StudentControllerTest  extends AbstractRestControllerTest {
     void getStudentByID() throws Exception {
         StudentDTO studentDTO = createEthan();
 
+        when(studentService.getStudentVersion(anyLong())).thenReturn(new VersionDTO("student-1-0", null));
         when(studentService.getStudentByID(anyLong())).thenReturn(studentDTO);
 
         mockMvc.perform(get(STUDENTS + "getByID/student-1")
@@ -121,20 +151,89 @@ class StudentControllerTest  extends AbstractRestControllerTest {
                 .andExpect(jsonPath("$.gender", equalTo(MALE.toString())));
     }
 
+    @DisplayName("[GET], [Happy Path], [Method] = getStudentDetail")
+    @Test
+    void getStudentDetail() throws Exception {
+        ExamDTO examDTO = new ExamDTO();
+        examDTO.setName("Algebra");
+        StudentDetailDTO detailDTO = new StudentDetailDTO(createEthan(), null, null,
+                                                          Collections.emptyList(), Collections.singletonList(examDTO));
+
+        when(studentService.getStudentDetail(1L)).thenReturn(detailDTO);
+
+        mockMvc.perform(get(STUDENTS + "1/detail")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.student.firstName", equalTo(ETHAN.get())))
+                .andExpect(jsonPath("$.subjects", hasSize(0)))
+                .andExpect(jsonPath("$.exams[0].name", equalTo("Algebra")));
+    }
+
+    @DisplayName("[GET], [Unhappy Path], [Method] = getStudentDetail, [Reason] = Student with id 222 not found")
+    @Test
+    void getStudentDetailNotFound() throws Exception {
+        when(studentService.getStudentDetail(anyLong())).thenThrow(ResourceNotFoundException.class);
+
+        mockMvc.perform(get(STUDENTS + "222/detail")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getAllStudents, [Expected] = 304 for a matching ETag, Students are not loaded")
+    @Test
+    void getAllStudentsNotModified() throws Exception {
+        when(studentService.getStudentsVersion()).thenReturn(VERSION);
+
+        mockMvc.perform(get(STUDENTS)
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"students-3-0-1588587330000\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+
+        verify(studentService, never()).getAllStudents();
+    }
+
     @DisplayName("[GET], [Happy Path], [Method] = getAllStudents")
     @Test
     void getAllStudents() throws Exception {
         List<StudentDTO> students = getStudents();
 
+        when(studentService.getStudentsVersion()).thenReturn(VERSION);
         when(studentService.getAllStudents()).thenReturn(students);
 
         mockMvc.perform(get(STUDENTS)
                     .accept(MediaType.APPLICATION_JSON)
-                    .contentType(MediaType.APPLICATION_JSON))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"students-2-0-1588587330000\""))
                     .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"students-3-0-1588587330000\""))
                     .andExpect(jsonPath("$.students", hasSize(3)));
     }
 
+    @DisplayName("[GET], [Happy Path], [Method] = getStudentsPage")
+    @Test
+    void getStudentsPage() throws Exception {
+        StudentPageDTO page = new StudentPageDTO(getStudents(), "next");
+
+        when(studentService.getStudentsPage(any(), anyInt())).thenReturn(page);
+
+        mockMvc.perform(get(STUDENTS + "list/page?size=3")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students", hasSize(3)))
+                .andExpect(jsonPath("$.nextPageToken", equalTo("next")));
+    }
+
+    @DisplayName("[GET], [Unhappy Path], [Method] = getStudentsPage, [Reason] = Malformed page token")
+    @Test
+    void getStudentsPageInvalidToken() throws Exception {
+        when(studentService.getStudentsPage(anyString(), any())).thenThrow(new BadRequestException("Invalid page token"));
+
+        mockMvc.perform(get(STUDENTS + "list/page?pageToken=abc")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @DisplayName("[GET], [Happy Path], [Method] = getAllFemaleStudents")
     @Test
     void getAllFemaleStudents() throws Exception {
@@ -149,6 +248,78 @@ class StudentControllerTest  extends AbstractRestControllerTest {
                 .andExpect(jsonPath("$.students", hasSize(1)));
     }
 
+    @DisplayName("[GET], [Happy Path], [Method] = getFemaleStudentsPage")
+    @Test
+    void getFemaleStudentsPage() throws Exception {
+        PageDTO<StudentDTO> page = new PageDTO<>(Collections.singletonList(createCharlotte()), 0, 20, 1, 1);
+
+        when(studentService.getStudentsPageByGender(FEMALE, 0, 20)).thenReturn(page);
+
+        mockMvc.perform(get(STUDENTS + "female/page?page=0&size=20")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.totalElements", equalTo(1)));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getStudentsAgeHistogram")
+    @Test
+    void getStudentsAgeHistogram() throws Exception {
+        AgeHistogramDTO histogram = new AgeHistogramDTO(Arrays.asList(new AgeBucketDTO(17L, 2L), new AgeBucketDTO(18L, 1L)));
+
+        when(studentService.getStudentsAgeHistogram()).thenReturn(histogram);
+
+        mockMvc.perform(get(STUDENTS + "groupedBy/age/histogram")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets", hasSize(2)))
+                .andExpect(jsonPath("$.buckets[0].age", equalTo(17)))
+                .andExpect(jsonPath("$.buckets[0].count", equalTo(2)));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getStudentsPageByAge")
+    @Test
+    void getStudentsPageByAge() throws Exception {
+        PageDTO<StudentDTO> page = new PageDTO<>(Arrays.asList(createEthan(), createSebastian()), 0, 20, 2, 1);
+
+        when(studentService.getStudentsPageByAge(17L, null, null)).thenReturn(page);
+
+        mockMvc.perform(get(STUDENTS + "groupedBy/age/17")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getStudentsCountByLocation")
+    @Test
+    void getStudentsCountByLocation() throws Exception {
+        Map<String, Map<String, Long>> rollup = new LinkedHashMap<>();
+        rollup.put("Poland", Collections.singletonMap("Warsaw", 2L));
+        rollup.put("unknown", Collections.singletonMap("unknown", 1L));
+
+        when(studentService.getStudentsCountByLocation()).thenReturn(rollup);
+
+        mockMvc.perform(get(STUDENTS + "groupedBy/location/count")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Poland.Warsaw", equalTo(2)))
+                .andExpect(jsonPath("$.unknown.unknown", equalTo(1)));
+    }
+
+    @DisplayName("[GET], [Happy Path], [Method] = getStudentsPageByLocation")
+    @Test
+    void getStudentsPageByLocation() throws Exception {
+        PageDTO<StudentDTO> page = new PageDTO<>(Collections.singletonList(createEthan()), 0, 20, 1, 1);
+
+        when(studentService.getStudentsPageByLocation("Poland", "Warsaw", null, null)).thenReturn(page);
+
+        mockMvc.perform(get(STUDENTS + "groupedBy/location/Poland/Warsaw")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)));
+    }
+
     @DisplayName("[GET], [Happy Path], [Method] = getAllMaleStudents")
     @Test
     void getAllMaleStudents() throws Exception {
@@ -199,6 +370,32 @@ class StudentControllerTest  extends AbstractRestControllerTest {
 
 
 
+    @DisplayName("[GET], [Happy Path], [Method] = exportStudents")
+    @Test
+    void exportStudents() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("id,firstName\n1,Ethan\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(studentService).exportStudents(eq(ExportFormat.CSV), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get(STUDENTS + "export?format=csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(content().string("id,firstName\n1,Ethan\n"));
+    }
+
+    @DisplayName("[GET], [Unhappy Path], [Method] = exportStudents, [Reason] = Unsupported format")
+    @Test
+    void exportStudentsUnsupportedFormat() throws Exception {
+        mockMvc.perform(get(STUDENTS + "export?format=xlsx"))
+                .andExpect(status().isBadRequest());
+    }
+
     @DisplayName("[POST], [Happy Path], [Method] = createNewStudent")
     @Test
     void createNewStudent() throws Exception {
@@ -216,6 +413,41 @@ class StudentControllerTest  extends AbstractRestControllerTest {
                 .andExpect(jsonPath("$.gender", equalTo(MALE.toString())));
     }
 
+    @DisplayName("[POST], [Happy Path], [Method] = createNewStudents")
+    @Test
+    void createNewStudents() throws Exception {
+        StudentImportDTO importDTO = StudentImportDTO.of(Arrays.asList(
+                new StudentImportResultDTO(1, ImportStatus.CREATED, ID, null),
+                new StudentImportResultDTO(2, ImportStatus.FAILED, null, "lastName is required")));
+
+        when(studentImportService.importStudents(anyList())).thenReturn(importDTO);
+
+        mockMvc.perform(post(STUDENTS + "addStudents")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(Arrays.asList(createEthan(), createSebastian()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", equalTo(1)))
+                .andExpect(jsonPath("$.failed", equalTo(1)))
+                .andExpect(jsonPath("$.results[1].status", equalTo("FAILED")));
+    }
+
+    @DisplayName("[POST], [Happy Path], [Method] = createNewStudentsFromCsv")
+    @Test
+    void createNewStudentsFromCsv() throws Exception {
+        StudentImportDTO importDTO = StudentImportDTO.of(Collections.singletonList(
+                new StudentImportResultDTO(1, ImportStatus.CREATED, ID, null)));
+
+        when(studentImportService.importStudentsFromCsv(any(InputStream.class))).thenReturn(importDTO);
+
+        mockMvc.perform(post(STUDENTS + "addStudents")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType("text/csv")
+                .content("firstName,lastName\nEthan,Cooper\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", equalTo(1)));
+    }
+
     @DisplayName("[POST], [Happy Path], [Method] = createNewStudent")
     @Test
     void addContactToStudent() throws Exception {
@@ -5,13 +5,19 @@
     import adrianromanski.restschool.domain.base_entity.contact.TeacherContact;
     import adrianromanski.restschool.domain.enums.Gender;
     import adrianromanski.restschool.domain.enums.Subjects;
+    import adrianromanski.restschool.exceptions.BadRequestException;
     import adrianromanski.restschool.exceptions.ResourceNotFoundException;
     import adrianromanski.restschool.model.base_entity.address.AddressDTO;
     import adrianromanski.restschool.model.base_entity.address.TeacherAddressDTO;
     import adrianromanski.restschool.model.base_entity.contact.TeacherContactDTO;
+    import adrianromanski.restschool.model.PageDTO;
+    import adrianromanski.restschool.model.VersionDTO;
     import adrianromanski.restschool.model.event.ExamDTO;
+    import adrianromanski.restschool.model.event.ExamEnrollmentDTO;
+    import adrianromanski.restschool.model.person.RosterEntryDTO;
     import adrianromanski.restschool.model.person.StudentDTO;
     import adrianromanski.restschool.model.person.TeacherDTO;
+    import adrianromanski.restschool.model.person.TeacherWorkloadDTO;
     import adrianromanski.restschool.services.person.teacher.TeacherService;
     import org.junit.jupiter.api.BeforeEach;
     import org.junit.jupiter.api.DisplayName;
@@ -19,10 +25,12 @@
     import org.mockito.InjectMocks;
     import org.mockito.Mock;
     import org.mockito.MockitoAnnotations;
+    import org.springframework.http.HttpHeaders;
     import org.springframework.http.MediaType;
     import org.springframework.test.web.servlet.MockMvc;
     import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+    import java.time.Instant;
     import java.util.*;
 
     import static adrianromanski.restschool.controllers.AbstractRestControllerTest.asJsonString;
@@ -38,6 +46,8 @@
 
     import static org.mockito.Mockito.*;
     import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+    import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+    import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
     import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
     import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -53,6 +63,8 @@
         public static final String EMAIL = "Ethan@Gmail.com";
         public static final String EMERGENCY_NUMBER = "22-22-11";
         public static final String NUMBER = "22-12-22";
+        public static final VersionDTO VERSION = new VersionDTO("teachers-3-7-1588587330000",
+                                                                Instant.parse("2020-05-04T10:15:30Z"));
 
         MockMvc mockMvc;
 
@@ -101,6 +113,7 @@
         void getTeacherByID() throws Exception {
             TeacherDTO teacherDTO = createEthan();
 
+            when(teacherService.getTeacherVersion(ID)).thenReturn(new VersionDTO("teacher-1-0", null));
             when(teacherService.getTeacherByID(ID)).thenReturn(teacherDTO);
 
             mockMvc.perform(get(TEACHERS + "getByID/teacher-1")
@@ -130,11 +143,26 @@
         }
 
 
+        @DisplayName("[GET], [Happy Path], [Method] = getAllTeachers, [Expected] = 304 when not modified since, Teachers are not loaded")
+        @Test
+        void getAllTeachersNotModified() throws Exception {
+            when(teacherService.getTeachersVersion()).thenReturn(VERSION);
+
+            mockMvc.perform(get(TEACHERS)
+                    .header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 04 May 2020 10:15:30 GMT"))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+
+            verify(teacherService, never()).getAllTeachers();
+        }
+
+
         @DisplayName("[GET], [Happy Path], [Method] = getAllTeachers")
         @Test
         void getAllTeachers() throws Exception {
             List<TeacherDTO> teacherDTOList = Arrays.asList(createEthan(), createBenjamin(), createAria());
 
+            when(teacherService.getTeachersVersion()).thenReturn(VERSION);
             when(teacherService.getAllTeachers()).thenReturn(teacherDTOList);
 
             mockMvc.perform(get(TEACHERS)
@@ -142,6 +170,7 @@
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(asJsonString(teacherDTOList)))
                     .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"teachers-3-7-1588587330000\""))
                     .andExpect(jsonPath("$.teachers", hasSize(3)));
         }
 
@@ -187,19 +216,77 @@
         }
 
 
+        @DisplayName("[GET], [Happy Path], [Method] = getTeachersWorkload")
+        @Test
+        void getTeachersWorkload() throws Exception {
+            TeacherWorkloadDTO workload = new TeacherWorkloadDTO(ID, ETHAN.get(), COOPER.get(), 4L, 2L, 2500.0, 25L, 30L);
+
+            when(teacherService.getTeachersWorkload("classSize", "desc", 0, 10))
+                    .thenReturn(new PageDTO<>(Collections.singletonList(workload), 0, 10, 1, 1));
+
+            mockMvc.perform(get(TEACHERS + "workload?sort=classSize&direction=desc&page=0&size=10")
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].classSize", equalTo(25)))
+                    .andExpect(jsonPath("$.content[0].studentsExamined", equalTo(30)))
+                    .andExpect(jsonPath("$.totalElements", equalTo(1)));
+        }
+
+
+        @DisplayName("[GET], [Unhappy Path], [Method] = getTeachersWorkload, [Reason] = Unknown sort property")
+        @Test
+        void getTeachersWorkloadUnknownSort() throws Exception {
+            when(teacherService.getTeachersWorkload("salary", null, null, null))
+                    .thenThrow(new BadRequestException("Workload can not be sorted by salary"));
+
+            mockMvc.perform(get(TEACHERS + "workload?sort=salary"))
+                    .andExpect(status().isBadRequest());
+        }
+
+
+        @DisplayName("[GET], [Happy Path], [Method] = getRoster")
+        @Test
+        void getRoster() throws Exception {
+            RosterEntryDTO entry = new RosterEntryDTO(2L, ARIA.get(), COOPER.get(), FEMALE, null, "aria@school.com");
+
+            when(teacherService.getRoster(ID, FEMALE, null, null))
+                    .thenReturn(new PageDTO<>(Collections.singletonList(entry), 0, 20, 1, 1));
+
+            mockMvc.perform(get(TEACHERS + "1/roster?gender=female")
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].firstName", equalTo(ARIA.get())))
+                    .andExpect(jsonPath("$.content[0].email", equalTo("aria@school.com")));
+        }
+
+
+        @DisplayName("[GET], [Unhappy Path], [Method] = getRoster, [Reason] = Unknown gender")
+        @Test
+        void getRosterUnknownGender() throws Exception {
+            mockMvc.perform(get(TEACHERS + "1/roster?gender=unknown"))
+                    .andExpect(status().isBadRequest());
+
+            verify(teacherService, never()).getRoster(any(), any(), any(), any());
+        }
+
+
         @DisplayName("[POST], [Happy Path], [Method] = addExamForClass")
         @Test
         void addExamForClass() throws Exception {
             ExamDTO examDTO = createExamDTO();
 
-            when(teacherService.addExamForClass(anyLong(), any(ExamDTO.class))).thenReturn(examDTO);
+            when(teacherService.addExamForClass(anyLong(), any(ExamDTO.class)))
+                    .thenReturn(new ExamEnrollmentDTO(5L, NAME, "1A", 25));
 
             mockMvc.perform(post(TEACHERS + "addExamToClass/teacher-1")
                     .accept(MediaType.APPLICATION_JSON)
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(asJsonString(examDTO)))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$.name", equalTo(NAME)));
+                    .andExpect(jsonPath("$.examName", equalTo(NAME)))
+                    .andExpect(jsonPath("$.enrolled", equalTo(25)));
         }
 
 
@@ -408,6 +495,7 @@
         @Test
         public void testNotFoundException() throws Exception {
 
+            when(teacherService.getTeacherVersion(anyLong())).thenThrow(ResourceNotFoundException.class);
             when(teacherService.getTeacherByID(anyLong())).thenThrow(ResourceNotFoundException.class);
 
             mockMvc.perform(get(TEACHERS + "getByID/teacher-222")
@@ -0,0 +1,85 @@
+package adrianromanski.restschool.domain;
+
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchoolClockTest {
+
+    private static final ZoneId WARSAW = ZoneId.of("Europe/Warsaw");
+
+    @AfterEach
+    void tearDown() {
+        SchoolClock.useSystemClock();
+    }
+
+    // Clock moved by the test, SchoolClock keeps reading it after today is cached
+    private static final class MovingClock extends Clock {
+        private Instant instant;
+        private final ZoneId zone;
+
+        private MovingClock(Instant instant, ZoneId zone) {
+            this.instant = instant;
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new MovingClock(instant, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = today, Date of the fixed clock")
+    @Test
+    void today() {
+        SchoolClock.useClock(Clock.fixed(Instant.parse("2020-05-04T10:15:30Z"), ZoneOffset.UTC));
+
+        assertEquals(LocalDate.of(2020, 5, 4), SchoolClock.today());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = today, Cached day moves at midnight of the clock's zone")
+    @Test
+    void todayAtMidnight() {
+        MovingClock clock = new MovingClock(Instant.parse("2020-05-04T21:59:59Z"), WARSAW);
+        SchoolClock.useClock(clock);
+        assertEquals(LocalDate.of(2020, 5, 4), SchoolClock.today());
+
+        clock.instant = Instant.parse("2020-05-04T22:00:00Z");
+        assertEquals(LocalDate.of(2020, 5, 5), SchoolClock.today());
+
+        clock.instant = Instant.parse("2020-05-03T12:00:00Z");
+        assertEquals(LocalDate.of(2020, 5, 3), SchoolClock.today());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = useSystemClock, Pinned clock is replaced")
+    @Test
+    void useSystemClock() {
+        SchoolClock.useClock(Clock.fixed(Instant.parse("2000-01-01T00:00:00Z"), ZoneOffset.UTC));
+
+        SchoolClock.useSystemClock();
+
+        assertEquals(LocalDate.now(), SchoolClock.today());
+    }
+}
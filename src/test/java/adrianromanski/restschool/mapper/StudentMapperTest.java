@@ -1,11 +1,17 @@
 package adrianromanski.restschool.mapper;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
 import adrianromanski.restschool.domain.person.Student;
 import adrianromanski.restschool.mapper.person.StudentMapper;
 import adrianromanski.restschool.model.person.StudentDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 
 import static adrianromanski.restschool.domain.enums.Gender.MALE;
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,6 +26,17 @@ class StudentMapperTest {
 
     StudentMapper studentMapper = StudentMapper.INSTANCE;
 
+    @BeforeEach
+    void setUp() {
+        // AGE is the one on this day
+        SchoolClock.useClock(Clock.fixed(Instant.parse("2020-05-04T10:15:30Z"), ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SchoolClock.useSystemClock();
+    }
+
     @Test
     public void studentToStudentDTO() {
         //given
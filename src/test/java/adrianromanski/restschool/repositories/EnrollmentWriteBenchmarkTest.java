@@ -0,0 +1,166 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.base_entity.BaseEntity;
+import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.person.Student;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Write cost of a single enrollment, measured in JDBC statements sent on flush while the number of
+ * exams the Student is already enrolled in grows. Before the join tables were mapped as Sets every
+ * change rewrote all rows of the Student (delete + n inserts), now it is one statement whatever n is.
+ * The old mapping is kept as the ListStudent fixture, so both costs are measured side by side
+ */
+@Slf4j
+// without JDBC batching every row written to the join tables is one statement
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+                           "spring.jpa.properties.hibernate.jdbc.batch_size=0"})
+class EnrollmentWriteBenchmarkTest {
+
+    private static final int EXAMS = 50;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long studentId;
+    private Long listStudentId;
+    private final List<Long> examIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        studentId = entityManager.persist(Student.builder().firstName("Ethan").lastName("Cooper").build()).getId();
+        listStudentId = entityManager.persist(new ListStudent()).getId();
+        for (int i = 0; i < EXAMS; i++) {
+            examIds.add(entityManager.persist(Exam.builder().name("Exam " + i).maxPoints(100L).build()).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @DisplayName("[Benchmark], Enrolling in one more exam costs one statement, however many exams came before")
+    @Test
+    void enrollmentWriteCost() {
+        List<Long> costs = new ArrayList<>();
+        for (Long examId : examIds) {
+            Student student = entityManager.find(Student.class, studentId);
+            student.getExams().size();
+            student.getExams().add(entityManager.find(Exam.class, examId));
+            costs.add(flushCost());
+        }
+        log.info("Statements per enrollment with 0.." + (EXAMS - 1) + " previous exams: " + costs);
+
+        assertThat(costs).containsOnly(1L);
+    }
+
+    @DisplayName("[Benchmark], Baseline, enrolling a List mapped Student rewrites every previous exam")
+    @Test
+    void enrollmentWriteCostOfList() {
+        List<Long> costs = new ArrayList<>();
+        for (Long examId : examIds) {
+            ListStudent student = entityManager.find(ListStudent.class, listStudentId);
+            student.getExams().size();
+            student.getExams().add(entityManager.find(Exam.class, examId));
+            costs.add(flushCost());
+        }
+        log.info("Baseline statements per enrollment with 0.." + (EXAMS - 1) + " previous exams: " + costs);
+
+        assertThat(costs.get(EXAMS - 1)).isGreaterThan(costs.get(0));
+        assertThat(costs.get(EXAMS - 1)).isGreaterThanOrEqualTo(EXAMS);
+    }
+
+    @DisplayName("[Benchmark], Baseline, leaving one exam of a List mapped Student rewrites the others")
+    @Test
+    void withdrawalWriteCostOfList() {
+        ListStudent student = entityManager.find(ListStudent.class, listStudentId);
+        examIds.forEach(examId -> student.getExams().add(entityManager.find(Exam.class, examId)));
+        entityManager.flush();
+        entityManager.clear();
+
+        ListStudent enrolled = entityManager.find(ListStudent.class, listStudentId);
+        enrolled.getExams().remove(entityManager.find(Exam.class, examIds.get(EXAMS / 2)));
+        long cost = flushCost();
+        log.info("Baseline statements to leave one of " + EXAMS + " exams: " + cost);
+
+        assertThat(cost).isGreaterThanOrEqualTo(EXAMS);
+    }
+
+    @DisplayName("[Benchmark], Leaving one exam costs one statement")
+    @Test
+    void withdrawalWriteCost() {
+        Student student = entityManager.find(Student.class, studentId);
+        examIds.forEach(examId -> student.getExams().add(entityManager.find(Exam.class, examId)));
+        entityManager.flush();
+        entityManager.clear();
+
+        Student enrolled = entityManager.find(Student.class, studentId);
+        enrolled.getExams().remove(entityManager.find(Exam.class, examIds.get(EXAMS / 2)));
+        long cost = flushCost();
+        log.info("Statements to leave one of " + EXAMS + " exams: " + cost);
+
+        assertThat(cost).isEqualTo(1L);
+    }
+
+    @DisplayName("[Benchmark], Adding one subject costs one statement")
+    @Test
+    void subjectWriteCost() {
+        Student student = entityManager.find(Student.class, studentId);
+        for (Subjects name : Subjects.values()) {
+            student.getSubjects().add(entityManager.persist(Subject.builder().name(name).value(1L).build()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Student enrolled = entityManager.find(Student.class, studentId);
+        enrolled.getSubjects().size();
+        enrolled.getSubjects().add(entityManager.persist(Subject.builder().name(Subjects.HISTORY).value(2L).build()));
+        entityManager.flush();
+        statistics.clear();
+        enrolled.getSubjects().remove(enrolled.getSubjects().iterator().next());
+        long cost = flushCost();
+        log.info("Statements to drop one of " + (Subjects.values().length + 1) + " subjects: " + cost);
+
+        assertThat(cost).isEqualTo(1L);
+    }
+
+    private long flushCost() {
+        statistics.clear();
+        entityManager.flush();
+        entityManager.clear();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Student.exams as it was mapped before, a List bag without an order column
+    @Entity
+    @Getter
+    static class ListStudent extends BaseEntity {
+
+        @ManyToMany
+        @JoinTable(name = "list_student_exams")
+        private List<Exam> exams = new ArrayList<>();
+    }
+}
@@ -0,0 +1,180 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.group.StudentClass;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import adrianromanski.restschool.repositories.event.ExamDate;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ExamRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    ExamRepository examRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private StudentClass studentClass;
+
+    @BeforeEach
+    void setUp() {
+        studentClass = entityManager.persist(StudentClass.builder().name("1A").build());
+        StudentClass otherClass = entityManager.persist(StudentClass.builder().name("1B").build());
+        for (int i = 0; i < 30; i++) {
+            Student student = entityManager.persist(Student.builder().firstName("Student" + i).lastName("Enrolled").build());
+            student.setStudentClass(i < 25 ? studentClass : otherClass);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @DisplayName("[Enrollment], Whole class is enrolled with a single statement")
+    @Test
+    void enrollStudentClass() {
+        Exam exam = examRepository.save(Exam.builder().name("Final Math").maxPoints(100L).build());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        int enrolled = examRepository.enrollStudentClass(exam.getId(), studentClass.getId());
+
+        assertEquals(25, enrolled);
+        // the pending insert of the Exam and the enrollment itself
+        assertEquals(2, statistics.getPrepareStatementCount());
+        entityManager.clear();
+        assertEquals(25, examRepository.findById(exam.getId()).map(e -> e.getStudents().size()).orElse(0));
+    }
+
+    @DisplayName("[Reschedule], Exams of one Teacher in the range are selected once and moved with one statement per day")
+    @Test
+    void rescheduleByTeacher() {
+        Teacher teacher = entityManager.persist(Teacher.builder().firstName("Logan").lastName("Closed").build());
+        Teacher other = entityManager.persist(Teacher.builder().firstName("Isaac").lastName("Open").build());
+        Exam first = persistExam("First", LocalDate.of(2020, 5, 4), teacher);
+        Exam second = persistExam("Second", LocalDate.of(2020, 5, 8), teacher);
+        Exam later = persistExam("Later", LocalDate.of(2020, 5, 9), teacher);
+        Exam otherTeacher = persistExam("Other", LocalDate.of(2020, 5, 4), other);
+        entityManager.flush();
+        Long version = first.getVersion();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ExamDate> exams = examRepository.findAllToRescheduleByTeacher(teacher.getId(), LocalDate.of(2020, 5, 4),
+                                                                           LocalDate.of(2020, 5, 8));
+        int rescheduled = exams.stream()
+                .mapToInt(exam -> examRepository.reschedule(Collections.singletonList(exam.getId()), exam.getDate(),
+                                                            exam.getDate().plusDays(7), Instant.now()))
+                .sum();
+
+        assertEquals(2, rescheduled);
+        assertEquals(3, statistics.getPrepareStatementCount());
+        Exam moved = examRepository.findById(first.getId()).orElseThrow(IllegalStateException::new);
+        assertEquals(LocalDate.of(2020, 5, 11), moved.getDate());
+        assertNotEquals(version, moved.getVersion());
+        assertEquals(LocalDate.of(2020, 5, 15), dateOf(second));
+        assertEquals(LocalDate.of(2020, 5, 9), dateOf(later));
+        assertEquals(LocalDate.of(2020, 5, 4), dateOf(otherTeacher));
+    }
+
+    @DisplayName("[Reschedule], Exams taken by Students of the class are moved")
+    @Test
+    void rescheduleByStudentClass() {
+        Exam enrolled = persistExam("Enrolled", LocalDate.of(2020, 5, 4), null);
+        Exam notEnrolled = persistExam("Not enrolled", LocalDate.of(2020, 5, 4), null);
+        entityManager.flush();
+        examRepository.enrollStudentClass(enrolled.getId(), studentClass.getId());
+
+        List<ExamDate> exams = examRepository.findAllToRescheduleByStudentClass(studentClass.getId(),
+                                                                                LocalDate.of(2020, 5, 4),
+                                                                                LocalDate.of(2020, 5, 4));
+        int rescheduled = examRepository.reschedule(exams.stream().map(ExamDate::getId).collect(toList()),
+                                                    LocalDate.of(2020, 5, 4), LocalDate.of(2020, 5, 3), Instant.now());
+
+        assertEquals(1, exams.size());
+        assertEquals(1, rescheduled);
+        assertEquals(LocalDate.of(2020, 5, 3), dateOf(enrolled));
+        assertEquals(LocalDate.of(2020, 5, 4), dateOf(notEnrolled));
+    }
+
+    @DisplayName("[Reschedule], An Exam moved meanwhile to another day is left alone")
+    @Test
+    void rescheduleMovedMeanwhile() {
+        Exam exam = persistExam("Moved", LocalDate.of(2020, 5, 5), null);
+        entityManager.flush();
+
+        int rescheduled = examRepository.reschedule(Collections.singletonList(exam.getId()), LocalDate.of(2020, 5, 4),
+                                                    LocalDate.of(2020, 5, 11), Instant.now());
+
+        assertEquals(0, rescheduled);
+        assertEquals(LocalDate.of(2020, 5, 5), dateOf(exam));
+    }
+
+    @DisplayName("[Version], Version of an Exam moves with its Results and Teacher")
+    @Test
+    void summarizeVersionById() {
+        Teacher teacher = entityManager.persist(Teacher.builder().firstName("Logan").lastName("Closed").build());
+        Exam exam = persistExam("Versioned", LocalDate.of(2020, 5, 4), teacher);
+        entityManager.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        VersionSummary created = examRepository.summarizeVersionById(exam.getId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, created.getTotal());
+
+        ExamResult result = entityManager.persist(ExamResult.builder().name("Versioned").score(50).exam(exam).build());
+        entityManager.flush();
+        VersionSummary added = examRepository.summarizeVersionById(exam.getId());
+        assertNotEquals(created.getVersions(), added.getVersions());
+        assertEquals(1, added.getTotal());
+
+        result.setScore(60);
+        entityManager.flush();
+        VersionSummary updated = examRepository.summarizeVersionById(exam.getId());
+        assertNotEquals(added.getVersions(), updated.getVersions());
+
+        teacher.setLastName("Renamed");
+        entityManager.flush();
+        VersionSummary renamed = examRepository.summarizeVersionById(exam.getId());
+        assertNotEquals(updated.getVersions(), renamed.getVersions());
+        assertEquals(teacher.getLastModified(), renamed.getLastModified());
+
+        entityManager.remove(result);
+        entityManager.flush();
+        assertNotEquals(renamed.getVersions(), examRepository.summarizeVersionById(exam.getId()).getVersions());
+        assertEquals(0, examRepository.summarizeVersionById(-1L).getTotal());
+    }
+
+    private Exam persistExam(String name, LocalDate date, Teacher teacher) {
+        Exam exam = entityManager.persist(Exam.builder().name(name).date(date).maxPoints(100L).build());
+        exam.setTeacher(teacher);
+        return exam;
+    }
+
+    private LocalDate dateOf(Exam exam) {
+        return examRepository.findById(exam.getId()).map(Exam::getDate).orElse(null);
+    }
+}
@@ -0,0 +1,165 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.domain.event.GuardianNotification;
+import adrianromanski.restschool.domain.person.Guardian;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.mapper.event.ExamResultMapper;
+import adrianromanski.restschool.model.event.ExamScoresDTO;
+import adrianromanski.restschool.model.event.ExamScoresResultDTO;
+import adrianromanski.restschool.model.event.StudentScoreDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.GradeDistributionRepository;
+import adrianromanski.restschool.repositories.event.ScoreStatisticsRepository;
+import adrianromanski.restschool.repositories.event.GuardianNotificationRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.event.exam_result.ExamResultService;
+import adrianromanski.restschool.services.event.exam_result.ExamResultServiceImpl;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionServiceImpl;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationServiceImpl;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of grading a whole exam at once, measured in JDBC statements. Every score is validated with two queries,
+ * the results, the outbox notifications, the grade distribution and the score statistics are written in JDBC batches,
+ * so the cost does not grow with the class
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ExamResultIngestBenchmarkTest {
+
+    private static final int STUDENTS = 500;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ExamRepository examRepository;
+
+    @Autowired
+    ExamResultRepository examResultRepository;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    GuardianNotificationRepository notificationRepository;
+
+    @Autowired
+    ScoreStatisticsRepository scoreStatisticsRepository;
+
+    @Autowired
+    GradeDistributionRepository gradeDistributionRepository;
+
+    GuardianNotificationServiceImpl notificationService;
+    GradeDistributionService gradeDistributionService;
+    ExamResultService examResultService;
+
+    private Long examId;
+    private final List<Long> studentIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        notificationService = new GuardianNotificationServiceImpl(notificationRepository, (recipient, message) -> { },
+                studentRepository, transactionManager, 100, 1, 5, 1000, 300000, 10000);
+        gradeDistributionService = new GradeDistributionServiceImpl(gradeDistributionRepository, examRepository,
+                                                                    examResultRepository, transactionManager);
+        examResultService = new ExamResultServiceImpl(examResultRepository, ExamResultMapper.INSTANCE,
+                examRepository, studentRepository, notificationService, gradeDistributionService,
+                new ScoreStatisticsServiceImpl(scoreStatisticsRepository, examResultRepository, studentRepository,
+                                               transactionManager),
+                gradeBandService());
+
+        examId = entityManager.persist(Exam.builder().name("Algebra").maxPoints(100L).build()).getId();
+        Guardian guardian = entityManager.persist(Guardian.builder().firstName("Mary").lastName("Cooper").build());
+        guardian.setContact(entityManager.persist(GuardianContact.builder().email("mary@home.com").build()));
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = entityManager.persist(Student.builder().firstName("Student " + i).lastName("Cooper")
+                                                           .build());
+            student.setGuardian(guardian);
+            studentIds.add(student.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private GradeBandService gradeBandService() {
+        GradeBandService gradeBandService = mock(GradeBandService.class);
+        when(gradeBandService.getBands()).thenReturn(GradeBands.DEFAULT);
+        return gradeBandService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationService.shutdown();
+    }
+
+    @DisplayName("[Benchmark], Grading " + STUDENTS + " Students costs a fixed number of statements")
+    @Test
+    void createExamResults() {
+        List<StudentScoreDTO> scores = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            scores.add(new StudentScoreDTO(studentIds.get(i), (float) (i % 100)));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ExamScoresResultDTO result = examResultService.createExamResults(examId,
+                new ExamScoresDTO(LocalDate.of(2020, 6, 1), scores));
+        entityManager.flush();
+        long cost = statistics.getPrepareStatementCount();
+        log.info("Statements to grade " + STUDENTS + " Students: " + cost);
+        entityManager.clear();
+
+        // scores 0..34 of every hundred fail
+        assertEquals(STUDENTS, result.getCreated().intValue());
+        assertEquals(175L, result.getGrades().get("F").longValue());
+        assertEquals(175, result.getNotified().intValue());
+        assertEquals(STUDENTS, examResultRepository.count());
+        assertEquals(175L, notificationRepository.count());
+        // exam, student ids, already graded students, grade distribution of the exam read locked, its missing rows
+        // inserted in their own transaction and read again, student classes, score statistics the same way,
+        // guardians of failing students, then a batch per table and a sequence call for every table whose block
+        // of ids was not reserved by an earlier test
+        assertTrue(cost <= 19);
+
+        List<ExamResult> results = examResultRepository.findAll();
+        assertTrue(results.stream().allMatch(examResult -> examResult.getGrade() != null));
+        GuardianNotification notification = notificationRepository.findAll().get(0);
+        assertEquals("mary@home.com", notification.getRecipient());
+        assertEquals(175L, gradeDistributionService.getExamHistogram(examId).getGrades().get(5).getCount());
+    }
+}
@@ -0,0 +1,242 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.base_entity.contact.TeacherContact;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.domain.event.SchoolYear;
+import adrianromanski.restschool.domain.group.StudentClass;
+import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.mapper.event.ExamResultMapper;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.event.ExamResultDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.GradeDistributionRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.event.exam_result.ExamResultService;
+import adrianromanski.restschool.services.event.exam_result.ExamResultServiceImpl;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionServiceImpl;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ExamResultRepositoryTest {
+
+    // band boundaries of 70 maxPoints, where rounding differences would show first
+    private static final List<Float> SCORES = Arrays.asList(0f, 24.5f, 24.49f, 31.5f, 38.5f, 49f, 59.5f, 70f);
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    ExamResultRepository examResultRepository;
+
+    @Autowired
+    ExamRepository examRepository;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    GradeDistributionRepository gradeDistributionRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    ExamResultService examResultService;
+
+    Exam exam;
+    Exam otherExam;
+
+    @BeforeEach
+    void setUp() {
+        examResultService = new ExamResultServiceImpl(examResultRepository, ExamResultMapper.INSTANCE, examRepository,
+                                                      studentRepository, null,
+                                                      new GradeDistributionServiceImpl(gradeDistributionRepository,
+                                                                                       examRepository,
+                                                                                       examResultRepository,
+                                                                                       transactionManager),
+                                                      mock(ScoreStatisticsService.class), gradeBandService());
+
+        exam = entityManager.persist(Exam.builder().name("Algebra").maxPoints(70L).build());
+        exam.setSubject(entityManager.persist(Subject.builder().name(Subjects.MATHEMATICS).value(1L).build()));
+        exam.setTeacher(persistTeacher("Jan", "1A"));
+        otherExam = entityManager.persist(Exam.builder().name("Biology").maxPoints(100L).build());
+        otherExam.setSubject(entityManager.persist(Subject.builder().name(Subjects.BIOLOGY).value(1L).build()));
+        otherExam.setTeacher(persistTeacher("Anna", "2B"));
+        SCORES.forEach(score -> entityManager.persist(ExamResult.builder().name("Algebra").date(LocalDate.now())
+                                                                .score(score).exam(exam).build()));
+        entityManager.persist(ExamResult.builder().name("Biology").date(LocalDate.now()).score(10).exam(otherExam)
+                                        .build());
+        entityManager.persist(ExamResult.builder().name("Biology").date(LocalDate.now()).score(90).exam(otherExam)
+                                        .build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private GradeBandService gradeBandService() {
+        GradeBandService gradeBandService = mock(GradeBandService.class);
+        when(gradeBandService.getBands()).thenReturn(GradeBands.DEFAULT);
+        return gradeBandService;
+    }
+
+    private Teacher persistTeacher(String firstName, String className) {
+        Teacher teacher = entityManager.persist(Teacher.builder().firstName(firstName).lastName(className).build());
+        teacher.setContact(entityManager.persist(TeacherContact.builder().email(firstName + "@school.com").build()));
+        StudentClass studentClass = entityManager.persist(StudentClass.builder().name(className).build());
+        studentClass.setSchoolYear(entityManager.persist(SchoolYear.builder().name(className + " year").build()));
+        studentClass.setTeacher(teacher);
+        teacher.setStudentClass(studentClass);
+        return teacher;
+    }
+
+    @DisplayName("[Grade], Passed and failed results with their Exam and Subject are read with one statement")
+    @Test
+    void getPassedAndFailed() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ExamResultDTO> failed = examResultService.getAllNotPassedExamResults();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(3, failed.size());
+        assertTrue(failed.stream().allMatch(result -> result.getGrade().equals("F")));
+        assertEquals(Arrays.asList("Algebra", "Algebra", "Biology"), failed.stream()
+                .map(result -> result.getExamDTO().getName()).sorted().collect(toList()));
+        assertEquals(7, examResultService.getAllPassedExamResults().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @DisplayName("[Subject], Passed results of a Subject are the ones without F, read with one statement")
+    @Test
+    void getPassedAndFailedForSubject() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ExamResultDTO> passed = examResultService.getAllPassedForSubject(Subjects.BIOLOGY.get());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, passed.size());
+        assertEquals("A", passed.get(0).getGrade());
+        assertEquals("Biology", passed.get(0).getExamDTO().getName());
+
+        List<ExamResultDTO> failed = examResultService.getAllNotPassedForSubject(Subjects.BIOLOGY.get());
+        assertEquals(1, failed.size());
+        assertEquals("F", failed.get(0).getGrade());
+        assertEquals(6, examResultService.getAllPassedForSubject(Subjects.MATHEMATICS.get()).size());
+        assertEquals(2, examResultService.getAllNotPassedForSubject(Subjects.MATHEMATICS.get()).size());
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @DisplayName("[Page], Page of results of a Subject is read with two statements whatever its size")
+    @Test
+    void getExamResultsPage() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        PageDTO<ExamResultDTO> first = examResultService.getExamResultsPage(true, Subjects.MATHEMATICS.get(), 0, 4);
+
+        // page and count
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(6, first.getTotalElements());
+        assertEquals(4, first.getContent().size());
+
+        statistics.clear();
+        PageDTO<ExamResultDTO> last = examResultService.getExamResultsPage(true, Subjects.MATHEMATICS.get(), 1, 4);
+
+        // the last page is shorter than its size so no count is needed
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(2, last.getContent().size());
+        assertTrue(last.getContent().stream().noneMatch(result -> first.getContent().stream()
+                .anyMatch(previous -> previous.getId().equals(result.getId()))));
+
+        PageDTO<ExamResultDTO> failed = examResultService.getExamResultsPage(false, null, 0, 20);
+        assertEquals(3, failed.getContent().size());
+        assertEquals(0, examResultService.getExamResultsPage(false, "Astrology", 0, 20).getTotalElements());
+    }
+
+    @DisplayName("[Regrade], Results of one Exam are graded again with one statement, versions are bumped")
+    @Test
+    void regrade() {
+        Map<Grade, Integer> minPercentages = new EnumMap<>(Grade.class);
+        minPercentages.put(Grade.A, 90);
+        minPercentages.put(Grade.B, 80);
+        minPercentages.put(Grade.C, 60);
+        minPercentages.put(Grade.D, 50);
+        minPercentages.put(Grade.E, 40);
+        GradeBands bands = GradeBands.of(minPercentages);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        int regraded = examResultRepository.regrade(exam.getId(), 70L, bands.minScore(Grade.A, 70L),
+                bands.minScore(Grade.B, 70L), bands.minScore(Grade.C, 70L), bands.minScore(Grade.D, 70L),
+                bands.minScore(Grade.E, 70L), Instant.now());
+
+        assertEquals(SCORES.size(), regraded);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        List<ExamResult> results = examResultRepository.findAll();
+        List<ExamResult> algebra = results.stream()
+                .filter(result -> result.getExam().getId().equals(exam.getId())).collect(toList());
+        // the database and the in-memory table agree on every boundary
+        algebra.forEach(result -> assertEquals(bands.grade(result.getScore(), 70L), result.getGrade()));
+        algebra.forEach(result -> assertEquals(1L, result.getVersion().longValue()));
+        assertEquals(Grade.F, results.stream().filter(result -> result.getExam().getId().equals(otherExam.getId()))
+                                     .findFirst().get().getGrade());
+    }
+
+    @DisplayName("[Regrade], The UPDATE grades the same rows as ExamResult.grade, scores above maxPoints keep their grade")
+    @Test
+    void regradeMatchesGrade() {
+        GradeBands bands = GradeBands.DEFAULT;
+        Map<Long, Grade> expected = new HashMap<>();
+        examResultRepository.findAll().stream()
+                .filter(result -> result.getExam().getId().equals(exam.getId()))
+                .forEach(result -> {
+                    result.getExam().setMaxPoints(50L);
+                    result.grade(bands);
+                    expected.put(result.getId(), result.getGrade());
+                });
+        entityManager.clear();
+
+        examResultRepository.regrade(exam.getId(), 50L, bands.minScore(Grade.A, 50L), bands.minScore(Grade.B, 50L),
+                bands.minScore(Grade.C, 50L), bands.minScore(Grade.D, 50L), bands.minScore(Grade.E, 50L),
+                Instant.now());
+
+        List<ExamResult> results = examResultRepository.findAll().stream()
+                .filter(result -> result.getExam().getId().equals(exam.getId())).collect(toList());
+        assertEquals(SCORES.size(), results.size());
+        results.forEach(result -> assertEquals(expected.get(result.getId()), result.getGrade()));
+        assertTrue(results.stream().anyMatch(result -> result.getScore() > 50 && result.getGrade() != null));
+    }
+}
@@ -0,0 +1,303 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.domain.event.GradeDistribution;
+import adrianromanski.restschool.mapper.event.ExamResultMapper;
+import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamResultDTO;
+import adrianromanski.restschool.model.event.GradeCountDTO;
+import adrianromanski.restschool.model.event.GradeHistogramDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.GradeDistributionRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.event.exam_result.ExamResultService;
+import adrianromanski.restschool.services.event.exam_result.ExamResultServiceImpl;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionServiceImpl;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The grade distribution is kept up to date by every write of an Exam Result and always agrees
+ * with a rebuild from the results themselves
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class GradeDistributionRepositoryTest {
+
+    private static final LocalDate DATE = LocalDate.of(2020, 6, 1);
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    GradeDistributionRepository gradeDistributionRepository;
+
+    @Autowired
+    ExamResultRepository examResultRepository;
+
+    @Autowired
+    ExamRepository examRepository;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    GradeDistributionService gradeDistributionService;
+    ExamResultService examResultService;
+
+    Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        gradeDistributionService = new GradeDistributionServiceImpl(gradeDistributionRepository, examRepository,
+                                                                    examResultRepository, transactionManager);
+        examResultService = new ExamResultServiceImpl(examResultRepository, ExamResultMapper.INSTANCE, examRepository,
+                                                      studentRepository, mock(GuardianNotificationService.class),
+                                                      gradeDistributionService, mock(ScoreStatisticsService.class),
+                                                      gradeBandService());
+
+        exam = entityManager.persist(Exam.builder().name("Algebra").maxPoints(100L).build());
+        exam.setSubject(entityManager.persist(Subject.builder().name(Subjects.MATHEMATICS).value(1L).build()));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private GradeBandService gradeBandService() {
+        GradeBandService gradeBandService = mock(GradeBandService.class);
+        when(gradeBandService.getBands()).thenReturn(GradeBands.DEFAULT);
+        return gradeBandService;
+    }
+
+    private ExamResultDTO initResultDTO(LocalDate date, float score) {
+        ExamDTO examDTO = ExamDTO.builder().name("Algebra").maxPoints(100L).build();
+        examDTO.setId(exam.getId());
+        ExamResultDTO examResultDTO = ExamResultDTO.builder().name("Algebra").date(date).score(score).build();
+        examResultDTO.setExamDTO(examDTO);
+        return examResultDTO;
+    }
+
+    private void create(LocalDate date, float... scores) {
+        for (float score : scores) {
+            examResultService.createExamResult(initResultDTO(date, score));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long findResultId(float score) {
+        return examResultRepository.findAll().stream()
+                .filter(result -> result.getScore() == score)
+                .map(ExamResult::getId)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private List<Long> counts(GradeHistogramDTO histogram) {
+        return histogram.getGrades().stream().map(GradeCountDTO::getCount).collect(toList());
+    }
+
+    // emptied rows are kept by the writes and dropped by a rebuild
+    private List<String> snapshot() {
+        return gradeDistributionRepository.findAllByExamId(exam.getId()).stream()
+                .filter(row -> row.getTotal() > 0)
+                .map(row -> row.getExamId() + " " + row.getSubject() + " " + row.getDate() + " " + row.getGrade()
+                            + " " + row.getTotal() + " " + row.getScoreSum())
+                .sorted()
+                .collect(toList());
+    }
+
+
+    @DisplayName("[Create], Every result is counted in the row of its Exam, date and Grade")
+    @Test
+    void create() {
+        create(DATE, 90, 95, 60, 10);
+        create(DATE.plusDays(1), 90);
+
+        List<GradeDistribution> rows = gradeDistributionRepository.findAllByExamId(exam.getId());
+        assertEquals(4, rows.size());
+        GradeHistogramDTO histogram = gradeDistributionService.getExamHistogram(exam.getId());
+        assertEquals(Arrays.asList(3L, 0L, 1L, 0L, 0L, 1L), counts(histogram));
+        assertEquals(5, histogram.getTotal());
+        assertEquals(275d / 3, histogram.getGrades().get(0).getAverageScore(), 0.0001);
+        assertEquals(Subjects.MATHEMATICS, rows.get(0).getSubject());
+    }
+
+
+    @DisplayName("[Update], Updated result moves from the row of its old Grade to the new one")
+    @Test
+    void update() {
+        create(DATE, 90, 10);
+        Long id = findResultId(90);
+
+        examResultService.updateExamResult(id, initResultDTO(DATE, 60));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(Arrays.asList(0L, 0L, 1L, 0L, 0L, 1L),
+                     counts(gradeDistributionService.getExamHistogram(exam.getId())));
+        // the emptied row of A is kept for the next result
+        assertEquals(Arrays.asList("A 0", "C 1", "F 1"), gradeDistributionRepository.findAllByExamId(exam.getId())
+                .stream()
+                .map(row -> row.getGrade() + " " + row.getTotal())
+                .sorted()
+                .collect(toList()));
+    }
+
+
+    @DisplayName("[Update], Result updated with the same Grade and date is counted in its emptied row again")
+    @Test
+    void updateSameGrade() {
+        create(DATE, 90);
+
+        examResultService.updateExamResult(findResultId(90), initResultDTO(DATE, 95));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<GradeDistribution> rows = gradeDistributionRepository.findAllByExamId(exam.getId());
+        assertEquals(1, rows.size());
+        assertEquals(1, rows.get(0).getTotal());
+        assertEquals(95d, rows.get(0).getScoreSum());
+    }
+
+
+    @DisplayName("[Create], A second row of the same Exam, date and Grade is rejected")
+    @Test
+    void createDuplicateRow() {
+        create(DATE, 90);
+
+        Throwable ex = catchThrowable(() -> {
+            entityManager.persist(new GradeDistribution(exam.getId(), Subjects.MATHEMATICS, DATE, Grade.A, 1, 90));
+            entityManager.flush();
+        });
+
+        assertThat(ex).isInstanceOf(PersistenceException.class);
+    }
+
+
+    @DisplayName("[Create], A row without a date is rejected, the unique index would never match it")
+    @Test
+    void createUndatedRow() {
+        Throwable ex = catchThrowable(() -> {
+            entityManager.persist(new GradeDistribution(exam.getId(), Subjects.MATHEMATICS, null, Grade.A, 1, 90));
+            entityManager.flush();
+        });
+
+        assertThat(ex).isInstanceOf(PersistenceException.class);
+    }
+
+
+    @DisplayName("[Rebuild], Results saved without a date are dated today and counted in one row per Grade")
+    @Test
+    void rebuildUndated() {
+        create(DATE, 90, 95, 10);
+        entityManager.getEntityManager().createQuery("update ExamResult r set r.date = null where r.exam.id = :examId")
+                     .setParameter("examId", exam.getId())
+                     .executeUpdate();
+
+        assertEquals(2, gradeDistributionService.rebuildExam(exam.getId()));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertTrue(examResultRepository.findAll().stream()
+                           .filter(result -> result.getExam().getId().equals(exam.getId()))
+                           .allMatch(result -> SchoolClock.today().equals(result.getDate())));
+        List<String> rows = snapshot();
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().allMatch(row -> row.contains(" " + SchoolClock.today() + " ")));
+    }
+
+
+    @DisplayName("[Delete], Deleted result is uncounted")
+    @Test
+    void delete() {
+        create(DATE, 90, 10, 20);
+
+        examResultService.deleteExamResultByID(findResultId(10));
+        entityManager.flush();
+        entityManager.clear();
+
+        GradeHistogramDTO histogram = gradeDistributionService.getExamHistogram(exam.getId());
+        assertEquals(Arrays.asList(1L, 0L, 0L, 0L, 0L, 1L), counts(histogram));
+        assertEquals(20d, histogram.getGrades().get(5).getAverageScore());
+    }
+
+
+    @DisplayName("[Rebuild], Incrementally kept rows are the same as the ones rebuilt from the results")
+    @Test
+    void rebuildAll() {
+        create(DATE, 90, 95, 60, 10);
+        create(DATE.plusDays(1), 45, 50);
+        examResultService.updateExamResult(findResultId(95), initResultDTO(DATE.plusDays(1), 35));
+        examResultService.deleteExamResultByID(findResultId(60));
+        entityManager.flush();
+        entityManager.clear();
+        List<String> incremental = snapshot();
+
+        assertEquals(4, gradeDistributionService.rebuildAll());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(incremental, snapshot());
+    }
+
+
+    @DisplayName("[Histogram], Histograms read only the distribution with one statement")
+    @Test
+    void histograms() {
+        create(DATE, 90, 60, 10);
+        create(DATE.plusDays(2), 70, 20);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        GradeHistogramDTO subject = gradeDistributionService.getSubjectHistogram(Subjects.MATHEMATICS.get(),
+                                                                                 DATE.plusDays(1), null);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(Arrays.asList(0L, 1L, 0L, 0L, 0L, 1L), counts(subject));
+
+        List<GradeHistogramDTO> daily = gradeDistributionService.getDailyHistograms(DATE, DATE.plusDays(7));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(Arrays.asList(DATE, DATE.plusDays(2)),
+                     daily.stream().map(GradeHistogramDTO::getDate).collect(toList()));
+        assertEquals(3, daily.get(0).getTotal());
+        assertEquals(Grade.A, daily.get(0).getGrades().get(0).getGrade());
+        assertEquals(0, gradeDistributionService.getSubjectHistogram(Subjects.BIOLOGY.get(), null, null).getTotal());
+    }
+}
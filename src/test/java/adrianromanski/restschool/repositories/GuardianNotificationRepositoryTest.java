@@ -0,0 +1,94 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.enums.NotificationStatus;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GuardianNotification;
+import adrianromanski.restschool.domain.person.Guardian;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.repositories.event.GuardianNotificationRepository;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationService;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+class GuardianNotificationRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    GuardianNotificationRepository notificationRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @DisplayName("[Outbox], Only pending notifications that are due, oldest first and limited to the batch")
+    @Test
+    void findDue() {
+        Instant now = Instant.parse("2020-05-04T10:15:30Z");
+        persist("later", now.plusSeconds(60), NotificationStatus.PENDING);
+        persist("second", now.minusSeconds(10), NotificationStatus.PENDING);
+        persist("first", now.minusSeconds(20), NotificationStatus.PENDING);
+        persist("third", now, NotificationStatus.PENDING);
+        persist("sent", now.minusSeconds(30), NotificationStatus.SENT);
+        persist("failed", now.minusSeconds(30), NotificationStatus.FAILED);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<GuardianNotification> due = notificationRepository.findDue(NotificationStatus.PENDING, now,
+                                                                        PageRequest.of(0, 2));
+
+        assertEquals(Arrays.asList("first", "second"), due.stream().map(GuardianNotification::getMessage).collect(toList()));
+        assertEquals(4, notificationRepository.countByStatus(NotificationStatus.PENDING));
+    }
+
+    @DisplayName("[Outbox], Names and Exam name of the longest allowed length fit in the message, errors are cut")
+    @Test
+    void enqueueLongExamName() {
+        String longName = String.join("", Collections.nCopies(255, "x"));
+        Guardian guardian = entityManager.persist(Guardian.builder().firstName(longName).lastName(longName).build());
+        Student student = entityManager.persist(Student.builder().firstName(longName).lastName(longName).build());
+        student.setGuardian(guardian);
+        Exam exam = entityManager.persist(Exam.builder().name(longName).maxPoints(100L).build());
+        ExamResult examResult = entityManager.persist(new ExamResult(longName, LocalDate.of(2020, 5, 4), 0, exam,
+                                                                     student));
+        GuardianNotificationService notificationService = new GuardianNotificationServiceImpl(
+                notificationRepository, (recipient, message) -> { }, null, transactionManager, 100, 1, 5, 1000,
+                300000, 10000);
+
+        assertTrue(notificationService.enqueueIfFailed(examResult));
+        GuardianNotification notification = notificationRepository.findAll().stream()
+                .filter(enqueued -> examResult.getId().equals(enqueued.getExamResultId())).findFirst().get();
+        notification.setLastError(String.join("", Collections.nCopies(5000, "e")));
+        entityManager.flush();
+        entityManager.clear();
+
+        GuardianNotification stored = notificationRepository.findById(notification.getId()).get();
+        assertTrue(stored.getMessage().endsWith(longName + " on 2020-05-04"));
+        assertEquals(GuardianNotification.ERROR_LENGTH, stored.getLastError().length());
+    }
+
+    private void persist(String message, Instant nextAttemptAt, NotificationStatus status) {
+        GuardianNotification notification = GuardianNotification.builder().guardianId(1L).message(message)
+                                                                 .nextAttemptAt(nextAttemptAt).build();
+        notification.setStatus(status);
+        entityManager.persist(notification);
+    }
+}
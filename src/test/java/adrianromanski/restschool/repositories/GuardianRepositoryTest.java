@@ -0,0 +1,241 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.base_entity.address.GuardianAddress;
+import adrianromanski.restschool.domain.base_entity.address.StudentAddress;
+import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
+import adrianromanski.restschool.domain.base_entity.contact.StudentContact;
+import adrianromanski.restschool.domain.base_entity.contact.TeacherContact;
+import adrianromanski.restschool.domain.enums.Sport;
+import adrianromanski.restschool.domain.event.SchoolYear;
+import adrianromanski.restschool.domain.group.SportTeam;
+import adrianromanski.restschool.domain.group.StudentClass;
+import adrianromanski.restschool.domain.group.TeachingStaff;
+import adrianromanski.restschool.domain.person.Director;
+import adrianromanski.restschool.domain.person.Guardian;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.mapper.base_entity.GuardianAddressMapper;
+import adrianromanski.restschool.mapper.base_entity.GuardianContactMapper;
+import adrianromanski.restschool.mapper.person.GuardianMapper;
+import adrianromanski.restschool.mapper.person.StudentMapper;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.person.HouseholdDTO;
+import adrianromanski.restschool.repositories.base_entity.AddressRepository;
+import adrianromanski.restschool.repositories.base_entity.ContactRepository;
+import adrianromanski.restschool.repositories.person.AgeCount;
+import adrianromanski.restschool.repositories.person.ChildrenCount;
+import adrianromanski.restschool.repositories.person.GuardianRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.person.guardian.GuardianService;
+import adrianromanski.restschool.services.person.guardian.GuardianServiceImpl;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class GuardianRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    GuardianRepository guardianRepository;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    AddressRepository addressRepository;
+
+    @Autowired
+    ContactRepository contactRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    GuardianService guardianService;
+
+    Long cooperId;
+
+    @BeforeEach
+    void setUp() {
+        guardianService = new GuardianServiceImpl(GuardianMapper.INSTANCE, GuardianAddressMapper.INSTANCE,
+                GuardianContactMapper.INSTANCE, StudentMapper.INSTANCE, guardianRepository, addressRepository,
+                contactRepository, studentRepository, new PersonSearchIndex());
+
+        Director director = entityManager.persist(Director.builder().firstName("Walter").lastName("White").build());
+        SchoolYear schoolYear = entityManager.persist(SchoolYear.builder().name("2020/2021").build());
+        TeachingStaff teachingStaff = entityManager.persist(TeachingStaff.builder().name("Staff").build());
+        schoolYear.setDirector(director);
+        schoolYear.setTeachingStaff(teachingStaff);
+        teachingStaff.setSchoolYear(schoolYear);
+
+        StudentClass firstClass = persistClass("1A", "Jan", schoolYear, teachingStaff);
+        StudentClass secondClass = persistClass("2B", "Anna", schoolYear, teachingStaff);
+        SportTeam sportTeam = entityManager.persist(SportTeam.builder().name("Sharks").sport(Sport.SWIMMING).build());
+        sportTeam.setSchoolYear(schoolYear);
+
+        Guardian cooper = persistGuardian("Mary", "Cooper");
+        Guardian henderson = persistGuardian("Lucas", "Henderson");
+        persistGuardian("Zoe", "Abbott");
+
+        persistStudent("Ethan", "Cooper", cooper, firstClass, sportTeam);
+        persistStudent("Abigail", "Cooper", cooper, secondClass, null);
+        persistStudent("Charlotte", "Henderson", henderson, secondClass, sportTeam);
+        entityManager.flush();
+        entityManager.clear();
+        cooperId = cooper.getId();
+    }
+
+    @DisplayName("[Household], Guardian with children, contacts, addresses and classes is read with two statements")
+    @Test
+    void getHousehold() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        HouseholdDTO household = guardianService.getHousehold(cooperId);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("mary@home.com", household.getGuardian().getContactDTO().getEmail());
+        assertEquals("Warsaw", household.getGuardian().getAddressDTO().getCity());
+        assertEquals(Arrays.asList("Abigail", "Ethan"), household.getChildren().stream()
+                .map(child -> child.getStudent().getFirstName()).collect(toList()));
+        assertEquals(Arrays.asList("2B", "1A"), household.getChildren().stream()
+                .map(child -> child.getStudentClass().getName()).collect(toList()));
+        assertEquals("ethan@school.com", household.getChildren().get(1).getStudent().getContactDTO().getEmail());
+    }
+
+    @DisplayName("[Households], Page of households is read with three statements whatever its size")
+    @Test
+    void getHouseholds() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        PageDTO<HouseholdDTO> first = guardianService.getHouseholds(0, 2);
+
+        // page, count and the children of every Guardian on the page
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(3, first.getTotalElements());
+        List<HouseholdDTO> households = first.getContent();
+        assertEquals(Arrays.asList("Abbott", "Cooper"), households.stream()
+                .map(household -> household.getGuardian().getLastName()).collect(toList()));
+        assertEquals(Collections.emptyList(), households.get(0).getChildren());
+        assertEquals(2, households.get(1).getChildren().size());
+
+        statistics.clear();
+        PageDTO<HouseholdDTO> last = guardianService.getHouseholds(1, 2);
+
+        // the last page is shorter than its size so no count is needed
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("Charlotte", last.getContent().get(0).getChildren().get(0).getStudent().getFirstName());
+    }
+
+    @DisplayName("[Age], Brackets are computed and counted by the database without loading any Guardian")
+    @Test
+    void countByAgeBracket() {
+        setDatesOfBirth();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<AgeCount> histogram = guardianRepository.countByAgeBracket(LocalDate.of(2020, 11, 3), 10);
+
+        // 39 on 2020-11-03 and 40 the day after, Guardians without dateOfBirth are not counted
+        assertEquals(2, histogram.size());
+        assertEquals(30L, histogram.get(0).getAge().longValue());
+        assertEquals(1L, histogram.get(0).getTotal().longValue());
+        assertEquals(40L, histogram.get(1).getAge().longValue());
+        assertEquals(1L, histogram.get(1).getTotal().longValue());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        assertEquals(1, guardianRepository.countByAgeBracket(LocalDate.of(2020, 11, 4), 20).size());
+    }
+
+    @DisplayName("[Age], Drill-down returns Guardians born in the range of one bracket")
+    @Test
+    void findPageByDateOfBirthRange() {
+        setDatesOfBirth();
+        LocalDate today = LocalDate.of(2020, 11, 4);
+
+        Page<Guardian> page = guardianRepository.findPageByDateOfBirthRange(today.minusYears(50), today.minusYears(40),
+                                                                            PageRequest.of(0, 10));
+
+        assertEquals(Arrays.asList("Cooper", "Henderson"),
+                     page.getContent().stream().map(Guardian::getLastName).collect(toList()));
+    }
+
+    @DisplayName("[Children], Guardians are counted by number of children, childless Guardians are the 0 row")
+    @Test
+    void countByChildren() {
+        List<ChildrenCount> histogram = guardianRepository.countByChildren();
+
+        assertEquals(Arrays.asList(0L, 1L, 2L), histogram.stream().map(ChildrenCount::getChildren).collect(toList()));
+        assertEquals(Arrays.asList(1L, 1L, 1L), histogram.stream().map(ChildrenCount::getTotal).collect(toList()));
+
+        Page<Guardian> page = guardianRepository.findPageByChildren(2, PageRequest.of(0, 10));
+        assertEquals(Collections.singletonList("Cooper"),
+                     page.getContent().stream().map(Guardian::getLastName).collect(toList()));
+        assertEquals("Abbott", guardianRepository.findPageByChildren(0, PageRequest.of(0, 10))
+                                                 .getContent().get(0).getLastName());
+    }
+
+    private void setDatesOfBirth() {
+        guardianRepository.findAll().forEach(guardian -> {
+            if (guardian.getLastName().equals("Cooper")) {
+                guardian.setDateOfBirth(LocalDate.of(1980, 11, 4));
+            } else if (guardian.getLastName().equals("Henderson")) {
+                guardian.setDateOfBirth(LocalDate.of(1975, 1, 1));
+            }
+        });
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private StudentClass persistClass(String name, String teacherName, SchoolYear schoolYear,
+                                      TeachingStaff teachingStaff) {
+        Teacher teacher = entityManager.persist(Teacher.builder().firstName(teacherName).lastName(name).build());
+        teacher.setContact(entityManager.persist(TeacherContact.builder().email(teacherName + "@school.com").build()));
+        teacher.setTeachingStaff(teachingStaff);
+        StudentClass studentClass = entityManager.persist(StudentClass.builder().name(name).build());
+        studentClass.setTeacher(teacher);
+        studentClass.setSchoolYear(schoolYear);
+        teacher.setStudentClass(studentClass);
+        return studentClass;
+    }
+
+    private Guardian persistGuardian(String firstName, String lastName) {
+        Guardian guardian = entityManager.persist(Guardian.builder().firstName(firstName).lastName(lastName).build());
+        String email = firstName.toLowerCase() + "@home.com";
+        guardian.setContact(entityManager.persist(GuardianContact.builder().email(email).build()));
+        guardian.setAddress(entityManager.persist(GuardianAddress.builder().city("Warsaw").build()));
+        return guardian;
+    }
+
+    private void persistStudent(String firstName, String lastName, Guardian guardian, StudentClass studentClass,
+                                SportTeam sportTeam) {
+        Student student = entityManager.persist(Student.builder().firstName(firstName).lastName(lastName).build());
+        String email = firstName.toLowerCase() + "@school.com";
+        student.setContact(entityManager.persist(StudentContact.builder().email(email).build()));
+        student.setAddress(entityManager.persist(StudentAddress.builder().city("Warsaw").build()));
+        student.setGuardian(guardian);
+        student.setStudentClass(studentClass);
+        student.setSportTeam(sportTeam);
+    }
+}
@@ -0,0 +1,325 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.enums.ScoreScope;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.domain.event.ScoreSketch;
+import adrianromanski.restschool.domain.event.ScoreStatistics;
+import adrianromanski.restschool.domain.group.StudentClass;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import adrianromanski.restschool.mapper.event.ExamResultMapper;
+import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamResultDTO;
+import adrianromanski.restschool.model.event.ExamScoresDTO;
+import adrianromanski.restschool.model.event.ScoreStatisticsDTO;
+import adrianromanski.restschool.model.event.StudentScoreDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.ScoreStatisticsRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.event.exam_result.ExamResultService;
+import adrianromanski.restschool.services.event.exam_result.ExamResultServiceImpl;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Score sketches are kept up to date by every write of an Exam Result, survive a cleared persistence context
+ * and always agree with a rebuild from the results themselves
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ScoreStatisticsRepositoryTest {
+
+    private static final LocalDate DATE = LocalDate.of(2020, 6, 1);
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    ScoreStatisticsRepository scoreStatisticsRepository;
+
+    @Autowired
+    ExamResultRepository examResultRepository;
+
+    @Autowired
+    ExamRepository examRepository;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    ScoreStatisticsService scoreStatisticsService;
+    ExamResultService examResultService;
+
+    Exam exam;
+    StudentClass studentClass;
+    List<Long> studentIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scoreStatisticsService = new ScoreStatisticsServiceImpl(scoreStatisticsRepository, examResultRepository,
+                                                                studentRepository, transactionManager);
+        examResultService = new ExamResultServiceImpl(examResultRepository, ExamResultMapper.INSTANCE, examRepository,
+                                                      studentRepository, mock(GuardianNotificationService.class),
+                                                      mock(GradeDistributionService.class), scoreStatisticsService,
+                                                      gradeBandService());
+
+        exam = entityManager.persist(Exam.builder().name("Algebra").maxPoints(100L).build());
+        exam.setSubject(entityManager.persist(Subject.builder().name(Subjects.MATHEMATICS).value(1L).build()));
+        studentClass = entityManager.persist(StudentClass.builder().name("Math").build());
+        for (int i = 0; i < 4; i++) {
+            Student student = entityManager.persist(Student.builder().firstName("Ethan" + i).lastName("Henderson")
+                                                           .build());
+            // the last Student has no class
+            if (i < 3) {
+                student.setStudentClass(studentClass);
+            }
+            studentIds.add(student.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private GradeBandService gradeBandService() {
+        GradeBandService gradeBandService = mock(GradeBandService.class);
+        when(gradeBandService.getBands()).thenReturn(GradeBands.DEFAULT);
+        return gradeBandService;
+    }
+
+    private ExamResultDTO initResultDTO(Long studentId, float score) {
+        ExamDTO examDTO = ExamDTO.builder().name("Algebra").maxPoints(100L).build();
+        examDTO.setId(exam.getId());
+        ExamResultDTO examResultDTO = ExamResultDTO.builder().name("Algebra").date(DATE).score(score).build();
+        examResultDTO.setExamDTO(examDTO);
+        examResultDTO.setStudentId(studentId);
+        return examResultDTO;
+    }
+
+    private void createAll(float... scores) {
+        List<StudentScoreDTO> studentScores = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            studentScores.add(new StudentScoreDTO(studentIds.get(i), scores[i]));
+        }
+        examResultService.createExamResults(exam.getId(), new ExamScoresDTO(DATE, studentScores));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long findResultId(float score) {
+        return examResultRepository.findAll().stream()
+                .filter(result -> result.getScore() == score)
+                .map(ExamResult::getId)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    // sums are rounded as floating point additions in another order may differ in the last bits, emptied sketches
+    // are kept by the writes and dropped by a rebuild
+    private List<String> snapshot() {
+        return scoreStatisticsRepository.findAll().stream()
+                .filter(row -> row.getTotal() != 0)
+                .map(row -> row.getScope() + " " + row.getScopeId() + " " + row.getTotal() + " "
+                            + Math.round(row.getScoreSum() * 1000) + " " + Math.round(row.getSquareSum() * 1000)
+                            + " " + Arrays.toString(row.getBuckets()))
+                .sorted()
+                .collect(toList());
+    }
+
+
+    @DisplayName("[Create], Every result is counted in the sketch of its Exam, Subject and Student Class")
+    @Test
+    void create() {
+        createAll(90, 60, 30);
+        examResultService.createExamResult(initResultDTO(studentIds.get(3), 80));
+        entityManager.flush();
+        entityManager.clear();
+
+        ScoreStatisticsDTO examStatistics = scoreStatisticsService.getExamStatistics(exam.getId());
+        assertEquals(4, examStatistics.getCount());
+        assertEquals(65d, examStatistics.getMean(), 0.0001);
+        assertEquals(Math.sqrt(525), examStatistics.getStandardDeviation(), 0.0001);
+        assertEquals(30d, examStatistics.getMin());
+        assertEquals(60d, examStatistics.getMedian());
+        assertEquals(90d, examStatistics.getP90());
+        assertEquals(4, scoreStatisticsService.getSubjectStatistics(Subjects.MATHEMATICS.get()).getCount());
+        ScoreStatisticsDTO classStatistics = scoreStatisticsService.getStudentClassStatistics(studentClass.getId());
+        assertEquals(3, classStatistics.getCount());
+        assertEquals(60d, classStatistics.getMean(), 0.0001);
+        assertEquals(3, scoreStatisticsRepository.findAllByScopeIds(Collections.singleton(exam.getId()),
+                Collections.singleton((long) Subjects.MATHEMATICS.ordinal()),
+                Collections.singleton(studentClass.getId())).size());
+    }
+
+
+    @DisplayName("[Create], Scores posted again are rejected and not counted twice")
+    @Test
+    void createAgain() {
+        createAll(90, 60);
+
+        Throwable ex = catchThrowable(() -> createAll(90, 60));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        assertEquals(2, examResultRepository.count());
+        assertEquals(2, scoreStatisticsService.getExamStatistics(exam.getId()).getCount());
+    }
+
+
+    @DisplayName("[Update], Updated result is moved within its sketches, deleted ones removed exactly")
+    @Test
+    void updateAndDelete() {
+        createAll(90, 60, 30);
+        Long id = findResultId(90);
+
+        examResultService.updateExamResult(id, initResultDTO(studentIds.get(0), 50));
+        examResultService.deleteExamResultByID(findResultId(30));
+        entityManager.flush();
+        entityManager.clear();
+
+        ScoreStatisticsDTO examStatistics = scoreStatisticsService.getExamStatistics(exam.getId());
+        assertEquals(2, examStatistics.getCount());
+        assertEquals(55d, examStatistics.getMean(), 0.0001);
+        assertEquals(50d, examStatistics.getMin());
+        assertEquals(60d, examStatistics.getMax());
+
+        examResultService.deleteExamResultByID(findResultId(50));
+        examResultService.deleteExamResultByID(findResultId(60));
+        entityManager.flush();
+        entityManager.clear();
+
+        // emptied sketches are kept empty
+        assertEquals(0, scoreStatisticsRepository.findByScopeAndScopeId(ScoreScope.EXAM, exam.getId())
+                .map(ScoreStatistics::getTotal).orElse(-1L).longValue());
+        assertNull(scoreStatisticsService.getExamStatistics(exam.getId()).getMedian());
+    }
+
+
+    @DisplayName("[Update], Result of a Student moved to another class is removed from the class it was counted in")
+    @Test
+    void moveStudent() {
+        createAll(90, 60, 30);
+        StudentClass otherClass = entityManager.persist(StudentClass.builder().name("Biology").build());
+        Student student = studentRepository.findById(studentIds.get(0)).orElseThrow(IllegalStateException::new);
+        student.setStudentClass(otherClass);
+        entityManager.flush();
+        entityManager.clear();
+
+        examResultService.deleteExamResultByID(findResultId(90));
+        entityManager.flush();
+        entityManager.clear();
+
+        ScoreStatisticsDTO classStatistics = scoreStatisticsService.getStudentClassStatistics(studentClass.getId());
+        assertEquals(2, classStatistics.getCount());
+        assertEquals(45d, classStatistics.getMean(), 0.0001);
+        assertEquals(60d, classStatistics.getMax());
+        assertEquals(0, scoreStatisticsService.getStudentClassStatistics(otherClass.getId()).getCount());
+        List<String> incremental = snapshot();
+        scoreStatisticsService.rebuildAll();
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(incremental, snapshot());
+    }
+
+
+    @DisplayName("[Rebuild], Incrementally kept sketches are the same as the ones rebuilt from the results")
+    @Test
+    void rebuildAll() {
+        createAll(90, 95.5f, 60.25f, 10);
+        examResultService.updateExamResult(findResultId(95.5f), initResultDTO(studentIds.get(1), 35));
+        examResultService.deleteExamResultByID(findResultId(10));
+        entityManager.flush();
+        entityManager.clear();
+        List<String> incremental = snapshot();
+
+        assertEquals(3, scoreStatisticsService.rebuildAll());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(incremental, snapshot());
+    }
+
+
+    @DisplayName("[Move], Sketch of an Exam follows its new Subject without reading a result")
+    @Test
+    void moveExam() {
+        createAll(90, 60);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        scoreStatisticsService.moveExam(exam.getId(), Subjects.MATHEMATICS, Subjects.BIOLOGY);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(0, statistics.getEntityStatistics(ExamResult.class.getName()).getLoadCount());
+        assertEquals(0, scoreStatisticsService.getSubjectStatistics(Subjects.MATHEMATICS.get()).getCount());
+        assertEquals(75d, scoreStatisticsService.getSubjectStatistics(Subjects.BIOLOGY.get()).getMean(), 0.0001);
+    }
+
+
+    @DisplayName("[Lock], Only the sketches of the given scope and id pairs are read")
+    @Test
+    void findAllByScopeIds() {
+        // an id no Subject or Student Class has, shared by both scopes
+        long scopeId = -1;
+        entityManager.persist(new ScoreStatistics(ScoreScope.SUBJECT, scopeId, ScoreSketch.of(0, 0, 0, null)));
+        entityManager.persist(new ScoreStatistics(ScoreScope.STUDENT_CLASS, scopeId, ScoreSketch.of(0, 0, 0, null)));
+        entityManager.flush();
+
+        List<ScoreStatistics> rows = scoreStatisticsRepository.findAllByScopeIds(Collections.singleton(null),
+                Collections.singleton(scopeId), Collections.singleton(null));
+
+        assertEquals(1, rows.size());
+        assertEquals(ScoreScope.SUBJECT, rows.get(0).getScope());
+    }
+
+
+    @DisplayName("[Statistics], Statistics read only their sketch with one statement")
+    @Test
+    void statistics() {
+        createAll(90, 60, 30, 45);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ScoreStatisticsDTO subject = scoreStatisticsService.getSubjectStatistics(Subjects.MATHEMATICS.get());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(ExamResult.class.getName()).getLoadCount());
+        assertEquals(4, subject.getCount());
+        assertEquals(30d, subject.getP10());
+        assertEquals(45d, subject.getMedian());
+    }
+}
@@ -0,0 +1,478 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.base_entity.address.GuardianAddress;
+import adrianromanski.restschool.domain.base_entity.address.StudentAddress;
+import adrianromanski.restschool.domain.base_entity.address.TeacherAddress;
+import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
+import adrianromanski.restschool.domain.base_entity.contact.StudentContact;
+import adrianromanski.restschool.domain.base_entity.contact.TeacherContact;
+import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.domain.enums.Sport;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.SchoolYear;
+import adrianromanski.restschool.domain.group.SportTeam;
+import adrianromanski.restschool.domain.group.StudentClass;
+import adrianromanski.restschool.domain.group.TeachingStaff;
+import adrianromanski.restschool.domain.person.Director;
+import adrianromanski.restschool.domain.person.Guardian;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.mapper.person.StudentMapper;
+import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import adrianromanski.restschool.repositories.person.AgeCount;
+import adrianromanski.restschool.repositories.person.LocationCount;
+import adrianromanski.restschool.repositories.person.RosterEntry;
+import adrianromanski.restschool.repositories.person.StudentExportRow;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static adrianromanski.restschool.domain.enums.Gender.FEMALE;
+import static adrianromanski.restschool.domain.enums.Gender.MALE;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class StudentRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        persistStudent("Ethan", "Cooper", MALE, LocalDate.of(1992, 11, 3));
+        persistStudent("Abigail", "Cooper", FEMALE, LocalDate.of(1992, 11, 3));
+        persistStudent("Sebastian", "Rodriguez", MALE, LocalDate.of(1995, 1, 10));
+        persistStudent("Charlotte", "Henderson", FEMALE, LocalDate.of(1990, 5, 20));
+        persistStudent("Oliver", "Adams", MALE, null);
+        persistStudent("Liam", "Baker", MALE, null);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Student persistStudent(String firstName, String lastName, Gender gender, LocalDate dateOfBirth) {
+        return entityManager.persist(Student.builder().firstName(firstName).lastName(lastName)
+                                            .gender(gender).dateOfBirth(dateOfBirth).build());
+    }
+
+    private void persistAddresses() {
+        List<Student> students = studentRepository.findAll();
+        setAddress(students.get(0), "Poland", "Warsaw");
+        setAddress(students.get(1), "Poland", "Warsaw");
+        setAddress(students.get(2), "Poland", "Krakow");
+        setAddress(students.get(3), "Spain", "Madrid");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void setAddress(Student student, String country, String city) {
+        StudentAddress address = StudentAddress.builder().country(country).city(city).build();
+        address.setStudent(student);
+        student.setAddress(entityManager.persist(address));
+    }
+
+    // Same walk as StudentServiceImpl.getStudentsPage, dated Students first then the ones of unknown birth
+    private List<String> walkKeysetPages(int size) {
+        List<String> names = new ArrayList<>();
+        List<Student> page = studentRepository.findFirstKeysetPage(PageRequest.of(0, size));
+        while (!page.isEmpty()) {
+            names.addAll(page.stream().map(student -> student.getFirstName() + " " + student.getLastName())
+                                      .collect(toList()));
+            Student last = page.get(page.size() - 1);
+            if (last.getDateOfBirth() == null) {
+                page = studentRepository.findKeysetPageAfterUnknownBirth(last.getLastName(), last.getFirstName(),
+                                                                         last.getId(), PageRequest.of(0, size));
+            } else {
+                page = new ArrayList<>(studentRepository.findKeysetPageAfter(last.getDateOfBirth(), last.getLastName(),
+                        last.getFirstName(), last.getId(), PageRequest.of(0, size)));
+                if (page.size() < size) {
+                    page.addAll(studentRepository.findFirstUnknownBirthPage(PageRequest.of(0, size - page.size())));
+                }
+            }
+        }
+        return names;
+    }
+
+    @DisplayName("[Keyset], Walking all pages returns every Student once in order")
+    @Test
+    void keysetPagination() {
+        List<String> expected = new ArrayList<>();
+        expected.add("Sebastian Rodriguez");
+        expected.add("Abigail Cooper");
+        expected.add("Ethan Cooper");
+        expected.add("Charlotte Henderson");
+        expected.add("Oliver Adams");
+        expected.add("Liam Baker");
+        assertEquals(expected, walkKeysetPages(2));
+    }
+
+    @DisplayName("[Keyset], Students with missing names sort first among their ties and are neither skipped nor repeated")
+    @Test
+    void keysetPaginationMissingNames() {
+        persistStudent("Mia", null, FEMALE, LocalDate.of(1992, 11, 3));
+        persistStudent(null, "Cooper", MALE, LocalDate.of(1992, 11, 3));
+        persistStudent("Noah", null, MALE, null);
+        persistStudent(null, null, MALE, null);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> expected = Arrays.asList("Sebastian Rodriguez", "Mia null", "null Cooper", "Abigail Cooper",
+                                              "Ethan Cooper", "Charlotte Henderson", "null null", "Noah null",
+                                              "Oliver Adams", "Liam Baker");
+        for (int size = 1; size <= 4; size++) {
+            assertEquals(expected, walkKeysetPages(size));
+        }
+    }
+
+    @DisplayName("[Export], Exported rows carry Contact and Address columns only, no Student is loaded")
+    @Test
+    void streamAllForExport() {
+        persistAddresses();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<StudentExportRow> rows;
+        try (Stream<StudentExportRow> stream = studentRepository.streamAllForExport()) {
+            rows = stream.collect(toList());
+        }
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(6, rows.size());
+        assertEquals(4, rows.stream().filter(row -> row.getAddressId() != null).count());
+        assertEquals(Arrays.asList("Krakow", "Madrid", "Warsaw", "Warsaw"), rows.stream()
+                .map(StudentExportRow::getCity).filter(Objects::nonNull).sorted().collect(toList()));
+        assertTrue(rows.stream().allMatch(row -> row.getContactId() == null && row.getEmail() == null));
+    }
+
+    @DisplayName("[Gender], Only Students with matching gender are returned")
+    @Test
+    void findAllByGender() {
+        List<String> names = studentRepository.findAllByGender(MALE)
+                                                .stream()
+                                                .map(Student::getFirstName)
+                                                .sorted()
+                                                .collect(toList());
+
+        assertEquals(Arrays.asList("Ethan", "Liam", "Oliver", "Sebastian"), names);
+    }
+
+    @DisplayName("[Gender], Page of Students with matching gender")
+    @Test
+    void findPageByGender() {
+        Page<Student> page = studentRepository.findPageByGender(MALE, PageRequest.of(1, 3));
+
+        assertEquals(1, page.getContent().size());
+        assertEquals("Liam", page.getContent().get(0).getFirstName());
+        assertEquals(4, page.getTotalElements());
+        assertEquals(2, page.getTotalPages());
+    }
+
+    @DisplayName("[Age], Histogram is counted by the database, birthday later in the year is not counted yet")
+    @Test
+    void countByAge() {
+        List<AgeCount> histogram = studentRepository.countByAge(LocalDate.of(2020, 11, 3));
+
+        assertEquals(3, histogram.size());
+        assertEquals(25L, histogram.get(0).getAge().longValue());
+        assertEquals(1L, histogram.get(0).getTotal().longValue());
+        assertEquals(28L, histogram.get(1).getAge().longValue());
+        assertEquals(2L, histogram.get(1).getTotal().longValue());
+        assertEquals(30L, histogram.get(2).getAge().longValue());
+        assertEquals(1L, histogram.get(2).getTotal().longValue());
+    }
+
+    @DisplayName("[Age], Drill-down returns Students born in the range of one age")
+    @Test
+    void findPageByDateOfBirthRange() {
+        LocalDate today = LocalDate.of(2020, 11, 3);
+        Page<Student> page = studentRepository.findPageByDateOfBirthRange(today.minusYears(29), today.minusYears(28),
+                                                                          PageRequest.of(0, 10));
+
+        assertEquals(Arrays.asList("Abigail", "Ethan"),
+                     page.getContent().stream().map(Student::getFirstName).collect(toList()));
+    }
+
+    @DisplayName("[Location], Rollup counts Students without an address in the null bucket")
+    @Test
+    void countByLocation() {
+        persistAddresses();
+
+        List<LocationCount> rollup = studentRepository.countByLocation();
+
+        assertEquals(4, rollup.size());
+        assertEquals("Krakow", rollup.get(0).getCity());
+        assertEquals(1L, rollup.get(0).getTotal().longValue());
+        assertEquals("Warsaw", rollup.get(1).getCity());
+        assertEquals(2L, rollup.get(1).getTotal().longValue());
+        assertEquals("Spain", rollup.get(2).getCountry());
+        assertNull(rollup.get(3).getCountry());
+        assertEquals(2L, rollup.get(3).getTotal().longValue());
+    }
+
+    @DisplayName("[Location], Members of a known and of the unknown location")
+    @Test
+    void findPageByLocation() {
+        persistAddresses();
+
+        Page<Student> warsaw = studentRepository.findPageByLocation("Poland", "Warsaw", PageRequest.of(0, 10));
+        Page<Student> unknown = studentRepository.findPageByLocation(null, null, PageRequest.of(0, 10));
+
+        assertEquals(Arrays.asList("Abigail", "Ethan"),
+                     warsaw.getContent().stream().map(Student::getFirstName).collect(toList()));
+        assertEquals(Arrays.asList("Oliver", "Liam"),
+                     unknown.getContent().stream().map(Student::getFirstName).collect(toList()));
+        assertEquals(2, unknown.getTotalElements());
+    }
+
+    @DisplayName("[Ids], Ids follow the order of inserts, like with identity columns")
+    @Test
+    void idsAreStable() {
+        List<Student> students = studentRepository.findAll();
+        Long first = students.stream().map(Student::getId).min(Long::compare).orElse(0L);
+
+        assertEquals("Ethan", studentRepository.findById(first).map(Student::getFirstName).orElse(null));
+        assertEquals("Liam", studentRepository.findById(first + 5).map(Student::getFirstName).orElse(null));
+    }
+
+    @DisplayName("[Ids], Inserts are sent in JDBC batches")
+    @Test
+    void insertsAreBatched() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 100; i++) {
+            persistStudent("Student" + i, "Batch", MALE, LocalDate.of(2005, 1, 1));
+        }
+        entityManager.flush();
+
+        assertEquals(100, statistics.getEntityInsertCount());
+        // a single insert statement and at most one sequence call for the whole block of ids
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @DisplayName("[Versions], Summary moves with updates and inserts, a Student rebuilt from a DTO is merged")
+    @Test
+    void summarizeVersions() {
+        Student stored = studentRepository.findAll().get(0);
+        Long version = stored.getVersion();
+        VersionSummary before = studentRepository.summarizeVersions();
+
+        Student updated = Student.builder().firstName("Changed").lastName(stored.getLastName()).build();
+        updated.setId(stored.getId());
+        updated.setVersion(version);
+        studentRepository.saveAndFlush(updated);
+        entityManager.clear();
+
+        VersionSummary afterUpdate = studentRepository.summarizeVersions();
+        assertEquals(6, afterUpdate.getTotal());
+        assertEquals(before.getVersions() + 1, afterUpdate.getVersions());
+        assertEquals(version + 1, studentRepository.summarizeVersionById(stored.getId()).getVersions());
+        assertEquals("Changed", studentRepository.findById(stored.getId()).map(Student::getFirstName).orElse(null));
+
+        persistStudent("Mia", "Young", FEMALE, null);
+        entityManager.flush();
+        assertEquals(7, studentRepository.summarizeVersions().getTotal());
+        assertEquals(0, studentRepository.summarizeVersionById(-1L).getTotal());
+    }
+
+    @DisplayName("[Detail], Whole aggregate is loaded with two statements, mapping it does not hit the database")
+    @Test
+    void findDetailById() {
+        Long id = persistDetailGraph();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Student student = studentRepository.findDetailById(id).orElseThrow(IllegalStateException::new);
+        studentRepository.fetchDetailExams(id);
+        StudentDTO studentDTO = StudentMapper.INSTANCE.studentToStudentDTO(student);
+        student.getGuardian().getContact();
+        student.getStudentClass().getTeacher().getTeachingStaff().getSchoolYear().getDirector();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("Warsaw", studentDTO.getAddressDTO().getCity());
+        assertEquals("ethan@school.com", studentDTO.getContactDTO().getEmail());
+        assertEquals("1A", studentDTO.getStudentClassDTO().getName());
+        assertEquals("Sharks", studentDTO.getSportTeamDTO().getName());
+        assertEquals(2, studentDTO.getSubjectsDTO().size());
+        assertEquals(3, studentDTO.getExamsDTO().size());
+    }
+
+    @DisplayName("[Detail], Unknown id returns empty Optional")
+    @Test
+    void findDetailByIdNotFound() {
+        assertEquals(Optional.empty(), studentRepository.findDetailById(-1L));
+    }
+
+    @DisplayName("[Guardian], Children of one or many Guardians are read with a single query")
+    @Test
+    void findAllByGuardianId() {
+        Guardian cooper = entityManager.persist(Guardian.builder().firstName("Ava").lastName("Cooper").build());
+        Guardian henderson = entityManager.persist(Guardian.builder().firstName("Mia").lastName("Henderson").build());
+        Guardian childless = entityManager.persist(Guardian.builder().firstName("Zoe").lastName("Single").build());
+        for (Student student : studentRepository.findAll()) {
+            if (student.getLastName().equals("Cooper")) {
+                student.setGuardian(cooper);
+            } else if (student.getLastName().equals("Henderson")) {
+                student.setGuardian(henderson);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Student> children = studentRepository.findAllByGuardianId(cooper.getId());
+
+        assertEquals(Arrays.asList("Abigail", "Ethan"), children.stream().map(Student::getFirstName).collect(toList()));
+        // Students without a Guardian are skipped by the database instead of failing the filter
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        List<Student> family = studentRepository.findAllByGuardianIdIn(
+                Arrays.asList(cooper.getId(), henderson.getId(), childless.getId()));
+
+        assertEquals(Arrays.asList("Abigail", "Ethan", "Charlotte"),
+                     family.stream().map(Student::getFirstName).collect(toList()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @DisplayName("[Roster], Students of the Teacher's class sorted by name, paged and filtered by gender")
+    @Test
+    void findRosterPage() {
+        Long teacherId = persistRoster();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<RosterEntry> page = studentRepository.findRosterPage(teacherId, null, PageRequest.of(0, 2));
+
+        assertEquals(3, page.getTotalElements());
+        assertEquals(Arrays.asList("Abigail", "Ethan"),
+                     page.getContent().stream().map(RosterEntry::getFirstName).collect(toList()));
+        assertEquals("abigail@school.com", page.getContent().get(0).getEmail());
+        assertNull(page.getContent().get(1).getEmail());
+        assertEquals(MALE, page.getContent().get(1).getGender());
+        // page and count, no Student entity is loaded
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        List<RosterEntry> female = studentRepository.findRosterPage(teacherId, FEMALE, PageRequest.of(0, 10)).getContent();
+        assertEquals(Arrays.asList("Abigail", "Charlotte"), female.stream().map(RosterEntry::getFirstName).collect(toList()));
+    }
+
+    @DisplayName("[Roster], Teacher without a class has an empty roster")
+    @Test
+    void findRosterPageWithoutClass() {
+        Teacher teacher = persistTeacher("Isaac", "Idle", null);
+        entityManager.flush();
+
+        assertEquals(0, studentRepository.findRosterPage(teacher.getId(), null, PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    private Long persistRoster() {
+        StudentClass studentClass = entityManager.persist(StudentClass.builder().name("1A").build());
+        StudentClass otherClass = entityManager.persist(StudentClass.builder().name("1B").build());
+        Teacher teacher = persistTeacher("Logan", "Rodriguez", null);
+        teacher.setStudentClass(studentClass);
+        for (Student student : studentRepository.findAll()) {
+            if (Arrays.asList("Ethan", "Abigail", "Charlotte").contains(student.getFirstName())) {
+                student.setStudentClass(studentClass);
+            } else if (student.getFirstName().equals("Sebastian")) {
+                student.setStudentClass(otherClass);
+            }
+            if (student.getFirstName().equals("Abigail")) {
+                student.setContact(entityManager.persist(
+                        StudentContact.builder().email("abigail@school.com").build()));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return teacher.getId();
+    }
+
+    private Long persistDetailGraph() {
+        Director director = entityManager.persist(Director.builder().firstName("Walter").lastName("White").build());
+        SchoolYear schoolYear = entityManager.persist(SchoolYear.builder().name("2020/2021").build());
+        TeachingStaff teachingStaff = entityManager.persist(TeachingStaff.builder().name("Staff").build());
+        schoolYear.setDirector(director);
+        schoolYear.setTeachingStaff(teachingStaff);
+        teachingStaff.setSchoolYear(schoolYear);
+
+        Teacher classTeacher = persistTeacher("Jan", "Kowalski", teachingStaff);
+        classTeacher.setContact(entityManager.persist(TeacherContact.builder().email("jan@school.com").build()));
+        classTeacher.setAddress(entityManager.persist(TeacherAddress.builder().city("Warsaw").build()));
+        Teacher otherTeacher = persistTeacher("Anna", "Nowak", teachingStaff);
+
+        StudentClass studentClass = entityManager.persist(StudentClass.builder().name("1A").build());
+        studentClass.setTeacher(classTeacher);
+        studentClass.setSchoolYear(schoolYear);
+        classTeacher.setStudentClass(studentClass);
+        SportTeam sportTeam = entityManager.persist(SportTeam.builder().name("Sharks").sport(Sport.SWIMMING).build());
+        sportTeam.setSchoolYear(schoolYear);
+
+        Guardian guardian = entityManager.persist(Guardian.builder().firstName("Mary").lastName("Cooper").build());
+        guardian.setContact(entityManager.persist(GuardianContact.builder().email("mary@home.com").build()));
+        guardian.setAddress(entityManager.persist(GuardianAddress.builder().city("Warsaw").build()));
+
+        Subject mathematics = entityManager.persist(Subject.builder().name(Subjects.MATHEMATICS).value(5L).build());
+        Subject biology = entityManager.persist(Subject.builder().name(Subjects.BIOLOGY).value(3L).build());
+
+        Student student = persistStudent("Ethan", "Kowalski", MALE, LocalDate.of(2005, 3, 4));
+        student.setContact(entityManager.persist(StudentContact.builder().email("ethan@school.com").build()));
+        student.setAddress(entityManager.persist(StudentAddress.builder().country("Poland").city("Warsaw").build()));
+        student.setGuardian(guardian);
+        student.setStudentClass(studentClass);
+        student.setSportTeam(sportTeam);
+        student.setSubjects(new HashSet<>(Arrays.asList(mathematics, biology)));
+        student.setExams(new HashSet<>(Arrays.asList(
+                persistExam("Algebra", mathematics, classTeacher),
+                persistExam("Geometry", mathematics, classTeacher),
+                persistExam("Cells", biology, otherTeacher))));
+        entityManager.flush();
+        entityManager.clear();
+        return student.getId();
+    }
+
+    private Teacher persistTeacher(String firstName, String lastName, TeachingStaff teachingStaff) {
+        Teacher teacher = entityManager.persist(Teacher.builder().firstName(firstName).lastName(lastName).build());
+        teacher.setTeachingStaff(teachingStaff);
+        return teacher;
+    }
+
+    private Exam persistExam(String name, Subject subject, Teacher teacher) {
+        Exam exam = entityManager.persist(Exam.builder().name(name).maxPoints(100L).build());
+        exam.setSubject(subject);
+        exam.setTeacher(teacher);
+        return exam;
+    }
+}
@@ -0,0 +1,140 @@
+package adrianromanski.restschool.repositories;
+
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.Payment;
+import adrianromanski.restschool.domain.group.StudentClass;
+import adrianromanski.restschool.domain.group.TeachingStaff;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import adrianromanski.restschool.repositories.person.TeacherRepository;
+import adrianromanski.restschool.repositories.person.TeacherWorkload;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TeacherRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    TeacherRepository teacherRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        Teacher busy = entityManager.persist(Teacher.builder().firstName("Logan").lastName("Busy").build());
+        entityManager.persist(Teacher.builder().firstName("Isaac").lastName("Idle").build());
+
+        StudentClass studentClass = entityManager.persist(StudentClass.builder().name("1A").build());
+        busy.setStudentClass(studentClass);
+        Student first = persistStudent("First", studentClass);
+        Student second = persistStudent("Second", studentClass);
+        persistStudent("Third", studentClass);
+        Student outsider = persistStudent("Outsider", null);
+
+        Exam algebra = persistExam("Algebra", busy);
+        Exam geometry = persistExam("Geometry", busy);
+        first.getExams().add(algebra);
+        second.getExams().add(algebra);
+        second.getExams().add(geometry);
+        outsider.getExams().add(geometry);
+
+        persistPayment(100.0, busy);
+        persistPayment(250.5, busy);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @DisplayName("[Workload], Every metric is aggregated by the database")
+    @Test
+    void findWorkload() {
+        List<TeacherWorkload> workload = teacherRepository.findWorkload(
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "totalPaid"))).getContent();
+
+        assertEquals(2, workload.size());
+        TeacherWorkload busy = workload.get(0);
+        assertEquals("Busy", busy.getLastName());
+        assertEquals(2L, busy.getExams());
+        assertEquals(2L, busy.getPayments());
+        assertEquals(350.5, busy.getTotalPaid());
+        assertEquals(3L, busy.getClassSize());
+        // the outsider is examined too, the second Student is counted once
+        assertEquals(3L, busy.getStudentsExamined());
+
+        TeacherWorkload idle = workload.get(1);
+        assertEquals(0L, idle.getExams());
+        assertEquals(0L, idle.getPayments());
+        assertEquals(0.0, idle.getTotalPaid());
+        assertEquals(0L, idle.getClassSize());
+        assertEquals(0L, idle.getStudentsExamined());
+    }
+
+    @DisplayName("[Workload], Sorted and paged by a metric with one query plus the count")
+    @Test
+    void findWorkloadPage() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<TeacherWorkload> page = teacherRepository.findWorkload(
+                PageRequest.of(0, 1, Sort.by("studentsExamined").and(Sort.by("id"))));
+
+        assertEquals(2, page.getTotalElements());
+        assertEquals("Idle", page.getContent().get(0).getLastName());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @DisplayName("[Versions], Teaching Staff serialized with the Teacher moves the version of the Teacher")
+    @Test
+    void summarizeVersionById() {
+        Teacher teacher = entityManager.persist(Teacher.builder().firstName("Tina").lastName("Staff").build());
+        TeachingStaff staff = entityManager.persist(TeachingStaff.builder().name("Science").build());
+        teacher.setTeachingStaff(staff);
+        entityManager.flush();
+        VersionSummary joined = teacherRepository.summarizeVersionById(teacher.getId());
+        assertEquals(1, joined.getTotal());
+
+        staff.setName("Sciences");
+        entityManager.flush();
+        VersionSummary renamed = teacherRepository.summarizeVersionById(teacher.getId());
+        assertNotEquals(joined.getVersions(), renamed.getVersions());
+        assertEquals(staff.getLastModified(), renamed.getLastModified());
+        assertEquals(3, teacherRepository.summarizeVersions().getTotal());
+    }
+
+    private Student persistStudent(String firstName, StudentClass studentClass) {
+        Student student = entityManager.persist(Student.builder().firstName(firstName).lastName("Student").build());
+        student.setStudentClass(studentClass);
+        return student;
+    }
+
+    private Exam persistExam(String name, Teacher teacher) {
+        Exam exam = entityManager.persist(Exam.builder().name(name).maxPoints(100L).build());
+        exam.setTeacher(teacher);
+        return exam;
+    }
+
+    private void persistPayment(Double amount, Teacher teacher) {
+        Payment payment = entityManager.persist(Payment.builder().name("Salary").amount(amount).build());
+        payment.setTeacher(teacher);
+    }
+}
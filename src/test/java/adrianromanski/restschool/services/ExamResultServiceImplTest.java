@@ -1,24 +1,48 @@
 package adrianromanski.restschool.services;
 
 import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.enums.Grade;
 import adrianromanski.restschool.domain.enums.Subjects;
 import adrianromanski.restschool.domain.event.Exam;
 import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.domain.person.Student;
 import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.mapper.event.ExamResultMapper;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.event.ExamDTO;
 import adrianromanski.restschool.model.event.ExamResultDTO;
+import adrianromanski.restschool.model.event.ExamScoresDTO;
+import adrianromanski.restschool.model.event.ExamScoresResultDTO;
+import adrianromanski.restschool.model.event.StudentScoreDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
 import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.Paging;
 import adrianromanski.restschool.services.event.exam_result.ExamResultService;
 import adrianromanski.restschool.services.event.exam_result.ExamResultServiceImpl;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,7 +54,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.*;
 
 
@@ -39,17 +66,39 @@ class ExamResultServiceImplTest {
     public static final int SCORE = 60;
     public static final long ID = 1L;
     public static final LocalDate DATE = LocalDate.now();
+    public static final List<Grade> PASSED = Arrays.asList(Grade.A, Grade.B, Grade.C, Grade.D, Grade.E);
+    public static final List<Grade> FAILED = Collections.singletonList(Grade.F);
 
     @Mock
     ExamResultRepository examResultRepository;
 
+    @Mock
+    ExamRepository examRepository;
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    GuardianNotificationService notificationService;
+
+    @Mock
+    GradeDistributionService gradeDistributionService;
+
+    @Mock
+    ScoreStatisticsService scoreStatisticsService;
+    @Mock
+    GradeBandService gradeBandService;
+
     ExamResultService examResultService;
 
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        examResultService = new ExamResultServiceImpl(examResultRepository, ExamResultMapper.INSTANCE);
+        when(gradeBandService.getBands()).thenReturn(GradeBands.DEFAULT);
+        examResultService = new ExamResultServiceImpl(examResultRepository, ExamResultMapper.INSTANCE, examRepository,
+                                                      studentRepository, notificationService, gradeDistributionService,
+                                                      scoreStatisticsService, gradeBandService);
     }
 
     private ExamResult initExamResult(int score, String subjectName) {
@@ -120,9 +169,9 @@ class ExamResultServiceImplTest {
     @DisplayName("[Happy Path], [Method] = getAllPassedExamResults")
     @Test
     void getAllPassedExamResults() {
-        List<ExamResult> results = initResults();
+        List<ExamResult> results = initResults().subList(1, 4);
 
-        when(examResultRepository.findAll()).thenReturn(results);
+        when(examResultRepository.findAllByGradeIn(PASSED)).thenReturn(results);
 
         List<ExamResultDTO> returnDTO = examResultService.getAllPassedExamResults();
 
@@ -133,9 +182,9 @@ class ExamResultServiceImplTest {
     @DisplayName("[Happy Path], [Method] = getAllPassedExamResults")
     @Test
     void getAllNotPassedExamResults() {
-        List<ExamResult> results = initResults();
+        List<ExamResult> results = initResults().subList(0, 1);
 
-        when(examResultRepository.findAll()).thenReturn(results);
+        when(examResultRepository.findAllByGradeIn(FAILED)).thenReturn(results);
 
         List<ExamResultDTO> returnDTO = examResultService.getAllNotPassedExamResults();
 
@@ -146,26 +195,69 @@ class ExamResultServiceImplTest {
     @DisplayName("[Happy Path], [Method] = getAllPassedForSubject")
     @Test
     void getAllPassedForSubject() {
-        List<ExamResult> results = initResults();
+        List<ExamResult> results = initResults().subList(1, 2);
 
-        when(examResultRepository.findAll()).thenReturn(results);
+        when(examResultRepository.findAllBySubjectAndGradeIn(BIOLOGY, PASSED)).thenReturn(results);
 
         List<ExamResultDTO> returnDTO = examResultService.getAllPassedForSubject("Biology");
 
         assertEquals(returnDTO.size(), 1);
+        assertEquals("E", returnDTO.get(0).getGrade());
     }
 
 
     @DisplayName("[Happy Path], [Method] = getAllNotPassedForSubject")
     @Test
     void getAllNotPassedForSubject() {
-        List<ExamResult> results = initResults();
+        List<ExamResult> results = initResults().subList(0, 1);
 
-        when(examResultRepository.findAll()).thenReturn(results);
+        when(examResultRepository.findAllBySubjectAndGradeIn(BIOLOGY, FAILED)).thenReturn(results);
 
         List<ExamResultDTO> returnDTO = examResultService.getAllNotPassedForSubject("Biology");
 
         assertEquals(returnDTO.size(), 1);
+        assertEquals("F", returnDTO.get(0).getGrade());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getAllPassedForSubject, unknown Subject has no results")
+    @Test
+    void getAllPassedForUnknownSubject() {
+        List<ExamResultDTO> returnDTO = examResultService.getAllPassedForSubject("Astrology");
+
+        assertTrue(returnDTO.isEmpty());
+        verifyNoInteractions(examResultRepository);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getExamResultsPage, failed results of one Subject")
+    @Test
+    void getExamResultsPage() {
+        List<ExamResult> results = initResults().subList(0, 1);
+
+        when(examResultRepository.findPageBySubjectAndGradeIn(eq(BIOLOGY), eq(FAILED), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(results, PageRequest.of(0, 20), 1));
+
+        PageDTO<ExamResultDTO> returnDTO = examResultService.getExamResultsPage(false, "Biology", null, null);
+
+        assertEquals(1, returnDTO.getTotalElements());
+        assertEquals("F", returnDTO.getContent().get(0).getGrade());
+        verify(examResultRepository, never()).findPageByGradeIn(anyCollection(), any(Pageable.class));
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getExamResultsPage, passed results of every Subject, size is limited")
+    @Test
+    void getExamResultsPageAllSubjects() {
+        when(examResultRepository.findPageByGradeIn(eq(PASSED), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(initResults().subList(1, 4), PageRequest.of(0, 100), 3));
+
+        PageDTO<ExamResultDTO> returnDTO = examResultService.getExamResultsPage(true, null, 0, 1000);
+
+        assertEquals(3, returnDTO.getContent().size());
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(examResultRepository).findPageByGradeIn(eq(PASSED), captor.capture());
+        assertEquals(Paging.MAX_PAGE_SIZE, captor.getValue().getPageSize());
     }
 
 
@@ -215,6 +307,188 @@ class ExamResultServiceImplTest {
 
         assertEquals(returnDTO.getId(), ID);
         assertEquals(returnDTO.getScore(), SCORE);
+        verify(gradeDistributionService, times(1)).add(examResult);
+        verify(scoreStatisticsService, times(1)).add(examResult);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = createExamResult, failing grade is handed to the outbox with its Student")
+    @Test
+    void createFailedExamResult() {
+        Student student = Student.builder().firstName(ETHAN.get()).lastName(HENDERSON.get()).build();
+        ExamResultDTO examResultDTO = ExamResultDTO.builder().name(BIOLOGY.get()).date(DATE).score(10).build();
+        examResultDTO.setExamDTO(ExamDTO.builder().maxPoints(100L).build());
+        examResultDTO.setStudentId(ID);
+
+        when(studentRepository.findById(ID)).thenReturn(Optional.of(student));
+        when(examResultRepository.save(any(ExamResult.class))).then(invocation -> invocation.getArgument(0));
+
+        examResultService.createExamResult(examResultDTO);
+
+        ArgumentCaptor<ExamResult> captor = ArgumentCaptor.forClass(ExamResult.class);
+        verify(notificationService, times(1)).enqueueIfFailed(captor.capture());
+        assertEquals(Grade.F, captor.getValue().getGrade());
+        assertSame(student, captor.getValue().getStudent());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResult, [Reason] = Score above maxPoints of the Exam")
+    @Test
+    void createExamResultOutOfRange() {
+        ExamResultDTO examResultDTO = ExamResultDTO.builder().name(BIOLOGY.get()).date(DATE).score(120).build();
+        examResultDTO.setExamDTO(ExamDTO.builder().maxPoints(100L).build());
+
+        Throwable ex = catchThrowable(() -> examResultService.createExamResult(examResultDTO));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(examResultRepository, never()).save(any(ExamResult.class));
+        verify(gradeDistributionService, never()).add(any(ExamResult.class));
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResult, [Reason] = Student with id 1 not found")
+    @Test
+    void createExamResultStudentNotFound() {
+        ExamResultDTO examResultDTO = initExamResultDTO();
+        examResultDTO.setStudentId(ID);
+
+        when(studentRepository.findById(ID)).thenReturn(Optional.empty());
+
+        Throwable ex = catchThrowable(() -> examResultService.createExamResult(examResultDTO));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+        verify(examResultRepository, never()).save(any(ExamResult.class));
+        verify(notificationService, never()).enqueueIfFailed(any(ExamResult.class));
+    }
+
+
+    private ExamScoresDTO initScores(Float... scores) {
+        List<StudentScoreDTO> studentScores = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            studentScores.add(new StudentScoreDTO((long) i + 1, scores[i]));
+        }
+        return new ExamScoresDTO(DATE, studentScores);
+    }
+
+    private void initExam() {
+        Exam exam = Exam.builder().name(BIOLOGY.get()).maxPoints(100L).build();
+        exam.setId(ID);
+        when(examRepository.findById(ID)).thenReturn(Optional.of(exam));
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = createExamResults, graded once and saved in one call")
+    @Test
+    void createExamResults() {
+        initExam();
+        when(studentRepository.findExistingIds(any())).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(studentRepository.getOne(anyLong())).then(invocation -> Student.builder().build());
+        when(notificationService.enqueueFailed(anyMap())).thenReturn(1);
+
+        ExamScoresResultDTO returnDTO = examResultService.createExamResults(ID, initScores(10f, 60f, 95f));
+
+        assertEquals(3, returnDTO.getCreated());
+        assertEquals(1, returnDTO.getNotified());
+        assertEquals(Arrays.asList("A", "C", "F"), new ArrayList<>(returnDTO.getGrades().keySet()));
+        verify(studentRepository, times(1)).findExistingIds(any());
+        verify(examResultRepository, times(1)).saveAll(anyIterable());
+        verify(examResultRepository, never()).save(any(ExamResult.class));
+        verify(gradeDistributionService, times(1)).addAll(any(Exam.class), anyCollection());
+        verify(scoreStatisticsService, times(1)).addAll(any(Exam.class), anyMap());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = createExamResults, graded against the bands in use")
+    @Test
+    void createExamResultsBandsInUse() {
+        initExam();
+        Map<Grade, Integer> minPercentages = new EnumMap<>(Grade.class);
+        minPercentages.put(Grade.A, 90);
+        minPercentages.put(Grade.B, 80);
+        minPercentages.put(Grade.C, 60);
+        minPercentages.put(Grade.D, 50);
+        minPercentages.put(Grade.E, 40);
+        when(gradeBandService.getBands()).thenReturn(GradeBands.of(minPercentages));
+        when(studentRepository.findExistingIds(any())).thenReturn(Collections.singletonList(1L));
+        when(studentRepository.getOne(anyLong())).then(invocation -> Student.builder().build());
+
+        ExamScoresResultDTO returnDTO = examResultService.createExamResults(ID, initScores(85f));
+
+        assertEquals(Collections.singletonList("B"), new ArrayList<>(returnDTO.getGrades().keySet()));
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResults, [Reason] = Score higher than maxPoints")
+    @Test
+    void createExamResultsScoreOutOfRange() {
+        initExam();
+
+        Throwable ex = catchThrowable(() -> examResultService.createExamResults(ID, initScores(10f, 101f)));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(examResultRepository, never()).saveAll(anyIterable());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResults, [Reason] = Student repeated")
+    @Test
+    void createExamResultsStudentRepeated() {
+        initExam();
+        List<StudentScoreDTO> scores = Arrays.asList(new StudentScoreDTO(ID, 10f), new StudentScoreDTO(ID, 20f));
+
+        Throwable ex = catchThrowable(() -> examResultService.createExamResults(ID, new ExamScoresDTO(DATE, scores)));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResults, [Reason] = Student already has a result")
+    @Test
+    void createExamResultsAlreadyGraded() {
+        initExam();
+        when(studentRepository.findExistingIds(any())).thenReturn(Arrays.asList(1L, 2L));
+        when(examResultRepository.findGradedStudentIds(eq(ID), any())).thenReturn(Collections.singletonList(2L));
+
+        Throwable ex = catchThrowable(() -> examResultService.createExamResults(ID, initScores(10f, 20f)));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(examResultRepository, never()).saveAll(anyIterable());
+        verify(gradeDistributionService, never()).addAll(any(Exam.class), anyCollection());
+        verify(scoreStatisticsService, never()).addAll(any(Exam.class), anyMap());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResults, [Reason] = No scores")
+    @Test
+    void createExamResultsEmpty() {
+        Throwable ex = catchThrowable(() -> examResultService.createExamResults(ID,
+                new ExamScoresDTO(DATE, Collections.emptyList())));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(examRepository, never()).findById(anyLong());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResults, [Reason] = Exam with id 1 not found")
+    @Test
+    void createExamResultsExamNotFound() {
+        Throwable ex = catchThrowable(() -> examResultService.createExamResults(ID, initScores(10f)));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = createExamResults, [Reason] = Student with id 2 not found")
+    @Test
+    void createExamResultsStudentNotFound() {
+        initExam();
+        when(studentRepository.findExistingIds(any())).thenReturn(Collections.singletonList(1L));
+
+        Throwable ex = catchThrowable(() -> examResultService.createExamResults(ID, initScores(10f, 20f)));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+        verify(examResultRepository, never()).saveAll(anyIterable());
+        verify(notificationService, never()).enqueueFailed(anyMap());
     }
 
 
@@ -233,6 +507,13 @@ class ExamResultServiceImplTest {
         assertEquals(returnDTO.getName(), "Updated");
         assertEquals(returnDTO.getId(), ID);
         assertEquals(returnDTO.getScore(), SCORE);
+        // stored result is uncounted before the update, the saved one counted after
+        InOrder inOrder = inOrder(gradeDistributionService, scoreStatisticsService, examResultRepository);
+        inOrder.verify(gradeDistributionService).remove(examResult);
+        inOrder.verify(scoreStatisticsService).remove(examResult);
+        inOrder.verify(examResultRepository).save(any(ExamResult.class));
+        inOrder.verify(gradeDistributionService).add(examResult);
+        inOrder.verify(scoreStatisticsService).add(examResult);
     }
 
 
@@ -254,9 +535,11 @@ class ExamResultServiceImplTest {
 
         when(examResultRepository.findById(anyLong())).thenReturn(Optional.of(examResult));
 
-        examResultService.deleteExamResultByID(anyLong());
+        examResultService.deleteExamResultByID(ID);
 
-        verify(examResultRepository, times(1)).deleteById(anyLong());
+        verify(gradeDistributionService, times(1)).remove(examResult);
+        verify(scoreStatisticsService, times(1)).remove(examResult);
+        verify(examResultRepository, times(1)).delete(examResult);
     }
 
 
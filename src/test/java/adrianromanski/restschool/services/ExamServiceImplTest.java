@@ -4,20 +4,30 @@ import adrianromanski.restschool.domain.base_entity.Subject;
 import adrianromanski.restschool.domain.event.Exam;
 import adrianromanski.restschool.domain.person.Student;
 import adrianromanski.restschool.domain.person.Teacher;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.mapper.event.ExamMapper;
+import adrianromanski.restschool.model.base_entity.SubjectDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamRescheduleDTO;
+import adrianromanski.restschool.repositories.event.ExamDate;
 import adrianromanski.restschool.repositories.event.ExamRepository;
 import adrianromanski.restschool.services.event.exam.ExamService;
 import adrianromanski.restschool.services.event.exam.ExamServiceImpl;
+import adrianromanski.restschool.services.event.grade_band.GradeBandService;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,7 +40,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ExamServiceImplTest {
@@ -45,11 +57,21 @@ class ExamServiceImplTest {
     @Mock
     ExamRepository examRepository;
 
+    @Mock
+    GradeBandService gradeBandService;
+
+    @Mock
+    GradeDistributionService gradeDistributionService;
+
+    @Mock
+    ScoreStatisticsService scoreStatisticsService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
 
-        examService = new ExamServiceImpl(ExamMapper.INSTANCE, examRepository);
+        examService = new ExamServiceImpl(ExamMapper.INSTANCE, examRepository, gradeBandService,
+                                          gradeDistributionService, scoreStatisticsService);
     }
 
     ExamDTO initBiologyExamDTO() {
@@ -62,7 +84,7 @@ class ExamServiceImplTest {
         Exam exam = Exam.builder().date(DATE).name(NAME).maxPoints(POINTS).build();
         exam.setSubject(Subject.builder().name(BIOLOGY).build());
         exam.setTeacher(Teacher.builder().firstName(ETHAN.get()).lastName(HENDERSON.get()).build());
-        exam.setStudents(Arrays.asList(new Student(), new Student()));
+        exam.setStudents(new HashSet<>(Arrays.asList(new Student(), new Student())));
         exam.setId(ID);
         return exam;
     }
@@ -71,7 +93,7 @@ class ExamServiceImplTest {
         Exam exam = Exam.builder().date(DATE).name("Fast Test").maxPoints(80L).build();
         exam.setSubject(Subject.builder().name(MATHEMATICS).build());
         exam.setTeacher(Teacher.builder().firstName(SEBASTIAN.get()).lastName(SMITH.get()).build());
-        exam.setStudents(Arrays.asList(new Student(), new Student(), new Student()));
+        exam.setStudents(new HashSet<>(Arrays.asList(new Student(), new Student(), new Student())));
         exam.setId(2L);
         return exam;
     }
@@ -236,6 +258,55 @@ class ExamServiceImplTest {
         assertEquals(returnDTO.getName(), NAME);
         assertEquals(returnDTO.getId(), ID);
         assertEquals(returnDTO.getMaxPoints(), 50); // updated points
+        verify(gradeBandService, times(1)).regradeExam(ID);
+        verify(gradeDistributionService, never()).updateSubject(anyLong());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = updateExam, results are not re-graded when maxPoints stays the same")
+    @Test
+    void updateExamSameMaxPoints() {
+        Exam exam = initBiologyExam();
+
+        when(examRepository.findById(anyLong())).thenReturn(Optional.of(exam));
+
+        examService.updateExam(ID, initBiologyExamDTO());
+
+        verify(gradeBandService, never()).regradeExam(anyLong());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = updateExam, grade distribution follows a new Subject")
+    @Test
+    void updateExamSubject() {
+        ExamDTO examDTO = initBiologyExamDTO();
+        examDTO.setSubjectDTO(SubjectDTO.builder().name(MATHEMATICS).build());
+        Exam exam = initBiologyExam();
+
+        when(examRepository.findById(anyLong())).thenReturn(Optional.of(exam));
+
+        examService.updateExam(ID, examDTO);
+
+        verify(gradeDistributionService, times(1)).updateSubject(ID);
+        verify(scoreStatisticsService, times(1)).moveExam(ID, BIOLOGY, MATHEMATICS);
+        verify(gradeBandService, never()).regradeExam(anyLong());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = updateExam, [Reason] = maxPoints lowered below a stored score")
+    @Test
+    void updateExamMaxPointsBelowScore() {
+        ExamDTO examDTO = initBiologyExamDTO();
+        examDTO.setMaxPoints(50L);
+
+        when(examRepository.findById(anyLong())).thenReturn(Optional.of(initBiologyExam()));
+        when(examRepository.findHighestScore(ID)).thenReturn(60f);
+
+        Throwable ex = catchThrowable(() -> examService.updateExam(ID, examDTO));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(examRepository, never()).save(any(Exam.class));
+        verify(gradeBandService, never()).regradeExam(anyLong());
     }
 
 
@@ -250,6 +321,82 @@ class ExamServiceImplTest {
     }
 
 
+    @DisplayName("[Happy Path], [Method] = rescheduleExams, [Reason] = Exams of one Teacher")
+    @Test
+    void rescheduleExamsByTeacher() {
+        LocalDate from = LocalDate.of(2020, 5, 4);
+        LocalDate to = LocalDate.of(2020, 5, 8);
+        List<ExamDate> exams = Arrays.asList(examDate(1L, from), examDate(2L, to), examDate(3L, from));
+        when(examRepository.findAllToRescheduleByTeacher(ID, from, to)).thenReturn(exams);
+        when(examRepository.reschedule(eq(Arrays.asList(1L, 3L)), eq(from), eq(from.plusDays(7)), any(Instant.class)))
+                .thenReturn(2);
+        when(examRepository.reschedule(eq(Collections.singletonList(2L)), eq(to), eq(to.plusDays(7)),
+                                       any(Instant.class))).thenReturn(1);
+
+        ExamRescheduleDTO rescheduleDTO = examService.rescheduleExams(from, to, 7, ID, null, null);
+
+        assertEquals(3, rescheduleDTO.getRescheduled());
+        assertEquals("teacher-1", rescheduleDTO.getTarget());
+        verify(examRepository, times(2)).reschedule(anyList(), any(), any(), any());
+        verify(examRepository, never()).findAll();
+        verify(examRepository, never()).findById(anyLong());
+    }
+
+    @DisplayName("[Happy Path], [Method] = rescheduleExams, [Reason] = Single day of the whole school")
+    @Test
+    void rescheduleExamsWholeSchool() {
+        LocalDate day = LocalDate.of(2020, 5, 4);
+        List<ExamDate> exams = Collections.singletonList(examDate(1L, day));
+        when(examRepository.findAllToReschedule(day, day)).thenReturn(exams);
+        when(examRepository.reschedule(anyList(), eq(day), eq(day.minusDays(1)), any(Instant.class))).thenReturn(12);
+
+        ExamRescheduleDTO rescheduleDTO = examService.rescheduleExams(day, null, -1, null, null, null);
+
+        assertEquals(12, rescheduleDTO.getRescheduled());
+        assertEquals("school", rescheduleDTO.getTarget());
+        assertEquals(day, rescheduleDTO.getTo());
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = rescheduleExams, [Reason] = More than one target")
+    @Test
+    void rescheduleExamsManyTargets() {
+        LocalDate day = LocalDate.of(2020, 5, 4);
+
+        Throwable ex = catchThrowable(() -> examService.rescheduleExams(day, day, 1, ID, null, 2L));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(examRepository, never()).findAllToRescheduleBySubject(anyLong(), any(), any());
+        verify(examRepository, never()).reschedule(anyList(), any(), any(), any());
+    }
+
+    private ExamDate examDate(Long id, LocalDate date) {
+        ExamDate examDate = mock(ExamDate.class);
+        when(examDate.getId()).thenReturn(id);
+        when(examDate.getDate()).thenReturn(date);
+        return examDate;
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = rescheduleExams, [Reason] = Range ends before it starts")
+    @Test
+    void rescheduleExamsInvalidRange() {
+        LocalDate day = LocalDate.of(2020, 5, 4);
+
+        Throwable ex = catchThrowable(() -> examService.rescheduleExams(day, day.minusDays(1), 1, null, null, null));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = rescheduleExams, [Reason] = Shift by zero days")
+    @Test
+    void rescheduleExamsZeroDays() {
+        LocalDate day = LocalDate.of(2020, 5, 4);
+
+        Throwable ex = catchThrowable(() -> examService.rescheduleExams(day, day, 0, null, null, null));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+
+
     @DisplayName("[Happy Path], [Method] = deleteExamById")
     @Test
     void deleteExamByIdHappyPath() {
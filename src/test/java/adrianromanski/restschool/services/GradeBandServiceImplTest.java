@@ -0,0 +1,187 @@
+package adrianromanski.restschool.services;
+
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.event.GradeBand;
+import adrianromanski.restschool.domain.event.GradeBands;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import adrianromanski.restschool.exceptions.ResourceNotFoundException;
+import adrianromanski.restschool.model.event.GradeBandDTO;
+import adrianromanski.restschool.model.event.RegradeDTO;
+import adrianromanski.restschool.repositories.event.ExamMaxPoints;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.GradeBandRepository;
+import adrianromanski.restschool.services.event.grade_band.GradeBandServiceImpl;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GradeBandServiceImplTest {
+
+    public static final long ID = 1L;
+
+    @Mock
+    GradeBandRepository gradeBandRepository;
+
+    @Mock
+    ExamRepository examRepository;
+
+    @Mock
+    ExamResultRepository examResultRepository;
+
+    @Mock
+    GradeDistributionService gradeDistributionService;
+
+    GradeBandServiceImpl gradeBandService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        gradeBandService = new GradeBandServiceImpl(gradeBandRepository, examRepository, examResultRepository,
+                                                    gradeDistributionService);
+    }
+
+    private List<GradeBandDTO> initBands(int a, int b, int c, int d, int e) {
+        return Arrays.asList(new GradeBandDTO(Grade.A, a), new GradeBandDTO(Grade.B, b), new GradeBandDTO(Grade.C, c),
+                             new GradeBandDTO(Grade.D, d), new GradeBandDTO(Grade.E, e));
+    }
+
+    private ExamMaxPoints initExam(Long id, Long maxPoints) {
+        ExamMaxPoints exam = mock(ExamMaxPoints.class);
+        when(exam.getId()).thenReturn(id);
+        when(exam.getMaxPoints()).thenReturn(maxPoints);
+        return exam;
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = loadGradeBands, empty table is filled with the defaults")
+    @Test
+    void loadGradeBandsEmpty() {
+        gradeBandService.loadGradeBands();
+
+        verify(gradeBandRepository, times(1)).saveAll(anyIterable());
+        assertEquals(GradeBands.DEFAULT, gradeBandService.getBands());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = loadGradeBands, stored bands are installed")
+    @Test
+    void loadGradeBands() {
+        when(gradeBandRepository.findAll()).thenReturn(Arrays.asList(new GradeBand(Grade.A, 90),
+                new GradeBand(Grade.B, 80), new GradeBand(Grade.C, 70), new GradeBand(Grade.D, 60),
+                new GradeBand(Grade.E, 50)));
+
+        gradeBandService.loadGradeBands();
+
+        assertEquals(Grade.E, gradeBandService.getBands().grade(55, 100));
+        verify(gradeBandRepository, never()).saveAll(anyIterable());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getGradeBands")
+    @Test
+    void getGradeBands() {
+        List<GradeBandDTO> bands = gradeBandService.getGradeBands();
+
+        assertEquals(6, bands.size());
+        assertEquals(85, bands.get(0).getMinPercentage().intValue());
+        assertEquals(Grade.F, bands.get(5).getGrade());
+        assertEquals(0, bands.get(5).getMinPercentage().intValue());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = updateGradeBands, every graded Exam is re-graded with one UPDATE")
+    @Test
+    void updateGradeBands() {
+        List<ExamMaxPoints> exams = Arrays.asList(initExam(1L, 100L), initExam(2L, 40L));
+        when(examRepository.findAllMaxPoints()).thenReturn(exams);
+        when(examResultRepository.regrade(anyLong(), anyLong(), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                                          anyDouble(), any(Instant.class))).thenReturn(3);
+
+        RegradeDTO regradeDTO = gradeBandService.updateGradeBands(initBands(90, 80, 60, 50, 40));
+
+        assertEquals(2, regradeDTO.getExams());
+        assertEquals(6, regradeDTO.getRegraded());
+        assertEquals(Grade.D, gradeBandService.getBands().grade(55, 100));
+        verify(gradeBandRepository, times(1)).saveAll(anyIterable());
+        verify(examResultRepository, times(1)).regrade(eq(2L), eq(40L), eq(36d), eq(32d), eq(24d), eq(20d),
+                                                       eq(16d), any(Instant.class));
+        verify(gradeDistributionService, times(1)).rebuildAll();
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = updateGradeBands, [Reason] = Percentages do not fall from A to E")
+    @Test
+    void updateGradeBandsNotFalling() {
+        Throwable ex = catchThrowable(() -> gradeBandService.updateGradeBands(initBands(90, 80, 80, 50, 40)));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        assertEquals(GradeBands.DEFAULT, gradeBandService.getBands());
+        verify(gradeBandRepository, never()).saveAll(anyIterable());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = updateGradeBands, [Reason] = Grade E is missing")
+    @Test
+    void updateGradeBandsMissing() {
+        Throwable ex = catchThrowable(() -> gradeBandService.updateGradeBands(initBands(90, 80, 60, 50, 40)
+                                                                                      .subList(0, 4)));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = regradeExam")
+    @Test
+    void regradeExam() {
+        ExamMaxPoints exam = initExam(ID, 100L);
+        when(examRepository.findMaxPointsById(ID)).thenReturn(Optional.of(exam));
+        when(examResultRepository.regrade(eq(ID), eq(100L), eq(85d), eq(70d), eq(55d), eq(45d), eq(35d),
+                                          any(Instant.class))).thenReturn(12);
+
+        RegradeDTO regradeDTO = gradeBandService.regradeExam(ID);
+
+        assertEquals(1, regradeDTO.getExams());
+        assertEquals(12, regradeDTO.getRegraded());
+        verify(gradeDistributionService, times(1)).rebuildExam(ID);
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = regradeExam, [Reason] = Exam with id 1 not found")
+    @Test
+    void regradeExamNotFound() {
+        Throwable ex = catchThrowable(() -> gradeBandService.regradeExam(ID));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = regradeExam, [Reason] = Exam without maxPoints")
+    @Test
+    void regradeExamWithoutMaxPoints() {
+        ExamMaxPoints exam = initExam(ID, null);
+        when(examRepository.findMaxPointsById(ID)).thenReturn(Optional.of(exam));
+
+        Throwable ex = catchThrowable(() -> gradeBandService.regradeExam(ID));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+}
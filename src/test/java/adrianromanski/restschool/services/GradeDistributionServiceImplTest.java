@@ -0,0 +1,280 @@
+package adrianromanski.restschool.services;
+
+import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.enums.Grade;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GradeDistribution;
+import adrianromanski.restschool.exceptions.BadRequestException;
+import adrianromanski.restschool.model.event.GradeHistogramDTO;
+import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.GradeCount;
+import adrianromanski.restschool.repositories.event.GradeDistributionRepository;
+import adrianromanski.restschool.services.event.grade_distribution.GradeDistributionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GradeDistributionServiceImplTest {
+
+    public static final long ID = 1L;
+    public static final LocalDate DATE = LocalDate.of(2020, 6, 1);
+
+    @Mock
+    GradeDistributionRepository gradeDistributionRepository;
+
+    @Mock
+    ExamRepository examRepository;
+
+    @Mock
+    ExamResultRepository examResultRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    GradeDistributionServiceImpl gradeDistributionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        gradeDistributionService = new GradeDistributionServiceImpl(gradeDistributionRepository, examRepository,
+                                                                    examResultRepository, transactionManager);
+    }
+
+    private Exam initExam() {
+        Exam exam = Exam.builder().name("Algebra").maxPoints(100L).build();
+        exam.setSubject(Subject.builder().name(Subjects.MATHEMATICS).build());
+        exam.setId(ID);
+        return exam;
+    }
+
+    private ExamResult initResult(Exam exam, float score) {
+        return ExamResult.builder().name("Algebra").date(DATE).score(score).exam(exam).build();
+    }
+
+    private GradeCount initCount(LocalDate date, Grade grade, long total, double scoreSum) {
+        GradeCount count = mock(GradeCount.class);
+        when(count.getDate()).thenReturn(date);
+        when(count.getGrade()).thenReturn(grade);
+        when(count.getTotal()).thenReturn(total);
+        when(count.getScoreSum()).thenReturn(scoreSum);
+        return count;
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getExamHistogram, every Grade is listed, missing ones as zero")
+    @Test
+    void getExamHistogram() {
+        List<GradeCount> counts = Arrays.asList(initCount(null, Grade.A, 2, 190), initCount(null, Grade.F, 2, 30));
+        when(gradeDistributionRepository.countByExam(ID)).thenReturn(counts);
+
+        GradeHistogramDTO histogram = gradeDistributionService.getExamHistogram(ID);
+
+        assertEquals(6, histogram.getGrades().size());
+        assertEquals(4, histogram.getTotal());
+        assertEquals(55d, histogram.getAverageScore());
+        assertEquals(95d, histogram.getGrades().get(0).getAverageScore());
+        assertEquals(0, histogram.getGrades().get(1).getCount());
+        assertNull(histogram.getGrades().get(1).getAverageScore());
+        assertEquals(Grade.F, histogram.getGrades().get(5).getGrade());
+        assertEquals(2, histogram.getGrades().get(5).getCount());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getSubjectHistogram, unknown Subject is empty and not read")
+    @Test
+    void getSubjectHistogramUnknown() {
+        GradeHistogramDTO histogram = gradeDistributionService.getSubjectHistogram("Astrology", null, null);
+
+        assertEquals(0, histogram.getTotal());
+        assertNull(histogram.getAverageScore());
+        verify(gradeDistributionRepository, never()).countBySubject(any(), any(), any());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = getSubjectHistogram, [Reason] = From is after to")
+    @Test
+    void getSubjectHistogramInvalidRange() {
+        Throwable ex = catchThrowable(() -> gradeDistributionService.getSubjectHistogram(
+                Subjects.MATHEMATICS.get(), DATE, DATE.minusDays(1)));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getDailyHistograms, one histogram per day with results")
+    @Test
+    void getDailyHistograms() {
+        List<GradeCount> counts = Arrays.asList(initCount(DATE, Grade.B, 1, 80), initCount(DATE, Grade.C, 1, 60),
+                                                initCount(DATE.plusDays(2), Grade.F, 3, 30));
+        when(gradeDistributionRepository.countByDate(DATE, DATE.plusDays(7))).thenReturn(counts);
+
+        List<GradeHistogramDTO> histograms = gradeDistributionService.getDailyHistograms(DATE, DATE.plusDays(7));
+
+        assertEquals(2, histograms.size());
+        assertEquals(DATE, histograms.get(0).getDate());
+        assertEquals(2, histograms.get(0).getTotal());
+        assertEquals(70d, histograms.get(0).getAverageScore());
+        assertEquals(3, histograms.get(1).getGrades().get(5).getCount());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = getDailyHistograms, [Reason] = Range longer than MAX_DAYS")
+    @Test
+    void getDailyHistogramsTooLong() {
+        Throwable ex = catchThrowable(() -> gradeDistributionService.getDailyHistograms(
+                DATE, DATE.plusDays(GradeDistributionServiceImpl.MAX_DAYS)));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(gradeDistributionRepository, never()).countByDate(any(), any());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = add, existing row is incremented with one UPDATE")
+    @Test
+    void add() {
+        when(gradeDistributionRepository.increment(eq(ID), eq(DATE), eq(Grade.B), eq(1L), eq(75d), any(Instant.class)))
+                .thenReturn(1);
+
+        gradeDistributionService.add(initResult(initExam(), 75));
+
+        verify(gradeDistributionRepository, never()).saveAll(any());
+        verify(examRepository, never()).findSubjectById(anyLong());
+        verifyNoInteractions(transactionManager);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = add, first result of a Grade inserts its empty row in its own " +
+            "transaction and increments it")
+    @Test
+    void addFirst() {
+        when(gradeDistributionRepository.increment(eq(ID), eq(DATE), eq(Grade.B), eq(1L), eq(75d), any(Instant.class)))
+                .thenReturn(0, 1);
+        when(examRepository.findSubjectById(ID)).thenReturn(Optional.of(Subjects.MATHEMATICS));
+
+        gradeDistributionService.add(initResult(initExam(), 75));
+
+        GradeDistribution row = captureInserted().get(0);
+        assertEquals(Subjects.MATHEMATICS, row.getSubject());
+        assertEquals(Grade.B, row.getGrade());
+        assertEquals(0, row.getTotal());
+        assertEquals(0d, row.getScoreSum());
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(gradeDistributionRepository, times(2)).increment(eq(ID), eq(DATE), eq(Grade.B), eq(1L), eq(75d),
+                                                                any(Instant.class));
+    }
+
+    private List<GradeDistribution> captureInserted() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<GradeDistribution>> captor = ArgumentCaptor.forClass(List.class);
+        verify(gradeDistributionRepository, times(1)).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = add, row inserted concurrently by another writer is incremented")
+    @Test
+    void addFirstConcurrently() {
+        when(gradeDistributionRepository.increment(eq(ID), eq(DATE), eq(Grade.B), eq(1L), eq(75d), any(Instant.class)))
+                .thenReturn(0, 1);
+        when(gradeDistributionRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        gradeDistributionService.add(initResult(initExam(), 75));
+
+        verify(gradeDistributionRepository, times(2)).increment(eq(ID), eq(DATE), eq(Grade.B), eq(1L), eq(75d),
+                                                                any(Instant.class));
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = add, [Reason] = Inserted row is never found again")
+    @Test
+    void addFirstLost() {
+        Throwable ex = catchThrowable(() -> gradeDistributionService.add(initResult(initExam(), 75)));
+
+        assertThat(ex).isInstanceOf(IllegalStateException.class);
+        verify(gradeDistributionRepository, times(GradeDistributionServiceImpl.MAX_ATTEMPTS)).saveAll(any());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = add, result without Grade is not counted")
+    @Test
+    void addWithoutGrade() {
+        Exam exam = initExam();
+        exam.setMaxPoints(null);
+
+        gradeDistributionService.add(initResult(exam, 75));
+
+        verifyNoInteractions(gradeDistributionRepository);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = addAll, results are counted in memory and added to the locked rows, " +
+            "missing rows inserted empty in one call")
+    @Test
+    void addAll() {
+        Exam exam = initExam();
+        GradeDistribution existing = new GradeDistribution(ID, Subjects.MATHEMATICS, DATE, Grade.A, 2, 180);
+        GradeDistribution inserted = new GradeDistribution(ID, Subjects.MATHEMATICS, DATE, Grade.F, 0, 0);
+        when(gradeDistributionRepository.findAllByExamId(ID)).thenReturn(Collections.singletonList(existing),
+                                                                         Arrays.asList(existing, inserted));
+
+        gradeDistributionService.addAll(exam, Arrays.asList(initResult(exam, 90), initResult(exam, 10),
+                                                            initResult(exam, 20)));
+
+        assertEquals(3, existing.getTotal());
+        assertEquals(270d, existing.getScoreSum());
+        assertEquals(2, inserted.getTotal());
+        assertEquals(30d, inserted.getScoreSum());
+        List<GradeDistribution> created = captureInserted();
+        assertEquals(1, created.size());
+        assertEquals(Grade.F, created.get(0).getGrade());
+        assertEquals(0, created.get(0).getTotal());
+        assertEquals(Subjects.MATHEMATICS, created.get(0).getSubject());
+        verify(gradeDistributionRepository, never()).increment(anyLong(), any(), any(), anyLong(), anyDouble(), any());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = remove, row is decremented and kept once empty")
+    @Test
+    void remove() {
+        gradeDistributionService.remove(initResult(initExam(), 75));
+
+        verify(gradeDistributionRepository, times(1)).increment(eq(ID), eq(DATE), eq(Grade.B), eq(-1L), eq(-75d),
+                                                                any(Instant.class));
+        verify(gradeDistributionRepository, never()).delete(any());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = rebuildExam, rows are replaced with the ones counted from the results")
+    @Test
+    void rebuildExam() {
+        gradeDistributionService.rebuildExam(ID);
+
+        verify(gradeDistributionRepository, times(1)).deleteByExamId(ID);
+        verify(examResultRepository, times(1)).countDistributionByExam(ID);
+        verify(gradeDistributionRepository, times(1)).saveAll(any());
+    }
+}
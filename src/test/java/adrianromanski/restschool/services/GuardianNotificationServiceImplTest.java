@@ -0,0 +1,261 @@
+package adrianromanski.restschool.services;
+
+import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
+import adrianromanski.restschool.domain.enums.NotificationStatus;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.GuardianNotification;
+import adrianromanski.restschool.domain.person.Guardian;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.repositories.event.GuardianNotificationRepository;
+import adrianromanski.restschool.repositories.person.GuardianRecipient;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.event.notification.GuardianNotificationServiceImpl;
+import adrianromanski.restschool.services.event.notification.NotificationSender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static adrianromanski.restschool.domain.enums.FemaleName.CHARLOTTE;
+import static adrianromanski.restschool.domain.enums.LastName.HENDERSON;
+import static adrianromanski.restschool.domain.enums.MaleName.ETHAN;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GuardianNotificationServiceImplTest {
+
+    public static final int BATCH_SIZE = 10;
+    public static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    GuardianNotificationRepository notificationRepository;
+    @Mock
+    NotificationSender notificationSender;
+    @Mock
+    StudentRepository studentRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    GuardianNotificationServiceImpl notificationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        notificationService = new GuardianNotificationServiceImpl(notificationRepository, notificationSender,
+                                                                  studentRepository, transactionManager, BATCH_SIZE, 2, MAX_ATTEMPTS,
+                                                                  1000, 3000, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationService.shutdown();
+    }
+
+    private ExamResult createResult(float score) {
+        Guardian guardian = Guardian.builder().firstName(ETHAN.get()).lastName(HENDERSON.get()).build();
+        guardian.setId(7L);
+        guardian.setContact(GuardianContact.builder().email("ethan@home.com").build());
+        Student student = Student.builder().firstName(CHARLOTTE.get()).lastName(HENDERSON.get()).build();
+        student.setGuardian(guardian);
+        Exam exam = Exam.builder().name("Algebra").maxPoints(100L).build();
+        ExamResult examResult = ExamResult.builder().date(LocalDate.of(2020, 5, 4)).exam(exam).student(student).build();
+        examResult.setScore(score);
+        examResult.setId(1L);
+        return examResult;
+    }
+
+    private GuardianNotification createNotification(Long id, String recipient, int attempts) {
+        GuardianNotification notification = GuardianNotification.builder().recipient(recipient).message("F")
+                                                                 .nextAttemptAt(Instant.now()).build();
+        notification.setId(id);
+        notification.setAttempts(attempts);
+        return notification;
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = enqueueIfFailed")
+    @Test
+    void enqueueIfFailed() {
+        assertTrue(notificationService.enqueueIfFailed(createResult(10)));
+
+        ArgumentCaptor<GuardianNotification> captor = ArgumentCaptor.forClass(GuardianNotification.class);
+        verify(notificationRepository, times(1)).save(captor.capture());
+        GuardianNotification notification = captor.getValue();
+        assertEquals(NotificationStatus.PENDING, notification.getStatus());
+        assertEquals(7L, notification.getGuardianId());
+        assertEquals(1L, notification.getExamResultId());
+        assertEquals("ethan@home.com", notification.getRecipient());
+        assertEquals("Dear Ethan Henderson, Charlotte Henderson received grade F in Algebra on 2020-05-04",
+                     notification.getMessage());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = enqueueIfFailed, passing grade and Student without Guardian are skipped")
+    @Test
+    void enqueueIfFailedSkipped() {
+        ExamResult withoutGuardian = createResult(10);
+        withoutGuardian.getStudent().setGuardian(null);
+
+        assertFalse(notificationService.enqueueIfFailed(createResult(90)));
+        assertFalse(notificationService.enqueueIfFailed(withoutGuardian));
+        verify(notificationRepository, never()).save(any(GuardianNotification.class));
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = enqueueIfFailed, [Reason] = Guardian without an email")
+    @Test
+    void enqueueIfFailedWithoutEmail() {
+        ExamResult examResult = createResult(10);
+        examResult.getStudent().getGuardian().setContact(null);
+
+        assertTrue(notificationService.enqueueIfFailed(examResult));
+
+        ArgumentCaptor<GuardianNotification> captor = ArgumentCaptor.forClass(GuardianNotification.class);
+        verify(notificationRepository, times(1)).save(captor.capture());
+        assertNull(captor.getValue().getRecipient());
+        assertEquals(NotificationStatus.FAILED, captor.getValue().getStatus());
+        assertEquals(GuardianNotificationServiceImpl.NO_RECIPIENT, captor.getValue().getLastError());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = enqueueFailed, Guardians of failing Students are read with one query")
+    @Test
+    void enqueueFailed() {
+        Map<Long, ExamResult> results = new LinkedHashMap<>();
+        results.put(3L, createResult(10));
+        results.put(4L, createResult(90));
+        GuardianRecipient recipient = mock(GuardianRecipient.class);
+        when(recipient.getStudentId()).thenReturn(3L);
+        when(recipient.getGuardianId()).thenReturn(7L);
+        when(recipient.getGuardianFirstName()).thenReturn(ETHAN.get());
+        when(recipient.getGuardianLastName()).thenReturn(HENDERSON.get());
+        when(recipient.getStudentFirstName()).thenReturn(CHARLOTTE.get());
+        when(recipient.getStudentLastName()).thenReturn(HENDERSON.get());
+        when(recipient.getEmail()).thenReturn("ethan@home.com");
+        when(studentRepository.findGuardianRecipients(Collections.singletonList(3L)))
+                .thenReturn(Collections.singletonList(recipient));
+
+        assertEquals(1, notificationService.enqueueFailed(results));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<GuardianNotification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationRepository, times(1)).saveAll(captor.capture());
+        GuardianNotification notification = captor.getValue().get(0);
+        assertEquals(7L, notification.getGuardianId());
+        assertEquals("ethan@home.com", notification.getRecipient());
+        assertEquals("Dear Ethan Henderson, Charlotte Henderson received grade F in Algebra on 2020-05-04",
+                     notification.getMessage());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = enqueueFailed, [Reason] = Guardian without an email")
+    @Test
+    void enqueueFailedWithoutEmail() {
+        GuardianRecipient recipient = mock(GuardianRecipient.class);
+        when(recipient.getStudentId()).thenReturn(3L);
+        when(recipient.getGuardianId()).thenReturn(7L);
+        List<GuardianRecipient> recipients = Collections.singletonList(recipient);
+        when(studentRepository.findGuardianRecipients(Collections.singletonList(3L))).thenReturn(recipients);
+
+        assertEquals(1, notificationService.enqueueFailed(Collections.singletonMap(3L, createResult(10))));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<GuardianNotification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationRepository, times(1)).saveAll(captor.capture());
+        assertEquals(NotificationStatus.FAILED, captor.getValue().get(0).getStatus());
+        assertEquals(GuardianNotificationServiceImpl.NO_RECIPIENT, captor.getValue().get(0).getLastError());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = enqueueFailed, nothing is read when no Student failed")
+    @Test
+    void enqueueFailedNone() {
+        assertEquals(0, notificationService.enqueueFailed(Collections.singletonMap(4L, createResult(90))));
+
+        verify(studentRepository, never()).findGuardianRecipients(anyCollection());
+        verify(notificationRepository, never()).saveAll(anyIterable());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = dispatchPending, delivered are SENT, failed are retried with backoff")
+    @Test
+    void dispatchPending() {
+        GuardianNotification delivered = createNotification(1L, "ok@home.com", 0);
+        GuardianNotification failing = createNotification(2L, "down@home.com", 0);
+        List<GuardianNotification> due = Arrays.asList(delivered, failing);
+
+        when(notificationRepository.findDue(eq(NotificationStatus.PENDING), any(Instant.class), any(Pageable.class)))
+                .thenReturn(due);
+        when(notificationRepository.findAllById(anyIterable())).thenReturn(due);
+        doThrow(new IllegalStateException("Mailbox unavailable")).when(notificationSender)
+                .send(eq("down@home.com"), any());
+
+        Instant before = Instant.now();
+        assertEquals(1, notificationService.dispatchPending());
+
+        assertEquals(NotificationStatus.SENT, delivered.getStatus());
+        assertEquals(1, delivered.getAttempts());
+        assertEquals(NotificationStatus.PENDING, failing.getStatus());
+        assertEquals(1, failing.getAttempts());
+        assertEquals("Mailbox unavailable", failing.getLastError());
+        assertFalse(failing.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        verify(notificationSender, times(2)).send(any(), any());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = dispatchPending, last attempt marks the notification as FAILED")
+    @Test
+    void dispatchPendingGivesUp() {
+        GuardianNotification failing = createNotification(2L, "down@home.com", MAX_ATTEMPTS - 1);
+        List<GuardianNotification> due = Arrays.asList(failing);
+
+        when(notificationRepository.findDue(eq(NotificationStatus.PENDING), any(Instant.class), any(Pageable.class)))
+                .thenReturn(due);
+        when(notificationRepository.findAllById(anyIterable())).thenReturn(due);
+        doThrow(new IllegalStateException("Mailbox unavailable")).when(notificationSender).send(any(), any());
+
+        assertEquals(0, notificationService.dispatchPending());
+
+        assertEquals(NotificationStatus.FAILED, failing.getStatus());
+        assertEquals(MAX_ATTEMPTS, failing.getAttempts());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = dispatchPending, empty outbox is not sent nor updated")
+    @Test
+    void dispatchPendingEmpty() {
+        assertEquals(0, notificationService.dispatchPending());
+
+        verify(notificationSender, never()).send(any(), any());
+        verify(notificationRepository, never()).findAllById(anyIterable());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = backoff, doubled with every attempt up to the limit")
+    @Test
+    void backoff() {
+        assertEquals(Duration.ofSeconds(1), notificationService.backoff(1));
+        assertEquals(Duration.ofSeconds(2), notificationService.backoff(2));
+        assertEquals(Duration.ofSeconds(3), notificationService.backoff(3));
+        assertEquals(Duration.ofSeconds(3), notificationService.backoff(64));
+    }
+}
@@ -1,12 +1,16 @@
 package adrianromanski.restschool.services;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.domain.enums.PersonType;
 import adrianromanski.restschool.domain.base_entity.address.Address;
 import adrianromanski.restschool.domain.base_entity.address.GuardianAddress;
 import adrianromanski.restschool.domain.base_entity.contact.Contact;
 import adrianromanski.restschool.domain.base_entity.contact.GuardianContact;
 import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.domain.group.StudentClass;
 import adrianromanski.restschool.domain.person.Guardian;
 import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.DeleteBeforeInitializationException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.exceptions.UpdateBeforeInitializationException;
@@ -17,25 +21,43 @@ import adrianromanski.restschool.mapper.person.StudentMapper;
 import adrianromanski.restschool.model.base_entity.address.GuardianAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.ContactDTO;
 import adrianromanski.restschool.model.base_entity.contact.GuardianContactDTO;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.person.AgeBracketHistogramDTO;
+import adrianromanski.restschool.model.person.ChildrenHistogramDTO;
 import adrianromanski.restschool.model.person.GuardianDTO;
+import adrianromanski.restschool.model.person.HouseholdDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.repositories.base_entity.AddressRepository;
 import adrianromanski.restschool.repositories.base_entity.ContactRepository;
+import adrianromanski.restschool.repositories.person.AgeCount;
+import adrianromanski.restschool.repositories.person.ChildrenCount;
 import adrianromanski.restschool.repositories.person.GuardianRepository;
 import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.Paging;
 import adrianromanski.restschool.services.person.guardian.GuardianService;
 import adrianromanski.restschool.services.person.guardian.GuardianServiceImpl;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static adrianromanski.restschool.domain.enums.FemaleName.CHARLOTTE;
 import static adrianromanski.restschool.domain.enums.Gender.FEMALE;
@@ -43,9 +65,11 @@ import static adrianromanski.restschool.domain.enums.Gender.MALE;
 import static adrianromanski.restschool.domain.enums.LastName.*;
 import static adrianromanski.restschool.domain.enums.MaleName.ETHAN;
 import static adrianromanski.restschool.domain.enums.MaleName.SEBASTIAN;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -76,12 +100,23 @@ class GuardianServiceImplTest {
     @Mock
     ContactRepository contactRepository;
 
+    @Mock
+    PersonSearchIndex personSearchIndex;
+
     @BeforeEach
     void beforeAll() {
         MockitoAnnotations.initMocks(this);
+        // ages below are the ones on this day
+        SchoolClock.useClock(Clock.fixed(Instant.parse("2020-05-04T10:15:30Z"), ZoneOffset.UTC));
 
         guardianService = new GuardianServiceImpl(GuardianMapper.INSTANCE, GuardianAddressMapper.INSTANCE, GuardianContactMapper.INSTANCE, StudentMapper.INSTANCE,
-                                                    guardianRepository, addressRepository, contactRepository, studentRepository);
+                                                    guardianRepository, addressRepository, contactRepository, studentRepository,
+                                                    personSearchIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SchoolClock.useSystemClock();
     }
 
     GuardianDTO createEthanDTO() {
@@ -186,13 +221,165 @@ class GuardianServiceImplTest {
     void getAllStudentsForGuardian() {
         Guardian guardian = createEthan();
 
-        when(studentRepository.findAll()).thenReturn(guardian.getStudents());
+        when(studentRepository.findAllByGuardianId(ID)).thenReturn(guardian.getStudents());
 
         List<StudentDTO> studentsDTO = guardianService.getAllStudentsForGuardian(guardian.getId());
 
         assertEquals(studentsDTO.size(), 2);
         assertEquals(studentsDTO.get(0).getFirstName(), SEBASTIAN.get());
         assertEquals(studentsDTO.get(1).getFirstName(), CHARLOTTE.get());
+        verify(studentRepository, never()).findAll();
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getAllStudentsForGuardians")
+    @Test
+    void getAllStudentsForGuardians() {
+        Guardian guardian = createEthan();
+
+        when(studentRepository.findAllByGuardianIdIn(anyCollection())).thenReturn(guardian.getStudents());
+
+        Map<Long, List<StudentDTO>> students = guardianService.getAllStudentsForGuardians(Arrays.asList(2L, ID));
+
+        assertEquals(Arrays.asList(2L, ID), new ArrayList<>(students.keySet()));
+        assertTrue(students.get(2L).isEmpty());
+        assertEquals(2, students.get(ID).size());
+        assertEquals(SEBASTIAN.get(), students.get(ID).get(0).getFirstName());
+        verify(studentRepository, times(1)).findAllByGuardianIdIn(anyCollection());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = getAllStudentsForGuardians, [Reason] = Too many ids")
+    @Test
+    void getAllStudentsForGuardiansTooMany() {
+        List<Long> ids = LongStream.rangeClosed(1, GuardianServiceImpl.MAX_GUARDIANS + 1).boxed().collect(toList());
+
+        Throwable ex = catchThrowable(() -> guardianService.getAllStudentsForGuardians(ids));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(studentRepository, never()).findAllByGuardianIdIn(anyCollection());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getHousehold")
+    @Test
+    void getHousehold() {
+        Guardian guardian = createEthan();
+        guardian.getStudents().get(0).setStudentClass(StudentClass.builder().name("1A").build());
+
+        when(guardianRepository.findHouseholdById(ID)).thenReturn(Optional.of(guardian));
+        when(studentRepository.findHouseholdChildren(Collections.singletonList(ID))).thenReturn(guardian.getStudents());
+
+        HouseholdDTO household = guardianService.getHousehold(ID);
+
+        assertEquals(ETHAN.get(), household.getGuardian().getFirstName());
+        // children are listed once, next to the Guardian instead of inside of it
+        assertTrue(household.getGuardian().getStudentsDTO().isEmpty());
+        assertEquals(2, household.getChildren().size());
+        assertEquals(SEBASTIAN.get(), household.getChildren().get(0).getStudent().getFirstName());
+        // and the class once, next to the child
+        assertEquals("1A", household.getChildren().get(0).getStudentClass().getName());
+        assertNull(household.getChildren().get(0).getStudent().getStudentClassDTO());
+        verify(guardianRepository, never()).findById(anyLong());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = getHousehold, [Reason] = Guardian with id 1 not found")
+    @Test
+    void getHouseholdNotFound() {
+        when(guardianRepository.findHouseholdById(ID)).thenReturn(Optional.empty());
+
+        Throwable ex = catchThrowable(() -> guardianService.getHousehold(ID));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+        verify(studentRepository, never()).findHouseholdChildren(anyCollection());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getHouseholds")
+    @Test
+    void getHouseholds() {
+        Guardian ethan = createEthan();
+        Guardian childless = Guardian.builder().firstName(ETHAN.get()).lastName(COOPER.get()).build();
+        childless.setId(2L);
+        Pageable pageable = PageRequest.of(0, Paging.MAX_PAGE_SIZE);
+
+        when(guardianRepository.findHouseholdPage(pageable)).thenReturn(new PageImpl<>(Arrays.asList(childless, ethan), pageable, 2));
+        when(studentRepository.findHouseholdChildren(Arrays.asList(2L, ID))).thenReturn(ethan.getStudents());
+
+        PageDTO<HouseholdDTO> page = guardianService.getHouseholds(-1, 500);
+
+        assertEquals(2, page.getTotalElements());
+        assertTrue(page.getContent().get(0).getChildren().isEmpty());
+        assertEquals(2, page.getContent().get(1).getChildren().size());
+        verify(studentRepository, times(1)).findHouseholdChildren(anyCollection());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getGuardiansAgeHistogram")
+    @Test
+    void getGuardiansAgeHistogram() {
+        AgeCount row = mock(AgeCount.class);
+        when(row.getAge()).thenReturn(35L);
+        when(row.getTotal()).thenReturn(4L);
+        when(guardianRepository.countByAgeBracket(LocalDate.of(2020, 5, 4), 5)).thenReturn(Collections.singletonList(row));
+
+        AgeBracketHistogramDTO histogram = guardianService.getGuardiansAgeHistogram(5);
+
+        assertEquals(5, histogram.getWidth());
+        assertEquals(35L, histogram.getBrackets().get(0).getFromAge());
+        assertEquals(39L, histogram.getBrackets().get(0).getToAge());
+        assertEquals(4L, histogram.getBrackets().get(0).getCount());
+        verify(guardianRepository, never()).findAll();
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = getGuardiansAgeHistogram, [Reason] = Width out of range")
+    @Test
+    void getGuardiansAgeHistogramInvalidWidth() {
+        Throwable ex = catchThrowable(() -> guardianService.getGuardiansAgeHistogram(0));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(guardianRepository, never()).countByAgeBracket(any(LocalDate.class), anyInt());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getGuardiansPageByAge")
+    @Test
+    void getGuardiansPageByAge() {
+        Pageable pageable = PageRequest.of(0, Paging.DEFAULT_PAGE_SIZE);
+        when(guardianRepository.findPageByDateOfBirthRange(LocalDate.of(1980, 5, 4), LocalDate.of(1990, 5, 4), pageable))
+                .thenReturn(new PageImpl<>(Collections.singletonList(createEthan()), pageable, 1));
+
+        PageDTO<GuardianDTO> page = guardianService.getGuardiansPageByAge(30L, null, null, null);
+
+        assertEquals(1, page.getTotalElements());
+        assertTrue(page.getContent().get(0).getStudentsDTO().isEmpty());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getGuardiansChildrenHistogram")
+    @Test
+    void getGuardiansChildrenHistogram() {
+        ChildrenCount row = mock(ChildrenCount.class);
+        when(row.getChildren()).thenReturn(2L);
+        when(row.getTotal()).thenReturn(7L);
+        when(guardianRepository.countByChildren()).thenReturn(Collections.singletonList(row));
+
+        ChildrenHistogramDTO histogram = guardianService.getGuardiansChildrenHistogram();
+
+        assertEquals(2L, histogram.getBuckets().get(0).getChildren());
+        assertEquals(7L, histogram.getBuckets().get(0).getCount());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = getGuardiansPageByChildren, [Reason] = Negative number of children")
+    @Test
+    void getGuardiansPageByChildrenNegative() {
+        Throwable ex = catchThrowable(() -> guardianService.getGuardiansPageByChildren(-1, null, null));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(guardianRepository, never()).findPageByChildren(anyInt(), any(Pageable.class));
     }
 
 
@@ -414,6 +601,7 @@ class GuardianServiceImplTest {
         guardianService.deleteGuardianByID(guardian.getId());
 
         verify(guardianRepository, times(1)).delete(guardian);
+        verify(personSearchIndex, times(1)).remove(PersonType.GUARDIAN, guardian.getId());
     }
 
 
@@ -0,0 +1,93 @@
+package adrianromanski.restschool.services;
+
+import adrianromanski.restschool.domain.enums.PersonType;
+import adrianromanski.restschool.model.search.PersonSearchResultDTO;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersonSearchIndexTest {
+
+    PersonSearchIndex personSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        personSearchIndex = new PersonSearchIndex();
+        personSearchIndex.index(PersonType.STUDENT, 1L, "Ethan", "Cooper");
+        personSearchIndex.index(PersonType.STUDENT, 2L, "Sebastian", "Rodriguez");
+        personSearchIndex.index(PersonType.TEACHER, 1L, "Ethan", "Williams");
+        personSearchIndex.index(PersonType.GUARDIAN, 1L, "Zoë", "Cooperman");
+        personSearchIndex.index(PersonType.GUARDIAN, 2L, "Anne-Marie", "O'Neil");
+    }
+
+    private List<String> names(List<PersonSearchResultDTO> results) {
+        return results.stream().map(r -> r.getFirstName() + " " + r.getLastName()).collect(toList());
+    }
+
+    @DisplayName("[Prefix], Exact token is ranked before longer ones")
+    @Test
+    void prefix() {
+        List<PersonSearchResultDTO> results = personSearchIndex.search("coop", 10);
+
+        assertEquals(Arrays.asList("Ethan Cooper", "Zoë Cooperman"), names(results));
+        assertEquals(Arrays.asList("Ethan Cooper"), names(personSearchIndex.search("cooper", 1)));
+    }
+
+    @DisplayName("[Prefix], Every word of the query has to match, across types")
+    @Test
+    void multipleWords() {
+        assertEquals(Arrays.asList("Ethan Cooper"), names(personSearchIndex.search("eth coo", 10)));
+        assertEquals(2, personSearchIndex.search("ethan", 10).size());
+    }
+
+    @DisplayName("[Prefix], Rare word finds its match when the longest word is a prefix of more than MAX_CANDIDATES names")
+    @Test
+    void commonLongestWord() {
+        for (long id = 10; id < 10 + PersonSearchIndex.MAX_CANDIDATES * 2; id++) {
+            personSearchIndex.index(PersonType.STUDENT, id, "Alexander", "Nowak" + id);
+        }
+        personSearchIndex.index(PersonType.TEACHER, 2L, "Kim", "Nowakowski");
+
+        assertEquals(Arrays.asList("Kim Nowakowski"), names(personSearchIndex.search("nowak kim", 10)));
+        // every word is that common -> nothing is cut
+        assertEquals(PersonSearchIndex.MAX_CANDIDATES * 2,
+                     personSearchIndex.search("alex nowak", PersonSearchIndex.MAX_CANDIDATES * 3).size());
+    }
+
+    @DisplayName("[Normalization], Case, accents and punctuation are ignored")
+    @Test
+    void normalization() {
+        assertEquals(Arrays.asList("Zoë Cooperman"), names(personSearchIndex.search("ZOE", 10)));
+        assertEquals(Arrays.asList("Anne-Marie O'Neil"), names(personSearchIndex.search("marie o'neil", 10)));
+    }
+
+    @DisplayName("[Fuzzy], Typos are tolerated when there are not enough prefix matches")
+    @Test
+    void fuzzy() {
+        assertEquals(Arrays.asList("Sebastian Rodriguez"), names(personSearchIndex.search("sebastain", 10)));
+        assertEquals(Arrays.asList("Sebastian Rodriguez"), names(personSearchIndex.search("rodirg", 10)));
+        assertTrue(personSearchIndex.search("xyz", 10).isEmpty());
+    }
+
+    @DisplayName("[Incremental], Updated names replace the old ones and removed People disappear")
+    @Test
+    void incrementalUpdates() {
+        personSearchIndex.index(PersonType.STUDENT, 1L, "Ethan", "Henderson");
+
+        assertEquals(Arrays.asList("Zoë Cooperman"), names(personSearchIndex.search("cooper", 10)));
+        assertEquals(Arrays.asList("Ethan Henderson"), names(personSearchIndex.search("hend", 10)));
+
+        personSearchIndex.remove(PersonType.STUDENT, 1L);
+
+        assertTrue(personSearchIndex.search("hend", 10).isEmpty());
+        assertEquals(4, personSearchIndex.size());
+    }
+}
@@ -0,0 +1,380 @@
+package adrianromanski.restschool.services;
+
+import adrianromanski.restschool.domain.base_entity.Subject;
+import adrianromanski.restschool.domain.enums.ScoreScope;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
+import adrianromanski.restschool.domain.event.ExamResult;
+import adrianromanski.restschool.domain.event.ScoreSketch;
+import adrianromanski.restschool.domain.event.ScoreStatistics;
+import adrianromanski.restschool.domain.group.StudentClass;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.model.event.ScoreStatisticsDTO;
+import adrianromanski.restschool.repositories.event.ExamResultRepository;
+import adrianromanski.restschool.repositories.event.ScoreRow;
+import adrianromanski.restschool.repositories.event.ScoreStatisticsRepository;
+import adrianromanski.restschool.repositories.person.StudentClassId;
+import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.event.score_statistics.ScoreStatisticsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+class ScoreStatisticsServiceImplTest {
+
+    public static final long ID = 1L;
+    public static final long CLASS_ID = 7L;
+    public static final long MATHEMATICS = Subjects.MATHEMATICS.ordinal();
+
+    @Mock
+    ScoreStatisticsRepository scoreStatisticsRepository;
+
+    @Mock
+    ExamResultRepository examResultRepository;
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    ScoreStatisticsServiceImpl scoreStatisticsService;
+
+    List<ScoreStatistics> table = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        scoreStatisticsService = new ScoreStatisticsServiceImpl(scoreStatisticsRepository, examResultRepository,
+                                                                studentRepository, transactionManager);
+    }
+
+    // the repository reads and inserts the rows of the table
+    private void initTable(ScoreStatistics... rows) {
+        table.addAll(Arrays.asList(rows));
+        when(scoreStatisticsRepository.findAllByScopeIds(anyCollection(), anyCollection(), anyCollection()))
+                .thenAnswer(invocation -> new ArrayList<>(table));
+        when(scoreStatisticsRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            invocation.<Iterable<ScoreStatistics>>getArgument(0).forEach(table::add);
+            return null;
+        });
+    }
+
+    private ScoreStatistics findRow(ScoreScope scope, long scopeId) {
+        return table.stream()
+                .filter(row -> row.getScope() == scope && row.getScopeId() == scopeId)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private Exam initExam() {
+        Exam exam = Exam.builder().name("Algebra").maxPoints(100L).build();
+        exam.setSubject(Subject.builder().name(Subjects.MATHEMATICS).build());
+        exam.setId(ID);
+        return exam;
+    }
+
+    private ExamResult initResult(Exam exam, float score) {
+        StudentClass studentClass = StudentClass.builder().name("Math").build();
+        studentClass.setId(CLASS_ID);
+        Student student = Student.builder().firstName("Ethan").lastName("Henderson").build();
+        student.setStudentClass(studentClass);
+        return ExamResult.builder().name("Algebra").date(LocalDate.of(2020, 6, 1)).score(score).exam(exam)
+                         .student(student).build();
+    }
+
+    private ScoreSketch initSketch(double... scores) {
+        ScoreSketch sketch = ScoreSketch.of(0, 0, 0, null);
+        for (double score : scores) {
+            sketch.add(score, 1);
+        }
+        return sketch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ScoreStatistics> captureSaved() {
+        ArgumentCaptor<List<ScoreStatistics>> captor = ArgumentCaptor.forClass(List.class);
+        verify(scoreStatisticsRepository, times(1)).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = quantile, nearest rank within half a bucket of the exact score")
+    @Test
+    void sketchQuantiles() {
+        ScoreSketch sketch = initSketch(10, 20, 30, 40, 50, 60, 70, 80, 90, 100.04);
+
+        assertEquals(10d, sketch.quantile(0.1));
+        assertEquals(50d, sketch.quantile(0.5));
+        assertEquals(90d, sketch.quantile(0.9));
+        assertEquals(100d, sketch.max());
+        assertEquals(55.004, sketch.mean(), 0.0001);
+        assertNull(initSketch().quantile(0.5));
+        assertNull(initSketch().standardDeviation());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = bucketsToBytes, sketch is the same after a round trip and a removal is exact")
+    @Test
+    void sketchRoundTrip() {
+        ScoreSketch sketch = initSketch(12.5, 12.5, 99, 0);
+        ScoreSketch stored = ScoreSketch.of(sketch.getCount(), sketch.getSum(), sketch.getSumOfSquares(),
+                                            sketch.bucketsToBytes());
+
+        assertArrayEquals(sketch.bucketsToBytes(), stored.bucketsToBytes());
+        assertEquals(12.5, stored.quantile(0.5));
+        stored.add(99, -1).add(0, -1);
+        assertEquals(12.5, stored.max());
+        assertEquals(0d, stored.standardDeviation(), 0.0001);
+        assertTrue(stored.merge(initSketch(12.5, 12.5).negate()).isEmpty());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = of, [Reason] = Buckets written in an unknown format")
+    @Test
+    void sketchUnknownFormat() {
+        Throwable ex = catchThrowable(() -> ScoreSketch.of(1, 1, 1, new byte[]{9, 0, 0, 0, 0}));
+
+        assertThat(ex).isInstanceOf(IllegalArgumentException.class);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getExamStatistics")
+    @Test
+    void getExamStatistics() {
+        ScoreStatistics statistics = new ScoreStatistics(ScoreScope.EXAM, ID, initSketch(20, 40, 60, 80));
+        when(scoreStatisticsRepository.findByScopeAndScopeId(ScoreScope.EXAM, ID)).thenReturn(Optional.of(statistics));
+
+        ScoreStatisticsDTO statisticsDTO = scoreStatisticsService.getExamStatistics(ID);
+
+        assertEquals(4, statisticsDTO.getCount());
+        assertEquals(50d, statisticsDTO.getMean());
+        assertEquals(Math.sqrt(500), statisticsDTO.getStandardDeviation(), 0.0001);
+        assertEquals(20d, statisticsDTO.getP10());
+        assertEquals(40d, statisticsDTO.getMedian());
+        assertEquals(80d, statisticsDTO.getP90());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getSubjectStatistics, unknown Subject is empty and not read")
+    @Test
+    void getSubjectStatisticsUnknown() {
+        ScoreStatisticsDTO statisticsDTO = scoreStatisticsService.getSubjectStatistics("Astrology");
+
+        assertEquals(0, statisticsDTO.getCount());
+        assertNull(statisticsDTO.getMean());
+        assertNull(statisticsDTO.getMedian());
+        verifyNoInteractions(scoreStatisticsRepository);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = add, stored sketches are merged and missing ones inserted empty " +
+            "in their own transaction first")
+    @Test
+    void add() {
+        ScoreStatistics exam = new ScoreStatistics(ScoreScope.EXAM, ID, initSketch(50));
+        initTable(exam);
+        ExamResult examResult = initResult(initExam(), 70);
+
+        scoreStatisticsService.add(examResult);
+
+        // only the scope and id pairs of the result are read, never a Student Class sharing the id of the Subject
+        verify(scoreStatisticsRepository, times(2)).findAllByScopeIds(Collections.singleton(ID),
+                                                                      Collections.singleton(MATHEMATICS),
+                                                                      Collections.singleton(CLASS_ID));
+        assertEquals(2, exam.getTotal());
+        assertEquals(60d, exam.toSketch().mean());
+        List<ScoreStatistics> inserted = captureSaved();
+        assertEquals(2, inserted.size());
+        verify(transactionManager, times(1)).getTransaction(any());
+        assertEquals(1, findRow(ScoreScope.SUBJECT, MATHEMATICS).getTotal());
+        assertEquals(70d, findRow(ScoreScope.STUDENT_CLASS, CLASS_ID).toSketch().max());
+        assertEquals(CLASS_ID, examResult.getStudentClassId().longValue());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = add, sketch inserted concurrently by another writer is merged into")
+    @Test
+    void addConcurrently() {
+        initTable(new ScoreStatistics(ScoreScope.EXAM, ID, initSketch(50)),
+                  new ScoreStatistics(ScoreScope.SUBJECT, MATHEMATICS, initSketch(50)));
+        when(scoreStatisticsRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            table.add(new ScoreStatistics(ScoreScope.STUDENT_CLASS, CLASS_ID, initSketch(30)));
+            throw new DataIntegrityViolationException("duplicate");
+        });
+
+        scoreStatisticsService.add(initResult(initExam(), 70));
+
+        assertEquals(2, findRow(ScoreScope.STUDENT_CLASS, CLASS_ID).getTotal());
+        assertEquals(50d, findRow(ScoreScope.STUDENT_CLASS, CLASS_ID).toSketch().mean());
+    }
+
+
+    @DisplayName("[Unhappy Path], [Method] = add, [Reason] = Inserted sketch is never found again")
+    @Test
+    void addLost() {
+        List<ScoreStatistics> stored = Collections.emptyList();
+        when(scoreStatisticsRepository.findAllByScopeIds(anyCollection(), anyCollection(), anyCollection()))
+                .thenReturn(stored);
+
+        Throwable ex = catchThrowable(() -> scoreStatisticsService.add(initResult(initExam(), 70)));
+
+        assertThat(ex).isInstanceOf(IllegalStateException.class);
+        verify(scoreStatisticsRepository, times(ScoreStatisticsServiceImpl.MAX_ATTEMPTS)).saveAll(anyIterable());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = add, result without Exam is not counted")
+    @Test
+    void addWithoutExam() {
+        scoreStatisticsService.add(initResult(null, 70));
+
+        verifyNoInteractions(scoreStatisticsRepository);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = addAll, Student Classes are read once and every sketch written once")
+    @Test
+    void addAll() {
+        initTable();
+        Exam exam = initExam();
+        Map<Long, ExamResult> results = new LinkedHashMap<>();
+        results.put(10L, initResult(exam, 90));
+        results.put(11L, initResult(exam, 30));
+        StudentClassId withClass = mock(StudentClassId.class);
+        when(withClass.getStudentId()).thenReturn(10L);
+        when(withClass.getStudentClassId()).thenReturn(CLASS_ID);
+        List<StudentClassId> studentClassIds = Collections.singletonList(withClass);
+        when(studentRepository.findStudentClassIds(results.keySet())).thenReturn(studentClassIds);
+
+        scoreStatisticsService.addAll(exam, results);
+
+        verify(studentRepository, times(1)).findStudentClassIds(results.keySet());
+        assertEquals(3, captureSaved().size());
+        ScoreStatistics examRow = findRow(ScoreScope.EXAM, ID);
+        assertEquals(2, examRow.getTotal());
+        assertEquals(60d, examRow.toSketch().mean());
+        // the second Student has no class
+        assertEquals(1, findRow(ScoreScope.STUDENT_CLASS, CLASS_ID).getTotal());
+        assertEquals(CLASS_ID, results.get(10L).getStudentClassId().longValue());
+        assertNull(results.get(11L).getStudentClassId());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = remove, emptied sketches are kept empty")
+    @Test
+    void remove() {
+        ScoreStatistics exam = new ScoreStatistics(ScoreScope.EXAM, ID, initSketch(70));
+        ScoreStatistics subject = new ScoreStatistics(ScoreScope.SUBJECT, MATHEMATICS, initSketch(70, 20));
+        initTable(exam, subject);
+        ExamResult examResult = initResult(initExam(), 70);
+        examResult.setStudentClassId(CLASS_ID);
+
+        scoreStatisticsService.remove(examResult);
+
+        assertTrue(exam.toSketch().isEmpty());
+        assertNull(exam.toSketch().max());
+        assertEquals(1, subject.getTotal());
+        assertEquals(20d, subject.toSketch().quantile(0.5));
+        // a missing sketch is not inserted to remove from it
+        verify(scoreStatisticsRepository, never()).saveAll(anyIterable());
+        verify(scoreStatisticsRepository, never()).deleteInBatch(any());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = remove, result is removed from the Student Class it was counted in")
+    @Test
+    void removeAfterClassChange() {
+        ScoreStatistics counted = new ScoreStatistics(ScoreScope.STUDENT_CLASS, 9L, initSketch(70, 20));
+        initTable(counted);
+        ExamResult examResult = initResult(initExam(), 70);
+        examResult.setStudentClassId(9L);
+
+        scoreStatisticsService.remove(examResult);
+
+        verify(scoreStatisticsRepository, times(1)).findAllByScopeIds(Collections.singleton(ID),
+                                                                      Collections.singleton(MATHEMATICS),
+                                                                      Collections.singleton(9L));
+        assertEquals(1, counted.getTotal());
+        assertEquals(20d, counted.toSketch().getSum());
+        assertEquals(20d, counted.toSketch().max());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = moveExam, sketch of the Exam moves between the Subjects")
+    @Test
+    void moveExam() {
+        ScoreStatistics exam = new ScoreStatistics(ScoreScope.EXAM, ID, initSketch(70, 20));
+        ScoreStatistics mathematics = new ScoreStatistics(ScoreScope.SUBJECT, MATHEMATICS, initSketch(70, 20, 50));
+        when(scoreStatisticsRepository.findByScopeAndScopeId(ScoreScope.EXAM, ID)).thenReturn(Optional.of(exam));
+        initTable(mathematics);
+
+        scoreStatisticsService.moveExam(ID, Subjects.MATHEMATICS, Subjects.BIOLOGY);
+
+        assertEquals(1, mathematics.getTotal());
+        assertEquals(50d, mathematics.toSketch().max());
+        assertEquals(1, captureSaved().size());
+        assertEquals(2, findRow(ScoreScope.SUBJECT, Subjects.BIOLOGY.ordinal()).getTotal());
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = rebuildAll, missing sketches are inserted, then every sketch locked " +
+            "and replaced with the one counted from the results, sketches without results deleted")
+    @Test
+    void rebuildAll() {
+        ScoreRow withClass = mock(ScoreRow.class);
+        when(withClass.getExamId()).thenReturn(ID);
+        when(withClass.getSubject()).thenReturn(Subjects.MATHEMATICS);
+        when(withClass.getStudentClassId()).thenReturn(CLASS_ID);
+        when(withClass.getScore()).thenReturn(40f);
+        when(withClass.getTotal()).thenReturn(3L);
+        ScoreRow withoutClass = mock(ScoreRow.class);
+        when(withoutClass.getExamId()).thenReturn(ID);
+        when(withoutClass.getSubject()).thenReturn(Subjects.MATHEMATICS);
+        when(withoutClass.getStudentClassId()).thenReturn(null);
+        when(withoutClass.getScore()).thenReturn(40f);
+        when(withoutClass.getTotal()).thenReturn(1L);
+        List<ScoreRow> rows = Arrays.asList(withClass, withoutClass);
+        when(examResultRepository.countScores()).thenReturn(rows);
+        ScoreStatistics exam = new ScoreStatistics(ScoreScope.EXAM, ID, initSketch(90));
+        ScoreStatistics stale = new ScoreStatistics(ScoreScope.STUDENT_CLASS, 9L, initSketch(90));
+        initTable(exam, stale);
+        when(scoreStatisticsRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(table));
+        when(scoreStatisticsRepository.findAllForUpdate()).thenAnswer(invocation -> new ArrayList<>(table));
+
+        assertEquals(3, scoreStatisticsService.rebuildAll());
+
+        verify(examResultRepository, times(1)).recordStudentClasses();
+        // counted before the sketches are locked and again after
+        verify(examResultRepository, times(2)).countScores();
+        assertEquals(2, captureSaved().size());
+        assertEquals(4, exam.getTotal());
+        assertEquals(40d, exam.toSketch().max());
+        assertEquals(4, findRow(ScoreScope.SUBJECT, MATHEMATICS).getTotal());
+        assertEquals(3, findRow(ScoreScope.STUDENT_CLASS, CLASS_ID).getTotal());
+        verify(scoreStatisticsRepository, times(1)).deleteInBatch(Collections.singletonList(stale));
+        verify(scoreStatisticsRepository, never()).deleteAllInBatch();
+    }
+}
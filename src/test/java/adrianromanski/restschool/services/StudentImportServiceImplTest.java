@@ -0,0 +1,166 @@
+package adrianromanski.restschool.services;
+
+import adrianromanski.restschool.domain.enums.ImportStatus;
+import adrianromanski.restschool.domain.enums.PersonType;
+import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.mapper.base_entity.StudentAddressMapper;
+import adrianromanski.restschool.mapper.base_entity.StudentContactMapper;
+import adrianromanski.restschool.mapper.person.StudentMapper;
+import adrianromanski.restschool.model.base_entity.address.StudentAddressDTO;
+import adrianromanski.restschool.model.base_entity.contact.StudentContactDTO;
+import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentImportDTO;
+import adrianromanski.restschool.services.person.student.StudentImportService;
+import adrianromanski.restschool.services.person.student.StudentImportServiceImpl;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static adrianromanski.restschool.domain.enums.FemaleName.CHARLOTTE;
+import static adrianromanski.restschool.domain.enums.Gender.MALE;
+import static adrianromanski.restschool.domain.enums.LastName.*;
+import static adrianromanski.restschool.domain.enums.MaleName.ETHAN;
+import static adrianromanski.restschool.domain.enums.MaleName.SEBASTIAN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StudentImportServiceImplTest {
+
+    public static final int CHUNK_SIZE = 2;
+
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Mock
+    PersonSearchIndex personSearchIndex;
+
+    StudentImportService studentImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        studentImportService = new StudentImportServiceImpl(StudentMapper.INSTANCE, StudentContactMapper.INSTANCE,
+                                                            StudentAddressMapper.INSTANCE, entityManager, personSearchIndex,
+                                                            transactionManager, CHUNK_SIZE);
+    }
+
+    private StudentDTO createStudentDTO(String firstName, String lastName) {
+        return StudentDTO.builder().firstName(firstName).lastName(lastName).gender(MALE).build();
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = importStudents")
+    @Test
+    void importStudents() {
+        StudentDTO ethan = createStudentDTO(ETHAN.get(), COOPER.get());
+        ethan.setContactDTO(StudentContactDTO.builder().email("ethan@school.com").build());
+        ethan.setAddressDTO(StudentAddressDTO.builder().country("Poland").city("Warsaw").build());
+
+        StudentImportDTO importDTO = studentImportService.importStudents(Arrays.asList(ethan,
+                createStudentDTO(SEBASTIAN.get(), RODRIGUEZ.get()), createStudentDTO(CHARLOTTE.get(), HENDERSON.get())));
+
+        assertEquals(3, importDTO.getCreated());
+        assertEquals(0, importDTO.getFailed());
+        ArgumentCaptor<Student> captor = ArgumentCaptor.forClass(Student.class);
+        verify(entityManager, times(3)).persist(captor.capture());
+        Student student = captor.getAllValues().get(0);
+        assertSame(student, student.getContact().getStudent());
+        assertSame(student, student.getAddress().getStudent());
+        // one transaction, flush and clear per chunk
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        verify(personSearchIndex, times(3)).index(eq(PersonType.STUDENT), any(Student.class));
+    }
+
+    @DisplayName("[Happy Path], [Method] = importStudents, JDBC batching turned off -> one chunk of the default size")
+    @Test
+    void importStudentsWithoutBatchSize() {
+        studentImportService = new StudentImportServiceImpl(StudentMapper.INSTANCE, StudentContactMapper.INSTANCE,
+                                                            StudentAddressMapper.INSTANCE, entityManager, personSearchIndex,
+                                                            transactionManager, 0);
+
+        StudentImportDTO importDTO = studentImportService.importStudents(Arrays.asList(
+                createStudentDTO(ETHAN.get(), COOPER.get()), createStudentDTO(SEBASTIAN.get(), RODRIGUEZ.get()),
+                createStudentDTO(CHARLOTTE.get(), HENDERSON.get())));
+
+        assertEquals(3, importDTO.getCreated());
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(entityManager, times(1)).flush();
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = importStudents, [Reason] = Missing lastName")
+    @Test
+    void importStudentsInvalidRow() {
+        StudentImportDTO importDTO = studentImportService.importStudents(Arrays.asList(
+                createStudentDTO(ETHAN.get(), COOPER.get()), createStudentDTO(SEBASTIAN.get(), null)));
+
+        assertEquals(1, importDTO.getCreated());
+        assertEquals(ImportStatus.FAILED, importDTO.getResults().get(1).getStatus());
+        assertEquals("lastName is required", importDTO.getResults().get(1).getMessage());
+        verify(entityManager, times(1)).persist(any(Student.class));
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = importStudents, [Reason] = Chunk rolled back, valid rows saved again")
+    @Test
+    void importStudentsChunkRolledBack() {
+        doThrow(new PersistenceException("constraint violation")).when(entityManager)
+                .persist(argThat((Student student) -> RODRIGUEZ.get().equals(student.getLastName())));
+
+        StudentImportDTO importDTO = studentImportService.importStudents(Arrays.asList(
+                createStudentDTO(ETHAN.get(), COOPER.get()), createStudentDTO(SEBASTIAN.get(), RODRIGUEZ.get()),
+                createStudentDTO(CHARLOTTE.get(), HENDERSON.get())));
+
+        assertEquals(2, importDTO.getCreated());
+        assertEquals(1, importDTO.getFailed());
+        assertEquals(ImportStatus.CREATED, importDTO.getResults().get(0).getStatus());
+        assertEquals(ImportStatus.FAILED, importDTO.getResults().get(1).getStatus());
+        assertEquals("Rolled back: constraint violation", importDTO.getResults().get(1).getMessage());
+        assertEquals(ImportStatus.CREATED, importDTO.getResults().get(2).getStatus());
+        // the first chunk and then its failing half are rolled back
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(4)).getTransaction(any());
+        verify(personSearchIndex, times(2)).index(eq(PersonType.STUDENT), any(Student.class));
+    }
+
+    @DisplayName("[Happy Path], [Method] = importStudentsFromCsv")
+    @Test
+    void importStudentsFromCsv() throws IOException {
+        String csv = "firstName,lastName,gender,dateOfBirth,email,country,city\n" +
+                "Ethan,Cooper,MALE,1992-11-03,ethan@school.com,Poland,\"Warsaw, Mokotow\"\n" +
+                "Charlotte,Henderson,female,not a date,,,\n" +
+                "Sebastian,Rodriguez,,,,,\n";
+
+        StudentImportDTO importDTO = studentImportService.importStudentsFromCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, importDTO.getCreated());
+        assertEquals(1, importDTO.getFailed());
+        assertEquals(2, importDTO.getResults().get(1).getRow());
+        assertEquals(ImportStatus.FAILED, importDTO.getResults().get(1).getStatus());
+        ArgumentCaptor<Student> captor = ArgumentCaptor.forClass(Student.class);
+        verify(entityManager, times(2)).persist(captor.capture());
+        assertEquals("Warsaw, Mokotow", captor.getAllValues().get(0).getAddress().getCity());
+        assertEquals(MALE, captor.getAllValues().get(0).getGender());
+        assertNull(captor.getAllValues().get(1).getContact());
+    }
+}
@@ -1,33 +1,66 @@
 package adrianromanski.restschool.services;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.domain.base_entity.Subject;
 import adrianromanski.restschool.domain.base_entity.address.Address;
 import adrianromanski.restschool.domain.base_entity.address.StudentAddress;
 import adrianromanski.restschool.domain.base_entity.contact.StudentContact;
+import adrianromanski.restschool.domain.enums.ExportFormat;
 import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.domain.enums.PersonType;
+import adrianromanski.restschool.domain.enums.Subjects;
+import adrianromanski.restschool.domain.event.Exam;
 import adrianromanski.restschool.domain.person.Student;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.DeleteBeforeInitializationException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.mapper.base_entity.StudentAddressMapper;
 import adrianromanski.restschool.mapper.base_entity.StudentContactMapper;
 import adrianromanski.restschool.mapper.person.StudentMapper;
+import adrianromanski.restschool.model.PageDTO;
+import adrianromanski.restschool.model.VersionDTO;
 import adrianromanski.restschool.model.base_entity.address.AddressDTO;
 import adrianromanski.restschool.model.base_entity.address.StudentAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.ContactDTO;
 import adrianromanski.restschool.model.base_entity.contact.StudentContactDTO;
+import adrianromanski.restschool.model.person.AgeHistogramDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
+import adrianromanski.restschool.model.person.StudentDetailDTO;
+import adrianromanski.restschool.model.person.StudentPageDTO;
 import adrianromanski.restschool.repositories.base_entity.AddressRepository;
 import adrianromanski.restschool.repositories.base_entity.ContactRepository;
+import adrianromanski.restschool.repositories.base_entity.VersionSummary;
+import adrianromanski.restschool.repositories.person.AgeCount;
+import adrianromanski.restschool.repositories.person.LocationCount;
+import adrianromanski.restschool.repositories.person.StudentExportRow;
 import adrianromanski.restschool.repositories.person.StudentRepository;
+import adrianromanski.restschool.services.Paging;
+import adrianromanski.restschool.services.person.student.StudentPageToken;
 import adrianromanski.restschool.services.person.student.StudentService;
 import adrianromanski.restschool.services.person.student.StudentServiceImpl;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -38,11 +71,14 @@ import static adrianromanski.restschool.domain.enums.Gender.MALE;
 import static adrianromanski.restschool.domain.enums.LastName.*;
 import static adrianromanski.restschool.domain.enums.MaleName.ETHAN;
 import static adrianromanski.restschool.domain.enums.MaleName.SEBASTIAN;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class StudentServiceImplTest {
@@ -61,15 +97,25 @@ class StudentServiceImplTest {
     ContactRepository studentContactRepository;
     @Mock
     AddressRepository addressRepository;
+    @Mock
+    PersonSearchIndex personSearchIndex;
 
     StudentService studentService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
+        // ages below are the ones on this day
+        SchoolClock.useClock(Clock.fixed(Instant.parse("2020-05-04T10:15:30Z"), ZoneOffset.UTC));
 
         studentService = new StudentServiceImpl(StudentMapper.INSTANCE, StudentContactMapper.INSTANCE, StudentAddressMapper.INSTANCE,
-                                                studentRepository, studentContactRepository, addressRepository);
+                                                studentRepository, studentContactRepository, addressRepository,
+                                                personSearchIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SchoolClock.useSystemClock();
     }
 
     private Student createStudent(Long id, String firstName, String lastName, Gender gender) {
@@ -106,6 +152,28 @@ class StudentServiceImplTest {
         return Arrays.asList(createEthan(), createSebastian(), createCharlotte());
     }
 
+    private List<StudentExportRow> getExportRows() {
+        List<StudentExportRow> rows = new ArrayList<>();
+        for (Student student : getStudents()) {
+            StudentExportRow row = mock(StudentExportRow.class);
+            when(row.getId()).thenReturn(student.getId());
+            when(row.getFirstName()).thenReturn(student.getFirstName());
+            when(row.getLastName()).thenReturn(student.getLastName());
+            when(row.getGender()).thenReturn(student.getGender());
+            when(row.getDateOfBirth()).thenReturn(student.getDateOfBirth());
+            when(row.getContactId()).thenReturn(1L);
+            when(row.getEmail()).thenReturn(student.getContact().getEmail());
+            when(row.getTelephoneNumber()).thenReturn(student.getContact().getTelephoneNumber());
+            when(row.getAddressId()).thenReturn(1L);
+            when(row.getCountry()).thenReturn(student.getAddress().getCountry());
+            when(row.getCity()).thenReturn(student.getAddress().getCity());
+            when(row.getStreetName()).thenReturn(student.getAddress().getStreetName());
+            when(row.getPostalCode()).thenReturn(student.getAddress().getPostalCode());
+            rows.add(row);
+        }
+        return rows;
+    }
+
     private StudentAddressDTO getAddressDTO() { return StudentAddressDTO.builder().country(POLAND).city(WARSAW).postalCode(POSTAL_CODE).streetName(SESAME).build(); }
 
     private StudentAddress getAddress() { return StudentAddress.builder().country(POLAND).city(WARSAW).postalCode(POSTAL_CODE).streetName(SESAME).build(); }
@@ -129,6 +197,83 @@ class StudentServiceImplTest {
         assertEquals(3, studentDTOS.size());
     }
 
+    @DisplayName("[Happy Path], [Method] = getStudentsPage, [Reason] = First page with next page")
+    @Test
+    void getStudentsPageFirstPage() {
+        List<Student> students = getStudents();
+
+        when(studentRepository.findFirstKeysetPage(any(Pageable.class))).thenReturn(students);
+
+        StudentPageDTO page = studentService.getStudentsPage(null, 2);
+
+        assertEquals(2, page.getStudents().size());
+        StudentPageToken token = StudentPageToken.decode(page.getNextPageToken());
+        assertEquals(2L, token.getId());
+        assertEquals(SEBASTIAN.get(), token.getFirstName());
+        assertEquals(RODRIGUEZ.get(), token.getLastName());
+        assertEquals(LocalDate.of(1992,11,3), token.getDateOfBirth());
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsPage, [Reason] = Last page")
+    @Test
+    void getStudentsPageLastPage() {
+        String pageToken = StudentPageToken.of(createSebastian()).encode();
+
+        when(studentRepository.findKeysetPageAfter(any(LocalDate.class), anyString(), anyString(), anyLong(), any(Pageable.class)))
+                .thenReturn(Arrays.asList(createCharlotte()));
+
+        StudentPageDTO page = studentService.getStudentsPage(pageToken, 2);
+
+        assertEquals(1, page.getStudents().size());
+        assertNull(page.getNextPageToken());
+        verify(studentRepository).findKeysetPageAfter(eq(LocalDate.of(1992,11,3)), eq(RODRIGUEZ.get()),
+                                                      eq(SEBASTIAN.get()), eq(2L), any(Pageable.class));
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsPage, [Reason] = Dated Students run out, page goes on with unknown birth")
+    @Test
+    void getStudentsPageUnknownBirth() {
+        String pageToken = StudentPageToken.of(createSebastian()).encode();
+        Student oliver = Student.builder().firstName("Oliver").lastName("Adams").build();
+        oliver.setId(5L);
+        Student liam = Student.builder().firstName("Liam").lastName("Baker").build();
+        liam.setId(6L);
+
+        when(studentRepository.findKeysetPageAfter(any(LocalDate.class), anyString(), anyString(), anyLong(), any(Pageable.class)))
+                .thenReturn(Arrays.asList(createCharlotte()));
+        when(studentRepository.findFirstUnknownBirthPage(PageRequest.of(0, 2))).thenReturn(Arrays.asList(oliver, liam));
+
+        StudentPageDTO page = studentService.getStudentsPage(pageToken, 2);
+
+        assertEquals(2, page.getStudents().size());
+        assertEquals("Oliver", page.getStudents().get(1).getFirstName());
+        StudentPageToken token = StudentPageToken.decode(page.getNextPageToken());
+        assertNull(token.getDateOfBirth());
+        assertEquals(5L, token.getId());
+    }
+
+    @DisplayName("[Happy Path], [Method] = StudentPageToken, [Reason] = Missing names stay missing, empty ones stay empty")
+    @Test
+    void studentPageTokenNullNames() {
+        Student student = Student.builder().firstName("").build();
+        student.setId(ID);
+
+        StudentPageToken token = StudentPageToken.decode(StudentPageToken.of(student).encode());
+
+        assertNull(token.getLastName());
+        assertEquals("", token.getFirstName());
+        assertNull(token.getDateOfBirth());
+        assertEquals(ID, token.getId());
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = getStudentsPage, [Reason] = Malformed page token")
+    @Test
+    void getStudentsPageInvalidToken() {
+        Throwable ex = catchThrowable(() -> studentService.getStudentsPage("not-a-token", 2));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+
     @DisplayName("[Happy Path], [Method] = getStudentById")
     @Test
     void getStudentById() {
@@ -144,12 +289,68 @@ class StudentServiceImplTest {
         assertEquals(ID, studentDTO.getId());
     }
 
+    @DisplayName("[Happy Path], [Method] = getStudentDetail")
+    @Test
+    void getStudentDetail() {
+        Student student = createEthan();
+        student.setSubjects(new HashSet<>(Arrays.asList(Subject.builder().name(Subjects.MATHEMATICS).build(),
+                                                        Subject.builder().name(Subjects.BIOLOGY).build())));
+        student.setExams(Collections.singleton(Exam.builder().name("Algebra").build()));
+
+        when(studentRepository.findDetailById(ID)).thenReturn(Optional.of(student));
+
+        StudentDetailDTO detailDTO = studentService.getStudentDetail(ID);
+
+        assertEquals(ETHAN.get(), detailDTO.getStudent().getFirstName());
+        assertEquals(2, detailDTO.getSubjects().size());
+        assertEquals("Algebra", detailDTO.getExams().get(0).getName());
+        verify(studentRepository).fetchDetailExams(ID);
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = getStudentDetail, [Reason] = Student with id 1 not found")
+    @Test
+    void getStudentDetailFailure() {
+        when(studentRepository.findDetailById(ID)).thenReturn(Optional.empty());
+
+        Throwable ex = catchThrowable(() -> studentService.getStudentDetail(ID));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+        verify(studentRepository, never()).fetchDetailExams(anyLong());
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentVersion")
+    @Test
+    void getStudentVersion() {
+        VersionSummary summary = mock(VersionSummary.class);
+        when(summary.getTotal()).thenReturn(1L);
+        when(summary.getVersions()).thenReturn(4L);
+        when(studentRepository.summarizeVersionById(ID)).thenReturn(summary);
+
+        VersionDTO versionDTO = studentService.getStudentVersion(ID);
+
+        assertEquals("student-1-4-" + SchoolClock.today(), versionDTO.getETag());
+        assertEquals(SchoolClock.startOfToday().toEpochMilli(), versionDTO.getLastModifiedMillis());
+        verify(studentRepository, never()).findById(anyLong());
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = getStudentVersion, [Reason] = Student with id 1 not found")
+    @Test
+    void getStudentVersionFailure() {
+        VersionSummary summary = mock(VersionSummary.class);
+        when(summary.getTotal()).thenReturn(0L);
+        when(studentRepository.summarizeVersionById(ID)).thenReturn(summary);
+
+        Throwable ex = catchThrowable(() -> studentService.getStudentVersion(ID));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+    }
+
     @DisplayName("[Happy Path], [Method] = getAllFemaleStudents")
     @Test
     void getAllFemaleStudents() {
         List<Student> students = getStudents();
 
-        when(studentRepository.findAll()).thenReturn(students);
+        when(studentRepository.findAllByGender(FEMALE)).thenReturn(students.subList(2, 3));
 
         List<StudentDTO> studentDTOS = studentService.getAllFemaleStudents();
 
@@ -161,11 +362,95 @@ class StudentServiceImplTest {
     void getAllMaleStudents() {
         List<Student> students = getStudents();
 
-        when(studentRepository.findAll()).thenReturn(students);
+        when(studentRepository.findAllByGender(MALE)).thenReturn(students.subList(0, 2));
 
         List<StudentDTO> studentDTOS = studentService.getAllMaleStudents();
 
         assertEquals(2, studentDTOS.size());
+        verify(studentRepository, never()).findAll();
+    }
+
+    @DisplayName("[Happy Path], [Method] = getAllMaleStudents, sorted by age in whole years -> lastName -> firstName")
+    @Test
+    void getAllMaleStudentsSorted() {
+        Student older = Student.builder().firstName("Ethan").lastName("Adams").dateOfBirth(LocalDate.of(2000, 1, 1)).build();
+        Student bornLater = Student.builder().firstName("Liam").lastName("Cooper").dateOfBirth(LocalDate.of(2009, 5, 1)).build();
+        Student sameAge = Student.builder().firstName("Oliver").lastName("Baker").dateOfBirth(LocalDate.of(2008, 6, 1)).build();
+        List<Student> students = Arrays.asList(older, bornLater, sameAge);
+
+        when(studentRepository.findAllByGender(MALE)).thenReturn(students);
+
+        List<String> names = studentService.getAllMaleStudents()
+                                           .stream()
+                                           .map(StudentDTO::getFirstName)
+                                           .collect(toList());
+
+        // both are 11, the one born first still comes first by lastName
+        assertEquals(Arrays.asList("Oliver", "Liam", "Ethan"), names);
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsPageByGender")
+    @Test
+    void getStudentsPageByGender() {
+        List<Student> students = getStudents().subList(0, 2);
+
+        when(studentRepository.findPageByGender(eq(MALE), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(students, PageRequest.of(1, 2), 4));
+
+        PageDTO<StudentDTO> page = studentService.getStudentsPageByGender(MALE, 1, 2);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(1, page.getPage());
+        assertEquals(4, page.getTotalElements());
+        assertEquals(2, page.getTotalPages());
+        verify(studentRepository).findPageByGender(MALE, PageRequest.of(1, 2));
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsPageByGender, [Reason] = Size above the limit")
+    @Test
+    void getStudentsPageByGenderSizeLimited() {
+        when(studentRepository.findPageByGender(eq(FEMALE), any(Pageable.class))).thenReturn(Page.empty());
+
+        studentService.getStudentsPageByGender(FEMALE, null, 1000);
+
+        verify(studentRepository).findPageByGender(FEMALE, PageRequest.of(0, Paging.MAX_PAGE_SIZE));
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsAgeHistogram")
+    @Test
+    void getStudentsAgeHistogram() {
+        AgeCount row = mock(AgeCount.class);
+        when(row.getAge()).thenReturn(17L);
+        when(row.getTotal()).thenReturn(3L);
+        when(studentRepository.countByAge(any(LocalDate.class))).thenReturn(Collections.singletonList(row));
+
+        AgeHistogramDTO histogram = studentService.getStudentsAgeHistogram();
+
+        assertEquals(1, histogram.getBuckets().size());
+        assertEquals(17L, histogram.getBuckets().get(0).getAge());
+        assertEquals(3L, histogram.getBuckets().get(0).getCount());
+        verify(studentRepository, never()).findAll();
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsPageByAge")
+    @Test
+    void getStudentsPageByAge() {
+        LocalDate today = SchoolClock.today();
+        when(studentRepository.findPageByDateOfBirthRange(any(LocalDate.class), any(LocalDate.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(getStudents()));
+
+        PageDTO<StudentDTO> page = studentService.getStudentsPageByAge(17L, 0, 10);
+
+        assertEquals(3, page.getContent().size());
+        verify(studentRepository).findPageByDateOfBirthRange(today.minusYears(18), today.minusYears(17), PageRequest.of(0, 10));
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = getStudentsPageByAge, [Reason] = Negative age")
+    @Test
+    void getStudentsPageByAgeNegative() {
+        Throwable thrown = catchThrowable(() -> studentService.getStudentsPageByAge(-1L, null, null));
+
+        assertThat(thrown).isInstanceOf(BadRequestException.class);
     }
 
     @DisplayName("[Happy Path], [Method] = getStudentByName")
@@ -222,6 +507,78 @@ class StudentServiceImplTest {
     }
 
 
+    @DisplayName("[Happy Path], [Method] = getStudentsByLocation, [Reason] = Student without an address")
+    @Test
+    void getStudentByLocationWithoutAddress() {
+        Student student = createEthan();
+        student.setAddress(null);
+
+        when(studentRepository.findAll()).thenReturn(Collections.singletonList(student));
+
+        Map<String, Map<String, List<StudentDTO>>> returnDTO = studentService.getStudentsByLocation();
+
+        assertEquals(1, returnDTO.get(StudentServiceImpl.UNKNOWN_LOCATION).get(StudentServiceImpl.UNKNOWN_LOCATION).size());
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsCountByLocation")
+    @Test
+    void getStudentsCountByLocation() {
+        LocationCount warsaw = mock(LocationCount.class);
+        when(warsaw.getCountry()).thenReturn(POLAND);
+        when(warsaw.getCity()).thenReturn(WARSAW);
+        when(warsaw.getTotal()).thenReturn(2L);
+        LocationCount unknown = mock(LocationCount.class);
+        when(unknown.getTotal()).thenReturn(1L);
+
+        when(studentRepository.countByLocation()).thenReturn(Arrays.asList(warsaw, unknown));
+
+        Map<String, Map<String, Long>> rollup = studentService.getStudentsCountByLocation();
+
+        assertEquals(2L, rollup.get(POLAND).get(WARSAW).longValue());
+        assertEquals(1L, rollup.get(StudentServiceImpl.UNKNOWN_LOCATION).get(StudentServiceImpl.UNKNOWN_LOCATION).longValue());
+        verify(studentRepository, never()).findAll();
+    }
+
+    @DisplayName("[Happy Path], [Method] = getStudentsPageByLocation, [Reason] = Unknown bucket")
+    @Test
+    void getStudentsPageByLocationUnknown() {
+        when(studentRepository.findPageByLocation(any(), any(), any(Pageable.class))).thenReturn(Page.empty());
+
+        studentService.getStudentsPageByLocation(StudentServiceImpl.UNKNOWN_LOCATION, WARSAW, 0, 5);
+
+        verify(studentRepository).findPageByLocation(null, WARSAW, PageRequest.of(0, 5));
+    }
+
+    @DisplayName("[Happy Path], [Method] = exportStudents, [Format] = CSV")
+    @Test
+    void exportStudentsAsCsv() throws IOException {
+        List<StudentExportRow> rows = getExportRows();
+        when(studentRepository.streamAllForExport()).thenReturn(rows.stream());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        studentService.exportStudents(ExportFormat.CSV, outputStream);
+
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("id,firstName,lastName,gender,dateOfBirth,email,telephoneNumber,emergencyNumber,country,city,streetName,postalCode", lines[0]);
+        assertEquals("1,Ethan,Cooper,MALE,1992-11-03,EthanCool@Gmail.com,222-444-22,,Poland,Warsaw,Sesame,22-44", lines[1]);
+    }
+
+    @DisplayName("[Happy Path], [Method] = exportStudents, [Format] = NDJSON")
+    @Test
+    void exportStudentsAsNdjson() throws IOException {
+        List<StudentExportRow> rows = getExportRows();
+        when(studentRepository.streamAllForExport()).thenReturn(rows.stream());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        studentService.exportStudents(ExportFormat.NDJSON, outputStream);
+
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertThat(lines[0]).startsWith("{\"id\":1,\"firstName\":\"Ethan\",\"lastName\":\"Cooper\",\"gender\":\"MALE\"");
+        assertThat(lines[2]).contains("\"city\":\"Warsaw\"");
+    }
+
     @DisplayName("[Happy Path], [Method] = createNewStudent")
     @Test
     void createNewStudent() {
@@ -238,6 +595,7 @@ class StudentServiceImplTest {
         assertEquals(ID, returnDTO.getId());
 
         verify(studentRepository, times(1)).save(any(Student.class));
+        verify(personSearchIndex, times(1)).index(PersonType.STUDENT, savedStudent);
     }
 
     @DisplayName("[Happy Path], [Method] = addContactToStudent")
@@ -378,6 +736,7 @@ class StudentServiceImplTest {
         studentService.deleteStudentByID(ID);
 
         verify(studentRepository, times(1)).delete(student);
+        verify(personSearchIndex, times(1)).remove(PersonType.STUDENT, ID);
     }
 
     @DisplayName("[Unhappy Path], [Method] = deleteStudentByID")
@@ -1,5 +1,7 @@
 package adrianromanski.restschool.services;
 
+import adrianromanski.restschool.domain.base_entity.SchoolClock;
+import adrianromanski.restschool.domain.enums.PersonType;
 import adrianromanski.restschool.domain.base_entity.address.TeacherAddress;
 import adrianromanski.restschool.domain.base_entity.contact.TeacherContact;
 import adrianromanski.restschool.domain.enums.Subjects;
@@ -8,6 +10,7 @@ import adrianromanski.restschool.domain.group.StudentClass;
 import adrianromanski.restschool.domain.person.Student;
 import adrianromanski.restschool.domain.person.Teacher;
 import adrianromanski.restschool.domain.enums.Gender;
+import adrianromanski.restschool.exceptions.BadRequestException;
 import adrianromanski.restschool.exceptions.DeleteBeforeInitializationException;
 import adrianromanski.restschool.exceptions.ResourceNotFoundException;
 import adrianromanski.restschool.mapper.base_entity.TeacherAddressMapper;
@@ -15,28 +18,46 @@ import adrianromanski.restschool.mapper.base_entity.TeacherContactMapper;
 import adrianromanski.restschool.mapper.event.ExamMapper;
 import adrianromanski.restschool.mapper.person.StudentMapper;
 import adrianromanski.restschool.mapper.person.TeacherMapper;
+import adrianromanski.restschool.model.PageDTO;
 import adrianromanski.restschool.model.base_entity.address.AddressDTO;
 import adrianromanski.restschool.model.base_entity.address.TeacherAddressDTO;
 import adrianromanski.restschool.model.base_entity.contact.ContactDTO;
 import adrianromanski.restschool.model.base_entity.contact.TeacherContactDTO;
 import adrianromanski.restschool.model.event.ExamDTO;
+import adrianromanski.restschool.model.event.ExamEnrollmentDTO;
+import adrianromanski.restschool.model.person.RosterEntryDTO;
 import adrianromanski.restschool.model.person.StudentDTO;
 import adrianromanski.restschool.model.person.TeacherDTO;
+import adrianromanski.restschool.model.person.TeacherWorkloadDTO;
 import adrianromanski.restschool.repositories.base_entity.AddressRepository;
 import adrianromanski.restschool.repositories.base_entity.ContactRepository;
 import adrianromanski.restschool.repositories.event.ExamRepository;
+import adrianromanski.restschool.repositories.person.RosterEntry;
 import adrianromanski.restschool.repositories.person.StudentRepository;
 import adrianromanski.restschool.repositories.person.TeacherRepository;
+import adrianromanski.restschool.repositories.person.TeacherWorkload;
+import adrianromanski.restschool.services.Paging;
 import adrianromanski.restschool.services.person.teacher.TeacherService;
 import adrianromanski.restschool.services.person.teacher.TeacherServiceImpl;
+import adrianromanski.restschool.services.search.PersonSearchIndex;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -82,6 +103,9 @@ class TeacherServiceImplTest {
     @Mock
     ContactRepository contactRepository;
 
+    @Mock
+    PersonSearchIndex personSearchIndex;
+
     Teacher createTeacher(Long id, String firstName, String lastName, Gender gender, Subjects subjects, LocalDate firstDay) {
         Teacher teacher = Teacher.builder().firstName(firstName).lastName(lastName).gender(gender).
                                         firstDay(firstDay).subject(subjects).build();
@@ -129,10 +153,17 @@ class TeacherServiceImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
+        // years of experience below are the ones on this day
+        SchoolClock.useClock(Clock.fixed(Instant.parse("2020-05-04T10:15:30Z"), ZoneOffset.UTC));
 
         teacherService = new TeacherServiceImpl(teacherRepository, contactRepository, studentRepository, examRepository, addressRepository,
                                                 TeacherMapper.INSTANCE, TeacherAddressMapper.INSTANCE, TeacherContactMapper.INSTANCE,
-                                                ExamMapper.INSTANCE, StudentMapper.INSTANCE);
+                                                ExamMapper.INSTANCE, StudentMapper.INSTANCE, personSearchIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SchoolClock.useSystemClock();
     }
 
 
@@ -210,6 +241,89 @@ class TeacherServiceImplTest {
     }
 
 
+    @DisplayName("[Happy Path], [Method] = getTeachersWorkload")
+    @Test
+    void getTeachersWorkload() {
+        TeacherWorkload row = mock(TeacherWorkload.class);
+        when(row.getId()).thenReturn(ID);
+        when(row.getFirstName()).thenReturn(ETHAN.get());
+        when(row.getExams()).thenReturn(4L);
+        when(row.getTotalPaid()).thenReturn(2500.0);
+        when(row.getClassSize()).thenReturn(25L);
+        when(teacherRepository.findWorkload(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(Collections.singletonList(row), PageRequest.of(0, 10), 1));
+
+        PageDTO<TeacherWorkloadDTO> page = teacherService.getTeachersWorkload("totalPaid", "asc", null, 10);
+
+        assertEquals(1, page.getTotalElements());
+        assertEquals(4L, page.getContent().get(0).getExams());
+        assertEquals(2500.0, page.getContent().get(0).getTotalPaid());
+        assertEquals(25L, page.getContent().get(0).getClassSize());
+        verify(teacherRepository).findWorkload(PageRequest.of(0, 10, Sort.by("totalPaid").and(Sort.by("id"))));
+        verify(teacherRepository, never()).findAll();
+    }
+
+    @DisplayName("[Happy Path], [Method] = getTeachersWorkload, [Reason] = Defaults to most exams first")
+    @Test
+    void getTeachersWorkloadDefaults() {
+        when(teacherRepository.findWorkload(any(Pageable.class))).thenReturn(Page.empty());
+
+        teacherService.getTeachersWorkload(null, null, null, 1000);
+
+        verify(teacherRepository).findWorkload(PageRequest.of(0, Paging.MAX_PAGE_SIZE,
+                                                              Sort.by(Sort.Direction.DESC, "exams").and(Sort.by("id"))));
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = getTeachersWorkload, [Reason] = Unknown sort property")
+    @Test
+    void getTeachersWorkloadUnknownSort() {
+        Throwable ex = catchThrowable(() -> teacherService.getTeachersWorkload("salary", null, null, null));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(teacherRepository, never()).findWorkload(any());
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = getTeachersWorkload, [Reason] = Unknown direction")
+    @Test
+    void getTeachersWorkloadUnknownDirection() {
+        Throwable ex = catchThrowable(() -> teacherService.getTeachersWorkload("exams", "up", null, null));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+    }
+
+
+    @DisplayName("[Happy Path], [Method] = getRoster")
+    @Test
+    void getRoster() {
+        RosterEntry row = mock(RosterEntry.class);
+        when(row.getFirstName()).thenReturn(SEBASTIAN.get());
+        when(row.getGender()).thenReturn(MALE);
+        when(row.getEmail()).thenReturn(EMAIL);
+        when(teacherRepository.existsById(ID)).thenReturn(true);
+        when(studentRepository.findRosterPage(eq(ID), eq(MALE), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(Collections.singletonList(row), PageRequest.of(1, 1), 2));
+
+        PageDTO<RosterEntryDTO> page = teacherService.getRoster(ID, MALE, 1, 1);
+
+        assertEquals(2, page.getTotalElements());
+        assertEquals(SEBASTIAN.get(), page.getContent().get(0).getFirstName());
+        assertEquals(EMAIL, page.getContent().get(0).getEmail());
+        verify(studentRepository).findRosterPage(ID, MALE, PageRequest.of(1, 1));
+        verify(teacherRepository, never()).findById(anyLong());
+    }
+
+    @DisplayName("[Unhappy Path], [Method] = getRoster, [Reason] = Teacher with id 1 not found")
+    @Test
+    void getRosterFailure() {
+        when(teacherRepository.existsById(ID)).thenReturn(false);
+
+        Throwable ex = catchThrowable(() -> teacherService.getRoster(ID, null, null, null));
+
+        assertThat(ex).isInstanceOf(ResourceNotFoundException.class);
+        verify(studentRepository, never()).findRosterPage(any(), any(), any());
+    }
+
+
     @DisplayName("[Happy Path], [Method] = addExamForClass")
     @Test
     void addExamForClass() {
@@ -218,10 +332,27 @@ class TeacherServiceImplTest {
         ExamDTO examDTO = createExam();
 
         when(teacherRepository.findById(anyLong())).thenReturn(Optional.of(teacher));
+        when(examRepository.enrollStudentClass(any(), any())).thenReturn(2);
+
+        ExamEnrollmentDTO enrollmentDTO = teacherService.addExamForClass(1L, examDTO);
+
+        assertEquals(2, enrollmentDTO.getEnrolled());
+        assertEquals(STUDENT_CLASS_NAME, enrollmentDTO.getStudentClass());
+        assertEquals("Ethan Exam", enrollmentDTO.getExamName());
+        verify(examRepository).save(any(Exam.class));
+        verify(teacherRepository, never()).save(any(Teacher.class));
+    }
+
 
-        ExamDTO returnDTO = teacherService.addExamForClass(1L, examDTO);
+    @DisplayName("[Unhappy Path], [Method] = addExamForClass, [Reason] = Teacher has no Class")
+    @Test
+    void addExamForClassWithoutClass() {
+        when(teacherRepository.findById(anyLong())).thenReturn(Optional.of(createBenjamin()));
 
-        assertEquals(returnDTO.getStudentsDTO().size(), 2);
+        Throwable ex = catchThrowable(() -> teacherService.addExamForClass(2L, createExam()));
+
+        assertThat(ex).isInstanceOf(BadRequestException.class);
+        verify(examRepository, never()).save(any(Exam.class));
     }
 
 
@@ -544,6 +675,8 @@ class TeacherServiceImplTest {
         when(teacherRepository.findById(ID)).thenReturn(Optional.of(teacher));
 
         teacherService.deleteTeacherById(ID);
+
+        verify(personSearchIndex, times(1)).remove(PersonType.TEACHER, ID);
    }
 
 